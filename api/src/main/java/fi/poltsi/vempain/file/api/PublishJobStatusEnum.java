@@ -0,0 +1,14 @@
+package fi.poltsi.vempain.file.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Enum representing the state of a publish job.
+ */
+@Schema(description = "State of a publish job",
+		allowableValues = {"RUNNING", "COMPLETED", "FAILED"})
+public enum PublishJobStatusEnum {
+	RUNNING,
+	COMPLETED,
+	FAILED
+}
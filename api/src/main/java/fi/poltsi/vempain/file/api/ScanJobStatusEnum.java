@@ -0,0 +1,16 @@
+package fi.poltsi.vempain.file.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Enum representing the state of an asynchronous scan job.
+ */
+@Schema(description = "State of an asynchronous scan job",
+		allowableValues = {"QUEUED", "RUNNING", "COMPLETED", "FAILED", "CANCELLED"})
+public enum ScanJobStatusEnum {
+	QUEUED,
+	RUNNING,
+	COMPLETED,
+	FAILED,
+	CANCELLED
+}
@@ -0,0 +1,42 @@
+package fi.poltsi.vempain.file.api.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Sort;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(description = "Request DTO for listing files page by page with a cursor, which continues from the last file of the previous page")
+public class CursorPagedRequest {
+	@Schema(description = "Opaque cursor returned with the previous page, omitted for the first page. A continued listing keeps the sort of its first page",
+			example = "ZmlsZW5hbWUKQVNDCjQyCmltZzAwNDIuanBn")
+	private String cursor;
+
+	@Min(1)
+	@Max(200)
+	@Schema(description = "Page size", example = "50")
+	private int size;
+
+	@Schema(description = "Sort field, one of id, filename, file_path, mimetype, filesize or created", example = "filename")
+	private String sortBy;
+
+	@Schema(description = "Sort direction", example = "ASC")
+	private Sort.Direction direction;
+
+	@Schema(description = "Search terms, each of which must match the filename, path, description or mimetype", example = "holiday")
+	private String search;
+
+	@Schema(description = "Whether the search is case-sensitive", example = "false")
+	private Boolean caseSensitive;
+
+	@Schema(description = "Whether to count all the matching files, which repeats the whole search", example = "false")
+	private boolean includeTotal;
+}
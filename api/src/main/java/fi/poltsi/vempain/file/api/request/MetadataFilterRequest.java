@@ -0,0 +1,33 @@
+package fi.poltsi.vempain.file.api.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(description = "Exact match of one metadata tag, e.g. EXIF.Model = 'X-T4'")
+public class MetadataFilterRequest {
+	@NotBlank
+	@Size(max = 128)
+	@Schema(description = "Exiftool group of the tag", example = "EXIF", requiredMode = Schema.RequiredMode.REQUIRED)
+	private String group;
+
+	@NotBlank
+	@Size(max = 128)
+	@Schema(description = "Tag name within the group", example = "Model", requiredMode = Schema.RequiredMode.REQUIRED)
+	private String key;
+
+	@NotNull
+	@Size(max = 4096)
+	@Schema(description = "Tag value as stored, compared as a string", example = "X-T4", requiredMode = Schema.RequiredMode.REQUIRED)
+	private String value;
+}
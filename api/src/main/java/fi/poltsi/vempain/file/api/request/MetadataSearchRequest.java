@@ -0,0 +1,38 @@
+package fi.poltsi.vempain.file.api.request;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(description = "Request DTO for searching files by their metadata, all filters must match")
+public class MetadataSearchRequest {
+	@Valid
+	@NotEmpty
+	@Size(max = 20)
+	@Schema(description = "Metadata filters, combined with AND", requiredMode = Schema.RequiredMode.REQUIRED)
+	private List<MetadataFilterRequest> filters;
+
+	@PositiveOrZero
+	@Schema(description = "Page number, starting from 0", example = "0")
+	private int page;
+
+	@Min(1)
+	@Max(200)
+	@Schema(description = "Page size", example = "50")
+	private int size;
+}
@@ -26,4 +26,8 @@ public class PublishFileGroupRequest {
 	@Nullable
 	@Schema(description = "Optional gallery description", example = "This is a description of the gallery", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
 	private String galleryDescription;
+
+	@Schema(description = "Upload all files even if the admin site already has them unchanged", example = "false", requiredMode =
+			Schema.RequiredMode.NOT_REQUIRED)
+	private boolean force;
 }
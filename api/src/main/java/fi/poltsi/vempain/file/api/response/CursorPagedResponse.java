@@ -0,0 +1,35 @@
+package fi.poltsi.vempain.file.api.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(description = "Response DTO containing a page of a cursor paged listing")
+public class CursorPagedResponse<T> {
+
+	@Schema(description = "Items of the page")
+	private List<T> content;
+
+	@Schema(description = "Requested page size", example = "50")
+	private int size;
+
+	@Schema(description = "Whether there are more items after this page", example = "true")
+	private boolean hasNext;
+
+	@Schema(description = "Cursor for the next page, null on the last page", example = "ZmlsZW5hbWUKQVNDCjQyCmltZzAwNDIuanBn")
+	private String nextCursor;
+
+	@Schema(description = "Count of all the matching items, only set when requested", example = "1234")
+	private Long totalElements;
+}
@@ -0,0 +1,34 @@
+package fi.poltsi.vempain.file.api.response;
+
+import fi.poltsi.vempain.file.api.PublishProgressStatusEnum;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(description = "State change of a file group in a publish job, sent as the group event of the publish progress stream")
+public class PublishGroupStatusResponse {
+
+	@Schema(description = "ID of the publish job", example = "12")
+	private Long jobId;
+
+	@Schema(description = "ID of the file group", example = "42")
+	private Long fileGroupId;
+
+	@Schema(description = "State of the group", example = "COMPLETED")
+	private PublishProgressStatusEnum status;
+
+	@Schema(description = "Number of attempts made to publish the group", example = "1")
+	private int attempts;
+
+	@Schema(description = "Error of the last failed attempt, if any")
+	private String lastError;
+}
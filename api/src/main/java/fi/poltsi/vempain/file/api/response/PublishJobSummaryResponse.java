@@ -0,0 +1,57 @@
+package fi.poltsi.vempain.file.api.response;
+
+import fi.poltsi.vempain.file.api.PublishJobStatusEnum;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(description = "Counters, throughput and ETA of a publish job, sent as the job event of the publish progress stream")
+public class PublishJobSummaryResponse {
+
+	@Schema(description = "ID of the publish job", example = "12")
+	private Long jobId;
+
+	@Schema(description = "State of the publish job", example = "RUNNING")
+	private PublishJobStatusEnum status;
+
+	@Schema(description = "Total groups in the job", example = "10")
+	private long totalGroups;
+
+	@Schema(description = "How many groups completed", example = "5")
+	private long completed;
+
+	@Schema(description = "How many groups failed", example = "1")
+	private long failed;
+
+	@Schema(description = "How many files were uploaded to the admin site", example = "120")
+	private long filesPublished;
+
+	@Schema(description = "How many files were skipped because the admin site already has them unchanged", example = "1800")
+	private long filesSkipped;
+
+	@Schema(description = "Publish rate in files per second, uploaded and skipped files included", example = "6.5")
+	private double filesPerSecond;
+
+	@Schema(description = "Estimated seconds until the job completes, null if not known", example = "300")
+	private Long etaSeconds;
+
+	@Schema(description = "When the job was created")
+	private Instant created;
+
+	@Schema(description = "When the job was last updated")
+	private Instant updated;
+
+	@Schema(description = "When the job finished")
+	private Instant finished;
+}
@@ -1,5 +1,6 @@
 package fi.poltsi.vempain.file.api.response;
 
+import fi.poltsi.vempain.file.api.PublishJobStatusEnum;
 import fi.poltsi.vempain.file.api.PublishProgressStatusEnum;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
@@ -20,6 +21,12 @@ import java.util.Map;
 @Schema(description = "Publishing progress information")
 public class PublishProgressResponse {
 
+	@Schema(description = "ID of the publish job, null if nothing has been published yet", example = "12")
+	private Long jobId;
+
+	@Schema(description = "State of the publish job", example = "RUNNING")
+	private PublishJobStatusEnum status;
+
 	@Schema(description = "Total groups discovered for publishing", example = "10")
 	private long totalGroups;
 
@@ -35,6 +42,12 @@ public class PublishProgressResponse {
 	@Schema(description = "How many groups failed", example = "1")
 	private long failed;
 
+	@Schema(description = "How many files were uploaded to the admin site", example = "120")
+	private long filesPublished;
+
+	@Schema(description = "How many files were skipped because the admin site already has them unchanged", example = "1800")
+	private long filesSkipped;
+
 	@Schema(description = "Per-group status map (groupId -> status)")
 	private Map<Long, PublishProgressStatusEnum> perGroupStatus;
 
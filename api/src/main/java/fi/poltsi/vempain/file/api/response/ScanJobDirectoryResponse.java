@@ -0,0 +1,48 @@
+package fi.poltsi.vempain.file.api.response;
+
+import fi.poltsi.vempain.file.api.ScanJobStatusEnum;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(description = "Progress of a single leaf directory within a scan job")
+public class ScanJobDirectoryResponse {
+
+	@Schema(description = "Directory relative to the original root directory", example = "/2024/holiday")
+	private String directory;
+
+	@Schema(description = "State of the directory scan", example = "COMPLETED")
+	private ScanJobStatusEnum status;
+
+	@Schema(description = "Number of files in the directory", example = "120")
+	private long totalFilesCount;
+
+	@Schema(description = "Number of files scanned", example = "120")
+	private long scannedFilesCount;
+
+	@Schema(description = "Number of new files added", example = "118")
+	private long newFilesCount;
+
+	@Schema(description = "Number of files that failed", example = "2")
+	private long failedFilesCount;
+
+	@Schema(description = "Error messages of the directory, if any")
+	private String errorMessage;
+
+	@Schema(description = "When the directory scan started")
+	private Instant started;
+
+	@Schema(description = "When the directory scan finished")
+	private Instant finished;
+}
@@ -0,0 +1,33 @@
+package fi.poltsi.vempain.file.api.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(description = "Result of a single file processed by a scan job")
+public class ScanJobFileResponse {
+
+	@Schema(description = "ID of the file entry, null if the file was not stored", example = "42")
+	private Long fileId;
+
+	@Schema(description = "Name of the file", example = "image.jpg")
+	private String filename;
+
+	@Schema(description = "Path of the file, relative to the root directory", example = "/2024/holiday")
+	private String filePath;
+
+	@Schema(description = "Whether the file was added successfully", example = "true")
+	private boolean success;
+
+	@Schema(description = "Reason of the failure, if any")
+	private String message;
+}
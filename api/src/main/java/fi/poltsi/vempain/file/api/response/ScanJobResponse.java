@@ -0,0 +1,76 @@
+package fi.poltsi.vempain.file.api.response;
+
+import fi.poltsi.vempain.file.api.ScanJobStatusEnum;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.annotation.JsonNaming;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@Schema(description = "Status and progress of an asynchronous scan job")
+public class ScanJobResponse {
+
+	@Schema(description = "ID of the scan job", example = "7")
+	private Long id;
+
+	@Schema(description = "State of the scan job", example = "RUNNING")
+	private ScanJobStatusEnum status;
+
+	@Schema(description = "Original directory being scanned", example = "/2024")
+	private String originalDirectory;
+
+	@Schema(description = "Export directory being scanned", example = "/2024")
+	private String exportDirectory;
+
+	@Schema(description = "Number of leaf directories to scan", example = "25")
+	private long totalDirectories;
+
+	@Schema(description = "Number of leaf directories already scanned", example = "10")
+	private long processedDirectories;
+
+	@Schema(description = "Number of files found in the leaf directories", example = "3000")
+	private long totalFilesCount;
+
+	@Schema(description = "Number of files scanned so far", example = "1200")
+	private long scannedFilesCount;
+
+	@Schema(description = "Number of new files added so far", example = "1100")
+	private long newFilesCount;
+
+	@Schema(description = "Number of files that failed so far", example = "3")
+	private long failedFilesCount;
+
+	@Schema(description = "Scan rate in files per second", example = "12.5")
+	private double filesPerSecond;
+
+	@Schema(description = "Estimated seconds until the scan completes, null if not known", example = "144")
+	private Long etaSeconds;
+
+	@Schema(description = "Whether cancellation has been requested", example = "false")
+	private boolean cancelRequested;
+
+	@Schema(description = "Collected error messages")
+	private String errorMessage;
+
+	@Schema(description = "When the job was created")
+	private Instant created;
+
+	@Schema(description = "When the job started running")
+	private Instant started;
+
+	@Schema(description = "When the job finished")
+	private Instant finished;
+
+	@Schema(description = "Per-directory progress, included only in the detailed status")
+	private List<ScanJobDirectoryResponse> directories;
+}
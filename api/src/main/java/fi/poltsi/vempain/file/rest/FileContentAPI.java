@@ -8,26 +8,55 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 
 @Tag(name = "File Content API", description = "API for fetching original file bytes from storage")
 public interface FileContentAPI {
 
 	String BASE_PATH = "/files";
 
-	@Operation(summary = "Get file content by ID", description = "Streams original file bytes for the given file identifier")
+	@Operation(summary = "Get file content by ID",
+			   description = "Streams original file bytes for the given file identifier. Supports single and multiple byte ranges, If-Range, "
+							 + "and conditional requests with If-None-Match and If-Modified-Since")
 	@Parameter(name = "id", description = "File ID to fetch content for", example = "1")
+	@Parameter(name = HttpHeaders.IF_RANGE, description = "Entity tag or last modification date the requested ranges are valid for")
 	@ApiResponses(value = {
 			@ApiResponse(responseCode = "200", description = "File content returned successfully"),
+			@ApiResponse(responseCode = "206", description = "Requested ranges of the file content returned successfully"),
+			@ApiResponse(responseCode = "304", description = "File content has not been modified", content = @Content),
 			@ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
 			@ApiResponse(responseCode = "404", description = "File or file content not found", content = @Content),
+			@ApiResponse(responseCode = "416", description = "Requested range is not satisfiable", content = @Content),
 			@ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
 	})
 	@SecurityRequirement(name = "Bearer Authentication")
 	@GetMapping(path = BASE_PATH + "/{id}/content", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
-	ResponseEntity<Resource> getFileContent(@PathVariable("id") long id);
-}
+	ResponseEntity<Resource> getFileContent(@PathVariable("id") long id,
+											@RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange);
 
+	@Operation(summary = "Get a preview of an image file",
+			   description = "Returns a JPEG preview of the image, with the smaller side scaled to the requested size. The previews are cached, "
+							 + "and the response can be revalidated with If-None-Match")
+	@Parameter(name = "id", description = "File ID of the image", example = "1")
+	@Parameter(name = "size", description = "Size of the smaller side of the preview, one of the configured preview sizes", example = "320")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Preview returned successfully"),
+			@ApiResponse(responseCode = "304", description = "Preview has not been modified", content = @Content),
+			@ApiResponse(responseCode = "400", description = "Preview size is not supported", content = @Content),
+			@ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+			@ApiResponse(responseCode = "404", description = "File or file content not found", content = @Content),
+			@ApiResponse(responseCode = "415", description = "File is not an image", content = @Content),
+			@ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+	})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@GetMapping(path = BASE_PATH + "/{id}/preview", produces = MediaType.IMAGE_JPEG_VALUE)
+	ResponseEntity<Resource> getFilePreview(@PathVariable("id") long id,
+											@RequestParam(value = "size", defaultValue = "320") int size,
+											@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch);
+}
@@ -1,6 +1,11 @@
 package fi.poltsi.vempain.file.rest;
 
+import fi.poltsi.vempain.auth.api.request.PagedRequest;
+import fi.poltsi.vempain.auth.api.response.PagedResponse;
 import fi.poltsi.vempain.file.api.request.ScanRequest;
+import fi.poltsi.vempain.file.api.response.ScanJobDirectoryResponse;
+import fi.poltsi.vempain.file.api.response.ScanJobFileResponse;
+import fi.poltsi.vempain.file.api.response.ScanJobResponse;
 import fi.poltsi.vempain.file.api.response.ScanResponses;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -11,11 +16,17 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+@Validated
 @Tag(name = "FileScanner API", description = "API for scanning files and managing file metadata")
 public interface FileScannerAPI {
 	String BASE_PATH = "/scan-files";
@@ -34,4 +45,67 @@ public interface FileScannerAPI {
 	@SecurityRequirement(name = "Bearer Authentication")
 	@PostMapping(value = BASE_PATH, consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
 	ResponseEntity<ScanResponses> scan(@Valid @RequestBody ScanRequest scanRequest);
+
+	@Operation(summary = "Start an asynchronous scan job",
+			   description = "Queues a scan of the specified directories and returns the job at once. Progress is polled with the job status endpoint")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "202", description = "Scan job queued",
+						 content = {@Content(schema = @Schema(implementation = ScanJobResponse.class), mediaType = MediaType.APPLICATION_JSON_VALUE)}),
+			@ApiResponse(responseCode = "400", description = "Invalid request issued", content = @Content),
+			@ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+			@ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+	})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@PostMapping(value = BASE_PATH + "/jobs", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<ScanJobResponse> startScanJob(@Valid @RequestBody ScanRequest scanRequest);
+
+	@Operation(summary = "Get scan job status", description = "Returns the progress of a scan job including per-directory progress, scan rate and ETA")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Current status of the job",
+						 content = {@Content(schema = @Schema(implementation = ScanJobResponse.class), mediaType = MediaType.APPLICATION_JSON_VALUE)}),
+			@ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+			@ApiResponse(responseCode = "404", description = "No scan job found", content = @Content)
+	})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@GetMapping(value = BASE_PATH + "/jobs/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<ScanJobResponse> getScanJob(@PathVariable("jobId") @Positive Long jobId);
+
+	@Operation(summary = "Stream scan job progress",
+			   description = "Streams the progress of a scan job as Server-Sent Events. The stream starts with a job event of the detailed status, "
+							 + "followed by a job event with the counters, scan rate and ETA when they change, and a directory event when the state "
+							 + "of a directory changes. Events are sent at most twice a second, a newer event replacing an unsent one.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Event stream of job and directory events",
+						 content = {@Content(schema = @Schema(oneOf = {ScanJobResponse.class, ScanJobDirectoryResponse.class}),
+											 mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)}),
+			@ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+			@ApiResponse(responseCode = "404", description = "No scan job found", content = @Content)
+	})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@GetMapping(value = BASE_PATH + "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	SseEmitter streamScanJob(@PathVariable("jobId") @Positive Long jobId);
+
+	@Operation(summary = "Cancel a scan job", description = "Requests cancellation of a queued or running scan job. The directory being processed is finished first")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "202", description = "Cancellation requested",
+						 content = {@Content(schema = @Schema(implementation = ScanJobResponse.class), mediaType = MediaType.APPLICATION_JSON_VALUE)}),
+			@ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+			@ApiResponse(responseCode = "404", description = "No scan job found", content = @Content)
+	})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@PostMapping(value = BASE_PATH + "/jobs/{jobId}/cancel", produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<ScanJobResponse> cancelScanJob(@PathVariable("jobId") @Positive Long jobId);
+
+	@Operation(summary = "Get scan job results (paged)", description = "Returns the per-file results of a scan job, one page at a time")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Page of file results",
+						 content = {@Content(schema = @Schema(implementation = PagedResponse.class), mediaType = MediaType.APPLICATION_JSON_VALUE)}),
+			@ApiResponse(responseCode = "400", description = "Invalid request issued", content = @Content),
+			@ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+			@ApiResponse(responseCode = "404", description = "No scan job found", content = @Content)
+	})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@PostMapping(value = BASE_PATH + "/jobs/{jobId}/results", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<PagedResponse<ScanJobFileResponse>> getScanJobResults(@PathVariable("jobId") @Positive Long jobId,
+																		 @Valid @RequestBody PagedRequest pagedRequest);
 }
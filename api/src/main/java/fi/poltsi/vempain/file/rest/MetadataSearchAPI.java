@@ -0,0 +1,32 @@
+package fi.poltsi.vempain.file.rest;
+
+import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.MetadataSearchRequest;
+import fi.poltsi.vempain.file.api.response.files.FileResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+@Tag(name = "Metadata search API", description = "API for finding files by their metadata tags")
+public interface MetadataSearchAPI {
+	String BASE_PATH = "/files/metadata";
+
+	@Operation(summary = "Search files by metadata", description = "Find files whose metadata contains all the given group, key and value matches",
+			   tags = "Metadata search API")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Page of matching files, without the raw metadata"),
+			@ApiResponse(responseCode = "400", description = "Invalid request"),
+			@ApiResponse(responseCode = "403", description = "Unauthorized access"),
+			@ApiResponse(responseCode = "500", description = "Internal server error")
+	})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@PostMapping(path = BASE_PATH + "/search", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<PagedResponse<FileResponse>> search(@Valid @RequestBody MetadataSearchRequest metadataSearchRequest);
+}
@@ -3,6 +3,8 @@ package fi.poltsi.vempain.file.rest;
 import fi.poltsi.vempain.file.api.request.PublishFileGroupRequest;
 import fi.poltsi.vempain.file.api.response.PublishAllFileGroupsResponse;
 import fi.poltsi.vempain.file.api.response.PublishFileGroupResponse;
+import fi.poltsi.vempain.file.api.response.PublishGroupStatusResponse;
+import fi.poltsi.vempain.file.api.response.PublishJobSummaryResponse;
 import fi.poltsi.vempain.file.api.response.PublishProgressResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -13,12 +15,15 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Validated
 @Tag(name = "PublishAPI", description = "API for publishing files")
@@ -46,6 +51,7 @@ public interface PublishAPI {
 						 content = {@Content(schema = @Schema(implementation = PublishAllFileGroupsResponse.class),
 											 mediaType = MediaType.APPLICATION_JSON_VALUE)}),
 			@ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+			@ApiResponse(responseCode = "409", description = "Publishing of all file groups is already running", content = @Content),
 			@ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
 	})
 	@SecurityRequirement(name = "Bearer Authentication")
@@ -61,4 +67,42 @@ public interface PublishAPI {
 	@SecurityRequirement(name = "Bearer Authentication")
 	@GetMapping(path = BASE_PATH + "/progress", produces = "application/json")
 	ResponseEntity<PublishProgressResponse> getPublishProgress();
+
+	@Operation(summary = "Stream publishing progress",
+			   description = "Streams the progress of the publish jobs as Server-Sent Events. The stream starts with a job event of the latest job, "
+							 + "followed by a job event with the counters, throughput and ETA of a job when they change, and a group event when the "
+							 + "state of a file group changes. Events are sent at most twice a second, a newer event replacing an unsent one.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Event stream of job and group events",
+						 content = {@Content(schema = @Schema(oneOf = {PublishJobSummaryResponse.class, PublishGroupStatusResponse.class}),
+											 mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)}),
+			@ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content)
+	})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@GetMapping(path = BASE_PATH + "/progress/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	SseEmitter streamPublishProgress();
+
+	@Operation(summary = "Get publish job progress", description = "Get the progress of the given publish job")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Progress of the job",
+						 content = {@Content(schema = @Schema(implementation = PublishProgressResponse.class), mediaType = MediaType.APPLICATION_JSON_VALUE)}),
+			@ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+			@ApiResponse(responseCode = "404", description = "Publish job not found", content = @Content)
+	})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@GetMapping(path = BASE_PATH + "/jobs/{jobId}", produces = "application/json")
+	ResponseEntity<PublishProgressResponse> getPublishJob(@PathVariable("jobId") @Positive Long jobId);
+
+	@Operation(summary = "Resume a publish job",
+			   description = "Schedules the failed file groups of a publish job again. The files already published by the job are not uploaded again.")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "202", description = "Accepted, the job is running again",
+						 content = {@Content(schema = @Schema(implementation = PublishProgressResponse.class), mediaType = MediaType.APPLICATION_JSON_VALUE)}),
+			@ApiResponse(responseCode = "401", description = "Unauthorized access", content = @Content),
+			@ApiResponse(responseCode = "404", description = "Publish job not found", content = @Content),
+			@ApiResponse(responseCode = "409", description = "Another publish of all file groups is running", content = @Content)
+	})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@PostMapping(path = BASE_PATH + "/jobs/{jobId}/resume", produces = "application/json")
+	ResponseEntity<PublishProgressResponse> resumePublishJob(@PathVariable("jobId") @Positive Long jobId);
 }
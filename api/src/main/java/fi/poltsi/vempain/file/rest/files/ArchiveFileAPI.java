@@ -2,6 +2,8 @@ package fi.poltsi.vempain.file.rest.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.ArchiveFileResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -33,6 +35,20 @@ public interface ArchiveFileAPI {
 	@PostMapping(path = BASE_PATH + "/paged", produces = MediaType.APPLICATION_JSON_VALUE)
 	ResponseEntity<PagedResponse<ArchiveFileResponse>> findAll(@Valid @RequestBody PagedRequest pagedRequest);
 
+	@Operation(summary = "Get archive files with a cursor",
+			description = "Retrieve archive files page by page, each page continuing from the cursor returned with the previous one. "
+						  + "Unlike with paging, the cost of a page does not grow with its depth and the files are only counted when requested",
+			tags = "Archive file API")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Page of archive files retrieved successfully"),
+			@ApiResponse(responseCode = "400", description = "Invalid request or cursor"),
+			@ApiResponse(responseCode = "403", description = "Unauthorized access"),
+			@ApiResponse(responseCode = "500", description = "Internal server error")
+	})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@PostMapping(path = BASE_PATH + "/cursor", produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<CursorPagedResponse<ArchiveFileResponse>> findAllByCursor(@Valid @RequestBody CursorPagedRequest cursorPagedRequest);
+
 	@Operation(summary = "Get archive file by ID", description = "Retrieve specific archive file by its unique identifier", tags = "Archive file API")
 	@Parameter(name = "id", description = "Archive ID to be fetched", example = "1")
 	@ApiResponses(value = {
@@ -2,6 +2,8 @@ package fi.poltsi.vempain.file.rest.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.AudioFileResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -33,6 +35,20 @@ public interface AudioFileAPI {
 	@PostMapping(path = BASE_PATH + "/paged", produces = MediaType.APPLICATION_JSON_VALUE)
 	ResponseEntity<PagedResponse<AudioFileResponse>> findAll(@Valid @RequestBody PagedRequest pagedRequest);
 
+	@Operation(summary = "Get audio files with a cursor",
+			description = "Retrieve audio files page by page, each page continuing from the cursor returned with the previous one. "
+						  + "Unlike with paging, the cost of a page does not grow with its depth and the files are only counted when requested",
+			tags = "Audio file API")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Page of audio files retrieved successfully"),
+			@ApiResponse(responseCode = "400", description = "Invalid request or cursor"),
+			@ApiResponse(responseCode = "403", description = "Unauthorized access"),
+			@ApiResponse(responseCode = "500", description = "Internal server error")
+	})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@PostMapping(path = BASE_PATH + "/cursor", produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<CursorPagedResponse<AudioFileResponse>> findAllByCursor(@Valid @RequestBody CursorPagedRequest cursorPagedRequest);
+
 	@Operation(summary = "Get audio file by ID", description = "Retrieve specific audio file by its unique identifier", tags = "Audio file API")
 	@Parameter(name = "id", description = "Audio ID to be fetched", example = "1")
 	@ApiResponses(value = {
@@ -2,6 +2,8 @@ package fi.poltsi.vempain.file.rest.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.BinaryFileResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -33,6 +35,20 @@ public interface BinaryFileAPI {
 	@PostMapping(path = BASE_PATH + "/paged", produces = MediaType.APPLICATION_JSON_VALUE)
 	ResponseEntity<PagedResponse<BinaryFileResponse>> findAll(@Valid @RequestBody PagedRequest pagedRequest);
 
+	@Operation(summary = "Get binary files with a cursor",
+			description = "Retrieve binary files page by page, each page continuing from the cursor returned with the previous one. "
+						  + "Unlike with paging, the cost of a page does not grow with its depth and the files are only counted when requested",
+			tags = "Binary file API")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Page of binary files retrieved successfully"),
+			@ApiResponse(responseCode = "400", description = "Invalid request or cursor"),
+			@ApiResponse(responseCode = "403", description = "Unauthorized access"),
+			@ApiResponse(responseCode = "500", description = "Internal server error")
+	})
+	@SecurityRequirement(name = "Bearer Authentication")
+	@PostMapping(path = BASE_PATH + "/cursor", produces = MediaType.APPLICATION_JSON_VALUE)
+	ResponseEntity<CursorPagedResponse<BinaryFileResponse>> findAllByCursor(@Valid @RequestBody CursorPagedRequest cursorPagedRequest);
+
 	@Operation(summary = "Get binary file by ID", description = "Retrieve specific binary file by its unique identifier", tags = "Binary file API")
 	@Parameter(name = "id", description = "Binary file ID", example = "1")
 	@ApiResponses({
@@ -1,11 +0,0 @@
-package fi.poltsi.vempain.file.configuration;
-
-import org.springframework.context.annotation.Configuration;
-import org.springframework.scheduling.annotation.EnableAsync;
-
-@Configuration
-@EnableAsync
-public class AsyncConfig {
-	// No-op; enables @Async processing
-}
-
@@ -4,35 +4,138 @@ import fi.poltsi.vempain.file.rest.FileContentAPI;
 import fi.poltsi.vempain.file.service.FileContentService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
+/**
+ * Serves the original file content. The range requests are served by Spring MVC from the file resource: a single range as a
+ * 206 response and multiple ranges as multipart/byteranges, reading only the requested bytes of the file. The entity tag is the
+ * checksum of the file, and together with the last modification time it lets Spring MVC answer the conditional requests with a
+ * 304 without reading the file. The previews are cached by the client for a while and then revalidated with their entity tag.
+ */
 @RestController
 @RequiredArgsConstructor
 public class FileContentController implements FileContentAPI {
 
+	// The preview changes only when the original image is edited
+	private static final Duration PREVIEW_MAX_AGE = Duration.ofHours(24);
+
 	private final FileContentService fileContentService;
 
 	@Override
-	public ResponseEntity<Resource> getFileContent(long id) {
+	public ResponseEntity<Resource> getFileContent(long id, String ifRange) {
 		var contentFile = fileContentService.resolveOriginalFile(id);
 		var mediaType   = parseMediaType(contentFile.mimetype());
 		var disposition = ContentDisposition.inline()
 		                                    .filename(contentFile.filename(), StandardCharsets.UTF_8)
 		                                    .build();
+		var eTag        = contentFile.sha256sum() != null ? "\"" + contentFile.sha256sum() + "\"" : null;
+		var response    = ResponseEntity.ok()
+		                                .contentType(mediaType)
+		                                .lastModified(contentFile.lastModified())
+		                                .cacheControl(CacheControl.noCache()
+		                                                          .cachePrivate())
+		                                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString());
+
+		if (eTag != null) {
+			response.eTag(eTag);
+		}
+
 		var resource = new FileSystemResource(contentFile.absolutePath());
 
+		if (!rangeStillValid(ifRange, eTag, contentFile.lastModified())) {
+			// Spring MVC serves ranges of every resource except an input stream resource, the whole content is returned instead
+			return response.contentLength(contentFile.size())
+			               .body(new InputStreamResource(resource));
+		}
+
+		// The length is set by Spring MVC, it depends on the requested ranges
+		return response.body(resource);
+	}
+
+	@Override
+	public ResponseEntity<Resource> getFilePreview(long id, int size, String ifNoneMatch) {
+		var previewFile  = fileContentService.resolvePreview(id, size);
+		var eTag         = "\"" + previewFile.sha256sum() + "-" + previewFile.size() + "\"";
+		var cacheControl = CacheControl.maxAge(PREVIEW_MAX_AGE)
+		                               .cachePrivate();
+
+		if (eTagMatches(ifNoneMatch, eTag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+			                     .eTag(eTag)
+			                     .cacheControl(cacheControl)
+			                     .build();
+		}
+
+		// Pinned in the cache until Spring MVC closes the stream once the preview is written
+		var preview = fileContentService.renderPreview(previewFile);
+
 		return ResponseEntity.ok()
-		                     .contentType(mediaType)
-		                     .contentLength(contentFile.size())
-		                     .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
-		                     .body(resource);
+		                     .contentType(parseMediaType(previewFile.mimetype()))
+		                     .contentLength(preview.size())
+		                     .eTag(eTag)
+		                     .cacheControl(cacheControl)
+		                     .body(new InputStreamResource(preview.content()));
+	}
+
+	private static boolean eTagMatches(String ifNoneMatch, String eTag) {
+		if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+			return false;
+		}
+
+		for (var candidate : ifNoneMatch.split(",")) {
+			var trimmed = candidate.trim();
+
+			// If-None-Match uses the weak comparison
+			if (trimmed.equals("*") || trimmed.equals(eTag) || trimmed.equals("W/" + eTag)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Whether the ranges of a request can be served. With If-Range they are only served if the content is still the one the
+	 * client has, otherwise the whole content is returned.
+	 */
+	static boolean rangeStillValid(String ifRange, String eTag, Instant lastModified) {
+		if (ifRange == null || ifRange.isBlank()) {
+			return true;
+		}
+
+		var validator = ifRange.trim();
+
+		if (validator.startsWith("\"")) {
+			// Ranges require a strong comparison
+			return validator.equals(eTag);
+		}
+
+		if (validator.startsWith("W/")) {
+			return false;
+		}
+
+		try {
+			var date = ZonedDateTime.parse(validator, DateTimeFormatter.RFC_1123_DATE_TIME)
+			                        .toInstant();
+			return lastModified != null && date.getEpochSecond() == lastModified.getEpochSecond();
+		} catch (DateTimeParseException e) {
+			return false;
+		}
 	}
 
 	private MediaType parseMediaType(String mimetype) {
@@ -46,4 +149,3 @@ public class FileContentController implements FileContentAPI {
 		}
 	}
 }
-
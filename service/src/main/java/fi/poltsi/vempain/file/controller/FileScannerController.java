@@ -1,21 +1,55 @@
 package fi.poltsi.vempain.file.controller;
 
+import fi.poltsi.vempain.auth.api.request.PagedRequest;
+import fi.poltsi.vempain.auth.api.response.PagedResponse;
 import fi.poltsi.vempain.file.api.request.ScanRequest;
+import fi.poltsi.vempain.file.api.response.ScanJobFileResponse;
+import fi.poltsi.vempain.file.api.response.ScanJobResponse;
 import fi.poltsi.vempain.file.api.response.ScanResponses;
 import fi.poltsi.vempain.file.rest.FileScannerAPI;
 import fi.poltsi.vempain.file.service.FileScannerService;
+import fi.poltsi.vempain.file.service.ScanJobService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RequiredArgsConstructor
 @RestController
 public class FileScannerController implements FileScannerAPI {
 	private final FileScannerService fileScannerService;
+	private final ScanJobService     scanJobService;
 
 	@Override
 	public ResponseEntity<ScanResponses> scan(ScanRequest scanRequest) {
 		var scanResponse = fileScannerService.scanDirectories(scanRequest);
 		return ResponseEntity.ok(scanResponse);
 	}
+
+	@Override
+	public ResponseEntity<ScanJobResponse> startScanJob(ScanRequest scanRequest) {
+		return ResponseEntity.accepted()
+							 .body(scanJobService.startJob(scanRequest));
+	}
+
+	@Override
+	public ResponseEntity<ScanJobResponse> getScanJob(Long jobId) {
+		return ResponseEntity.ok(scanJobService.getJob(jobId));
+	}
+
+	@Override
+	public SseEmitter streamScanJob(Long jobId) {
+		return scanJobService.subscribeJob(jobId);
+	}
+
+	@Override
+	public ResponseEntity<ScanJobResponse> cancelScanJob(Long jobId) {
+		return ResponseEntity.accepted()
+							 .body(scanJobService.cancelJob(jobId));
+	}
+
+	@Override
+	public ResponseEntity<PagedResponse<ScanJobFileResponse>> getScanJobResults(Long jobId, PagedRequest pagedRequest) {
+		return ResponseEntity.ok(scanJobService.getJobResults(jobId, pagedRequest));
+	}
 }
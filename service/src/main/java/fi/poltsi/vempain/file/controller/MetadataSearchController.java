@@ -0,0 +1,21 @@
+package fi.poltsi.vempain.file.controller;
+
+import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.MetadataSearchRequest;
+import fi.poltsi.vempain.file.api.response.files.FileResponse;
+import fi.poltsi.vempain.file.rest.MetadataSearchAPI;
+import fi.poltsi.vempain.file.service.MetadataSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+
+@RequiredArgsConstructor
+@RestController
+public class MetadataSearchController implements MetadataSearchAPI {
+	private final MetadataSearchService metadataSearchService;
+
+	@Override
+	public ResponseEntity<PagedResponse<FileResponse>> search(MetadataSearchRequest metadataSearchRequest) {
+		return ResponseEntity.ok(metadataSearchService.search(metadataSearchRequest));
+	}
+}
@@ -5,18 +5,19 @@ import fi.poltsi.vempain.file.api.response.PublishAllFileGroupsResponse;
 import fi.poltsi.vempain.file.api.response.PublishFileGroupResponse;
 import fi.poltsi.vempain.file.api.response.PublishProgressResponse;
 import fi.poltsi.vempain.file.rest.PublishAPI;
-import fi.poltsi.vempain.file.service.PublishProgressStore;
+import fi.poltsi.vempain.file.service.PublishJobService;
 import fi.poltsi.vempain.file.service.PublishService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequiredArgsConstructor
 public class PublishController implements PublishAPI {
 
-	private final PublishService publishService;
-	private final PublishProgressStore publishProgressStore;
+	private final PublishService    publishService;
+	private final PublishJobService publishJobService;
 
 	@Override
 	public ResponseEntity<PublishFileGroupResponse> PublishFileGroup(PublishFileGroupRequest request) {
@@ -27,30 +28,36 @@ public class PublishController implements PublishAPI {
 								 .build();
 		}
 
-		publishService.publishFileGroup(request);
+		publishJobService.startFileGroupJob(request);
 		return ResponseEntity.accepted()
 							 .body(new PublishFileGroupResponse(count));
 	}
 
 	@Override
 	public ResponseEntity<PublishAllFileGroupsResponse> publishAllFileGroups() {
-		long scheduled = publishService.publishAllFileGroups();
+		long scheduled = publishJobService.startAllFileGroupsJob();
 		return ResponseEntity.accepted()
 							 .body(new PublishAllFileGroupsResponse(scheduled));
 	}
 
 	@Override
 	public ResponseEntity<PublishProgressResponse> getPublishProgress() {
-		var resp = PublishProgressResponse.builder()
-										  .totalGroups(publishProgressStore.getTotal())
-										  .scheduled(publishProgressStore.getScheduled())
-										  .started(publishProgressStore.getStarted())
-										  .completed(publishProgressStore.getCompleted())
-										  .failed(publishProgressStore.getFailed())
-										  .perGroupStatus(publishProgressStore.getPerGroupStatus())
-										  .lastUpdated(publishProgressStore.getLastUpdated())
-										  .build();
-
-		return ResponseEntity.ok(resp);
+		return ResponseEntity.ok(publishJobService.getLatestProgress());
+	}
+
+	@Override
+	public SseEmitter streamPublishProgress() {
+		return publishJobService.subscribeProgress();
+	}
+
+	@Override
+	public ResponseEntity<PublishProgressResponse> getPublishJob(Long jobId) {
+		return ResponseEntity.ok(publishJobService.getProgress(jobId));
+	}
+
+	@Override
+	public ResponseEntity<PublishProgressResponse> resumePublishJob(Long jobId) {
+		return ResponseEntity.accepted()
+							 .body(publishJobService.resumeJob(jobId));
 	}
 }
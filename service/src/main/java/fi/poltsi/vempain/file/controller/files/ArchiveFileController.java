@@ -2,6 +2,8 @@ package fi.poltsi.vempain.file.controller.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.ArchiveFileResponse;
 import fi.poltsi.vempain.file.rest.files.ArchiveFileAPI;
 import fi.poltsi.vempain.file.service.files.ArchiveFileService;
@@ -20,6 +22,11 @@ public class ArchiveFileController implements ArchiveFileAPI {
 		return ResponseEntity.ok(archiveFileService.findAll(pagedRequest));
 	}
 
+	@Override
+	public ResponseEntity<CursorPagedResponse<ArchiveFileResponse>> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return ResponseEntity.ok(archiveFileService.findAllByCursor(cursorPagedRequest));
+	}
+
 	@Override
 	public ResponseEntity<ArchiveFileResponse> findById(long id) {
 		var response = archiveFileService.findById(id);
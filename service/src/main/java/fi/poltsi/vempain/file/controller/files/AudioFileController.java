@@ -2,6 +2,8 @@ package fi.poltsi.vempain.file.controller.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.AudioFileResponse;
 import fi.poltsi.vempain.file.rest.files.AudioFileAPI;
 import fi.poltsi.vempain.file.service.files.AudioFileService;
@@ -20,6 +22,11 @@ public class AudioFileController implements AudioFileAPI {
 		return ResponseEntity.ok(audioFileService.findAll(pagedRequest));
 	}
 
+	@Override
+	public ResponseEntity<CursorPagedResponse<AudioFileResponse>> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return ResponseEntity.ok(audioFileService.findAllByCursor(cursorPagedRequest));
+	}
+
 	@Override
 	public ResponseEntity<AudioFileResponse> findById(long id) {
 		var response = audioFileService.findById(id);
@@ -2,6 +2,8 @@ package fi.poltsi.vempain.file.controller.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.BinaryFileResponse;
 import fi.poltsi.vempain.file.rest.files.BinaryFileAPI;
 import fi.poltsi.vempain.file.service.files.BinaryFileService;
@@ -20,6 +22,11 @@ public class BinaryFileController implements BinaryFileAPI {
 		return ResponseEntity.ok(service.findAll(pagedRequest));
 	}
 
+	@Override
+	public ResponseEntity<CursorPagedResponse<BinaryFileResponse>> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return ResponseEntity.ok(service.findAllByCursor(cursorPagedRequest));
+	}
+
 	@Override
 	public ResponseEntity<BinaryFileResponse> findById(long id) {
 		var response = service.findById(id);
@@ -2,6 +2,8 @@ package fi.poltsi.vempain.file.controller.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.DataFileResponse;
 import fi.poltsi.vempain.file.rest.files.DataFileAPI;
 import fi.poltsi.vempain.file.service.files.DataFileService;
@@ -20,6 +22,11 @@ public class DataFileController implements DataFileAPI {
 		return ResponseEntity.ok(service.findAll(pagedRequest));
 	}
 
+	@Override
+	public ResponseEntity<CursorPagedResponse<DataFileResponse>> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return ResponseEntity.ok(service.findAllByCursor(cursorPagedRequest));
+	}
+
 	@Override
 	public ResponseEntity<DataFileResponse> findById(long id) {
 		var response = service.findById(id);
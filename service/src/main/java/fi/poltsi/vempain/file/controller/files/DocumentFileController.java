@@ -2,6 +2,8 @@ package fi.poltsi.vempain.file.controller.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.DocumentFileResponse;
 import fi.poltsi.vempain.file.rest.files.DocumentFileAPI;
 import fi.poltsi.vempain.file.service.files.DocumentFileService;
@@ -20,6 +22,11 @@ public class DocumentFileController implements DocumentFileAPI {
 		return ResponseEntity.ok(documentFileService.findAll(pagedRequest));
 	}
 
+	@Override
+	public ResponseEntity<CursorPagedResponse<DocumentFileResponse>> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return ResponseEntity.ok(documentFileService.findAllByCursor(cursorPagedRequest));
+	}
+
 	@Override
 	public ResponseEntity<DocumentFileResponse> findById(long id) {
 		var response = documentFileService.findById(id);
@@ -2,6 +2,8 @@ package fi.poltsi.vempain.file.controller.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.ExecutableFileResponse;
 import fi.poltsi.vempain.file.rest.files.ExecutableFileAPI;
 import fi.poltsi.vempain.file.service.files.ExecutableFileService;
@@ -20,6 +22,11 @@ public class ExecutableFileController implements ExecutableFileAPI {
 		return ResponseEntity.ok(service.findAll(pagedRequest));
 	}
 
+	@Override
+	public ResponseEntity<CursorPagedResponse<ExecutableFileResponse>> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return ResponseEntity.ok(service.findAllByCursor(cursorPagedRequest));
+	}
+
 	@Override
 	public ResponseEntity<ExecutableFileResponse> findById(long id) {
 		var response = service.findById(id);
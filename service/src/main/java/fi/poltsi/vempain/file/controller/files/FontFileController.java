@@ -2,6 +2,8 @@ package fi.poltsi.vempain.file.controller.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.FontFileResponse;
 import fi.poltsi.vempain.file.rest.files.FontFileAPI;
 import fi.poltsi.vempain.file.service.files.FontFileService;
@@ -20,6 +22,11 @@ public class FontFileController implements FontFileAPI {
 		return ResponseEntity.ok(fontFileService.findAll(pagedRequest));
 	}
 
+	@Override
+	public ResponseEntity<CursorPagedResponse<FontFileResponse>> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return ResponseEntity.ok(fontFileService.findAllByCursor(cursorPagedRequest));
+	}
+
 	@Override
 	public ResponseEntity<FontFileResponse> findById(long id) {
 		var response = fontFileService.findById(id);
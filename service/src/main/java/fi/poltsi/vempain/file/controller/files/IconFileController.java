@@ -2,6 +2,8 @@ package fi.poltsi.vempain.file.controller.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.IconFileResponse;
 import fi.poltsi.vempain.file.rest.files.IconFileAPI;
 import fi.poltsi.vempain.file.service.files.IconFileService;
@@ -20,6 +22,11 @@ public class IconFileController implements IconFileAPI {
 		return ResponseEntity.ok(iconFileService.findAll(pagedRequest));
 	}
 
+	@Override
+	public ResponseEntity<CursorPagedResponse<IconFileResponse>> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return ResponseEntity.ok(iconFileService.findAllByCursor(cursorPagedRequest));
+	}
+
 	@Override
 	public ResponseEntity<IconFileResponse> findById(long id) {
 		var response = iconFileService.findById(id);
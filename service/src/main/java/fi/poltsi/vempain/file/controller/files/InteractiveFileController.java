@@ -2,6 +2,8 @@ package fi.poltsi.vempain.file.controller.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.InteractiveFileResponse;
 import fi.poltsi.vempain.file.rest.files.InteractiveFileAPI;
 import fi.poltsi.vempain.file.service.files.InteractiveFileService;
@@ -20,6 +22,11 @@ public class InteractiveFileController implements InteractiveFileAPI {
 		return ResponseEntity.ok(service.findAll(pagedRequest));
 	}
 
+	@Override
+	public ResponseEntity<CursorPagedResponse<InteractiveFileResponse>> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return ResponseEntity.ok(service.findAllByCursor(cursorPagedRequest));
+	}
+
 	@Override
 	public ResponseEntity<InteractiveFileResponse> findById(long id) {
 		var response = service.findById(id);
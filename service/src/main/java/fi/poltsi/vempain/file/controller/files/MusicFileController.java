@@ -2,6 +2,8 @@ package fi.poltsi.vempain.file.controller.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.MusicFileResponse;
 import fi.poltsi.vempain.file.rest.files.MusicFileAPI;
 import fi.poltsi.vempain.file.service.files.MusicFileService;
@@ -20,6 +22,11 @@ public class MusicFileController implements MusicFileAPI {
 		return ResponseEntity.ok(musicFileService.findAll(pagedRequest));
 	}
 
+	@Override
+	public ResponseEntity<CursorPagedResponse<MusicFileResponse>> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return ResponseEntity.ok(musicFileService.findAllByCursor(cursorPagedRequest));
+	}
+
 	@Override
 	public ResponseEntity<MusicFileResponse> findById(long id) {
 		var response = musicFileService.findById(id);
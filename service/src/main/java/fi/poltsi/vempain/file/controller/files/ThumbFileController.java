@@ -2,6 +2,8 @@ package fi.poltsi.vempain.file.controller.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.ThumbFileResponse;
 import fi.poltsi.vempain.file.rest.files.ThumbFileAPI;
 import fi.poltsi.vempain.file.service.files.ThumbFileService;
@@ -20,6 +22,11 @@ public class ThumbFileController implements ThumbFileAPI {
 		return ResponseEntity.ok(service.findAll(pagedRequest));
 	}
 
+	@Override
+	public ResponseEntity<CursorPagedResponse<ThumbFileResponse>> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return ResponseEntity.ok(service.findAllByCursor(cursorPagedRequest));
+	}
+
 	@Override
 	public ResponseEntity<ThumbFileResponse> findById(long id) {
 		var response = service.findById(id);
@@ -3,6 +3,8 @@ package fi.poltsi.vempain.file.controller.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.VectorFileResponse;
 import fi.poltsi.vempain.file.rest.files.VectorFileAPI;
 import fi.poltsi.vempain.file.service.files.VectorFileService;
@@ -21,6 +23,11 @@ public class VectorFileController implements VectorFileAPI {
 		return ResponseEntity.ok(vectorFileService.findAll(pagedRequest));
 	}
 
+	@Override
+	public ResponseEntity<CursorPagedResponse<VectorFileResponse>> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return ResponseEntity.ok(vectorFileService.findAllByCursor(cursorPagedRequest));
+	}
+
 	@Override
 	public ResponseEntity<VectorFileResponse> findById(long id) {
 		var response = vectorFileService.findById(id);
@@ -2,6 +2,8 @@ package fi.poltsi.vempain.file.controller.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.VideoFileResponse;
 import fi.poltsi.vempain.file.rest.files.VideoFileAPI;
 import fi.poltsi.vempain.file.service.files.VideoFileService;
@@ -20,6 +22,11 @@ public class VideoFileController implements VideoFileAPI {
 		return ResponseEntity.ok(videoFileService.findAll(pagedRequest));
 	}
 
+	@Override
+	public ResponseEntity<CursorPagedResponse<VideoFileResponse>> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return ResponseEntity.ok(videoFileService.findAllByCursor(cursorPagedRequest));
+	}
+
 	@Override
 	public ResponseEntity<VideoFileResponse> findById(long id) {
 		var response = videoFileService.findById(id);
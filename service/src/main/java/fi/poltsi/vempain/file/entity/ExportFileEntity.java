@@ -51,9 +51,29 @@ public class ExportFileEntity {
 	@Column(name = "sha256sum", nullable = false, length = 64)
 	private String sha256sum;
 
+	// Scan manifest, the stat of the file when its sha256sum was computed
+	@Column(name = "file_mtime")
+	private Long fileMtime;
+
+	@Column(name = "file_key")
+	private String fileKey;
+
 	@Column(name = "created", nullable = false)
 	private Instant created;
 
+	// What was last uploaded to the admin site, used to skip unchanged files when publishing
+	@Column(name = "published_sha256sum", length = 64)
+	private String publishedSha256sum;
+
+	@Column(name = "published_metadata_hash", length = 64)
+	private String publishedMetadataHash;
+
+	@Column(name = "published_gallery_id")
+	private Long publishedGalleryId;
+
+	@Column(name = "published_at")
+	private Instant publishedAt;
+
 	public ExportFileResponse toResponse() {
 		return ExportFileResponse.builder()
 								 .id(id)
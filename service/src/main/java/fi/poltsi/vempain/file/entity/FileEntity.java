@@ -23,6 +23,8 @@ import lombok.EqualsAndHashCode;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.Instant;
 import java.util.HashSet;
@@ -64,6 +66,11 @@ public abstract class FileEntity extends AbstractVempainEntity {
 	private   long            filesize;
 	@Column(name = "sha256sum", nullable = false, length = 64)
 	private   String          sha256sum;
+	// Scan manifest, the stat of the file when it was last ingested. Lets a rescan skip unchanged files without reading them
+	@Column(name = "file_mtime")
+	private   Long            fileMtime;
+	@Column(name = "file_key")
+	private   String          fileKey;
 	@Enumerated(EnumType.STRING)
 	@Column(name = "file_type", nullable = false)
 	private FileTypeEnum fileType;
@@ -72,6 +79,13 @@ public abstract class FileEntity extends AbstractVempainEntity {
 	@Column(name = "metadata_raw", nullable = false)
 	private String metadataRaw;
 
+	// Grouped metadata as one JSONB document, {"group": {"key": "value"}}, searchable through the GIN index
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	@JdbcTypeCode(SqlTypes.JSON)
+	@Column(name = "metadata_document", columnDefinition = "jsonb")
+	private String metadataDocument;
+
 	@Column(name = "rights_holder")
 	private String  rightsHolder;
 	@Column(name = "rights_terms")
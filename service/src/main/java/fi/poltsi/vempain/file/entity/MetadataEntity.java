@@ -8,6 +8,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -22,8 +23,10 @@ import lombok.NoArgsConstructor;
 @Table(name = "metadata")
 public class MetadataEntity {
 
+	// A pooled sequence instead of identity, so that the hundreds of rows of one file are inserted as JDBC batches
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "metadata_id_seq")
+	@SequenceGenerator(name = "metadata_id_seq", sequenceName = "metadata_id_seq", allocationSize = 50)
 	private Long id;
 
 	@ManyToOne(optional = false, fetch = FetchType.LAZY)
@@ -0,0 +1,70 @@
+package fi.poltsi.vempain.file.entity;
+
+import fi.poltsi.vempain.file.api.PublishJobStatusEnum;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "publish_jobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PublishJobEntity {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id", nullable = false)
+	private Long id;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "status", nullable = false, length = 16)
+	private PublishJobStatusEnum status;
+
+	// Publish of all file groups, of which only one may run at a time
+	@Column(name = "all_groups", nullable = false)
+	private boolean allGroups;
+
+	// Upload also the files the admin site already has unchanged
+	@Column(name = "force_publish", nullable = false)
+	private boolean force;
+
+	@Column(name = "total_groups", nullable = false)
+	private long totalGroups;
+
+	@Column(name = "completed_groups", nullable = false)
+	private long completedGroups;
+
+	@Column(name = "failed_groups", nullable = false)
+	private long failedGroups;
+
+	@Column(name = "files_published", nullable = false)
+	private long filesPublished;
+
+	@Column(name = "files_skipped", nullable = false)
+	private long filesSkipped;
+
+	@Column(name = "creator")
+	private Long creator;
+
+	@Column(name = "created", nullable = false)
+	private Instant created;
+
+	@Column(name = "updated", nullable = false)
+	private Instant updated;
+
+	@Column(name = "finished")
+	private Instant finished;
+}
@@ -0,0 +1,54 @@
+package fi.poltsi.vempain.file.entity;
+
+import fi.poltsi.vempain.file.api.PublishProgressStatusEnum;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "publish_job_files")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PublishJobFileEntity {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id", nullable = false)
+	private Long id;
+
+	@Column(name = "publish_job_group_id", nullable = false)
+	private Long publishJobGroupId;
+
+	@Column(name = "file_id", nullable = false)
+	private Long fileId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "status", nullable = false, length = 16)
+	private PublishProgressStatusEnum status;
+
+	// Completed without an upload as the admin site already had the file unchanged
+	@Column(name = "skipped", nullable = false)
+	private boolean skipped;
+
+	@Column(name = "attempts", nullable = false)
+	private int attempts;
+
+	@Column(name = "last_error")
+	private String lastError;
+
+	@Column(name = "finished")
+	private Instant finished;
+}
@@ -0,0 +1,81 @@
+package fi.poltsi.vempain.file.entity;
+
+import fi.poltsi.vempain.file.api.PublishProgressStatusEnum;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "publish_job_groups")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PublishJobGroupEntity {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id", nullable = false)
+	private Long id;
+
+	@Column(name = "publish_job_id", nullable = false)
+	private Long publishJobId;
+
+	@Column(name = "file_group_id", nullable = false)
+	private Long fileGroupId;
+
+	// Gallery name and description given in the request, taken from the file group if null
+	@Column(name = "gallery_name")
+	private String galleryName;
+
+	@Column(name = "gallery_description")
+	private String galleryDescription;
+
+	// Gallery the first published file created, so that a resumed group keeps publishing to the same gallery
+	@Column(name = "gallery_id")
+	private Long galleryId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "status", nullable = false, length = 16)
+	private PublishProgressStatusEnum status;
+
+	@Column(name = "attempts", nullable = false)
+	private int attempts;
+
+	// A group scheduled for a retry is not claimed before this
+	@Column(name = "available_at")
+	private Instant availableAt;
+
+	@Column(name = "claimed_by")
+	private String claimedBy;
+
+	@Column(name = "claimed_at")
+	private Instant claimedAt;
+
+	// Files of the group published and skipped so far, added to the job when the group finishes
+	@Column(name = "files_published", nullable = false)
+	private long filesPublished;
+
+	@Column(name = "files_skipped", nullable = false)
+	private long filesSkipped;
+
+	@Column(name = "last_error")
+	private String lastError;
+
+	@Column(name = "started")
+	private Instant started;
+
+	@Column(name = "finished")
+	private Instant finished;
+}
@@ -0,0 +1,77 @@
+package fi.poltsi.vempain.file.entity;
+
+import fi.poltsi.vempain.file.api.ScanJobStatusEnum;
+import fi.poltsi.vempain.file.api.response.ScanJobDirectoryResponse;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "scan_job_directories")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanJobDirectoryEntity {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id", nullable = false)
+	private Long id;
+
+	@Column(name = "scan_job_id", nullable = false)
+	private Long scanJobId;
+
+	@Column(name = "directory", nullable = false, length = 512)
+	private String directory;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "status", nullable = false, length = 16)
+	private ScanJobStatusEnum status;
+
+	@Column(name = "total_files", nullable = false)
+	private long totalFiles;
+
+	@Column(name = "scanned_files", nullable = false)
+	private long scannedFiles;
+
+	@Column(name = "new_files", nullable = false)
+	private long newFiles;
+
+	@Column(name = "failed_files", nullable = false)
+	private long failedFiles;
+
+	@Column(name = "error_message")
+	private String errorMessage;
+
+	@Column(name = "started")
+	private Instant started;
+
+	@Column(name = "finished")
+	private Instant finished;
+
+	public ScanJobDirectoryResponse toResponse() {
+		return ScanJobDirectoryResponse.builder()
+									   .directory(directory)
+									   .status(status)
+									   .totalFilesCount(totalFiles)
+									   .scannedFilesCount(scannedFiles)
+									   .newFilesCount(newFiles)
+									   .failedFilesCount(failedFiles)
+									   .errorMessage(errorMessage)
+									   .started(started)
+									   .finished(finished)
+									   .build();
+	}
+}
@@ -0,0 +1,98 @@
+package fi.poltsi.vempain.file.entity;
+
+import fi.poltsi.vempain.file.api.ScanJobStatusEnum;
+import fi.poltsi.vempain.file.api.response.ScanJobResponse;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "scan_jobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanJobEntity {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id", nullable = false)
+	private Long id;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "status", nullable = false, length = 16)
+	private ScanJobStatusEnum status;
+
+	@Column(name = "original_directory")
+	private String originalDirectory;
+
+	@Column(name = "export_directory")
+	private String exportDirectory;
+
+	@Column(name = "total_directories", nullable = false)
+	private long totalDirectories;
+
+	@Column(name = "processed_directories", nullable = false)
+	private long processedDirectories;
+
+	@Column(name = "total_files", nullable = false)
+	private long totalFiles;
+
+	@Column(name = "scanned_files", nullable = false)
+	private long scannedFiles;
+
+	@Column(name = "new_files", nullable = false)
+	private long newFiles;
+
+	@Column(name = "failed_files", nullable = false)
+	private long failedFiles;
+
+	@Column(name = "cancel_requested", nullable = false)
+	private boolean cancelRequested;
+
+	@Column(name = "error_message")
+	private String errorMessage;
+
+	@Column(name = "creator")
+	private Long creator;
+
+	@Column(name = "created", nullable = false)
+	private Instant created;
+
+	@Column(name = "started")
+	private Instant started;
+
+	@Column(name = "finished")
+	private Instant finished;
+
+	public ScanJobResponse toResponse() {
+		return ScanJobResponse.builder()
+							  .id(id)
+							  .status(status)
+							  .originalDirectory(originalDirectory)
+							  .exportDirectory(exportDirectory)
+							  .totalDirectories(totalDirectories)
+							  .processedDirectories(processedDirectories)
+							  .totalFilesCount(totalFiles)
+							  .scannedFilesCount(scannedFiles)
+							  .newFilesCount(newFiles)
+							  .failedFilesCount(failedFiles)
+							  .cancelRequested(cancelRequested)
+							  .errorMessage(errorMessage)
+							  .created(created)
+							  .started(started)
+							  .finished(finished)
+							  .build();
+	}
+}
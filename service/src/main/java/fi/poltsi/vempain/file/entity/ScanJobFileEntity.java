@@ -0,0 +1,55 @@
+package fi.poltsi.vempain.file.entity;
+
+import fi.poltsi.vempain.file.api.response.ScanJobFileResponse;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "scan_job_files")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanJobFileEntity {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "id", nullable = false)
+	private Long id;
+
+	@Column(name = "scan_job_id", nullable = false)
+	private Long scanJobId;
+
+	@Column(name = "file_id")
+	private Long fileId;
+
+	@Column(name = "filename", nullable = false)
+	private String filename;
+
+	@Column(name = "file_path", nullable = false, length = 512)
+	private String filePath;
+
+	@Column(name = "success", nullable = false)
+	private boolean success;
+
+	@Column(name = "message")
+	private String message;
+
+	public ScanJobFileResponse toResponse() {
+		return ScanJobFileResponse.builder()
+								  .fileId(fileId)
+								  .filename(filename)
+								  .filePath(filePath)
+								  .success(success)
+								  .message(message)
+								  .build();
+	}
+}
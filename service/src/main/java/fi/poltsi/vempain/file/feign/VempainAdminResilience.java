@@ -0,0 +1,288 @@
+package fi.poltsi.vempain.file.feign;
+
+import feign.FeignException;
+import feign.RetryableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Resilience of the calls to the Vempain Admin service. A call failing with a server error, a timeout or an I/O error is retried
+ * with an exponential backoff and jitter. After consecutive failures the circuit opens and the calls are rejected at once for
+ * the open period, after which a single call probes whether the service is back. A call which is not idempotent, such as an
+ * upload, is retried only when the service cannot have processed it: when the connection failed, or the service answered that it
+ * is unavailable or overloaded. A timed out upload may have been ingested, so it is not sent again. The uploads share a limited
+ * number of permits, so a slow admin service gets fewer uploads at a time instead of failing them. Calls, retries, rejections, the
+ * circuit state and the upload permits are published as metrics.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VempainAdminResilience {
+	private static final String METRIC_PREFIX = "vempain.admin.";
+
+	private final MeterRegistry meterRegistry;
+
+	private final AtomicReference<CircuitState> circuitState        = new AtomicReference<>(CircuitState.CLOSED);
+	private final AtomicInteger                 consecutiveFailures = new AtomicInteger();
+	private volatile Instant                      openUntil           = Instant.MIN;
+	private          Semaphore                    uploadPermits;
+
+	@Value("${vempain.service.admin-resilience.max-attempts:4}")
+	private int maxAttempts;
+
+	@Value("${vempain.service.admin-resilience.initial-backoff-millis:500}")
+	private long initialBackoffMillis;
+
+	@Value("${vempain.service.admin-resilience.max-backoff-millis:10000}")
+	private long maxBackoffMillis;
+
+	@Value("${vempain.service.admin-resilience.failure-threshold:5}")
+	private int failureThreshold;
+
+	@Value("${vempain.service.admin-resilience.open-seconds:30}")
+	private long openSeconds;
+
+	@Value("${vempain.service.admin-resilience.max-concurrent-uploads:4}")
+	private int maxConcurrentUploads;
+
+	@PostConstruct
+	public void init() {
+		uploadPermits = new Semaphore(Math.max(1, maxConcurrentUploads), true);
+		Gauge.builder(METRIC_PREFIX + "circuit.state", circuitState, state -> state.get()
+																			   .ordinal())
+			 .description("State of the admin service circuit: 0 closed, 1 open, 2 half-open")
+			 .register(meterRegistry);
+		Gauge.builder(METRIC_PREFIX + "uploads.available", uploadPermits, Semaphore::availablePermits)
+			 .description("Upload permits available")
+			 .register(meterRegistry);
+	}
+
+	/**
+	 * Call the admin service with an idempotent request.
+	 *
+	 * @param operation Name of the operation in the metrics and logs
+	 */
+	public <T> T call(String operation, Supplier<T> call) {
+		return execute(operation, call, false, true);
+	}
+
+	/**
+	 * Call the admin service with a request which creates something, and so is not repeated if it may have reached the service.
+	 *
+	 * @param operation Name of the operation in the metrics and logs
+	 */
+	public <T> T create(String operation, Supplier<T> call) {
+		return execute(operation, call, false, false);
+	}
+
+	/**
+	 * Upload to the admin service, waiting for an upload permit first. The upload is not repeated if it may have reached the
+	 * service.
+	 *
+	 * @param operation Name of the operation in the metrics and logs
+	 */
+	public <T> T upload(String operation, Supplier<T> call) {
+		return execute(operation, call, true, false);
+	}
+
+	/**
+	 * Whether calls are let through, false while the circuit is open.
+	 */
+	public boolean isAvailable() {
+		return circuitState.get() != CircuitState.OPEN || !Instant.now()
+																  .isBefore(openUntil);
+	}
+
+	private <T> T execute(String operation, Supplier<T> call, boolean upload, boolean idempotent) {
+		for (int attempt = 1; ; attempt++) {
+			if (attempt == 1) {
+				enterCircuit(operation);
+			}
+
+			try {
+				var result = attempt(operation, call, upload);
+				onSuccess();
+				count(operation, "success");
+				return result;
+			} catch (RuntimeException e) {
+				if (!isServiceFailure(e)) {
+					// The service answered, it is up even if it did not like the request
+					onSuccess();
+					count(operation, "client_error");
+					throw e;
+				}
+
+				onFailure(operation);
+
+				if (attempt >= maxAttempts || circuitState.get() != CircuitState.CLOSED || !(idempotent || isNotProcessed(e))) {
+					count(operation, "failure");
+					throw e;
+				}
+
+				var backoff = backoff(attempt);
+				log.warn("Admin service call {} failed on attempt {}/{}, retrying in {} ms: {}", operation, attempt, maxAttempts, backoff.toMillis(),
+						 e.getMessage());
+				meterRegistry.counter(METRIC_PREFIX + "retries", "operation", operation)
+							 .increment();
+				sleep(backoff, e);
+			}
+		}
+	}
+
+	private <T> T attempt(String operation, Supplier<T> call, boolean upload) {
+		if (upload) {
+			acquireUploadPermit(operation);
+		}
+
+		var sample = Timer.start(meterRegistry);
+
+		try {
+			return call.get();
+		} finally {
+			sample.stop(meterRegistry.timer(METRIC_PREFIX + "call.duration", "operation", operation));
+
+			if (upload) {
+				uploadPermits.release();
+			}
+		}
+	}
+
+	private void acquireUploadPermit(String operation) {
+		var sample = Timer.start(meterRegistry);
+
+		try {
+			uploadPermits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				  .interrupt();
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for an upload permit");
+		} finally {
+			sample.stop(meterRegistry.timer(METRIC_PREFIX + "uploads.wait", "operation", operation));
+		}
+	}
+
+	private void enterCircuit(String operation) {
+		if (circuitState.get() == CircuitState.CLOSED) {
+			return;
+		}
+
+		if (circuitState.get() == CircuitState.OPEN
+			&& !Instant.now()
+					   .isBefore(openUntil)
+			&& circuitState.compareAndSet(CircuitState.OPEN, CircuitState.HALF_OPEN)) {
+			log.info("Probing whether the admin service is back with {}", operation);
+			return;
+		}
+
+		count(operation, "rejected");
+		throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Vempain Admin service is unavailable");
+	}
+
+	private void onSuccess() {
+		consecutiveFailures.set(0);
+
+		if (circuitState.getAndSet(CircuitState.CLOSED) != CircuitState.CLOSED) {
+			log.info("Admin service is available again, closing the circuit");
+		}
+	}
+
+	private void onFailure(String operation) {
+		var failures = consecutiveFailures.incrementAndGet();
+
+		if (circuitState.get() == CircuitState.HALF_OPEN || failures >= failureThreshold) {
+			openUntil = Instant.now()
+							   .plusSeconds(openSeconds);
+
+			if (circuitState.getAndSet(CircuitState.OPEN) != CircuitState.OPEN) {
+				log.error("Admin service failed {} times in a row, last in {}, pausing calls for {} s", failures, operation, openSeconds);
+			}
+		}
+	}
+
+	/**
+	 * Exponential backoff with equal jitter, between half and the whole of the exponential delay.
+	 */
+	Duration backoff(int attempt) {
+		var exponential = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+		var half        = Math.max(1L, exponential / 2);
+		return Duration.ofMillis(half + ThreadLocalRandom.current()
+														 .nextLong(half + 1));
+	}
+
+	private void sleep(Duration backoff, RuntimeException failure) {
+		try {
+			Thread.sleep(backoff);
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				  .interrupt();
+			throw failure;
+		}
+	}
+
+	private void count(String operation, String outcome) {
+		Counter.builder(METRIC_PREFIX + "calls")
+			   .tag("operation", operation)
+			   .tag("outcome", outcome)
+			   .register(meterRegistry)
+			   .increment();
+	}
+
+	/**
+	 * Whether the call failed because of the service or the connection to it, which is worth retrying.
+	 */
+	static boolean isServiceFailure(RuntimeException e) {
+		if (e instanceof RetryableException) {
+			// Connection failures and timeouts
+			return true;
+		}
+
+		return e instanceof FeignException feignException
+			   && (feignException.status() >= 500 || feignException.status() == HttpStatus.TOO_MANY_REQUESTS.value());
+	}
+
+	/**
+	 * Whether the failed call can not have been processed by the service, so that also a request which is not idempotent can be
+	 * sent again.
+	 */
+	static boolean isNotProcessed(RuntimeException e) {
+		if (e instanceof RetryableException) {
+			// A read timeout may come after the service has processed the request, a failed connection never does
+			for (var cause = e.getCause(); cause != null; cause = cause.getCause()) {
+				if (cause instanceof ConnectException || cause instanceof NoRouteToHostException || cause instanceof UnknownHostException) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		return e instanceof FeignException feignException
+			   && (feignException.status() == HttpStatus.SERVICE_UNAVAILABLE.value() || feignException.status() == HttpStatus.TOO_MANY_REQUESTS.value());
+	}
+
+	private enum CircuitState {
+		CLOSED,
+		OPEN,
+		HALF_OPEN
+	}
+}
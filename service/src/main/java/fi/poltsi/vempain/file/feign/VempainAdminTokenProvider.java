@@ -2,23 +2,37 @@ package fi.poltsi.vempain.file.feign;
 
 import fi.poltsi.vempain.auth.api.request.LoginRequest;
 import fi.poltsi.vempain.auth.exception.VempainAuthenticationException;
-import fi.poltsi.vempain.auth.tools.JsonTools;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
 
 import java.time.Instant;
-
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Provides the JWT used to call the Vempain Admin service. All the threads share one token, and only one login is made at a time:
+ * the callers needing a new token while a login is in progress wait for the result of that login. The expiry is read from the
+ * exp claim of the token, and the token is renewed in the background once it is about to expire, so the callers normally never
+ * wait for a login. After a failed login the next one is attempted only after a delay, and the callers fail at once meanwhile.
+ */
 @Slf4j
 @RequiredArgsConstructor
 @Component
 public class VempainAdminTokenProvider {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
 	private final VempainAdminLoginClient vempainAdminLoginClient;
 
-	private String  jwtToken;
-	private Instant jwtTokenRegistrationTimeExpires;
+	private final Object refreshMonitor = new Object();
+
+	private volatile CachedToken                    cachedToken;
+	// Guarded by refreshMonitor
+	private          CompletableFuture<CachedToken> refreshing;
+	private          Instant                        nextLoginAllowed = Instant.MIN;
 
 	@Value("${vempain.service.admin-backend-username}")
 	private String adminUsername;
@@ -26,7 +40,148 @@ public class VempainAdminTokenProvider {
 	@Value("${vempain.service.admin-backend-password}")
 	private String adminUserPassword;
 
+	// Used when the token has no exp claim
+	@Value("${vempain.service.admin-token.default-lifetime-seconds:3600}")
+	private long defaultLifetimeSeconds;
+
+	@Value("${vempain.service.admin-token.refresh-before-expiry-seconds:300}")
+	private long refreshBeforeExpirySeconds;
+
+	// The token is not used during the last seconds of its lifetime, in case the clocks of the services differ
+	@Value("${vempain.service.admin-token.expiry-margin-seconds:30}")
+	private long expiryMarginSeconds;
+
+	@Value("${vempain.service.admin-token.login-retry-delay-seconds:5}")
+	private long loginRetryDelaySeconds;
+
+	/**
+	 * Log in again, or wait for the login already in progress.
+	 */
 	public void login() {
+		awaitRefresh();
+	}
+
+	public String getToken() {
+		var token = cachedToken;
+		var now   = Instant.now();
+
+		if (token == null || !now.isBefore(token.expires()
+												.minusSeconds(expiryMarginSeconds))) {
+			log.debug("JWT token is not set or has expired, logging in to Vempain Admin service");
+			return awaitRefresh().token();
+		}
+
+		if (!now.isBefore(token.expires()
+							   .minusSeconds(refreshBeforeExpirySeconds))) {
+			refreshInBackground();
+		}
+
+		return token.token();
+	}
+
+	/**
+	 * Discard the token after the admin service has rejected it, unless it has already been replaced. The callers which were
+	 * rejected with the same token cause only one login.
+	 *
+	 * @param rejectedBefore When the rejected request was made, a token obtained after it is kept
+	 */
+	public void tokenRejected(Instant rejectedBefore) {
+		var token = cachedToken;
+
+		if (token != null && token.obtained()
+								  .isBefore(rejectedBefore)) {
+			synchronized (refreshMonitor) {
+				if (cachedToken == token) {
+					log.debug("Discarding the JWT token rejected by Vempain Admin service");
+					cachedToken = null;
+				}
+			}
+		}
+	}
+
+	private CachedToken awaitRefresh() {
+		CompletableFuture<CachedToken> future;
+		var                            leader = false;
+
+		synchronized (refreshMonitor) {
+			future = refreshing;
+
+			if (future == null) {
+				if (Instant.now()
+						   .isBefore(nextLoginAllowed)) {
+					log.debug("Not logging in to Vempain Admin service before {} after a failed login", nextLoginAllowed);
+					throw new VempainAuthenticationException();
+				}
+
+				future     = new CompletableFuture<>();
+				refreshing = future;
+				leader     = true;
+			}
+		}
+
+		if (leader) {
+			runLogin(future);
+		}
+
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof VempainAuthenticationException authenticationException) {
+				throw authenticationException;
+			}
+
+			throw new VempainAuthenticationException();
+		}
+	}
+
+	private void refreshInBackground() {
+		CompletableFuture<CachedToken> future;
+
+		synchronized (refreshMonitor) {
+			if (refreshing != null || Instant.now()
+											 .isBefore(nextLoginAllowed)) {
+				return;
+			}
+
+			future     = new CompletableFuture<>();
+			refreshing = future;
+		}
+
+		log.debug("JWT token is about to expire, renewing it in the background");
+		Thread.ofVirtual()
+			  .name("admin-token-refresh")
+			  .start(() -> runLogin(future));
+	}
+
+	private void runLogin(CompletableFuture<CachedToken> future) {
+		CachedToken      token   = null;
+		RuntimeException failure = null;
+
+		try {
+			token = authenticate();
+		} catch (RuntimeException e) {
+			failure = e;
+		}
+
+		synchronized (refreshMonitor) {
+			if (token != null) {
+				cachedToken = token;
+			} else {
+				nextLoginAllowed = Instant.now()
+										  .plusSeconds(loginRetryDelaySeconds);
+			}
+
+			refreshing = null;
+		}
+
+		if (token != null) {
+			future.complete(token);
+		} else {
+			future.completeExceptionally(failure);
+		}
+	}
+
+	private CachedToken authenticate() {
 		var loginRequest = LoginRequest.builder()
 									   .login(adminUsername)
 									   .password(adminUserPassword)
@@ -42,8 +197,6 @@ public class VempainAdminTokenProvider {
 				throw new VempainAuthenticationException();
 			}
 
-			log.debug("Received following login response: {}", JsonTools.toJson(responseEntity));
-
 			var loginResponse = responseEntity.getBody();
 
 			if (loginResponse == null || loginResponse.getToken() == null) {
@@ -51,27 +204,44 @@ public class VempainAdminTokenProvider {
 				throw new VempainAuthenticationException();
 			}
 
-			jwtTokenRegistrationTimeExpires = Instant.now()
-													 .plusSeconds(3_600L);
-			jwtToken                        = loginResponse.getToken();
+			var now     = Instant.now();
+			var expires = readExpiry(loginResponse.getToken());
 
-			log.debug("Logged in to Vempain Admin");
+			if (expires == null || !expires.isAfter(now)) {
+				expires = now.plusSeconds(defaultLifetimeSeconds);
+			}
+
+			log.debug("Logged in to Vempain Admin, the token expires at {}", expires);
+			return new CachedToken(loginResponse.getToken(), now, expires);
 		} catch (Exception e) {
 			log.error("Login to Vempain admin failed: {}", e.getMessage());
 			throw new VempainAuthenticationException();
 		}
 	}
 
-	public String getToken() {
-		if (jwtToken == null
-			|| jwtToken.isEmpty()
-			|| jwtTokenRegistrationTimeExpires == null
-			|| Instant.now()
-					  .isAfter(jwtTokenRegistrationTimeExpires)) {
-			log.debug("JWT token is not set, logging in to Vempain Admin service");
-			login();
+	/**
+	 * Read the exp claim of a JWT. The signature is not verified, the expiry is only used to know when to renew the token.
+	 *
+	 * @return Expiry of the token, null if it cannot be read
+	 */
+	static Instant readExpiry(String jwt) {
+		var parts = jwt.split("\\.");
+
+		if (parts.length < 2) {
+			return null;
 		}
 
-		return jwtToken;
+		try {
+			var payload = OBJECT_MAPPER.readTree(Base64.getUrlDecoder()
+													   .decode(parts[1]));
+			var exp     = payload.path("exp");
+			return exp.isNumber() ? Instant.ofEpochSecond(exp.asLong()) : null;
+		} catch (RuntimeException e) {
+			log.warn("Could not read the expiry of the Vempain Admin token: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	private record CachedToken(String token, Instant obtained, Instant expires) {
 	}
 }
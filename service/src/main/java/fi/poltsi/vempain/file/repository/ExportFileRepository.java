@@ -2,8 +2,13 @@ package fi.poltsi.vempain.file.repository;
 
 import fi.poltsi.vempain.file.entity.ExportFileEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +18,17 @@ public interface ExportFileRepository extends JpaRepository<ExportFileEntity, Lo
 	Optional<ExportFileEntity> findByFilePathAndFilename(String path, String filename);
 
 	Optional<ExportFileEntity> findByFileId(Long fileId);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE ExportFileEntity e SET e.publishedSha256sum = :sha256sum, e.publishedMetadataHash = :metadataHash, e.publishedGalleryId = :galleryId, "
+		   + "e.publishedAt = :publishedAt WHERE e.id = :id")
+	void updatePublishState(@Param("id") Long id, @Param("sha256sum") String sha256sum, @Param("metadataHash") String metadataHash,
+							@Param("galleryId") Long galleryId, @Param("publishedAt") Instant publishedAt);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE ExportFileEntity e SET e.sha256sum = :sha256sum, e.filesize = :filesize, e.fileMtime = :fileMtime, e.fileKey = :fileKey WHERE e.id = :id")
+	void updateContentState(@Param("id") Long id, @Param("sha256sum") String sha256sum, @Param("filesize") long filesize, @Param("fileMtime") Long fileMtime,
+							@Param("fileKey") String fileKey);
 }
@@ -20,6 +20,11 @@ import java.util.regex.Pattern;
 public class FileGroupRepositoryImpl implements FileGroupRepositoryCustom {
 
 	private static final Pattern TOKEN_PATTERN = Pattern.compile("\"([^\"]+)\"|(\\S+)");
+	private static final String  BASE_SQL      = """
+			FROM file_group fg
+			LEFT JOIN file_group_files fgf ON fgf.file_group_id = fg.id
+			LEFT JOIN files f ON f.id = fgf.file_id
+			""";
 
 	private final EntityManager entityManager;
 
@@ -27,18 +32,7 @@ public class FileGroupRepositoryImpl implements FileGroupRepositoryCustom {
 	public Page<FileGroupSummaryRow> searchFileGroups(String searchTerm, boolean caseSensitive, Pageable pageable) {
 		List<String> tokens = tokenize(searchTerm);
 
-		String base = """
-				FROM file_group fg
-				LEFT JOIN file_group_files fgf ON fgf.file_group_id = fg.id
-				LEFT JOIN files f ON f.id = fgf.file_id
-				""";
-
-		String whereClause = buildWhereClause(tokens, caseSensitive);
-		String orderClause = buildOrderClause(pageable);
-
-		String selectSql = "SELECT fg.id, fg.path, fg.group_name, fg.description, COUNT(f.id) AS file_count, fg.gallery_id "
-						   + base + whereClause + " GROUP BY fg.id, fg.path, fg.group_name, fg.gallery_id, fg.description " + orderClause
-						   + " OFFSET :offset LIMIT :limit";
+		String selectSql = buildSelectSql(tokens, caseSensitive, pageable);
 		log.debug("FileGroup search SQL: {}", selectSql);
 		Query dataQuery = entityManager.createNativeQuery(selectSql);
 		bindParameters(dataQuery, tokens, caseSensitive);
@@ -51,7 +45,7 @@ public class FileGroupRepositoryImpl implements FileGroupRepositoryCustom {
 												.map(FileGroupRepositoryImpl::mapRow)
 												.toList();
 
-		String countSql   = "SELECT COUNT(DISTINCT fg.id) " + base + whereClause;
+		String countSql   = buildCountSql(tokens, caseSensitive);
 		log.debug("FileGroup count SQL: {}", countSql);
 		Query  countQuery = entityManager.createNativeQuery(countSql);
 		bindParameters(countQuery, tokens, caseSensitive);
@@ -60,15 +54,34 @@ public class FileGroupRepositoryImpl implements FileGroupRepositoryCustom {
 		return new PageImpl<>(rows, pageable, total.longValue());
 	}
 
-	private void bindParameters(Query query, List<String> tokens, boolean caseSensitive) {
+	static String buildSelectSql(List<String> tokens, boolean caseSensitive, Pageable pageable) {
+		return "SELECT fg.id, fg.path, fg.group_name, fg.description, COUNT(f.id) AS file_count, fg.gallery_id " + BASE_SQL
+			   + buildWhereClause(tokens, caseSensitive) + " GROUP BY fg.id, fg.path, fg.group_name, fg.gallery_id, fg.description "
+			   + buildOrderClause(pageable) + " OFFSET :offset LIMIT :limit";
+	}
+
+	static String buildCountSql(List<String> tokens, boolean caseSensitive) {
+		return "SELECT COUNT(DISTINCT fg.id) " + BASE_SQL + buildWhereClause(tokens, caseSensitive);
+	}
+
+	static void bindParameters(Query query, List<String> tokens, boolean caseSensitive) {
 		for (int i = 0; i < tokens.size(); i++) {
-			String value = caseSensitive ? tokens.get(i) : tokens.get(i)
-																 .toLowerCase();
-			query.setParameter("term" + i, "%" + value + "%");
+			query.setParameter("lowerTerm" + i, "%" + tokens.get(i)
+														.toLowerCase() + "%");
+
+			if (caseSensitive) {
+				query.setParameter("term" + i, "%" + tokens.get(i) + "%");
+			}
 		}
 	}
 
-	private String buildWhereClause(List<String> tokens, boolean caseSensitive) {
+	/**
+	 * Each token must match a column of the group or of the file of the row, so a group is counted with the files which match the
+	 * tokens its own columns do not. The trigram indexes of the two tables cannot serve an OR across the join, so each token also
+	 * narrows the groups down with a subquery, a UNION of the matching groups and the groups of the matching files, which the
+	 * indexes do serve. The rows of only those groups are then matched.
+	 */
+	private static String buildWhereClause(List<String> tokens, boolean caseSensitive) {
 		if (tokens.isEmpty()) {
 			return "";
 		}
@@ -77,7 +90,19 @@ public class FileGroupRepositoryImpl implements FileGroupRepositoryCustom {
 			if (i > 0) {
 				sb.append(" AND ");
 			}
-			sb.append('(')
+			sb.append("fg.id IN (SELECT mg.id FROM file_group mg WHERE ")
+			  .append(like("mg.path", i, caseSensitive))
+			  .append(" OR ")
+			  .append(like("mg.group_name", i, caseSensitive))
+			  .append(" OR ")
+			  .append(like("mg.description", i, caseSensitive))
+			  .append(" UNION SELECT mgf.file_group_id FROM file_group_files mgf JOIN files mf ON mf.id = mgf.file_id WHERE ")
+			  .append(like("mf.description", i, caseSensitive))
+			  .append(" OR ")
+			  .append(like("mf.filename", i, caseSensitive))
+			  .append(" OR ")
+			  .append(like("mf.file_path", i, caseSensitive))
+			  .append(") AND (")
 			  .append(like("fg.path", i, caseSensitive))
 			  .append(" OR ")
 			  .append(like("fg.group_name", i, caseSensitive))
@@ -94,11 +119,16 @@ public class FileGroupRepositoryImpl implements FileGroupRepositoryCustom {
 		return sb.toString();
 	}
 
-	private String like(String column, int index, boolean caseSensitive) {
-		return (caseSensitive ? column : "LOWER(" + column + ")") + " LIKE :term" + index;
+	/**
+	 * The lowered column is always matched so that its trigram index can be used, a case-sensitive search also matches the column
+	 * as is.
+	 */
+	private static String like(String column, int index, boolean caseSensitive) {
+		var lowerLike = "LOWER(" + column + ") LIKE :lowerTerm" + index;
+		return caseSensitive ? "(" + lowerLike + " AND " + column + " LIKE :term" + index + ")" : lowerLike;
 	}
 
-	private String buildOrderClause(Pageable pageable) {
+	private static String buildOrderClause(Pageable pageable) {
 		if (!pageable.getSort()
 					 .isSorted()) {
 			return " ORDER BY fg.path ASC";
@@ -118,7 +148,7 @@ public class FileGroupRepositoryImpl implements FileGroupRepositoryCustom {
 		return sb.toString();
 	}
 
-	private String mapSort(String property) {
+	private static String mapSort(String property) {
 		if (property == null) {
 			return "fg.path";
 		}
@@ -131,7 +161,7 @@ public class FileGroupRepositoryImpl implements FileGroupRepositoryCustom {
 		};
 	}
 
-	private List<String> tokenize(String searchTerm) {
+	static List<String> tokenize(String searchTerm) {
 		if (searchTerm == null || searchTerm.isBlank()) {
 			return List.of();
 		}
@@ -0,0 +1,311 @@
+package fi.poltsi.vempain.file.repository;
+
+import fi.poltsi.vempain.file.entity.FileEntity;
+import fi.poltsi.vempain.file.entity.TagEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.PluralAttribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads the files of the list views, selecting only the columns the lists show. The files are built from the selected columns
+ * through their setters and are not managed. The raw metadata and the metadata document are only returned for a single file and
+ * are left out. The location is fetched with the rows. The tags and the element collections, such as the operating systems of an
+ * executable, are fetched for the whole page with one query each. A referenced file, such as the target of a thumbnail, is loaded
+ * for the whole page in the same way with its listed columns, but without the files it references in turn. A page costs two
+ * queries, one more per element collection and per referenced type, and one more when it has to be counted.
+ */
+@Repository
+@RequiredArgsConstructor
+public class FileListRepository {
+
+	private static final Set<String> UNLISTED_ATTRIBUTES = Set.of("metadataRaw", "metadataDocument");
+
+	private final EntityManager entityManager;
+
+	/**
+	 * Find a page of files with the listed columns.
+	 *
+	 * @param spec Search specification, may be null
+	 * @return Page of files which are not managed
+	 */
+	public <T extends FileEntity> Page<T> findPage(Class<T> type, Specification<T> spec, Pageable pageable) {
+		var files = findList(type, spec, pageable.getSort(), pageable.getOffset(), pageable.getPageSize());
+		// Counted only when the page alone does not tell the total
+		return PageableExecutionUtils.getPage(files, pageable, () -> count(type, spec));
+	}
+
+	/**
+	 * Find files with the listed columns.
+	 *
+	 * @param spec Search specification, may be null
+	 * @return Files which are not managed
+	 */
+	public <T extends FileEntity> List<T> findList(Class<T> type, Specification<T> spec, Sort sort, long offset, int limit) {
+		return loadFiles(type, spec, sort, offset, limit, true);
+	}
+
+	public <T extends FileEntity> long count(Class<T> type, Specification<T> spec) {
+		var cb    = entityManager.getCriteriaBuilder();
+		var query = cb.createQuery(Long.class);
+		var root  = query.from(type);
+		query.select(cb.count(root));
+		applySpecification(spec, root, query, cb);
+		return entityManager.createQuery(query)
+							.getSingleResult();
+	}
+
+	/**
+	 * @param withReferences Whether to load the files the listed files reference, left unset otherwise
+	 */
+	private <T extends FileEntity> List<T> loadFiles(Class<T> type, Specification<T> spec, Sort sort, long offset, int limit, boolean withReferences) {
+		var cb         = entityManager.getCriteriaBuilder();
+		var query      = cb.createTupleQuery();
+		var root       = query.from(type);
+		var attributes = listedAttributes(type, withReferences);
+		var selections = new ArrayList<Selection<?>>();
+
+		for (var attribute : attributes) {
+			var name = attribute.getName();
+
+			if (isFileReference(attribute)) {
+				// Read from the foreign key, the referenced files are loaded for the whole page
+				selections.add(root.get(name)
+								   .get("id")
+								   .alias(name));
+			} else if (attribute.isAssociation()) {
+				selections.add(root.join(name, JoinType.LEFT)
+								   .alias(name));
+			} else {
+				selections.add(root.get(name)
+								   .alias(name));
+			}
+		}
+
+		query.multiselect(selections);
+		applySpecification(spec, root, query, cb);
+		query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+		var tuples     = entityManager.createQuery(query)
+									  .setFirstResult(Math.toIntExact(offset))
+									  .setMaxResults(limit)
+									  .getResultList();
+		var files      = new ArrayList<T>(tuples.size());
+		var references = new HashMap<String, Map<Long, List<T>>>();
+
+		for (var tuple : tuples) {
+			files.add(toFile(type, attributes, tuple, references));
+		}
+
+		loadTags(files);
+		loadElementCollections(type, files);
+		loadReferences(references);
+		return files;
+	}
+
+	/**
+	 * The column backed attributes of the type. An attribute which a subtype declares again, such as the description of a music
+	 * file, is listed once as the attribute of the subtype.
+	 */
+	private <T extends FileEntity> List<SingularAttribute<? super T, ?>> listedAttributes(Class<T> type, boolean withReferences) {
+		var attributes = new LinkedHashMap<String, SingularAttribute<? super T, ?>>();
+
+		for (var attribute : entityManager.getMetamodel()
+										  .entity(type)
+										  .getSingularAttributes()) {
+			var attributeType = attribute.getPersistentAttributeType();
+			var columnBacked  = attributeType == Attribute.PersistentAttributeType.BASIC
+							   || attributeType == Attribute.PersistentAttributeType.MANY_TO_ONE;
+
+			if (!columnBacked || UNLISTED_ATTRIBUTES.contains(attribute.getName()) || (!withReferences && isFileReference(attribute))) {
+				continue;
+			}
+
+			var listed = attributes.get(attribute.getName());
+
+			if (listed == null || declaringClass(listed).isAssignableFrom(declaringClass(attribute))) {
+				attributes.put(attribute.getName(), attribute);
+			}
+		}
+
+		return new ArrayList<>(attributes.values());
+	}
+
+	private <T extends FileEntity> T toFile(Class<T> type, List<SingularAttribute<? super T, ?>> attributes, Tuple tuple,
+											Map<String, Map<Long, List<T>>> references) {
+		var file     = BeanUtils.instantiateClass(type);
+		var accessor = PropertyAccessorFactory.forBeanPropertyAccess(file);
+
+		for (var attribute : attributes) {
+			var name  = attribute.getName();
+			var value = tuple.get(name);
+
+			if (value == null) {
+				continue;
+			}
+
+			if (isFileReference(attribute)) {
+				references.computeIfAbsent(name, key -> new HashMap<>())
+						  .computeIfAbsent((Long) value, key -> new ArrayList<>())
+						  .add(file);
+			} else {
+				accessor.setPropertyValue(name, value);
+			}
+		}
+
+		return file;
+	}
+
+	private void loadTags(List<? extends FileEntity> files) {
+		if (files.isEmpty()) {
+			return;
+		}
+
+		Map<Long, FileEntity> filesById = new HashMap<>();
+
+		for (var file : files) {
+			file.setTags(new HashSet<>());
+			filesById.put(file.getId(), file);
+		}
+
+		var rows = entityManager.createQuery("SELECT ft.file.id, t.id, t.tagName FROM FileTag ft JOIN ft.tag t WHERE ft.file.id IN :fileIds", Object[].class)
+								.setParameter("fileIds", filesById.keySet())
+								.getResultList();
+
+		for (var row : rows) {
+			filesById.get((Long) row[0])
+					 .getTags()
+					 .add(TagEntity.builder()
+								   .id((Long) row[1])
+								   .tagName((String) row[2])
+								   .build());
+		}
+	}
+
+	private <T extends FileEntity> void loadElementCollections(Class<T> type, List<T> files) {
+		if (files.isEmpty()) {
+			return;
+		}
+
+		var entityType = entityManager.getMetamodel()
+									  .entity(type);
+
+		for (var attribute : entityType.getPluralAttributes()) {
+			if (attribute.getPersistentAttributeType() != Attribute.PersistentAttributeType.ELEMENT_COLLECTION
+				|| attribute.getCollectionType() == PluralAttribute.CollectionType.MAP) {
+				continue;
+			}
+
+			var name         = attribute.getName();
+			var elementsById = new HashMap<Long, Collection<Object>>();
+
+			for (var file : files) {
+				Collection<Object> elements = attribute.getCollectionType() == PluralAttribute.CollectionType.SET ? new HashSet<>() : new ArrayList<>();
+				PropertyAccessorFactory.forBeanPropertyAccess(file)
+									   .setPropertyValue(name, elements);
+				elementsById.put(file.getId(), elements);
+			}
+
+			var rows = entityManager.createQuery("SELECT f.id, e FROM " + entityType.getName() + " f JOIN f." + name + " e WHERE f.id IN :fileIds",
+												 Object[].class)
+									.setParameter("fileIds", elementsById.keySet())
+									.getResultList();
+
+			for (var row : rows) {
+				elementsById.get((Long) row[0])
+							.add(row[1]);
+			}
+		}
+	}
+
+	/**
+	 * Load the referenced files and set them to the files referencing them.
+	 *
+	 * @param references Referencing files by the attribute and the id of the referenced file
+	 */
+	private <T extends FileEntity> void loadReferences(Map<String, Map<Long, List<T>>> references) {
+		for (var reference : references.entrySet()) {
+			var referencing = reference.getValue();
+
+			for (var referenced : loadReferencedFiles(referencing.keySet())) {
+				for (var file : referencing.get(referenced.getId())) {
+					PropertyAccessorFactory.forBeanPropertyAccess(file)
+										   .setPropertyValue(reference.getKey(), referenced);
+				}
+			}
+		}
+	}
+
+	private List<FileEntity> loadReferencedFiles(Set<Long> ids) {
+		var idsByType = new HashMap<Class<? extends FileEntity>, Set<Long>>();
+		var rows      = entityManager.createQuery("SELECT f.id, TYPE(f) FROM FileEntity f WHERE f.id IN :fileIds", Object[].class)
+									 .setParameter("fileIds", ids)
+									 .getResultList();
+
+		for (var row : rows) {
+			idsByType.computeIfAbsent(((Class<?>) row[1]).asSubclass(FileEntity.class), key -> new HashSet<>())
+					 .add((Long) row[0]);
+		}
+
+		var files = new ArrayList<FileEntity>(ids.size());
+
+		for (var typeIds : idsByType.entrySet()) {
+			files.addAll(loadById(typeIds.getKey(), typeIds.getValue()));
+		}
+
+		return files;
+	}
+
+	private <T extends FileEntity> List<T> loadById(Class<T> type, Set<Long> ids) {
+		Specification<T> byId = (root, query, cb) -> root.get("id")
+														 .in(ids);
+		// The references of the referenced files are not followed, the chain could lead back to the listed files
+		return loadFiles(type, byId, Sort.by("id"), 0L, ids.size(), false);
+	}
+
+	private static boolean isFileReference(SingularAttribute<?, ?> attribute) {
+		return attribute.isAssociation() && FileEntity.class.isAssignableFrom(attribute.getJavaType());
+	}
+
+	private static Class<?> declaringClass(SingularAttribute<?, ?> attribute) {
+		return attribute.getDeclaringType()
+						.getJavaType();
+	}
+
+	private static <T> void applySpecification(Specification<T> spec, Root<T> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+		if (spec == null) {
+			return;
+		}
+
+		var predicate = spec.toPredicate(root, query, cb);
+
+		if (predicate != null) {
+			query.where(predicate);
+		}
+	}
+}
@@ -5,8 +5,12 @@ import fi.poltsi.vempain.file.entity.FileTag;
 import fi.poltsi.vempain.file.entity.FileTagId;
 import fi.poltsi.vempain.file.entity.TagEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -16,4 +20,16 @@ public interface FileTagRepository extends JpaRepository<FileTag, FileTagId> {
 	List<FileTag> findByTag(TagEntity tag);
 
 	List<FileTag> findByFileId(long fileId);
+
+	/**
+	 * Link all the given tags to a file with a single statement, links that already exist are left as they are.
+	 */
+	@Modifying
+	@Query(value = "INSERT INTO file_tags (file_id, tag_id) SELECT :fileId, t.id FROM tags t WHERE t.id IN (:tagIds) ON CONFLICT DO NOTHING",
+		   nativeQuery = true)
+	void insertFileTags(@Param("fileId") Long fileId, @Param("tagIds") Collection<Long> tagIds);
+
+	@Modifying
+	@Query("DELETE FROM FileTag ft WHERE ft.file = :file")
+	void deleteAllByFileInBulk(@Param("file") FileEntity file);
 }
@@ -3,6 +3,9 @@ package fi.poltsi.vempain.file.repository;
 import fi.poltsi.vempain.file.entity.FileEntity;
 import fi.poltsi.vempain.file.entity.MetadataEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,4 +13,8 @@ import java.util.List;
 @Repository
 public interface MetadataRepository extends JpaRepository<MetadataEntity, Long> {
 	List<MetadataEntity> findByFile(FileEntity file);
+
+	@Modifying
+	@Query("DELETE FROM MetadataEntity m WHERE m.file = :file")
+	void deleteAllByFileInBulk(@Param("file") FileEntity file);
 }
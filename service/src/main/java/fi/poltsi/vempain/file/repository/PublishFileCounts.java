@@ -0,0 +1,7 @@
+package fi.poltsi.vempain.file.repository;
+
+/**
+ * Numbers of files published and skipped by publish groups which have not yet been added to their job.
+ */
+public record PublishFileCounts(long published, long skipped) {
+}
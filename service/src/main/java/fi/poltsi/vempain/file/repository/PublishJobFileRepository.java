@@ -0,0 +1,31 @@
+package fi.poltsi.vempain.file.repository;
+
+import fi.poltsi.vempain.file.api.PublishProgressStatusEnum;
+import fi.poltsi.vempain.file.entity.PublishJobFileEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface PublishJobFileRepository extends JpaRepository<PublishJobFileEntity, Long> {
+	@Query("SELECT f.fileId FROM PublishJobFileEntity f WHERE f.publishJobGroupId = :publishJobGroupId AND f.status = :status")
+	List<Long> findFileIds(@Param("publishJobGroupId") Long publishJobGroupId, @Param("status") PublishProgressStatusEnum status);
+
+	/**
+	 * Record the outcome of one attempt to publish a file, counting the attempts of the file.
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "INSERT INTO publish_job_files (publish_job_group_id, file_id, status, skipped, attempts, last_error, finished) "
+				   + "VALUES (:publishJobGroupId, :fileId, :status, :skipped, 1, :lastError, :finished) "
+				   + "ON CONFLICT (publish_job_group_id, file_id) DO UPDATE SET status = EXCLUDED.status, skipped = EXCLUDED.skipped, "
+				   + "attempts = publish_job_files.attempts + 1, last_error = EXCLUDED.last_error, finished = EXCLUDED.finished", nativeQuery = true)
+	void recordResult(@Param("publishJobGroupId") Long publishJobGroupId, @Param("fileId") Long fileId, @Param("status") String status,
+					  @Param("skipped") boolean skipped, @Param("lastError") String lastError, @Param("finished") Instant finished);
+}
@@ -0,0 +1,84 @@
+package fi.poltsi.vempain.file.repository;
+
+import fi.poltsi.vempain.file.api.PublishProgressStatusEnum;
+import fi.poltsi.vempain.file.entity.PublishJobGroupEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PublishJobGroupRepository extends JpaRepository<PublishJobGroupEntity, Long> {
+	List<PublishJobGroupEntity> findByPublishJobId(Long publishJobId);
+
+	long countByPublishJobIdAndStatusIn(Long publishJobId, Collection<PublishProgressStatusEnum> statuses);
+
+	/**
+	 * Lock the next group to publish: a scheduled group which is due, or a started group whose claim has not been renewed since
+	 * the given time, i.e. whose worker is gone. Rows locked by another transaction are skipped, so concurrent workers, also of
+	 * other service instances, never claim the same group. Must be called in a transaction, which holds the lock until the
+	 * claim is saved.
+	 */
+	@Query(value = "SELECT g.* FROM publish_job_groups g JOIN publish_jobs j ON j.id = g.publish_job_id WHERE j.status = 'RUNNING' "
+				   + "AND ((g.status = 'SCHEDULED' AND (g.available_at IS NULL OR g.available_at <= :now)) "
+				   + "OR (g.status = 'STARTED' AND g.claimed_at < :staleBefore)) "
+				   + "ORDER BY g.publish_job_id, g.id LIMIT 1 FOR UPDATE OF g SKIP LOCKED", nativeQuery = true)
+	Optional<PublishJobGroupEntity> lockNextClaimable(@Param("now") Instant now, @Param("staleBefore") Instant staleBefore);
+
+	@Transactional
+	@Modifying
+	@Query(value = "INSERT INTO publish_job_groups (publish_job_id, file_group_id, status, attempts) "
+				   + "SELECT :publishJobId, fg.id, 'SCHEDULED', 0 FROM file_group fg ORDER BY fg.path, fg.id", nativeQuery = true)
+	int insertAllFileGroups(@Param("publishJobId") Long publishJobId);
+
+	/**
+	 * Sum up the files published and skipped by the unfinished groups of a job, which are not yet in the counters of the job.
+	 */
+	@Query("SELECT new fi.poltsi.vempain.file.repository.PublishFileCounts(COALESCE(SUM(g.filesPublished), 0L), COALESCE(SUM(g.filesSkipped), 0L)) "
+		   + "FROM PublishJobGroupEntity g WHERE g.publishJobId = :publishJobId AND g.status IN :statuses")
+	PublishFileCounts sumFileCounts(@Param("publishJobId") Long publishJobId, @Param("statuses") Collection<PublishProgressStatusEnum> statuses);
+
+	/**
+	 * Renew the claim of a group, only while the group is still claimed by the given worker.
+	 */
+	@Transactional
+	@Modifying
+	@Query("UPDATE PublishJobGroupEntity g SET g.claimedAt = :claimedAt WHERE g.id = :id AND g.claimedBy = :claimedBy")
+	int renewClaim(@Param("id") Long id, @Param("claimedBy") String claimedBy, @Param("claimedAt") Instant claimedAt);
+
+	/**
+	 * Count the result of a file of a group and remember the gallery its files are published to. The claim is renewed only while
+	 * the group is still claimed by the given worker, but the file is counted regardless, as its result is recorded.
+	 */
+	@Transactional
+	@Modifying
+	@Query("UPDATE PublishJobGroupEntity g SET g.filesPublished = g.filesPublished + :published, g.filesSkipped = g.filesSkipped + :skipped, "
+		   + "g.claimedAt = CASE WHEN g.claimedBy = :claimedBy THEN :claimedAt ELSE g.claimedAt END, g.galleryId = COALESCE(g.galleryId, :galleryId) "
+		   + "WHERE g.id = :id")
+	void addFileResult(@Param("id") Long id, @Param("claimedBy") String claimedBy, @Param("claimedAt") Instant claimedAt, @Param("galleryId") Long galleryId,
+					   @Param("published") long published, @Param("skipped") long skipped);
+
+	/**
+	 * Give up the groups still claimed by the given worker, which is the case after the service was stopped in the middle of a
+	 * group.
+	 */
+	@Transactional
+	@Modifying
+	@Query("UPDATE PublishJobGroupEntity g SET g.status = fi.poltsi.vempain.file.api.PublishProgressStatusEnum.SCHEDULED, g.claimedBy = null, "
+		   + "g.claimedAt = null WHERE g.status = fi.poltsi.vempain.file.api.PublishProgressStatusEnum.STARTED AND g.claimedBy = :claimedBy")
+	int releaseClaims(@Param("claimedBy") String claimedBy);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE PublishJobGroupEntity g SET g.status = fi.poltsi.vempain.file.api.PublishProgressStatusEnum.SCHEDULED, g.attempts = 0, "
+		   + "g.availableAt = null, g.finished = null WHERE g.publishJobId = :publishJobId "
+		   + "AND g.status = fi.poltsi.vempain.file.api.PublishProgressStatusEnum.FAILED")
+	int rescheduleFailed(@Param("publishJobId") Long publishJobId);
+}
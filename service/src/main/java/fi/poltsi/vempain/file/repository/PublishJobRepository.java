@@ -0,0 +1,37 @@
+package fi.poltsi.vempain.file.repository;
+
+import fi.poltsi.vempain.file.entity.PublishJobEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface PublishJobRepository extends JpaRepository<PublishJobEntity, Long> {
+	Optional<PublishJobEntity> findFirstByOrderByIdDesc();
+
+	/**
+	 * Load the job with a row lock, which serializes the group completions of the job so that exactly one of them sees the job
+	 * finished.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT j FROM PublishJobEntity j WHERE j.id = :id")
+	Optional<PublishJobEntity> findByIdForUpdate(@Param("id") Long id);
+
+	/**
+	 * Finish the running jobs which have no groups left to publish, e.g. because their file groups were deleted.
+	 */
+	@Transactional
+	@Modifying
+	@Query(value = "UPDATE publish_jobs j SET status = CASE WHEN j.failed_groups > 0 THEN 'FAILED' ELSE 'COMPLETED' END, finished = :finished, "
+				   + "updated = :finished WHERE j.status = 'RUNNING' AND NOT EXISTS (SELECT 1 FROM publish_job_groups g WHERE g.publish_job_id = j.id "
+				   + "AND g.status IN ('SCHEDULED', 'STARTED'))", nativeQuery = true)
+	int finishDrainedJobs(@Param("finished") Instant finished);
+}
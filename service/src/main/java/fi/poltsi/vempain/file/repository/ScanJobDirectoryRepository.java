@@ -0,0 +1,12 @@
+package fi.poltsi.vempain.file.repository;
+
+import fi.poltsi.vempain.file.entity.ScanJobDirectoryEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ScanJobDirectoryRepository extends JpaRepository<ScanJobDirectoryEntity, Long> {
+	List<ScanJobDirectoryEntity> findByScanJobIdOrderByIdAsc(Long scanJobId);
+}
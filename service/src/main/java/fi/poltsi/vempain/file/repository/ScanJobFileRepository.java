@@ -0,0 +1,12 @@
+package fi.poltsi.vempain.file.repository;
+
+import fi.poltsi.vempain.file.entity.ScanJobFileEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ScanJobFileRepository extends JpaRepository<ScanJobFileEntity, Long> {
+	Page<ScanJobFileEntity> findByScanJobId(Long scanJobId, Pageable pageable);
+}
@@ -0,0 +1,50 @@
+package fi.poltsi.vempain.file.repository;
+
+import fi.poltsi.vempain.file.api.ScanJobStatusEnum;
+import fi.poltsi.vempain.file.entity.ScanJobEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ScanJobRepository extends JpaRepository<ScanJobEntity, Long> {
+	List<ScanJobEntity> findByStatusIn(Collection<ScanJobStatusEnum> statuses);
+
+	@Query("SELECT j.cancelRequested FROM ScanJobEntity j WHERE j.id = :id")
+	boolean isCancelRequested(@Param("id") Long id);
+
+	/**
+	 * Add the results of one finished directory to the job counters. Done as a single update so that directories finishing
+	 * concurrently do not overwrite each others counts.
+	 */
+	@Transactional
+	@Modifying
+	@Query("UPDATE ScanJobEntity j SET j.processedDirectories = j.processedDirectories + 1, j.scannedFiles = j.scannedFiles + :scanned, "
+		   + "j.newFiles = j.newFiles + :newFiles, j.failedFiles = j.failedFiles + :failed WHERE j.id = :id")
+	void addDirectoryResult(@Param("id") Long id, @Param("scanned") long scanned, @Param("newFiles") long newFiles, @Param("failed") long failed);
+
+	/**
+	 * Mark the job running. Only the status and the start time are written, so that a cancel requested meanwhile is kept.
+	 */
+	@Transactional
+	@Modifying
+	@Query("UPDATE ScanJobEntity j SET j.status = :status, j.started = :started WHERE j.id = :id")
+	void markStarted(@Param("id") Long id, @Param("status") ScanJobStatusEnum status, @Param("started") Instant started);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE ScanJobEntity j SET j.totalDirectories = :totalDirectories, j.totalFiles = :totalFiles WHERE j.id = :id")
+	void setTotals(@Param("id") Long id, @Param("totalDirectories") long totalDirectories, @Param("totalFiles") long totalFiles);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE ScanJobEntity j SET j.cancelRequested = true WHERE j.id = :id")
+	void requestCancel(@Param("id") Long id);
+}
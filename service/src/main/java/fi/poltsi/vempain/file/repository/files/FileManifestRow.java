@@ -0,0 +1,7 @@
+package fi.poltsi.vempain.file.repository.files;
+
+/**
+ * Scan manifest of one already scanned file: the checksum and the file system stat recorded when the file was last ingested.
+ */
+public record FileManifestRow(String filename, String sha256sum, long filesize, Long fileMtime, String fileKey) {
+}
@@ -0,0 +1,10 @@
+package fi.poltsi.vempain.file.repository.files;
+
+import fi.poltsi.vempain.file.api.FileTypeEnum;
+
+/**
+ * The columns the updated file refresh needs to decide whether a file has changed, without the metadata or relations.
+ */
+public record FileRefreshRow(Long id, String filePath, String filename, FileTypeEnum fileType, String sha256sum, long filesize, Long fileMtime,
+							 String fileKey, Boolean siteFilePublished) {
+}
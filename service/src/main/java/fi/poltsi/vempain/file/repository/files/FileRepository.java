@@ -1,10 +1,17 @@
 package fi.poltsi.vempain.file.repository.files;
 
 import fi.poltsi.vempain.file.entity.FileEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +19,33 @@ public interface FileRepository extends JpaRepository<FileEntity, Long>, JpaSpec
 	Optional<FileEntity> findByFilePathAndFilename(String filePath, String filename);
 
 	FileEntity findByOriginalDocumentId(String originalDocumentId);
+
+	@Query("SELECT new fi.poltsi.vempain.file.repository.files.FileManifestRow(f.filename, f.sha256sum, f.filesize, f.fileMtime, f.fileKey) "
+		   + "FROM FileEntity f WHERE f.filePath = :filePath")
+	List<FileManifestRow> findManifestByFilePath(@Param("filePath") String filePath);
+
+	/**
+	 * Keyset page of refresh rows ordered by id. Pass the last id of the previous page, or 0 for the first page, and request
+	 * page 0 of the wanted size.
+	 */
+	@Query("SELECT new fi.poltsi.vempain.file.repository.files.FileRefreshRow(f.id, f.filePath, f.filename, f.fileType, f.sha256sum, f.filesize, "
+		   + "f.fileMtime, f.fileKey, f.siteFilePublished) FROM FileEntity f WHERE f.id > :afterId ORDER BY f.id")
+	List<FileRefreshRow> findRefreshRowsAfterId(@Param("afterId") long afterId, Pageable pageable);
+
+	@Query("SELECT new fi.poltsi.vempain.file.repository.files.FileRefreshRow(f.id, f.filePath, f.filename, f.fileType, f.sha256sum, f.filesize, "
+		   + "f.fileMtime, f.fileKey, f.siteFilePublished) FROM FileEntity f WHERE f.filePath = :filePath AND f.filename = :filename")
+	Optional<FileRefreshRow> findRefreshRowByFilePathAndFilename(@Param("filePath") String filePath, @Param("filename") String filename);
+
+	@Transactional
+	@Modifying
+	@Query("UPDATE FileEntity f SET f.siteFilePublished = :published WHERE f.id = :id")
+	void updateSiteFilePublished(@Param("id") Long id, @Param("published") boolean published);
+
+	/**
+	 * Page of file ids whose metadata document contains the given JSON object, e.g. {"EXIF": {"Model": "X-T4"}}. The containment
+	 * operator is served by the jsonb_path_ops GIN index on files.metadata_document.
+	 */
+	@Query(value = "SELECT f.id FROM files f WHERE f.metadata_document @> CAST(:filter AS jsonb) ORDER BY f.id",
+		   countQuery = "SELECT count(*) FROM files f WHERE f.metadata_document @> CAST(:filter AS jsonb)", nativeQuery = true)
+	Page<Long> findIdsByMetadataDocumentContaining(@Param("filter") String filter, Pageable pageable);
 }
@@ -6,6 +6,7 @@ import fi.poltsi.vempain.admin.api.response.DataResponse;
 import fi.poltsi.vempain.file.entity.ImageFileEntity;
 import fi.poltsi.vempain.file.entity.MusicFileEntity;
 import fi.poltsi.vempain.file.feign.VempainAdminDataClient;
+import fi.poltsi.vempain.file.feign.VempainAdminResilience;
 import fi.poltsi.vempain.file.repository.files.ImageFileRepository;
 import fi.poltsi.vempain.file.service.files.MusicFileService;
 import lombok.RequiredArgsConstructor;
@@ -41,9 +42,10 @@ public class DataService {
 			DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'").withZone(ZoneOffset.UTC);
 	private static final Pattern ADMIN_IDENTIFIER_PATTERN = Pattern.compile("^[a-z][a-z0-9_]*$");
 
-	private final MusicFileService      musicFileService;
-	private final ImageFileRepository   imageFileRepository;
+	private final MusicFileService       musicFileService;
+	private final ImageFileRepository    imageFileRepository;
 	private final VempainAdminDataClient vempainAdminDataClient;
+	private final VempainAdminResilience vempainAdminResilience;
 
 	// -----------------------------------------------------------------------
 	// Music dataset
@@ -375,7 +377,7 @@ public class DataService {
 
 		try {
 			log.debug("Checking if the identifier {} already exists on Venpain Admin", request.getIdentifier());
-			vempainAdminDataClient.getDataSetByIdentifier(request.getIdentifier());
+			vempainAdminResilience.call("get-dataset", () -> vempainAdminDataClient.getDataSetByIdentifier(request.getIdentifier()));
 		} catch (FeignException.NotFound e) {
 			alreadyExists = false;
 		}
@@ -383,7 +385,7 @@ public class DataService {
 		if (alreadyExists) {
 			try {
 				log.debug("Updating existing dataset: {}", request.getIdentifier());
-				return vempainAdminDataClient.updateDataSet(request)
+				return vempainAdminResilience.call("update-dataset", () -> vempainAdminDataClient.updateDataSet(request))
 				                             .getBody();
 			} catch (FeignException e) {
 				log.error("Failed to create/update dataset '{}': status={}, msg={}, body={}",
@@ -398,7 +400,7 @@ public class DataService {
 
 	private DataResponse create(DataRequest request) {
 		try {
-			var createResponse = vempainAdminDataClient.createDataSet(request);
+			var createResponse = vempainAdminResilience.create("create-dataset", () -> vempainAdminDataClient.createDataSet(request));
 
 			if (createResponse == null || !createResponse.getStatusCode().is2xxSuccessful()) {
 				throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
@@ -4,7 +4,7 @@ package fi.poltsi.vempain.file.service;
 import fi.poltsi.vempain.file.entity.ExportFileEntity;
 import fi.poltsi.vempain.file.repository.ExportFileRepository;
 import fi.poltsi.vempain.file.repository.files.FileRepository;
-import fi.poltsi.vempain.file.tools.MetadataTool;
+import fi.poltsi.vempain.file.tools.ExifToolPool;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -23,6 +23,7 @@ import java.util.Objects;
 public class DerivativeLookupService {
 	private final ExportFileRepository exportFileRepository;
 	private final FileRepository       fileRepository;
+	private final ExifToolPool         exifToolPool;
 	@Value("${vempain.export-root-directory}")
 	private String exportDirectory;
 
@@ -85,7 +86,7 @@ public class DerivativeLookupService {
 
 	private boolean hasMatchingDocumentId(File file, String documentId) {
 		try {
-			var metaJson = MetadataTool.extractMetadataJson(file);
+			var metaJson = exifToolPool.extractMetadataJson(file);
 			var mapper   = new ObjectMapper();
 			var root     = mapper.readTree(metaJson);
 			if (root.isArray() && root.size() > 0) {
@@ -18,7 +18,6 @@ import fi.poltsi.vempain.file.entity.ExecutableFileEntity;
 import fi.poltsi.vempain.file.entity.ExportFileEntity;
 import fi.poltsi.vempain.file.entity.FileEntity;
 import fi.poltsi.vempain.file.entity.FileGroupEntity;
-import fi.poltsi.vempain.file.entity.FileTag;
 import fi.poltsi.vempain.file.entity.FontFileEntity;
 import fi.poltsi.vempain.file.entity.GpsLocationEntity;
 import fi.poltsi.vempain.file.entity.IconFileEntity;
@@ -36,7 +35,10 @@ import fi.poltsi.vempain.file.repository.FileTagRepository;
 import fi.poltsi.vempain.file.repository.GpsLocationRepository;
 import fi.poltsi.vempain.file.repository.MetadataRepository;
 import fi.poltsi.vempain.file.repository.TagRepository;
+import fi.poltsi.vempain.file.repository.files.FileManifestRow;
 import fi.poltsi.vempain.file.repository.files.FileRepository;
+import fi.poltsi.vempain.file.tools.ExifToolPool;
+import fi.poltsi.vempain.file.tools.FileTool.FileStat;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.json.JSONObject;
@@ -52,11 +54,19 @@ import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import static fi.poltsi.vempain.file.tools.FileTool.computeSha256;
+import static fi.poltsi.vempain.file.tools.FileTool.statFile;
+import static fi.poltsi.vempain.file.tools.MetadataTool.buildMetadataDocument;
 import static fi.poltsi.vempain.file.tools.MetadataTool.dateTimeParser;
 import static fi.poltsi.vempain.file.tools.MetadataTool.extractArchiveCompressionMethod;
 import static fi.poltsi.vempain.file.tools.MetadataTool.extractArchiveContentCount;
@@ -85,8 +95,6 @@ import static fi.poltsi.vempain.file.tools.MetadataTool.extractImageColorDepth;
 import static fi.poltsi.vempain.file.tools.MetadataTool.extractImageDpi;
 import static fi.poltsi.vempain.file.tools.MetadataTool.extractImageResolution;
 import static fi.poltsi.vempain.file.tools.MetadataTool.extractLabel;
-import static fi.poltsi.vempain.file.tools.MetadataTool.extractMetadataJson;
-import static fi.poltsi.vempain.file.tools.MetadataTool.extractMetadataJsonObject;
 import static fi.poltsi.vempain.file.tools.MetadataTool.extractMimetype;
 import static fi.poltsi.vempain.file.tools.MetadataTool.extractMusicAlbum;
 import static fi.poltsi.vempain.file.tools.MetadataTool.extractMusicAlbumArtist;
@@ -125,6 +133,8 @@ public class DirectoryProcessorService {
 	private final AclService            aclService;
 	private final ExportedFilesService  exportedFilesService;
 	private final GpsLocationRepository gpsLocationRepository;
+	private final ScanConcurrencyLimits scanConcurrencyLimits;
+	private final ExifToolPool          exifToolPool;
 
 	@Value("${vempain.original-root-directory}")
 	private String originalRootDirectory;
@@ -132,16 +142,58 @@ public class DirectoryProcessorService {
 	@Value("${vempain.export-root-directory}")
 	private String exportRootDirectory;
 
-	@Transactional
-	protected List<Long> processOriginalDirectory(Path leafDir, StringBuilder errorMessage, ArrayList<String> failedFiles,
-												  ArrayList<FileResponse> successfulFileResponses) {
-		var resultList = new ArrayList<Long>(2);
-		resultList.add(0L); // scannedFilesCount
-		resultList.add(0L); // newFilesCount
+	@Value("${vempain.scan.manifest.enabled:true}")
+	private boolean manifestEnabled;
+
+	@Value("${vempain.metadata.store-rows:false}")
+	private boolean storeMetadataRows;
+
+	/**
+	 * Read the files of a leaf directory ahead of its transaction. Files unchanged since the scan manifest are only counted, the
+	 * others are hashed and, unless the checksum matches the manifest, sent to exiftool. This runs without a transaction and outside
+	 * the database permits, in parallel mode the files are prepared concurrently within the disk and exiftool permits.
+	 */
+	public PreparedOriginalDirectory prepareOriginalDirectory(Path leafDir) {
 		var files = leafDir.toFile()
 						   .listFiles();
 
 		if (files == null || files.length == 0) {
+			return new PreparedOriginalDirectory(0L, List.of());
+		}
+
+		var relativeDirectory = computeRelativeFilePath(originalRootDirectory, leafDir.toFile());
+		var manifest          = loadManifest(relativeDirectory);
+		var changedFiles      = new ArrayList<File>(files.length);
+
+		for (var file : files) {
+			// Same size, mtime and file key as when it was ingested, trust the manifest and do not read the file
+			if (!manifestEnabled || !isUnchanged(file, manifest.get(file.getName()))) {
+				changedFiles.add(file);
+			}
+		}
+
+		var unchangedCount = files.length - changedFiles.size();
+
+		if (unchangedCount > 0) {
+			log.debug("Skipped {} unchanged files in {}", unchangedCount, relativeDirectory);
+		}
+
+		return new PreparedOriginalDirectory(unchangedCount, prepareOriginalFiles(changedFiles, manifest));
+	}
+
+	/**
+	 * Store the files of a prepared leaf directory. Only the database work is done here, the files were read by
+	 * {@link #prepareOriginalDirectory(Path)} so that the transaction is not held open while the disk and exiftool are busy.
+	 */
+	@Transactional
+	protected List<Long> processOriginalDirectory(Path leafDir, PreparedOriginalDirectory preparedDirectory, StringBuilder errorMessage,
+												  ArrayList<String> failedFiles, ArrayList<FileResponse> successfulFileResponses) {
+		var resultList = new ArrayList<Long>(2);
+		resultList.add(preparedDirectory.unchangedCount()); // scannedFilesCount
+		resultList.add(0L); // newFilesCount
+
+		if (preparedDirectory.unchangedCount() == 0 && preparedDirectory.files()
+																		.isEmpty()) {
 			log.warn("Directory is empty: {}", leafDir);
 			return resultList;
 		}
@@ -167,11 +219,12 @@ public class DirectoryProcessorService {
 								   .build());
 		}
 
-		for (var file : files) {
+		for (var prepared : preparedDirectory.files()) {
+			var file = prepared.file();
 			resultList.set(0, resultList.getFirst() + 1); // Increment scannedFilesCount
 
 			try {
-				var processed = processOriginalFile(file, fileGroup);
+				var processed = processOriginalFile(file, fileGroup, prepared.fileStat(), prepared.sha256sum(), prepared.metadata());
 
 				if (processed != null && processed) {
 					resultList.set(1, resultList.get(1) + 1); // Increment newFilesCount
@@ -201,8 +254,140 @@ public class DirectoryProcessorService {
 		return resultList;
 	}
 
-	private FileEntity createFileEntity(FileTypeEnum fileTypeEnum, File file, String mimetype, JSONObject jsonObject, String metadata,
-										String relativeFilePath) {
+	private Map<String, FileManifestRow> loadManifest(String relativeDirectory) {
+		return fileRepository.findManifestByFilePath(relativeDirectory)
+							 .stream()
+							 .collect(Collectors.toMap(FileManifestRow::filename, row -> row, (first, second) -> first));
+	}
+
+	/**
+	 * A file is considered unchanged when its size and last-modified time match the manifest, and its file key too when both
+	 * sides have one. Files ingested before the manifest existed have no recorded mtime and are always rechecked.
+	 */
+	private boolean isUnchanged(File file, FileManifestRow manifestRow) {
+		if (manifestRow == null || manifestRow.fileMtime() == null) {
+			return false;
+		}
+
+		var fileStat = statFile(file);
+
+		if (fileStat == null) {
+			return false;
+		}
+
+		return fileStat.size() == manifestRow.filesize()
+			   && fileStat.mtime() == manifestRow.fileMtime()
+			   && (fileStat.fileKey() == null || manifestRow.fileKey() == null || fileStat.fileKey()
+																						.equals(manifestRow.fileKey()));
+	}
+
+	private void applyFileStat(FileEntity fileEntity, FileStat fileStat) {
+		if (fileStat == null) {
+			return;
+		}
+
+		fileEntity.setFileMtime(fileStat.mtime());
+		fileEntity.setFileKey(fileStat.fileKey());
+	}
+
+	/**
+	 * Compute the checksums and extract the metadata of the files of one directory, in parallel on virtual threads when the parallel
+	 * scan is enabled. Files already scanned with the same checksum are not sent to exiftool. A file whose parallel preparation
+	 * failed is prepared again on the calling thread.
+	 */
+	private List<PreparedOriginalFile> prepareOriginalFiles(List<File> files, Map<String, FileManifestRow> manifest) {
+		var preparedFiles = new ArrayList<PreparedOriginalFile>(files.size());
+
+		if (!scanConcurrencyLimits.isEnabled()) {
+			for (var file : files) {
+				preparedFiles.add(prepareOriginalFile(file, manifest.get(file.getName())));
+			}
+
+			return preparedFiles;
+		}
+
+		var futures = new ArrayList<Future<PreparedOriginalFile>>(files.size());
+
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (var file : files) {
+				futures.add(executor.submit(() -> prepareOriginalFile(file, manifest.get(file.getName()))));
+			}
+		}
+
+		for (int i = 0; i < files.size(); i++) {
+			var file = files.get(i);
+
+			try {
+				preparedFiles.add(futures.get(i)
+										 .get());
+			} catch (ExecutionException e) {
+				log.warn("Failed to prepare file {} in parallel, preparing it serially", file.getName(), e.getCause());
+				preparedFiles.add(prepareOriginalFile(file, manifest.get(file.getName())));
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+					  .interrupt();
+				break;
+			}
+		}
+
+		return preparedFiles;
+	}
+
+	/**
+	 * The file is stat'ed before it is hashed and again after it, a file which changed while it was read is not prepared, as its
+	 * checksum and stat would not describe the same content.
+	 */
+	private PreparedOriginalFile prepareOriginalFile(File file, FileManifestRow manifestRow) {
+		var fileStat = statFile(file);
+
+		if (fileStat == null) {
+			return new PreparedOriginalFile(file, null, null, null);
+		}
+
+		try {
+			var sha256sum = scanConcurrencyLimits.withDiskPermit(() -> computeSha256(file));
+
+			if (!fileStat.equals(statFile(file))) {
+				log.warn("File changed while it was read, skipping it: {}", file.getAbsolutePath());
+				return new PreparedOriginalFile(file, fileStat, null, null);
+			}
+
+			if (sha256sum == null || (manifestRow != null && sha256sum.equals(manifestRow.sha256sum()))) {
+				return new PreparedOriginalFile(file, fileStat, sha256sum, null);
+			}
+
+			log.debug("Extracting metadata for file: {}", file.getAbsolutePath());
+			var metadata = scanConcurrencyLimits.withExiftoolPermit(() -> exifToolPool.extractMetadataJson(file));
+			return new PreparedOriginalFile(file, fileStat, sha256sum, metadata);
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				  .interrupt();
+			return new PreparedOriginalFile(file, fileStat, null, null);
+		} catch (Exception e) {
+			log.error("Failed to read file: {}", file.getAbsolutePath(), e);
+			return new PreparedOriginalFile(file, fileStat, null, null);
+		}
+	}
+
+	/**
+	 * Files of a leaf directory read ahead of its transaction.
+	 *
+	 * @param unchangedCount Number of files skipped as unchanged since the scan manifest
+	 * @param files          The other files with their checksum and metadata
+	 */
+	record PreparedOriginalDirectory(long unchangedCount, List<PreparedOriginalFile> files) {
+	}
+
+	/**
+	 * @param fileStat  Stat of the file taken before it was hashed, null if it could not be read
+	 * @param sha256sum Checksum of the file, null if it could not be read or it changed while it was read
+	 * @param metadata  Metadata JSON from exiftool, null if it was not extracted
+	 */
+	record PreparedOriginalFile(File file, FileStat fileStat, String sha256sum, String metadata) {
+	}
+
+	private FileEntity createFileEntity(FileTypeEnum fileTypeEnum, File file, FileStat fileStat, String mimetype, JSONObject jsonObject,
+										String metadata, String relativeFilePath, String sha256sum) {
 		var userId = 0L;
 
 		try {
@@ -217,8 +402,6 @@ public class DirectoryProcessorService {
 			return null;
 		}
 
-		var sha256sum = computeSha256(file);
-
 		var description            = extractDescription(jsonObject);
 		var originalDateTimeString = extractOriginalDateTime(jsonObject);
 		var originalDateTime       = dateTimeParser(originalDateTimeString);
@@ -346,10 +529,12 @@ public class DirectoryProcessorService {
 		entity.setFilePath(relativeFilePath);
 		entity.setFileType(fileTypeEnum);
 		entity.setFilename(file.getName());
-		entity.setFilesize(file.length());
+		entity.setFilesize(fileStat.size());
+		applyFileStat(entity, fileStat);
 		entity.setGpsLocation(gpsData);
 		entity.setGpsTimestamp(gpsTimestamp);
 		entity.setMetadataRaw(metadata);
+		entity.setMetadataDocument(buildMetadataDocument(jsonObject));
 		entity.setMimetype(mimetype);
 		entity.setOriginalDatetime(originalDateTime);
 		entity.setOriginalDocumentId(originalDocumentId);
@@ -379,13 +564,16 @@ public class DirectoryProcessorService {
 		fileGroupRepository.save(group);
 	}
 
-	@Transactional
-	protected Boolean processOriginalFile(File file, FileGroupEntity fileGroup) throws IOException {
+	private Boolean processOriginalFile(File file, FileGroupEntity fileGroup, FileStat fileStat, String sha256sum, String metadata) throws IOException {
 		log.debug("Processing file: {}", file.getAbsolutePath());
 
-		var sha256sum        = computeSha256(file);
 		var relativeFilePath = computeRelativeFilePath(originalRootDirectory, file);
 
+		if (sha256sum == null) {
+			log.error("Failed to compute sha256sum for file: {}", file.getAbsolutePath());
+			return Boolean.FALSE;
+		}
+
 		// Check first if it already exists in the database
 		log.debug("Checking if file already exists in the database: {} in path {}", file.getName(), relativeFilePath);
 		var optionalExistingFile = fileRepository.findByFilePathAndFilename(relativeFilePath, file.getName());
@@ -397,6 +585,13 @@ public class DirectoryProcessorService {
 			if (existingFile.getSha256sum()
 							.equals(sha256sum)) {
 				log.debug("File has already been scanned to the database: {}", file.getName());
+
+				// Content is unchanged but the stat is not, e.g. the file was touched or restored. Record the new stat so the next scan skips it
+				if (!Objects.equals(existingFile.getFileMtime(), fileStat.mtime()) || !Objects.equals(existingFile.getFileKey(), fileStat.fileKey())) {
+					applyFileStat(existingFile, fileStat);
+					fileRepository.save(existingFile);
+				}
+
 				return null;
 			} else {
 				log.debug("Original file with same path and name but different content already exists in the database, removing it: {} / {}", relativeFilePath,
@@ -406,17 +601,7 @@ public class DirectoryProcessorService {
 			}
 		}
 
-		// Get all metadata entries using exiftool
-		log.debug("Extracting metadata for file: {}", file.getAbsolutePath());
-
-		String metadata = null;
-
-		try {
-			metadata = extractMetadataJson(file);
-		} catch (IOException e) {
-			log.error("Failed to extract metadata for file: {}", file.getAbsolutePath(), e);
-		}
-
+		// The metadata was extracted when the file was prepared, it is missing if exiftool failed
 		if (metadata == null
 			|| metadata.isBlank()) {
 			log.error("Failed to extract metadata from file: {}", file.getAbsolutePath());
@@ -458,7 +643,7 @@ public class DirectoryProcessorService {
 			return Boolean.FALSE;
 		}
 
-		var fileEntity = createFileEntity(fileTypeEnum, file, mimetype, jsonObject, metadata, relativeFilePath);
+		var fileEntity = createFileEntity(fileTypeEnum, file, fileStat, mimetype, jsonObject, metadata, relativeFilePath, sha256sum);
 
 		if (fileEntity == null) {
 			log.warn("Can not create file entity for file: {}", file.getName());
@@ -468,30 +653,30 @@ public class DirectoryProcessorService {
 		switch (fileTypeEnum) {
 			case ARCHIVE -> {
 				var archiveFile = (ArchiveFileEntity) fileEntity;
-				archiveFile.setCompressionMethod(extractArchiveCompressionMethod(file));
-				archiveFile.setUncompressedSize(extractArchiveUncompressedSize(file));
-				archiveFile.setContentCount(extractArchiveContentCount(file));
-				archiveFile.setIsEncrypted(extractArchiveIsEncrypted(file));
+				archiveFile.setCompressionMethod(extractArchiveCompressionMethod(jsonObject));
+				archiveFile.setUncompressedSize(extractArchiveUncompressedSize(jsonObject));
+				archiveFile.setContentCount(extractArchiveContentCount(jsonObject));
+				archiveFile.setIsEncrypted(extractArchiveIsEncrypted(jsonObject));
 				fileRepository.save(archiveFile);
 				linkFileToGroup(archiveFile, fileGroup);
 			}
 			case AUDIO -> {
 				var audioFile = (AudioFileEntity) fileEntity;
-				audioFile.setDuration(extractAudioVideoDuration(file));
-				audioFile.setBitRate(extractAudioBitRate(file));
-				audioFile.setSampleRate(extractAudioSampleRate(file));
-				audioFile.setCodec(extractAudioCodec(file));
-				audioFile.setChannels(extractAudioChannels(file));
+				audioFile.setDuration(extractAudioVideoDuration(jsonObject));
+				audioFile.setBitRate(extractAudioBitRate(jsonObject, file.length()));
+				audioFile.setSampleRate(extractAudioSampleRate(jsonObject));
+				audioFile.setCodec(extractAudioCodec(jsonObject));
+				audioFile.setChannels(extractAudioChannels(jsonObject));
 				fileRepository.save(audioFile);
 				linkFileToGroup(audioFile, fileGroup);
 			}
 			case MUSIC -> {
 				var musicFile = (MusicFileEntity) fileEntity;
-				musicFile.setDuration(extractAudioVideoDuration(file));
-				musicFile.setBitRate(extractAudioBitRate(file));
-				musicFile.setSampleRate(extractAudioSampleRate(file));
-				musicFile.setCodec(extractAudioCodec(file));
-				musicFile.setChannels(extractAudioChannels(file));
+				musicFile.setDuration(extractAudioVideoDuration(jsonObject));
+				musicFile.setBitRate(extractAudioBitRate(jsonObject, file.length()));
+				musicFile.setSampleRate(extractAudioSampleRate(jsonObject));
+				musicFile.setCodec(extractAudioCodec(jsonObject));
+				musicFile.setChannels(extractAudioChannels(jsonObject));
 				musicFile.setArtist(extractMusicArtist(jsonObject));
 				musicFile.setAlbumArtist(extractMusicAlbumArtist(jsonObject));
 				musicFile.setAlbum(extractMusicAlbum(jsonObject));
@@ -521,8 +706,8 @@ public class DirectoryProcessorService {
 			}
 			case DOCUMENT -> {
 				var documentFile = (DocumentFileEntity) fileEntity;
-				documentFile.setPageCount(extractDocumentPageCount(file));
-				documentFile.setFormat(extractDocumentFormat(file));
+				documentFile.setPageCount(extractDocumentPageCount(jsonObject));
+				documentFile.setFormat(extractDocumentFormat(jsonObject));
 				fileRepository.save(documentFile);
 				linkFileToGroup(documentFile, fileGroup);
 			}
@@ -536,18 +721,18 @@ public class DirectoryProcessorService {
 			}
 			case FONT -> {
 				var fontFile = (FontFileEntity) fileEntity;
-				fontFile.setFontFamily(extractFontFamily(file));
-				fontFile.setWeight(extractFontWeight(file));
-				fontFile.setStyle(extractFontStyle(file));
+				fontFile.setFontFamily(extractFontFamily(jsonObject));
+				fontFile.setWeight(extractFontWeight(jsonObject));
+				fontFile.setStyle(extractFontStyle(jsonObject));
 				fileRepository.save(fontFile);
 				linkFileToGroup(fontFile, fileGroup);
 			}
 			case ICON -> {
 				var iconFile = (IconFileEntity) fileEntity;
-				var res      = extractXYResolution(file);
+				var res      = extractXYResolution(jsonObject);
 				iconFile.setWidth(res.width);
 				iconFile.setHeight(res.height);
-				iconFile.setIsScalable(extractIconIsScalable(file));
+				iconFile.setIsScalable(extractIconIsScalable(jsonObject));
 				fileRepository.save(iconFile);
 				linkFileToGroup(iconFile, fileGroup);
 			}
@@ -588,21 +773,21 @@ public class DirectoryProcessorService {
 			}
 			case VECTOR -> {
 				var vectorFile = (VectorFileEntity) fileEntity;
-				var res = extractXYResolution(file);
+				var res = extractXYResolution(jsonObject);
 				vectorFile.setWidth(res.width);
 				vectorFile.setHeight(res.height);
-				vectorFile.setLayersCount(extractVectorLayersCount(file));
+				vectorFile.setLayersCount(extractVectorLayersCount(jsonObject));
 				fileRepository.save(vectorFile);
 				linkFileToGroup(vectorFile, fileGroup);
 			}
 			case VIDEO -> {
 				var videoFile = (VideoFileEntity) fileEntity;
-				var res = extractXYResolution(file);
+				var res = extractXYResolution(jsonObject);
 				videoFile.setWidth(res.width);
 				videoFile.setHeight(res.height);
-				videoFile.setFrameRate(extractFrameRate(file));
-				videoFile.setDuration(extractAudioVideoDuration(file));
-				videoFile.setCodec(extractVideoCodec(file));
+				videoFile.setFrameRate(extractFrameRate(jsonObject));
+				videoFile.setDuration(extractAudioVideoDuration(jsonObject));
+				videoFile.setCodec(extractVideoCodec(jsonObject));
 				fileRepository.save(videoFile);
 				linkFileToGroup(videoFile, fileGroup);
 			}
@@ -618,13 +803,33 @@ public class DirectoryProcessorService {
 
 	@Transactional
 	public boolean refreshExistingOriginalFile(FileEntity existingFile, File file) throws IOException {
-		if (existingFile == null || file == null || !file.exists()) {
+		if (file == null) {
+			return false;
+		}
+
+		var fileStat = statFile(file);
+		return refreshExistingOriginalFile(existingFile, file, computeSha256(file), fileStat);
+	}
+
+	/**
+	 * Refresh an already scanned original file with a checksum the caller has already computed, so the file is not read twice.
+	 *
+	 * @param fileStat Stat of the file taken before the checksum was computed, the file is not refreshed if it has changed since
+	 */
+	@Transactional
+	public boolean refreshExistingOriginalFile(FileEntity existingFile, File file, String sha256sum, FileStat fileStat) throws IOException {
+		if (existingFile == null || file == null || !file.exists() || sha256sum == null || fileStat == null) {
+			return false;
+		}
+
+		if (!fileStat.equals(statFile(file))) {
+			log.warn("Updated file changed while it was read, skipping it: {}", file.getAbsolutePath());
 			return false;
 		}
 
 		String metadata;
 		try {
-			metadata = extractMetadataJson(file);
+			metadata = exifToolPool.extractMetadataJson(file);
 		} catch (IOException e) {
 			log.error("Failed to extract metadata for updated file: {}", file.getAbsolutePath(), e);
 			return false;
@@ -658,15 +863,16 @@ public class DirectoryProcessorService {
 
 		var gpsData      = extractGpsData(jsonObject);
 		var resolvedGps  = resolveGpsLocation(gpsData, file.getName());
-		var sha256sum    = computeSha256(file);
 		var relativePath = computeRelativeFilePath(originalRootDirectory, file);
 
 		existingFile.setFilename(file.getName());
 		existingFile.setFilePath(relativePath);
-		existingFile.setFilesize(file.length());
+		existingFile.setFilesize(fileStat.size());
 		existingFile.setSha256sum(sha256sum);
+		applyFileStat(existingFile, fileStat);
 		existingFile.setMimetype(mimetype);
 		existingFile.setMetadataRaw(metadata);
+		existingFile.setMetadataDocument(buildMetadataDocument(jsonObject));
 		existingFile.setDescription(extractDescription(jsonObject));
 		existingFile.setOriginalDatetime(dateTimeParser(extractOriginalDateTime(jsonObject)));
 		existingFile.setOriginalSecondFraction(extractOriginalSecondFraction(jsonObject));
@@ -684,14 +890,8 @@ public class DirectoryProcessorService {
 		updateTypeSpecificFields(existingFile, file, jsonObject, mimetype);
 		fileRepository.save(existingFile);
 
-		var existingMetadata = metadataRepository.findByFile(existingFile);
-		if (!existingMetadata.isEmpty()) {
-			metadataRepository.deleteAll(existingMetadata);
-		}
-		var existingFileTags = fileTagRepository.findByFile(existingFile);
-		if (!existingFileTags.isEmpty()) {
-			fileTagRepository.deleteAll(existingFileTags);
-		}
+		metadataRepository.deleteAllByFileInBulk(existingFile);
+		fileTagRepository.deleteAllByFileInBulk(existingFile);
 
 		saveTags(jsonObject, existingFile);
 		processMetadata(jsonObject, existingFile);
@@ -746,30 +946,30 @@ public class DirectoryProcessorService {
 		return updateExisting ? gpsLocationRepository.save(existingGps) : existingGps;
 	}
 
-	private void updateTypeSpecificFields(FileEntity existingFile, File file, JSONObject jsonObject, String mimetype) throws IOException {
+	private void updateTypeSpecificFields(FileEntity existingFile, File file, JSONObject jsonObject, String mimetype) {
 		switch (existingFile.getFileType()) {
 			case ARCHIVE -> {
 				var archiveFile = (ArchiveFileEntity) existingFile;
-				archiveFile.setCompressionMethod(extractArchiveCompressionMethod(file));
-				archiveFile.setUncompressedSize(extractArchiveUncompressedSize(file));
-				archiveFile.setContentCount(extractArchiveContentCount(file));
-				archiveFile.setIsEncrypted(extractArchiveIsEncrypted(file));
+				archiveFile.setCompressionMethod(extractArchiveCompressionMethod(jsonObject));
+				archiveFile.setUncompressedSize(extractArchiveUncompressedSize(jsonObject));
+				archiveFile.setContentCount(extractArchiveContentCount(jsonObject));
+				archiveFile.setIsEncrypted(extractArchiveIsEncrypted(jsonObject));
 			}
 			case AUDIO -> {
 				var audioFile = (AudioFileEntity) existingFile;
-				audioFile.setDuration(extractAudioVideoDuration(file));
-				audioFile.setBitRate(extractAudioBitRate(file));
-				audioFile.setSampleRate(extractAudioSampleRate(file));
-				audioFile.setCodec(extractAudioCodec(file));
-				audioFile.setChannels(extractAudioChannels(file));
+				audioFile.setDuration(extractAudioVideoDuration(jsonObject));
+				audioFile.setBitRate(extractAudioBitRate(jsonObject, file.length()));
+				audioFile.setSampleRate(extractAudioSampleRate(jsonObject));
+				audioFile.setCodec(extractAudioCodec(jsonObject));
+				audioFile.setChannels(extractAudioChannels(jsonObject));
 			}
 			case MUSIC -> {
 				var musicFile = (MusicFileEntity) existingFile;
-				musicFile.setDuration(extractAudioVideoDuration(file));
-				musicFile.setBitRate(extractAudioBitRate(file));
-				musicFile.setSampleRate(extractAudioSampleRate(file));
-				musicFile.setCodec(extractAudioCodec(file));
-				musicFile.setChannels(extractAudioChannels(file));
+				musicFile.setDuration(extractAudioVideoDuration(jsonObject));
+				musicFile.setBitRate(extractAudioBitRate(jsonObject, file.length()));
+				musicFile.setSampleRate(extractAudioSampleRate(jsonObject));
+				musicFile.setCodec(extractAudioCodec(jsonObject));
+				musicFile.setChannels(extractAudioChannels(jsonObject));
 				musicFile.setArtist(extractMusicArtist(jsonObject));
 				musicFile.setAlbumArtist(extractMusicAlbumArtist(jsonObject));
 				musicFile.setAlbum(extractMusicAlbum(jsonObject));
@@ -789,8 +989,8 @@ public class DirectoryProcessorService {
 			case DATA -> ((DataFileEntity) existingFile).setDataStructure(determineDataStructure(mimetype));
 			case DOCUMENT -> {
 				var documentFile = (DocumentFileEntity) existingFile;
-				documentFile.setPageCount(extractDocumentPageCount(file));
-				documentFile.setFormat(extractDocumentFormat(file));
+				documentFile.setPageCount(extractDocumentPageCount(jsonObject));
+				documentFile.setFormat(extractDocumentFormat(jsonObject));
 			}
 			case EXECUTABLE -> {
 				var exe = (ExecutableFileEntity) existingFile;
@@ -799,16 +999,16 @@ public class DirectoryProcessorService {
 			}
 			case FONT -> {
 				var fontFile = (FontFileEntity) existingFile;
-				fontFile.setFontFamily(extractFontFamily(file));
-				fontFile.setWeight(extractFontWeight(file));
-				fontFile.setStyle(extractFontStyle(file));
+				fontFile.setFontFamily(extractFontFamily(jsonObject));
+				fontFile.setWeight(extractFontWeight(jsonObject));
+				fontFile.setStyle(extractFontStyle(jsonObject));
 			}
 			case ICON -> {
 				var iconFile = (IconFileEntity) existingFile;
-				var res      = extractXYResolution(file);
+				var res      = extractXYResolution(jsonObject);
 				iconFile.setWidth(res.width);
 				iconFile.setHeight(res.height);
-				iconFile.setIsScalable(extractIconIsScalable(file));
+				iconFile.setIsScalable(extractIconIsScalable(jsonObject));
 			}
 			case IMAGE -> {
 				var imageFile = (ImageFileEntity) existingFile;
@@ -832,19 +1032,19 @@ public class DirectoryProcessorService {
 			}
 			case VECTOR -> {
 				var vectorFile = (VectorFileEntity) existingFile;
-				var res        = extractXYResolution(file);
+				var res        = extractXYResolution(jsonObject);
 				vectorFile.setWidth(res.width);
 				vectorFile.setHeight(res.height);
-				vectorFile.setLayersCount(extractVectorLayersCount(file));
+				vectorFile.setLayersCount(extractVectorLayersCount(jsonObject));
 			}
 			case VIDEO -> {
 				var videoFile = (VideoFileEntity) existingFile;
-				var res       = extractXYResolution(file);
+				var res       = extractXYResolution(jsonObject);
 				videoFile.setWidth(res.width);
 				videoFile.setHeight(res.height);
-				videoFile.setFrameRate(extractFrameRate(file));
-				videoFile.setDuration(extractAudioVideoDuration(file));
-				videoFile.setCodec(extractVideoCodec(file));
+				videoFile.setFrameRate(extractFrameRate(jsonObject));
+				videoFile.setDuration(extractAudioVideoDuration(jsonObject));
+				videoFile.setCodec(extractVideoCodec(jsonObject));
 			}
 			default -> {
 			}
@@ -869,18 +1069,31 @@ public class DirectoryProcessorService {
 		for (var file : files) {
 			resultList.set(0, resultList.getFirst() + 1); // Increment scannedFilesCount
 			var relativeFilePath = computeRelativeFilePath(exportRootDirectory, file);
-			var sha256sum        = computeSha256(file);
+			var fileStat         = statFile(file);
 
 			// Check first if the file already exists in the database
 			var optionalExportFile = exportFileRepository.findByFilePathAndFilename(relativeFilePath, file.getName());
 
+			String sha256sum = null;
+
 			if (optionalExportFile.isPresent()) {
 				var exportFile = optionalExportFile.get();
 				log.debug("Exported file already exists in the database: {} in path {}, skipping", file.getName(), relativeFilePath);
 
-				// If the sha256sum matches, we skip it
+				// The stat still matches the one recorded with the sha256sum, the content has not changed
+				if (fileStat != null && fileStat.matches(exportFile.getFilesize(), exportFile.getFileMtime(), exportFile.getFileKey())) {
+					continue;
+				}
+
+				sha256sum = computeSha256(file);
+
+				// If the sha256sum matches, we skip it and record the stat it was computed with
 				if (sha256sum != null
 					&& sha256sum.equals(exportFile.getSha256sum())) {
+					if (fileStat != null) {
+						exportFileRepository.updateContentState(exportFile.getId(), sha256sum, fileStat.size(), fileStat.mtime(), fileStat.fileKey());
+					}
+
 					continue;
 				}
 
@@ -893,7 +1106,7 @@ public class DirectoryProcessorService {
 			JSONObject metadataObject;
 
 			try {
-				metadataObject = extractMetadataJsonObject(file);
+				metadataObject = exifToolPool.extractMetadataJsonObject(file);
 			} catch (IOException e) {
 				errorMessage.append("Failed to extract metadata from exported file: ")
 							.append(file.getAbsolutePath())
@@ -924,7 +1137,11 @@ public class DirectoryProcessorService {
 			}
 
 			// Finally save the exported file entity
-			// First get the sha256sum of the exported file
+			// First get the sha256sum of the exported file, unless it was already computed to compare with the registered one
+			if (sha256sum == null) {
+				sha256sum = computeSha256(file);
+			}
+
 			var mimetype = extractMimetype(metadataObject);
 
 			var exportFileEntity = ExportFileEntity.builder()
@@ -935,6 +1152,8 @@ public class DirectoryProcessorService {
 												   .mimetype(mimetype)
 												   .filesize(file.length())
 												   .sha256sum(sha256sum)
+												   .fileMtime(fileStat != null ? fileStat.mtime() : null)
+												   .fileKey(fileStat != null ? fileStat.fileKey() : null)
 												   .created(Instant.now())
 												   .build();
 
@@ -970,49 +1189,47 @@ public class DirectoryProcessorService {
 
 	@Transactional
 	protected void saveTags(JSONObject jsonObject, FileEntity fileEntity) {
-		var subjects = extractSubjects(jsonObject);
+		var subjects = extractSubjects(jsonObject).stream()
+												  .filter(subject -> subject != null && !subject.isBlank())
+												  .collect(Collectors.toCollection(LinkedHashSet::new));
 
 		if (subjects.isEmpty()) {
 			return;
 		}
 
-		for (var subject : subjects) {
-			if (subject == null || subject.isBlank()) {
-				continue;
-			}
+		// Look up all the tags of the file at once, only the ones not seen before are created one by one
+		var tagsByName = tagRepository.findByTagNameIn(subjects)
+									  .stream()
+									  .collect(Collectors.toMap(TagEntity::getTagName, tag -> tag, (first, second) -> first));
 
-			// Find or create tag
-			var tag = tagRepository.findByTagName(subject)
-								   .orElseGet(() -> {
-									   TagEntity newTag = TagEntity.builder()
-																   .tagName(subject)
-																   .tagNameDe(null)
-																   .tagNameEn(null)
-																   .tagNameEs(null)
-																   .tagNameFi(null)
-																   .tagNameSv(null)
-																   .build();
-									   return tagRepository.save(newTag);
-								   });
-
-			// Check if FileTag already exists
-			var exists = fileTagRepository.findByFile(fileEntity)
-										  .stream()
-										  .anyMatch(ft -> ft.getTag()
-															.getId()
-															.equals(tag.getId()));
-			if (!exists) {
-				var fileTag = FileTag.builder()
-									 .file(fileEntity)
-									 .tag(tag)
-									 .build();
-				fileTagRepository.save(fileTag);
+		for (var subject : subjects) {
+			if (!tagsByName.containsKey(subject)) {
+				var newTag = TagEntity.builder()
+									  .tagName(subject)
+									  .tagNameDe(null)
+									  .tagNameEn(null)
+									  .tagNameEs(null)
+									  .tagNameFi(null)
+									  .tagNameSv(null)
+									  .build();
+				tagsByName.put(subject, tagRepository.save(newTag));
 			}
 		}
+
+		var tagIds = subjects.stream()
+							 .map(subject -> tagsByName.get(subject)
+													   .getId())
+							 .toList();
+		fileTagRepository.insertFileTags(fileEntity.getId(), tagIds);
 	}
 
 	@Transactional
 	protected void processMetadata(JSONObject jsonObject, FileEntity fileEntity) {
+		// The metadata document on the file is the primary storage, the per-tag rows are only written when asked for
+		if (!storeMetadataRows) {
+			return;
+		}
+
 		var metadataEntities = new ArrayList<MetadataEntity>();
 
 		for (String group : jsonObject.keySet()) {
@@ -1,6 +1,7 @@
 package fi.poltsi.vempain.file.service;
 
 import fi.poltsi.vempain.file.repository.files.FileRepository;
+import fi.poltsi.vempain.file.tools.PreviewImageCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,17 +13,27 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static fi.poltsi.vempain.file.tools.FileTool.computeSha256;
+import static fi.poltsi.vempain.file.tools.FileTool.statFile;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class FileContentService {
 
-	private final FileRepository fileRepository;
+	private final FileRepository    fileRepository;
+	private final PreviewImageCache previewImageCache;
 
 	@Value("${vempain.original-root-directory}")
 	private String originalRootDirectory;
 
+	@Value("${vempain.preview.sizes:160,320,640,1280}")
+	private int[] previewSizes;
+
 	public ContentFile resolveOriginalFile(long fileId) {
 		var entity = fileRepository.findById(fileId)
 		                           .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
@@ -48,11 +59,21 @@ public class FileContentService {
 		}
 
 		try {
+			var lastModified = Files.getLastModifiedTime(resolvedPath)
+			                        .toInstant();
+			var fileStat     = statFile(resolvedPath.toFile());
+			// The checksum identifies the content only while the file is as it was when the checksum was computed. A copy with the
+			// same size and mtime is a different file on the file system
+			var unchanged    = fileStat != null && entity.getFileMtime() != null && fileStat.mtime() == entity.getFileMtime()
+			                   && fileStat.size() == entity.getFilesize() && Objects.equals(fileStat.fileKey(), entity.getFileKey());
+
 			return new ContentFile(
 					resolvedPath,
 					entity.getFilename(),
 					entity.getMimetype(),
-					Files.size(resolvedPath)
+					Files.size(resolvedPath),
+					unchanged ? entity.getSha256sum() : null,
+					lastModified
 			);
 		} catch (IOException e) {
 			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
@@ -60,6 +81,47 @@ public class FileContentService {
 		}
 	}
 
+	/**
+	 * Resolve the preview of an image file. The preview is not rendered yet, a client which already has it is answered without
+	 * rendering it.
+	 *
+	 * @param size One of the configured preview sizes, the size of the smaller side of the preview
+	 */
+	public PreviewFile resolvePreview(long fileId, int size) {
+		if (Arrays.stream(previewSizes)
+				  .noneMatch(previewSize -> previewSize == size)) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Preview size must be one of %s".formatted(Arrays.toString(previewSizes)));
+		}
+
+		var contentFile = resolveOriginalFile(fileId);
+
+		if (contentFile.mimetype() == null || !contentFile.mimetype()
+														  .startsWith("image/")) {
+			throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "File with id %d is not an image".formatted(fileId));
+		}
+
+		var sha256sum = contentFile.sha256sum();
+
+		if (sha256sum == null) {
+			// The file has changed since it was scanned, the preview is keyed on the current content
+			sha256sum = computeSha256(contentFile.absolutePath()
+			                                     .toFile());
+		}
+
+		if (sha256sum == null) {
+			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to compute the checksum of file %d".formatted(fileId));
+		}
+
+		return new PreviewFile(contentFile.absolutePath(), sha256sum, size, previewImageCache.getMimeType());
+	}
+
+	/**
+	 * @return The rendered preview, which the caller must close once it has read it
+	 */
+	public PreviewImageCache.Preview renderPreview(PreviewFile previewFile) {
+		return previewImageCache.getPreview(previewFile.sourcePath(), previewFile.sha256sum(), previewFile.size());
+	}
+
 	private String normalizeRelativeDirectory(String filePath) {
 		if (filePath == null || filePath.isBlank() || "/".equals(filePath.trim())) {
 			return "";
@@ -73,7 +135,16 @@ public class FileContentService {
 		return normalized;
 	}
 
-	public record ContentFile(Path absolutePath, String filename, String mimetype, long size) {
+	/**
+	 * @param sha256sum Checksum of the content of the source file
+	 */
+	public record PreviewFile(Path sourcePath, String sha256sum, int size, String mimetype) {
+	}
+
+	/**
+	 * @param sha256sum Checksum of the content, null if the file has changed since it was scanned
+	 */
+	public record ContentFile(Path absolutePath, String filename, String mimetype, long size, String sha256sum, Instant lastModified) {
 	}
 }
 
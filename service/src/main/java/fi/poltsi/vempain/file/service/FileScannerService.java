@@ -9,19 +9,28 @@ import fi.poltsi.vempain.file.api.response.files.FileResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class FileScannerService {
 
+	private static final int LEAF_DIRECTORY_ATTEMPTS = 3;
+
 	private final DirectoryProcessorService directoryProcessorService;
+	private final ScanConcurrencyLimits     scanConcurrencyLimits;
 
 	@Value("${vempain.original-root-directory}")
 	private String originalRootDirectory;
@@ -57,9 +66,15 @@ public class FileScannerService {
 
 		success = populateLeafDirectory(leafDirectories, errorMessage, scanDirectory);
 
+		if (scanConcurrencyLimits.isEnabled()) {
+			return scanOriginalLeafDirectoriesInParallel(leafDirectories, success, errorMessage);
+		}
+
 		for (var leafDir : leafDirectories) {
-			// Each processDirectory call will run in its own transaction
-			var results = directoryProcessorService.processOriginalDirectory(leafDir, errorMessage, failedFiles, successfulFileResponses);
+			// The files are read first, then each processOriginalDirectory call will run in its own transaction
+			var preparedDirectory = directoryProcessorService.prepareOriginalDirectory(leafDir);
+			var results           = directoryProcessorService.processOriginalDirectory(leafDir, preparedDirectory, errorMessage, failedFiles,
+																					   successfulFileResponses);
 			scannedFilesCount += results.get(0);
 			newFilesCount += results.get(1);
 			success = success && scannedFilesCount == newFilesCount;
@@ -75,6 +90,91 @@ public class FileScannerService {
 								   .build();
 	}
 
+	/**
+	 * Process the leaf directories concurrently on virtual threads. Each directory is read without holding a database permit and
+	 * then stored in its own transaction, the number of concurrent transactions is limited by the database permits. Every directory collects its results locally and
+	 * merges them to the shared response once it is done, so a directory retried after a conflict is not counted twice.
+	 */
+	private ScanOriginalResponse scanOriginalLeafDirectoriesInParallel(List<Path> leafDirectories, boolean success, StringBuilder errorMessage) {
+		var scannedFilesCount       = new AtomicLong();
+		var newFilesCount           = new AtomicLong();
+		var failedFiles             = new ArrayList<String>();
+		var successfulFileResponses = new ArrayList<FileResponse>();
+		var futures                 = new ArrayList<Future<?>>(leafDirectories.size());
+		var lock                    = new Object();
+
+		// The security context carries the current user, which is needed when the file entities are created
+		try (var executor = new DelegatingSecurityContextExecutorService(Executors.newVirtualThreadPerTaskExecutor())) {
+			for (var leafDir : leafDirectories) {
+				futures.add(executor.submit(() -> {
+					var localErrors     = new StringBuilder();
+					var localFailed     = new ArrayList<String>();
+					var localSuccessful = new ArrayList<FileResponse>();
+					var results         = scanConcurrencyLimits.withDirectoryPermit(
+							() -> processOriginalLeafDirectory(leafDir, localErrors, localFailed, localSuccessful));
+
+					scannedFilesCount.addAndGet(results.get(0));
+					newFilesCount.addAndGet(results.get(1));
+
+					synchronized (lock) {
+						errorMessage.append(localErrors);
+						failedFiles.addAll(localFailed);
+						successfulFileResponses.addAll(localSuccessful);
+					}
+
+					return null;
+				}));
+			}
+		}
+
+		for (var future : futures) {
+			try {
+				future.get();
+			} catch (Exception e) {
+				log.error("Parallel scan of a leaf directory failed", e);
+				success = false;
+
+				synchronized (lock) {
+					errorMessage.append("Error scanning directory: ")
+								.append(e.getMessage())
+								.append("\n");
+				}
+			}
+		}
+
+		return ScanOriginalResponse.builder()
+								   .success(success && scannedFilesCount.get() == newFilesCount.get())
+								   .scannedFilesCount(scannedFilesCount.get())
+								   .newFilesCount(newFilesCount.get())
+								   .failedFiles(failedFiles)
+								   .successfulFiles(successfulFileResponses)
+								   .errorMessage(errorMessage.toString())
+								   .build();
+	}
+
+	List<Long> processOriginalLeafDirectory(Path leafDir, StringBuilder errorMessage, ArrayList<String> failedFiles,
+													ArrayList<FileResponse> successfulFileResponses) throws Exception {
+		// Hashing and exiftool run before the permit is taken, the permit only covers the transaction of the inserts
+		var preparedDirectory = directoryProcessorService.prepareOriginalDirectory(leafDir);
+
+		for (int attempt = 1; ; attempt++) {
+			try {
+				return scanConcurrencyLimits.withDbPermit(() -> directoryProcessorService.processOriginalDirectory(leafDir, preparedDirectory, errorMessage,
+																												   failedFiles, successfulFileResponses));
+			} catch (DataIntegrityViolationException e) {
+				// Concurrent directories may try to create the same tag or location, the retry sees the committed row
+				if (attempt >= LEAF_DIRECTORY_ATTEMPTS) {
+					throw e;
+				}
+
+				log.warn("Conflict while scanning {}, retrying ({}/{})", leafDir, attempt, LEAF_DIRECTORY_ATTEMPTS);
+				errorMessage.setLength(0);
+				failedFiles.clear();
+				successfulFileResponses.clear();
+			}
+		}
+	}
+
 	protected ScanExportResponse scanExportDirectory(String exportedDirectory) {
 		var scannedFilesCount       = 0L;
 		var newFilesCount           = 0L;
@@ -110,6 +210,17 @@ public class FileScannerService {
 
 	}
 
+	/**
+	 * List the leaf directories under the selected original directory.
+	 *
+	 * @return Leaf directories, or null if the directory tree could not be read. The reason is appended to the error message
+	 */
+	List<Path> findOriginalLeafDirectories(String selectedDirectory, StringBuilder errorMessage) {
+		var leafDirectories = new ArrayList<Path>();
+		var scanDirectory   = resolveScanDirectory(originalRootDirectory, selectedDirectory);
+		return populateLeafDirectory(leafDirectories, errorMessage, scanDirectory) ? leafDirectories : null;
+	}
+
 	private boolean isLeafDirectory(Path path) {
 		try {
 			return Files.list(path)
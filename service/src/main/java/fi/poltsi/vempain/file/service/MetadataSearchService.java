@@ -0,0 +1,70 @@
+package fi.poltsi.vempain.file.service;
+
+import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.MetadataFilterRequest;
+import fi.poltsi.vempain.file.api.request.MetadataSearchRequest;
+import fi.poltsi.vempain.file.api.response.files.FileResponse;
+import fi.poltsi.vempain.file.entity.FileEntity;
+import fi.poltsi.vempain.file.repository.files.FileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class MetadataSearchService {
+
+	private final FileRepository fileRepository;
+
+	@Transactional(readOnly = true)
+	public PagedResponse<FileResponse> search(MetadataSearchRequest metadataSearchRequest) {
+		var safePage   = Math.max(0, metadataSearchRequest.getPage());
+		var safeSize   = Math.min(Math.max(metadataSearchRequest.getSize(), 1), 200);
+		var filter     = buildContainmentFilter(metadataSearchRequest.getFilters());
+		var pageResult = fileRepository.findIdsByMetadataDocumentContaining(filter, PageRequest.of(safePage, safeSize));
+		var ids        = pageResult.getContent();
+		log.debug("Metadata search {} matched {} files", filter, pageResult.getTotalElements());
+
+		// findAllById does not keep the order of the ids
+		var entities = fileRepository.findAllById(ids)
+									 .stream()
+									 .collect(Collectors.toMap(FileEntity::getId, Function.identity()));
+		var content = ids.stream()
+						 .map(entities::get)
+						 .filter(entity -> entity != null)
+						 .map(entity -> entity.toResponse(false))
+						 .toList();
+
+		return PagedResponse.of(content, pageResult.getNumber(), pageResult.getSize(), pageResult.getTotalElements(), pageResult.getTotalPages(),
+								pageResult.isFirst(), pageResult.isLast());
+	}
+
+	/**
+	 * Merges the filters into a single {group: {key: value}} object, which the metadata document must contain. Filters of the same
+	 * group and key overwrite each other, the last one wins.
+	 */
+	static String buildContainmentFilter(List<MetadataFilterRequest> filters) {
+		var filter = new JSONObject();
+
+		for (var metadataFilter : filters) {
+			var group = filter.optJSONObject(metadataFilter.getGroup());
+
+			if (group == null) {
+				group = new JSONObject();
+				filter.put(metadataFilter.getGroup(), group);
+			}
+
+			group.put(metadataFilter.getKey(), metadataFilter.getValue());
+		}
+
+		return filter.toString();
+	}
+}
@@ -0,0 +1,267 @@
+package fi.poltsi.vempain.file.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Streams progress events of the publish and scan jobs to the subscribed clients as Server-Sent Events. The producers only put
+ * the event in the pending events of each subscriber of the topic and never wait for a client. Each subscriber has its own
+ * sender thread, which sends the pending events at most once per send interval, and a pending event is replaced by a newer one
+ * with the same key, so a slow client only gets fewer, more recent events. The event data is produced when it is sent, once per
+ * emitted event however many clients receive it.
+ */
+@Slf4j
+@Service
+public class ProgressEventService {
+	private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+	@Value("${vempain.progress-events.send-interval-millis:500}")
+	private long sendIntervalMillis;
+
+	@Value("${vempain.progress-events.heartbeat-seconds:15}")
+	private long heartbeatSeconds;
+
+	@Value("${vempain.progress-events.timeout-minutes:60}")
+	private long timeoutMinutes;
+
+	/**
+	 * Subscribe to the events of a topic. The initial events are sent first, followed by the events emitted to the topic.
+	 */
+	public SseEmitter subscribe(String topic, List<ProgressEvent> initialEvents) {
+		var emitter    = createEmitter();
+		var subscriber = new Subscriber(topic, emitter);
+
+		for (var event : initialEvents) {
+			subscriber.offer(event);
+		}
+
+		emitter.onCompletion(subscriber::close);
+		emitter.onTimeout(subscriber::close);
+		emitter.onError(throwable -> subscriber.close());
+		subscribers.compute(topic, (key, topicSubscribers) -> {
+			var updated = topicSubscribers != null ? topicSubscribers : ConcurrentHashMap.<Subscriber>newKeySet();
+			updated.add(subscriber);
+			return updated;
+		});
+		subscriber.start();
+		log.debug("Subscribed to progress events of {}", topic);
+		return emitter;
+	}
+
+	public boolean hasSubscribers(String topic) {
+		var topicSubscribers = subscribers.get(topic);
+		return topicSubscribers != null && !topicSubscribers.isEmpty();
+	}
+
+	/**
+	 * Emit an event to the subscribers of a topic. Within a transaction the event is emitted once the transaction has been
+	 * committed, so that data read when the event is sent includes the changes of the transaction.
+	 *
+	 * @param key  Identifies what the event is about, a pending event with the same key is replaced by this one
+	 * @param data Produces the data of the event when it is sent
+	 */
+	public void emit(String topic, String eventName, String key, Supplier<?> data) {
+		if (!hasSubscribers(topic)) {
+			return;
+		}
+
+		var event = new ProgressEvent(eventName, key, new OnceSupplier(data));
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					offer(topic, event);
+				}
+			});
+		} else {
+			offer(topic, event);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		for (var topicSubscribers : subscribers.values()) {
+			for (var subscriber : topicSubscribers) {
+				subscriber.emitter.complete();
+				subscriber.close();
+			}
+		}
+	}
+
+	SseEmitter createEmitter() {
+		return new SseEmitter(TimeUnit.MINUTES.toMillis(timeoutMinutes));
+	}
+
+	private void offer(String topic, ProgressEvent event) {
+		var topicSubscribers = subscribers.get(topic);
+
+		if (topicSubscribers == null) {
+			return;
+		}
+
+		for (var subscriber : topicSubscribers) {
+			subscriber.offer(event);
+		}
+	}
+
+	/**
+	 * An event of a progress stream.
+	 *
+	 * @param name Name of the SSE event, tells the client the type of the data
+	 */
+	public record ProgressEvent(String name, String key, Supplier<?> data) {
+	}
+
+	private final class Subscriber {
+		private final    String                               topic;
+		private final    SseEmitter                           emitter;
+		private final    ReentrantLock                        lock    = new ReentrantLock();
+		private final    Condition                            pending = lock.newCondition();
+		private          LinkedHashMap<String, ProgressEvent> events  = new LinkedHashMap<>();
+		private          Thread                               sender;
+		private volatile boolean                              closed;
+
+		private Subscriber(String topic, SseEmitter emitter) {
+			this.topic   = topic;
+			this.emitter = emitter;
+		}
+
+		private void start() {
+			sender = Thread.ofVirtual()
+						   .name("progress-events-" + topic)
+						   .start(this::run);
+		}
+
+		private void offer(ProgressEvent event) {
+			lock.lock();
+
+			try {
+				// Removed first so that the replacing event goes to the end, after the events emitted before it
+				events.remove(event.key());
+				events.put(event.key(), event);
+				pending.signal();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void run() {
+			try {
+				while (!closed) {
+					LinkedHashMap<String, ProgressEvent> batch;
+					lock.lock();
+
+					try {
+						if (events.isEmpty()) {
+							pending.await(heartbeatSeconds, TimeUnit.SECONDS);
+						}
+
+						batch  = events;
+						events = new LinkedHashMap<>();
+					} finally {
+						lock.unlock();
+					}
+
+					if (closed) {
+						return;
+					}
+
+					if (batch.isEmpty()) {
+						// Keeps proxies from closing an idle connection, and notices a client which has gone away
+						emitter.send(SseEmitter.event()
+											   .comment("heartbeat"));
+						continue;
+					}
+
+					for (var event : batch.values()) {
+						send(event);
+					}
+
+					// The events emitted meanwhile are coalesced into the next batch
+					Thread.sleep(sendIntervalMillis);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+					  .interrupt();
+			} catch (IOException | RuntimeException e) {
+				log.debug("Stopped sending progress events of {}: {}", topic, e.getMessage());
+				emitter.completeWithError(e);
+			} finally {
+				close();
+			}
+		}
+
+		private void send(ProgressEvent event) throws IOException {
+			Object data;
+
+			try {
+				data = event.data()
+							.get();
+			} catch (RuntimeException e) {
+				log.warn("Skipping progress event {} of {}, its data could not be read", event.key(), topic, e);
+				return;
+			}
+
+			emitter.send(SseEmitter.event()
+								   .name(event.name())
+								   .data(data, MediaType.APPLICATION_JSON));
+		}
+
+		private void close() {
+			if (closed) {
+				return;
+			}
+
+			closed = true;
+			subscribers.computeIfPresent(topic, (key, topicSubscribers) -> {
+				topicSubscribers.remove(this);
+				return topicSubscribers.isEmpty() ? null : topicSubscribers;
+			});
+
+			if (sender != null && sender != Thread.currentThread()) {
+				sender.interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Produces the data of an event once, for all the subscribers it is sent to.
+	 */
+	private static final class OnceSupplier implements Supplier<Object> {
+		private final Supplier<?> delegate;
+		private       Object      value;
+		private       boolean     supplied;
+
+		private OnceSupplier(Supplier<?> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public synchronized Object get() {
+			if (!supplied) {
+				value    = delegate.get();
+				supplied = true;
+			}
+
+			return value;
+		}
+	}
+}
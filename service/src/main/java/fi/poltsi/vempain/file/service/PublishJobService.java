@@ -0,0 +1,535 @@
+package fi.poltsi.vempain.file.service;
+
+import fi.poltsi.vempain.auth.exception.VempainAuthenticationException;
+import fi.poltsi.vempain.auth.tools.AuthTools;
+import fi.poltsi.vempain.file.api.PublishJobStatusEnum;
+import fi.poltsi.vempain.file.api.PublishProgressStatusEnum;
+import fi.poltsi.vempain.file.api.request.PublishFileGroupRequest;
+import fi.poltsi.vempain.file.api.response.PublishGroupStatusResponse;
+import fi.poltsi.vempain.file.api.response.PublishJobSummaryResponse;
+import fi.poltsi.vempain.file.api.response.PublishProgressResponse;
+import fi.poltsi.vempain.file.entity.PublishJobEntity;
+import fi.poltsi.vempain.file.entity.PublishJobGroupEntity;
+import fi.poltsi.vempain.file.repository.PublishFileCounts;
+import fi.poltsi.vempain.file.repository.PublishJobFileRepository;
+import fi.poltsi.vempain.file.repository.PublishJobGroupRepository;
+import fi.poltsi.vempain.file.repository.PublishJobRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Publishing runs as persisted jobs. A job has a row per file group and, once a file has been worked on, a row per file, so the
+ * progress survives a restart. The groups are claimed by the publish workers of every service instance with
+ * SELECT ... FOR UPDATE SKIP LOCKED. A claim is a lease which is renewed with every file and by the heartbeat of its worker, and a
+ * group whose lease has run out, because its instance went away, is claimed again and continues after the files it had already
+ * completed. A group with failed files is retried after a delay until it runs out of attempts. The files published and skipped are
+ * counted on the group, which only its own worker updates, and added to the job when the group finishes.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PublishJobService {
+	private static final String                          PROGRESS_TOPIC    = "publish";
+	private static final String                          JOB_EVENT         = "job";
+	private static final String                          GROUP_EVENT       = "group";
+	private static final int                             MAX_ERROR_LENGTH  = 65_536;
+	private static final List<PublishProgressStatusEnum> UNFINISHED_GROUPS = List.of(PublishProgressStatusEnum.SCHEDULED,
+																					 PublishProgressStatusEnum.STARTED);
+
+	private final PublishJobRepository      publishJobRepository;
+	private final PublishJobGroupRepository publishJobGroupRepository;
+	private final PublishJobFileRepository  publishJobFileRepository;
+	private final ProgressEventService      progressEventService;
+
+	// Identifies the claims of this service instance, must be unique among the instances sharing the database and stay the same
+	// over restarts, so that an instance can release the claims it left behind
+	@Getter
+	@Value("${vempain.publish.jobs.instance-id:}")
+	private String instanceId;
+
+	// Where the generated instance id is kept when none is configured
+	@Value("${vempain.publish.jobs.instance-id-file:${user.home}/.vempain/publish-instance-id}")
+	private String instanceIdFile;
+
+	@Value("${vempain.publish.jobs.lease-seconds:600}")
+	private long leaseSeconds;
+
+	@Value("${vempain.publish.jobs.max-attempts:3}")
+	private int maxAttempts;
+
+	@Value("${vempain.publish.jobs.retry-delay-seconds:60}")
+	private long retryDelaySeconds;
+
+	@PostConstruct
+	public void init() {
+		instanceId = resolveInstanceId(instanceId, Path.of(instanceIdFile));
+	}
+
+	/**
+	 * The configured instance id, or the one generated on the first start and kept in the file. The service does not start without
+	 * a stable id, as the groups claimed under a lost id stay unavailable until their lease runs out.
+	 */
+	static String resolveInstanceId(String configuredId, Path idFile) {
+		if (configuredId != null && !configuredId.isBlank()) {
+			return configuredId.trim();
+		}
+
+		try {
+			if (Files.exists(idFile)) {
+				var storedId = Files.readString(idFile, StandardCharsets.UTF_8)
+									.trim();
+
+				if (!storedId.isEmpty()) {
+					return storedId;
+				}
+			}
+
+			var generatedId = UUID.randomUUID()
+								  .toString();
+			Files.createDirectories(idFile.toAbsolutePath()
+										  .getParent());
+			var tempFile = Files.createTempFile(idFile.toAbsolutePath()
+													  .getParent(), "instance-id-", ".tmp");
+			Files.writeString(tempFile, generatedId, StandardCharsets.UTF_8);
+			Files.move(tempFile, idFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			log.info("Generated publish instance id {} into {}", generatedId, idFile);
+			return generatedId;
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not keep the publish instance id in " + idFile
+											+ ", configure vempain.publish.jobs.instance-id or vempain.publish.jobs.instance-id-file", e);
+		}
+	}
+
+	/**
+	 * Create a job publishing all file groups and return the number of groups in it.
+	 */
+	@Transactional
+	public long startAllFileGroupsJob() {
+		PublishJobEntity job;
+
+		try {
+			job = publishJobRepository.saveAndFlush(newJob(true, false));
+		} catch (DataIntegrityViolationException e) {
+			throw new ResponseStatusException(HttpStatus.CONFLICT, "Publishing of file groups is already in progress");
+		}
+
+		var totalGroups = publishJobGroupRepository.insertAllFileGroups(job.getId());
+		job.setTotalGroups(totalGroups);
+
+		if (totalGroups == 0) {
+			job.setStatus(PublishJobStatusEnum.COMPLETED);
+			job.setFinished(Instant.now());
+		}
+
+		publishJobRepository.save(job);
+		emitJob(job.getId());
+		log.info("Created publish job {} for all {} file groups", job.getId(), totalGroups);
+		return totalGroups;
+	}
+
+	/**
+	 * Create a job publishing a single file group and return its ID.
+	 */
+	@Transactional
+	public long startFileGroupJob(PublishFileGroupRequest publishFileGroupRequest) {
+		var job = newJob(false, publishFileGroupRequest.isForce());
+		job.setTotalGroups(1);
+		job = publishJobRepository.save(job);
+		publishJobGroupRepository.save(PublishJobGroupEntity.builder()
+															.publishJobId(job.getId())
+															.fileGroupId(publishFileGroupRequest.getFileGroupId())
+															.galleryName(publishFileGroupRequest.getGalleryName())
+															.galleryDescription(publishFileGroupRequest.getGalleryDescription())
+															.status(PublishProgressStatusEnum.SCHEDULED)
+															.build());
+		emitJob(job.getId());
+		log.info("Created publish job {} for file group {}", job.getId(), publishFileGroupRequest.getFileGroupId());
+		return job.getId();
+	}
+
+	/**
+	 * Claim the next group to publish for this instance.
+	 *
+	 * @return Claimed group, or null if there is nothing to publish
+	 */
+	@Transactional
+	public ClaimedGroup claimNextGroup() {
+		var now = Instant.now();
+
+		while (true) {
+			var optionalGroup = publishJobGroupRepository.lockNextClaimable(now, now.minusSeconds(leaseSeconds));
+
+			if (optionalGroup.isEmpty()) {
+				return null;
+			}
+
+			var group = optionalGroup.get();
+
+			if (group.getAttempts() >= maxAttempts) {
+				// A group whose worker went away on its last attempt
+				finishGroup(group, PublishProgressStatusEnum.FAILED, "Publish was interrupted on the last attempt");
+				continue;
+			}
+
+			if (group.getStatus() == PublishProgressStatusEnum.STARTED) {
+				log.warn("Claim of publish group {} by {} has expired, continuing it", group.getId(), group.getClaimedBy());
+			}
+
+			var job = publishJobRepository.findById(group.getPublishJobId())
+										  .orElseThrow();
+			group.setStatus(PublishProgressStatusEnum.STARTED);
+			group.setAttempts(group.getAttempts() + 1);
+			group.setClaimedBy(instanceId);
+			group.setClaimedAt(now);
+
+			if (group.getStarted() == null) {
+				group.setStarted(now);
+			}
+
+			publishJobGroupRepository.save(group);
+			emitGroup(group);
+
+			var publishFileGroupRequest = PublishFileGroupRequest.builder()
+																 .fileGroupId(group.getFileGroupId())
+																 .galleryName(group.getGalleryName())
+																 .galleryDescription(group.getGalleryDescription())
+																 .force(job.isForce())
+																 .build();
+			var completedFileIds = new HashSet<>(publishJobFileRepository.findFileIds(group.getId(), PublishProgressStatusEnum.COMPLETED));
+			return new ClaimedGroup(job.getId(), group.getId(), group.getAttempts(), group.getGalleryId(), publishFileGroupRequest, completedFileIds);
+		}
+	}
+
+	/**
+	 * Record the outcome of publishing one file, and renew the claim of its group. Committed right away so that a resumed group
+	 * knows which of its files are done. Only the row of the group is updated, the job row shared by the workers is not.
+	 *
+	 * @param galleryId Gallery the file was published to, null if not published
+	 */
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public void recordFileResult(ClaimedGroup claimedGroup, long fileId, boolean skipped, Long galleryId, String error) {
+		var now    = Instant.now();
+		var status = error == null ? PublishProgressStatusEnum.COMPLETED : PublishProgressStatusEnum.FAILED;
+		publishJobGroupRepository.addFileResult(claimedGroup.jobGroupId(), instanceId, now, galleryId, error == null && !skipped ? 1 : 0,
+												error == null && skipped ? 1 : 0);
+		publishJobFileRepository.recordResult(claimedGroup.jobGroupId(), fileId, status.name(), skipped, limit(error), now);
+		emitJob(claimedGroup.jobId());
+	}
+
+	/**
+	 * Renew the claim of a group while its worker is busy with it, so that a file upload taking longer than the lease does not let
+	 * another worker claim the group.
+	 *
+	 * @return False if the group is no longer claimed by this instance
+	 */
+	public boolean renewClaim(ClaimedGroup claimedGroup) {
+		return publishJobGroupRepository.renewClaim(claimedGroup.jobGroupId(), instanceId, Instant.now()) > 0;
+	}
+
+	/**
+	 * Finish a claimed group. A group with failed files is scheduled again after the retry delay, unless it has run out of
+	 * attempts, and the job is finished with its last group.
+	 */
+	@Transactional
+	public void completeGroup(ClaimedGroup claimedGroup, int failedFiles, String error) {
+		var job = publishJobRepository.findByIdForUpdate(claimedGroup.jobId())
+									  .orElse(null);
+		var group = publishJobGroupRepository.findById(claimedGroup.jobGroupId())
+											 .orElse(null);
+
+		if (job == null || group == null) {
+			log.warn("Publish group {} of job {} no longer exists", claimedGroup.jobGroupId(), claimedGroup.jobId());
+			return;
+		}
+
+		if (!instanceId.equals(group.getClaimedBy()) || group.getStatus() != PublishProgressStatusEnum.STARTED) {
+			log.warn("Publish group {} was claimed by {} while being published here, leaving it to them", group.getId(), group.getClaimedBy());
+			return;
+		}
+
+		if (error == null && failedFiles > 0) {
+			error = failedFiles + " files failed to publish";
+		}
+
+		if (error == null) {
+			finishGroup(group, PublishProgressStatusEnum.COMPLETED, null);
+		} else if (group.getAttempts() < maxAttempts) {
+			log.warn("Publish group {} of job {} failed on attempt {}/{}, retrying in {} s: {}", group.getId(), job.getId(), group.getAttempts(),
+					 maxAttempts, retryDelaySeconds, error);
+			group.setStatus(PublishProgressStatusEnum.SCHEDULED);
+			group.setAvailableAt(Instant.now()
+										.plusSeconds(retryDelaySeconds));
+			group.setClaimedBy(null);
+			group.setClaimedAt(null);
+			group.setLastError(limit(error));
+			publishJobGroupRepository.save(group);
+			emitGroup(group);
+		} else {
+			finishGroup(group, PublishProgressStatusEnum.FAILED, error);
+		}
+	}
+
+	/**
+	 * Finish the jobs which have no groups left, and return their count.
+	 */
+	public int finishDrainedJobs() {
+		return publishJobRepository.finishDrainedJobs(Instant.now());
+	}
+
+	/**
+	 * Make the groups this instance had claimed before it was stopped available again.
+	 */
+	public void releaseClaims() {
+		var released = publishJobGroupRepository.releaseClaims(instanceId);
+
+		if (released > 0) {
+			log.info("Released {} publish groups left claimed by {}", released, instanceId);
+		}
+	}
+
+	/**
+	 * Schedule the failed groups of a job again. The files the job has already published are not uploaded again.
+	 */
+	@Transactional
+	public PublishProgressResponse resumeJob(long jobId) {
+		var job = findJob(jobId);
+
+		if (job.getStatus() == PublishJobStatusEnum.FAILED) {
+			var rescheduled = publishJobGroupRepository.rescheduleFailed(jobId);
+			job.setStatus(PublishJobStatusEnum.RUNNING);
+			job.setFailedGroups(job.getFailedGroups() - rescheduled);
+			job.setFinished(null);
+			job.setUpdated(Instant.now());
+
+			try {
+				publishJobRepository.saveAndFlush(job);
+			} catch (DataIntegrityViolationException e) {
+				throw new ResponseStatusException(HttpStatus.CONFLICT, "Another publish of all file groups is running");
+			}
+
+			emitJob(jobId);
+			log.info("Resumed publish job {} with {} failed groups", jobId, rescheduled);
+		}
+
+		return toProgressResponse(job);
+	}
+
+	/**
+	 * Get the progress of the latest publish job.
+	 */
+	@Transactional(readOnly = true)
+	public PublishProgressResponse getLatestProgress() {
+		return publishJobRepository.findFirstByOrderByIdDesc()
+								   .map(this::toProgressResponse)
+								   .orElseGet(() -> PublishProgressResponse.builder()
+																		   .perGroupStatus(new HashMap<>())
+																		   .lastUpdated(Instant.now())
+																		   .build());
+	}
+
+	@Transactional(readOnly = true)
+	public PublishProgressResponse getProgress(long jobId) {
+		return toProgressResponse(findJob(jobId));
+	}
+
+	/**
+	 * Subscribe to the progress events of the publish jobs. The stream starts with the state of the latest job, and continues with
+	 * a job event when the counters of a job change and a group event when the state of a group changes.
+	 */
+	public SseEmitter subscribeProgress() {
+		var initialEvents = publishJobRepository.findFirstByOrderByIdDesc()
+												.map(this::toSummary)
+												.map(summary -> new ProgressEventService.ProgressEvent(JOB_EVENT, JOB_EVENT + ":" + summary.getJobId(),
+																									   () -> summary))
+												.stream()
+												.toList();
+		return progressEventService.subscribe(PROGRESS_TOPIC, initialEvents);
+	}
+
+	private void finishGroup(PublishJobGroupEntity group, PublishProgressStatusEnum status, String error) {
+		var now = Instant.now();
+		var job = publishJobRepository.findByIdForUpdate(group.getPublishJobId())
+									  .orElseThrow();
+		group.setStatus(status);
+		group.setFinished(now);
+		group.setLastError(limit(error));
+		// Moved to the job, so that a failed group which is resumed starts counting from zero
+		job.setFilesPublished(job.getFilesPublished() + group.getFilesPublished());
+		job.setFilesSkipped(job.getFilesSkipped() + group.getFilesSkipped());
+		group.setFilesPublished(0L);
+		group.setFilesSkipped(0L);
+		publishJobGroupRepository.save(group);
+		emitGroup(group);
+
+		if (status == PublishProgressStatusEnum.COMPLETED) {
+			job.setCompletedGroups(job.getCompletedGroups() + 1);
+		} else {
+			log.error("Publish group {} of job {} failed after {} attempts: {}", group.getId(), job.getId(), group.getAttempts(), error);
+			job.setFailedGroups(job.getFailedGroups() + 1);
+		}
+
+		job.setUpdated(now);
+
+		if (publishJobGroupRepository.countByPublishJobIdAndStatusIn(job.getId(), UNFINISHED_GROUPS) == 0) {
+			job.setStatus(job.getFailedGroups() > 0 ? PublishJobStatusEnum.FAILED : PublishJobStatusEnum.COMPLETED);
+			job.setFinished(now);
+			log.info("Publish job {} finished with status {}: {} groups completed, {} failed, {} files published, {} skipped", job.getId(),
+					 job.getStatus(), job.getCompletedGroups(), job.getFailedGroups(), job.getFilesPublished(), job.getFilesSkipped());
+		}
+
+		publishJobRepository.save(job);
+		emitJob(job.getId());
+	}
+
+	private void emitJob(long jobId) {
+		// Read when the event is sent, so a burst of file results is sent as the job state after the last of them
+		progressEventService.emit(PROGRESS_TOPIC, JOB_EVENT, JOB_EVENT + ":" + jobId, () -> toSummary(findJob(jobId)));
+	}
+
+	private void emitGroup(PublishJobGroupEntity group) {
+		var groupStatus = PublishGroupStatusResponse.builder()
+													.jobId(group.getPublishJobId())
+													.fileGroupId(group.getFileGroupId())
+													.status(group.getStatus())
+													.attempts(group.getAttempts())
+													.lastError(group.getLastError())
+													.build();
+		progressEventService.emit(PROGRESS_TOPIC, GROUP_EVENT, GROUP_EVENT + ":" + group.getId(), () -> groupStatus);
+	}
+
+	private PublishJobSummaryResponse toSummary(PublishJobEntity job) {
+		var fileCounts = fileCounts(job);
+		var response   = PublishJobSummaryResponse.builder()
+												  .jobId(job.getId())
+												  .status(job.getStatus())
+												  .totalGroups(job.getTotalGroups())
+												  .completed(job.getCompletedGroups())
+												  .failed(job.getFailedGroups())
+												  .filesPublished(fileCounts.published())
+												  .filesSkipped(fileCounts.skipped())
+												  .created(job.getCreated())
+												  .updated(job.getUpdated())
+												  .finished(job.getFinished())
+												  .build();
+		var end     = job.getFinished() != null ? job.getFinished() : Instant.now();
+		var seconds = Duration.between(job.getCreated(), end)
+							  .toMillis() / 1000.0;
+		var files   = fileCounts.published() + fileCounts.skipped();
+
+		if (seconds <= 0 || files == 0) {
+			return response;
+		}
+
+		response.setFilesPerSecond(files / seconds);
+		var finishedGroups = job.getCompletedGroups() + job.getFailedGroups();
+
+		if (job.getStatus() == PublishJobStatusEnum.RUNNING && finishedGroups > 0) {
+			var remaining = Math.max(0L, job.getTotalGroups() - finishedGroups);
+			response.setEtaSeconds(Math.round(remaining * seconds / finishedGroups));
+		}
+
+		return response;
+	}
+
+	private PublishProgressResponse toProgressResponse(PublishJobEntity job) {
+		var fileCounts     = fileCounts(job);
+		var perGroupStatus = new HashMap<Long, PublishProgressStatusEnum>();
+		var started        = 0L;
+
+		for (var group : publishJobGroupRepository.findByPublishJobId(job.getId())) {
+			perGroupStatus.put(group.getFileGroupId(), group.getStatus());
+
+			if (group.getStarted() != null) {
+				started++;
+			}
+		}
+
+		return PublishProgressResponse.builder()
+									  .jobId(job.getId())
+									  .status(job.getStatus())
+									  .totalGroups(job.getTotalGroups())
+									  .scheduled(job.getTotalGroups())
+									  .started(started)
+									  .completed(job.getCompletedGroups())
+									  .failed(job.getFailedGroups())
+									  .filesPublished(fileCounts.published())
+									  .filesSkipped(fileCounts.skipped())
+									  .perGroupStatus(perGroupStatus)
+									  .lastUpdated(job.getUpdated())
+									  .build();
+	}
+
+	/**
+	 * Files published and skipped by the job so far: the counters of its finished groups and those of the groups still running.
+	 */
+	private PublishFileCounts fileCounts(PublishJobEntity job) {
+		if (job.getStatus() != PublishJobStatusEnum.RUNNING) {
+			return new PublishFileCounts(job.getFilesPublished(), job.getFilesSkipped());
+		}
+
+		var unfinished = publishJobGroupRepository.sumFileCounts(job.getId(), UNFINISHED_GROUPS);
+		return new PublishFileCounts(job.getFilesPublished() + unfinished.published(), job.getFilesSkipped() + unfinished.skipped());
+	}
+
+	private PublishJobEntity newJob(boolean allGroups, boolean force) {
+		Long userId = null;
+
+		try {
+			userId = AuthTools.getCurrentUserId();
+		} catch (VempainAuthenticationException e) {
+			log.warn("Could not resolve the user starting the publish job", e);
+		}
+
+		var now = Instant.now();
+		return PublishJobEntity.builder()
+							   .status(PublishJobStatusEnum.RUNNING)
+							   .allGroups(allGroups)
+							   .force(force)
+							   .creator(userId)
+							   .created(now)
+							   .updated(now)
+							   .build();
+	}
+
+	private PublishJobEntity findJob(long jobId) {
+		return publishJobRepository.findById(jobId)
+								   .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Publish job not found"));
+	}
+
+	private static String limit(String error) {
+		return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+	}
+
+	/**
+	 * A group claimed by this instance.
+	 *
+	 * @param attempt          Number of this attempt, starting from 1
+	 * @param galleryId        Gallery an earlier attempt published files to, null if none
+	 * @param completedFileIds Files already published by earlier attempts
+	 */
+	public record ClaimedGroup(long jobId, long jobGroupId, int attempt, Long galleryId, PublishFileGroupRequest request, Set<Long> completedFileIds) {
+	}
+}
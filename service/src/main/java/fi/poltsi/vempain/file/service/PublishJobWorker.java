@@ -0,0 +1,171 @@
+package fi.poltsi.vempain.file.service;
+
+import fi.poltsi.vempain.file.feign.VempainAdminResilience;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the publish workers of this service instance. Each worker claims one file group of the persisted publish jobs at a time
+ * and publishes it, and polls for new groups when there is nothing to do. On shutdown the workers finish the group they are
+ * publishing, within the shutdown await period. While the admin service is unavailable the workers claim no groups, so that the
+ * attempts of the groups are not used up on failures which are no fault of the groups. While a group is being published its claim
+ * is renewed by a heartbeat, as a single upload can take longer than the lease.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PublishJobWorker {
+	private final PublishJobService      publishJobService;
+	private final PublishService         publishService;
+	private final VempainAdminResilience vempainAdminResilience;
+
+	private final List<Thread>             workers   = new ArrayList<>();
+	private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual()
+																										.name("publish-heartbeat")
+																										.factory());
+
+	@Value("${vempain.publish.jobs.workers-enabled:true}")
+	private boolean workersEnabled;
+
+	@Value("${vempain.publish.group-parallelism:2}")
+	private int groupParallelism;
+
+	@Value("${vempain.publish.jobs.poll-interval-millis:2000}")
+	private long pollIntervalMillis;
+
+	// Must be well below the lease of the claims
+	@Value("${vempain.publish.jobs.heartbeat-seconds:60}")
+	private long heartbeatSeconds;
+
+	@Value("${vempain.publish.shutdown-await-seconds:300}")
+	private long shutdownAwaitSeconds;
+
+	private volatile boolean running;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (!workersEnabled) {
+			log.info("Publish workers are disabled on this instance");
+			return;
+		}
+
+		// Groups still claimed by this instance were interrupted by the previous shutdown
+		publishJobService.releaseClaims();
+		running = true;
+
+		for (int i = 0; i < Math.max(1, groupParallelism); i++) {
+			workers.add(Thread.ofVirtual()
+							  .name("publish-worker-" + i)
+							  .start(this::work));
+		}
+
+		log.info("Started {} publish workers as {}", workers.size(), publishJobService.getInstanceId());
+	}
+
+	@PreDestroy
+	public void stop() {
+		running = false;
+		var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(shutdownAwaitSeconds);
+
+		for (var worker : workers) {
+			// Wakes up the idle workers, the busy ones check the flag once their group is done
+			if (worker.getState() == Thread.State.TIMED_WAITING) {
+				worker.interrupt();
+			}
+		}
+
+		try {
+			for (var worker : workers) {
+				var remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+
+				if (remaining <= 0 || !worker.join(Duration.ofMillis(remaining))) {
+					log.warn("Publish worker {} did not finish in time, its group is continued by the next claim", worker.getName());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				  .interrupt();
+		}
+
+		heartbeat.shutdownNow();
+	}
+
+	void work() {
+		while (running) {
+			try {
+				if (!vempainAdminResilience.isAvailable()) {
+					Thread.sleep(pollIntervalMillis);
+					continue;
+				}
+
+				var claimedGroup = publishJobService.claimNextGroup();
+
+				if (claimedGroup == null) {
+					publishJobService.finishDrainedJobs();
+					Thread.sleep(pollIntervalMillis);
+					continue;
+				}
+
+				publishGroup(claimedGroup);
+			} catch (InterruptedException e) {
+				return;
+			} catch (Exception e) {
+				log.error("Publish worker failed to claim a group", e);
+
+				try {
+					Thread.sleep(pollIntervalMillis);
+				} catch (InterruptedException ie) {
+					return;
+				}
+			}
+		}
+	}
+
+	void publishGroup(PublishJobService.ClaimedGroup claimedGroup) {
+		var    fileGroupId = claimedGroup.request()
+									 .getFileGroupId();
+		var    failedFiles = 0;
+		String error       = null;
+
+		log.debug("Publishing group {} of job {}, attempt {}, {} files already done", fileGroupId, claimedGroup.jobId(), claimedGroup.attempt(),
+				  claimedGroup.completedFileIds()
+							  .size());
+
+		var renewal = heartbeat.scheduleWithFixedDelay(() -> renewClaim(claimedGroup), heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+
+		try {
+			failedFiles = publishService.publishFileGroup(claimedGroup);
+		} catch (Exception e) {
+			log.error("Publish group {} failed", fileGroupId, e);
+			error = e.getMessage() != null ? e.getMessage() : e.getClass()
+															   .getSimpleName();
+		} finally {
+			renewal.cancel(false);
+		}
+
+		publishJobService.completeGroup(claimedGroup, failedFiles, error);
+	}
+
+	private void renewClaim(PublishJobService.ClaimedGroup claimedGroup) {
+		// An exception would stop the heartbeat for good, the next one may well succeed
+		try {
+			if (!publishJobService.renewClaim(claimedGroup)) {
+				log.warn("Publish group {} of job {} is no longer claimed by this instance", claimedGroup.jobGroupId(), claimedGroup.jobId());
+			}
+		} catch (Exception e) {
+			log.warn("Failed to renew the claim of publish group {}", claimedGroup.jobGroupId(), e);
+		}
+	}
+}
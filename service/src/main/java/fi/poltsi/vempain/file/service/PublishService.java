@@ -9,31 +9,42 @@ import fi.poltsi.vempain.file.api.response.CopyrightResponse;
 import fi.poltsi.vempain.file.api.response.LocationResponse;
 import fi.poltsi.vempain.file.entity.AudioFileEntity;
 import fi.poltsi.vempain.file.entity.DocumentFileEntity;
+import fi.poltsi.vempain.file.entity.ExportFileEntity;
 import fi.poltsi.vempain.file.entity.FileEntity;
 import fi.poltsi.vempain.file.entity.VideoFileEntity;
 import fi.poltsi.vempain.file.feign.VempainAdminTokenProvider;
 import fi.poltsi.vempain.file.repository.ExportFileRepository;
 import fi.poltsi.vempain.file.repository.FileGroupRepository;
 import fi.poltsi.vempain.file.repository.MetadataRepository;
-import fi.poltsi.vempain.file.tools.ImageTool;
+import fi.poltsi.vempain.file.tools.ExifToolPool;
 import fi.poltsi.vempain.file.tools.MetadataTool;
+import fi.poltsi.vempain.file.tools.SiteImageCache;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.ApplicationContext;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.awt.*;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static fi.poltsi.vempain.file.tools.FileTool.computeSha256;
+import static fi.poltsi.vempain.file.tools.FileTool.statFile;
 import static fi.poltsi.vempain.file.tools.MetadataTool.collectStandardMetadataAsJson;
+import static fi.poltsi.vempain.file.tools.MetadataTool.collectStandardMetadataFromDocument;
 
 
 @Slf4j
@@ -48,10 +59,11 @@ public class PublishService {
 	private final TagService          tagService;
 	private final LocationService     locationService;
 
-	private final VempainAdminTokenProvider vempainAdminTokenProvider;
-	private final ImageTool            imageTool;
-	private final ApplicationContext   applicationContext;
-	private final PublishProgressStore progressStore;
+	private final VempainAdminTokenProvider  vempainAdminTokenProvider;
+	private final SiteImageCache             siteImageCache;
+	private final PublishJobService          publishJobService;
+	private final ExifToolPool               exifToolPool;
+	private final PlatformTransactionManager transactionManager;
 
 	@Value("${vempain.site-image-size:1200}")
 	private int siteImageSize;
@@ -62,186 +74,106 @@ public class PublishService {
 	@Value("${vempain.export-file-type}")
 	private String exportFileType;
 
-	@Async
-	@Transactional
-	public void publishFileGroup(PublishFileGroupRequest publishFileGroupRequest) {
-		// mark started in progress store (if running under proxy we still mark here)
-		progressStore.markStarted(publishFileGroupRequest.getFileGroupId());
+	@Value("${vempain.publish.file-parallelism:4}")
+	private int fileParallelism;
 
-		try {
-			// Load group and files
-			var optionalGroup = fileGroupRepository.findById(publishFileGroupRequest.getFileGroupId());
-			if (optionalGroup.isEmpty()) {
-				log.warn("File group {} not found", publishFileGroupRequest.getFileGroupId());
-				progressStore.markFailed(publishFileGroupRequest.getFileGroupId());
-				return;
-			}
+	@Value("${vempain.publish.skip-unchanged:true}")
+	private boolean skipUnchanged;
 
-			var fileGroup = optionalGroup.get();
-
-			if (fileGroup.getFiles() == null
-				|| fileGroup.getFiles()
-							.isEmpty()) {
-				log.debug("File group {} has no files to publish", publishFileGroupRequest.getFileGroupId());
-				progressStore.markCompleted(publishFileGroupRequest.getFileGroupId());
-				return;
-			}
-			Long galleryId = null;
-			// The order of the file group files should be by file name ascending so we use a simple counter here
-			long sortOrder = 0L;
+	private TransactionTemplate readOnlyTransactionTemplate;
+	private TransactionTemplate transactionTemplate;
 
-			for (var fileEntity : fileGroup.getFiles()) {
-				var metadataList = metadataRepository.findByFile(fileEntity);
-				var metadataJson = collectStandardMetadataAsJson(metadataList, fileEntity);
-
-				var exportFilePath = resolveExportedPath(fileEntity.getId());
-				var siteFileName   = fileEntity.getFilename();
-
-				if (exportFilePath == null
-					|| !Files.exists(exportFilePath)) {
-					log.debug("Export file does not exist, skipping: {}", exportFilePath);
-					continue;
-				}
+	@PostConstruct
+	public void init() {
+		readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+		readOnlyTransactionTemplate.setReadOnly(true);
+		transactionTemplate = new TransactionTemplate(transactionManager);
+	}
 
-				Path uploadPath       = exportFilePath;
-				Path tempPathToDelete = null;
+	/**
+	 * Publish the files of a group claimed from a publish job. The files completed by an earlier attempt of the job are not
+	 * published again, and the outcome of every file is recorded to the job as soon as it is known. The group is read in a short
+	 * read-only transaction and the files are resized and uploaded outside of any transaction, so that a database connection is
+	 * not held for the duration of the uploads.
+	 *
+	 * @return Number of files which failed to publish
+	 */
+	public int publishFileGroup(PublishJobService.ClaimedGroup claimedGroup) throws InterruptedException, ExecutionException {
+		var fileGroupId   = claimedGroup.request()
+										.getFileGroupId();
+		var preparedGroup = readOnlyTransactionTemplate.execute(status -> prepareFileGroup(claimedGroup));
+
+		if (preparedGroup == null) {
+			log.debug("File group {} has no files to publish", fileGroupId);
+			return 0;
+		}
 
-				// Fetch the tags belonging to the file
-				var tagRequests = tagService.getTagRequestsByFileId(fileEntity.getId());
+		var uploadResult = uploadFiles(preparedGroup.fileUploads(), preparedGroup.groupGalleryId(), claimedGroup);
+		var galleryId    = uploadResult.galleryId() != null ? uploadResult.galleryId() : preparedGroup.groupGalleryId();
+
+		if (galleryId != null) {
+			// Update the file group with the published gallery ID
+			transactionTemplate.executeWithoutResult(status -> fileGroupRepository.findById(fileGroupId)
+																				 .ifPresent(fileGroup -> {
+																					 fileGroup.setGalleryId(galleryId);
+																					 fileGroupRepository.save(fileGroup);
+																				 }));
+			log.debug("File group {} published to gallery ID {}", fileGroupId, galleryId);
+		} else {
+			log.warn("No files were published for group {}", fileGroupId);
+		}
 
-				try {
-					Dimension imageVideoDimensions = null;
-					if (fileEntity.getFileType()
-								  .equals(FileTypeEnum.IMAGE)) {
-						// Create temp file with same extension in system temp dir
-						Path tempFile = Files.createTempFile(Path.of(System.getProperty("java.io.tmpdir")), "vempain-", "." + exportFileType);
-						// Resize: smaller dimension to siteImageSize, keep quality 0.7
-						imageVideoDimensions = imageTool.resizeImage(exportFilePath, tempFile, siteImageSize, 0.7f, metadataJson);
-						tempPathToDelete = tempFile;
-						exportFilePath   = tempFile;
-						uploadPath       = tempFile;
-
-						// We need to also update the siteFileName to replace the original extension with
-						int suffixIndex = siteFileName.lastIndexOf('.');
-						if (suffixIndex > 0) {
-							siteFileName = siteFileName.substring(0, suffixIndex) + "." + exportFileType;
-						}
-					}
+		return uploadResult.failedFiles();
+	}
 
-					// Build ingest request, we need to send the mimetype of the temp file, not the original which may have a different type
-					var exportFileJsonObject = MetadataTool.extractMetadataJsonObject(exportFilePath.toFile());
-					var mimetype             = MetadataTool.extractMimetype(exportFileJsonObject);
-					var copyrightResponse = CopyrightResponse.builder()
-															 .creatorName(fileEntity.getCreatorName())
-															 .creatorEmail(fileEntity.getCreatorEmail())
-															 .creatorCountry(fileEntity.getCreatorCountry())
-															 .creatorUrl(fileEntity.getCreatorUrl())
-															 .rightsHolder(fileEntity.getRightsHolder())
-															 .rightsTerms(fileEntity.getRightsTerms())
-															 .rightsUrl(fileEntity.getRightsUrl())
-															 .build();
-					LocationResponse locationResponse = null;
-					// Use relation from FileEntity instead of repository lookup
-					if (fileEntity.getGpsLocation() != null) {
-						// Add location only if the location is outside guarded areas
-						if (!locationService.isGuardedLocation(fileEntity.getGpsLocation())) {
-							locationResponse = fileEntity.getGpsLocation()
-														 .toResponse();
-							log.debug("File {} location is outside guarded areas, adding location data", fileEntity.getFilename());
-						} else {
-							log.debug("File {} location is inside guarded areas, not publishing location data", fileEntity.getFilename());
-						}
-					}
+	/**
+	 * Collect everything the uploads of a group need from the database.
+	 *
+	 * @return Prepared uploads of the group, or null if the group has no files
+	 */
+	private PreparedFileGroup prepareFileGroup(PublishJobService.ClaimedGroup claimedGroup) {
+		var publishFileGroupRequest = claimedGroup.request();
+		var fileGroup = fileGroupRepository.findById(publishFileGroupRequest.getFileGroupId())
+										   .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "File group not found"));
+
+		if (fileGroup.getFiles() == null
+			|| fileGroup.getFiles()
+						.isEmpty()) {
+			return null;
+		}
 
-					var fileIngestRequest = FileIngestRequest.builder()
-															 .fileName(siteFileName)
-															 .sortOrder(sortOrder)
-															 .filePath(normalizeIngestPath(fileEntity.getFilePath()))
-															 .mimeType(mimetype)
-															 .comment(fileEntity.getDescription() != null ? fileEntity.getDescription() : "")
-															 .metadata(metadataJson)
-															 .sha256sum(computeSha256(uploadPath.toFile()))
-															 .originalDateTime(fileEntity.getOriginalDatetime())
-															 .galleryId(fileGroup.getGalleryId())
-															 .galleryName(publishFileGroupRequest.getGalleryName())
-															 .galleryDescription(publishFileGroupRequest.getGalleryDescription())
-															 .tags(tagRequests)
-															 .location(locationResponse)
-															 .copyright(copyrightResponse)
-															 .build();
-
-					sortOrder++;
-
-					if (imageVideoDimensions != null) {
-						fileIngestRequest.setWidth(imageVideoDimensions.width);
-						fileIngestRequest.setHeight(imageVideoDimensions.height);
-					}
+		if (publishFileGroupRequest.getGalleryName() == null) {
+			publishFileGroupRequest.setGalleryName(fileGroup.getGroupName());
+		}
 
-					if (fileEntity.getFileType()
-								  .equals(FileTypeEnum.VIDEO)) {
-						var videoFileEntity = (VideoFileEntity) fileEntity;
-						fileIngestRequest.setLength(videoFileEntity.getDuration());
-					} else if (fileEntity.getFileType()
-										 .equals(FileTypeEnum.AUDIO)) {
-						var audioFileEntity = (AudioFileEntity) fileEntity;
-						fileIngestRequest.setLength(audioFileEntity.getDuration());
-					} else if (fileEntity.getFileType()
-										 .equals(FileTypeEnum.DOCUMENT)) {
-						var documentFileEntity = (DocumentFileEntity) fileEntity;
-						fileIngestRequest.setPages(documentFileEntity.getPageCount());
-					}
+		if (publishFileGroupRequest.getGalleryDescription() == null) {
+			publishFileGroupRequest.setGalleryDescription(fileGroup.getDescription() != null && fileGroup.getDescription()
+																										  .length() > 2 ?
+														  fileGroup.getDescription() : fileGroup.getGroupName());
+		}
 
-					log.debug("Publishing {}", JsonTools.toJson(fileIngestRequest));
-					// Upload with authentication retry (up to 5 attempts)
-					final int maxRetries = 3;
-					int       attempt    = 0;
-
-					while (true) {
-						try {
-							var fileIngestResponse = vempainAdminService.uploadAsSiteFile(uploadPath.toFile(), fileIngestRequest);
-							galleryId = fileIngestResponse.getGalleryId();
-							log.debug("Published file {} from group {} as site file to gallery ID {}", exportFilePath.getFileName(), publishFileGroupRequest.getFileGroupId(),
-									  galleryId);
-							break; // success
-						} catch (VempainAuthenticationException authEx) {
-							attempt++;
-							if (attempt >= maxRetries) {
-								log.error("Authentication failed after {} attempts for file {} in group {}", attempt, exportFilePath.getFileName(), publishFileGroupRequest.getFileGroupId());
-								throw authEx;
-							}
-							log.warn("Authentication failed (attempt {}/{}). Re-authenticating and retrying...", attempt, maxRetries);
-							// Force re-login and retry
-							vempainAdminTokenProvider.login();
-						}
-					}
-				} catch (Exception ex) {
-					log.error("Failed to publish file {} from group {}", exportFilePath.getFileName(), publishFileGroupRequest.getFileGroupId(), ex);
-				} finally {
-					// Cleanup temp image if created
-					if (tempPathToDelete != null) {
-						try {
-							Files.deleteIfExists(tempPathToDelete);
-						} catch (IOException ioe) {
-							log.warn("Failed to delete temp file {}", tempPathToDelete, ioe);
-						}
-					}
-				}
+		// A group interrupted before it was saved with its gallery continues publishing to the gallery its first files went to
+		var groupGalleryId = fileGroup.getGalleryId() != null ? fileGroup.getGalleryId() : claimedGroup.galleryId();
+		var fileUploads    = new ArrayList<FileUpload>();
+		// The order of the file group files should be by file name ascending so we use a simple counter here
+		long sortOrder = 0L;
+
+		for (var fileEntity : fileGroup.getFiles()) {
+			if (claimedGroup.completedFileIds()
+							.contains(fileEntity.getId())) {
+				sortOrder++;
+				continue;
 			}
 
-			if (galleryId != null) {
-				// Update the file group with the published gallery ID
-				fileGroup.setGalleryId(galleryId);
-				fileGroupRepository.save(fileGroup);
-				log.debug("File group {} published to gallery ID {}", publishFileGroupRequest.getFileGroupId(), galleryId);
-			} else {
-				log.warn("No files were published for group {}", publishFileGroupRequest.getFileGroupId());
-			}
+			var fileUpload = prepareFileUpload(fileEntity, groupGalleryId, publishFileGroupRequest, sortOrder);
 
-			progressStore.markCompleted(publishFileGroupRequest.getFileGroupId());
-		} catch (Exception e) {
-			log.error("Publish group {} failed", publishFileGroupRequest.getFileGroupId(), e);
-			progressStore.markFailed(publishFileGroupRequest.getFileGroupId());
+			if (fileUpload != null) {
+				fileUploads.add(fileUpload);
+				sortOrder++;
+			}
 		}
+
+		return new PreparedFileGroup(groupGalleryId, fileUploads);
 	}
 
 	/**
@@ -257,27 +189,29 @@ public class PublishService {
 			return false;
 		}
 
-		var exportFilePath = resolveExportedPath(fileEntity.getId());
+		var exportFileEntity = findExportFile(fileEntity.getId());
+		var exportFilePath   = resolveExportedPath(exportFileEntity);
 		if (exportFilePath == null || !Files.exists(exportFilePath)) {
 			log.debug("No exported file found on disk for file id {}", fileEntity.getId());
 			return false;
 		}
 
-		Path uploadPath       = exportFilePath;
-		Path tempPathToDelete = null;
+		Path                        uploadPath       = exportFilePath;
+		Path                        tempPathToDelete = null;
+		SiteImageCache.ResizedImage resizedImage     = null;
 
 		try {
-			var metadataList = metadataRepository.findByFile(fileEntity);
-			var metadataJson = collectStandardMetadataAsJson(metadataList, fileEntity);
+			var metadataJson = collectStandardMetadata(fileEntity);
 			var siteFileName = fileEntity.getFilename();
 
-			Dimension imageVideoDimensions = null;
 			if (fileEntity.getFileType()
 			              .equals(FileTypeEnum.IMAGE)) {
-				Path tempFile = Files.createTempFile(Path.of(System.getProperty("java.io.tmpdir")), "vempain-refresh-", "." + exportFileType);
-				imageVideoDimensions = imageTool.resizeImage(exportFilePath, tempFile, siteImageSize, 0.7f, metadataJson);
-				tempPathToDelete     = tempFile;
-				uploadPath           = tempFile;
+				resizedImage = siteImageCache.resize(exportFilePath, exportFileEntity.getSha256sum(), siteImageSize, 0.7f, exportFileType, metadataJson);
+				uploadPath   = resizedImage.path();
+
+				if (resizedImage.temporary()) {
+					tempPathToDelete = uploadPath;
+				}
 
 				int suffixIndex = siteFileName.lastIndexOf('.');
 				if (suffixIndex > 0) {
@@ -285,9 +219,6 @@ public class PublishService {
 				}
 			}
 
-			var exportFileJsonObject = MetadataTool.extractMetadataJsonObject(uploadPath.toFile());
-			var mimetype             = MetadataTool.extractMimetype(exportFileJsonObject);
-
 			var copyrightResponse = CopyrightResponse.builder()
 			                                         .creatorName(fileEntity.getCreatorName())
 			                                         .creatorEmail(fileEntity.getCreatorEmail())
@@ -308,20 +239,21 @@ public class PublishService {
 			                                         .sortOrder(0)
 			                                         .fileName(siteFileName)
 			                                         .filePath(normalizeIngestPath(fileEntity.getFilePath()))
-			                                         .mimeType(mimetype)
 			                                         .comment(fileEntity.getDescription() != null ? fileEntity.getDescription() : "")
 			                                         .metadata(metadataJson)
-			                                         .sha256sum(computeSha256(uploadPath.toFile()))
 			                                         .originalDateTime(fileEntity.getOriginalDatetime())
 			                                         .tags(tagService.getTagRequestsByFileId(fileEntity.getId()))
 			                                         .location(locationResponse)
 			                                         .copyright(copyrightResponse)
 			                                         .build();
 
-			if (imageVideoDimensions != null) {
-				fileIngestRequest.setWidth(imageVideoDimensions.width);
-				fileIngestRequest.setHeight(imageVideoDimensions.height);
+			if (resizedImage != null) {
+				applyResizedImage(fileIngestRequest, resizedImage);
+			} else {
+				fileIngestRequest.setMimeType(exportFileMimetype(exportFileEntity, uploadPath));
+				fileIngestRequest.setSha256sum(exportFileSha256(exportFileEntity, uploadPath));
 			}
+
 			if (fileEntity.getFileType()
 			              .equals(FileTypeEnum.VIDEO)) {
 				fileIngestRequest.setLength(((VideoFileEntity) fileEntity).getDuration());
@@ -333,12 +265,16 @@ public class PublishService {
 				fileIngestRequest.setPages(((DocumentFileEntity) fileEntity).getPageCount());
 			}
 
-			vempainAdminService.uploadAsSiteFile(uploadPath.toFile(), fileIngestRequest);
+			vempainAdminService.uploadAsSiteFile(uploadPath.toFile(), resizedImage != null ? resizedImage.content() : null, fileIngestRequest);
 			return true;
 		} catch (Exception e) {
 			log.warn("Failed to republish site file for file id {}", fileEntity.getId(), e);
 			return false;
 		} finally {
+			if (resizedImage != null) {
+				resizedImage.close();
+			}
+
 			if (tempPathToDelete != null) {
 				try {
 					Files.deleteIfExists(tempPathToDelete);
@@ -349,53 +285,302 @@ public class PublishService {
 		}
 	}
 
+	private FileUpload prepareFileUpload(FileEntity fileEntity, Long galleryId, PublishFileGroupRequest publishFileGroupRequest, long sortOrder) {
+		var exportFileEntity = findExportFile(fileEntity.getId());
+		var exportFilePath   = resolveExportedPath(exportFileEntity);
+
+		if (exportFilePath == null
+			|| !Files.exists(exportFilePath)) {
+			log.debug("Export file does not exist, skipping: {}", exportFilePath);
+			return null;
+		}
+
+		var metadataJson = collectStandardMetadata(fileEntity);
+		var siteFileName = fileEntity.getFilename();
+
+		if (fileEntity.getFileType()
+					  .equals(FileTypeEnum.IMAGE)) {
+			// The image is resized to the export file type, so the site file name gets the matching extension
+			int suffixIndex = siteFileName.lastIndexOf('.');
+			if (suffixIndex > 0) {
+				siteFileName = siteFileName.substring(0, suffixIndex) + "." + exportFileType;
+			}
+		}
+
+		var copyrightResponse = CopyrightResponse.builder()
+												 .creatorName(fileEntity.getCreatorName())
+												 .creatorEmail(fileEntity.getCreatorEmail())
+												 .creatorCountry(fileEntity.getCreatorCountry())
+												 .creatorUrl(fileEntity.getCreatorUrl())
+												 .rightsHolder(fileEntity.getRightsHolder())
+												 .rightsTerms(fileEntity.getRightsTerms())
+												 .rightsUrl(fileEntity.getRightsUrl())
+												 .build();
+		LocationResponse locationResponse = null;
+		// Use relation from FileEntity instead of repository lookup
+		if (fileEntity.getGpsLocation() != null) {
+			// Add location only if the location is outside guarded areas
+			if (!locationService.isGuardedLocation(fileEntity.getGpsLocation())) {
+				locationResponse = fileEntity.getGpsLocation()
+											 .toResponse();
+				log.debug("File {} location is outside guarded areas, adding location data", fileEntity.getFilename());
+			} else {
+				log.debug("File {} location is inside guarded areas, not publishing location data", fileEntity.getFilename());
+			}
+		}
+
+		var fileIngestRequest = FileIngestRequest.builder()
+												 .fileName(siteFileName)
+												 .sortOrder(sortOrder)
+												 .filePath(normalizeIngestPath(fileEntity.getFilePath()))
+												 .comment(fileEntity.getDescription() != null ? fileEntity.getDescription() : "")
+												 .metadata(metadataJson)
+												 .originalDateTime(fileEntity.getOriginalDatetime())
+												 .galleryName(publishFileGroupRequest.getGalleryName())
+												 .galleryDescription(publishFileGroupRequest.getGalleryDescription())
+												 .tags(tagService.getTagRequestsByFileId(fileEntity.getId()))
+												 .location(locationResponse)
+												 .copyright(copyrightResponse)
+												 .build();
+
+		if (fileEntity.getFileType()
+					  .equals(FileTypeEnum.VIDEO)) {
+			var videoFileEntity = (VideoFileEntity) fileEntity;
+			fileIngestRequest.setLength(videoFileEntity.getDuration());
+		} else if (fileEntity.getFileType()
+							 .equals(FileTypeEnum.AUDIO)) {
+			var audioFileEntity = (AudioFileEntity) fileEntity;
+			fileIngestRequest.setLength(audioFileEntity.getDuration());
+		} else if (fileEntity.getFileType()
+							 .equals(FileTypeEnum.DOCUMENT)) {
+			var documentFileEntity = (DocumentFileEntity) fileEntity;
+			fileIngestRequest.setPages(documentFileEntity.getPageCount());
+		}
+
+		// Hash of everything sent besides the content, taken before the gallery ID is set as a new gallery only gets its ID later
+		var metadataHash    = DigestUtils.sha256Hex(JsonTools.toJson(fileIngestRequest));
+		var skipIfUnchanged = skipUnchanged
+							  && !publishFileGroupRequest.isForce()
+							  && galleryId != null
+							  && galleryId.equals(exportFileEntity.getPublishedGalleryId())
+							  && metadataHash.equals(exportFileEntity.getPublishedMetadataHash());
+		fileIngestRequest.setGalleryId(galleryId);
+
+		return new FileUpload(fileEntity.getId(), exportFilePath, exportFileEntity, fileEntity.getFileType(), metadataJson, metadataHash, skipIfUnchanged,
+							  fileIngestRequest);
+	}
+
 	/**
-	 * Triggers asynchronous publishing for all file groups. Returns the number of groups scheduled.
-	 * Uses pagination to avoid loading all groups into memory at once.
+	 * Uploads the files of a group with at most the configured number of files in flight, and returns the gallery ID the files
+	 * were published to. When the group has no gallery yet, the first file is uploaded alone so that the gallery it creates is
+	 * used for the rest of the files.
 	 */
-	public long publishAllFileGroups() {
-		int  page           = 0;
-		int  size           = 50; // page size
-		long scheduledCount = 0L;
-
-		// Count total groups using repository count
-		var totalGroups = fileGroupRepository.count();
-		progressStore.init(totalGroups);
-
-		var proxy = applicationContext.getBean(PublishService.class);
-
-		while (true) {
-			var pageable = PageRequest.of(page, size, Sort.by("path"));
-			var pg       = fileGroupRepository.searchFileGroups(null, false, pageable);
-			if (!pg.hasContent()) {
-				break;
+	private UploadResult uploadFiles(List<FileUpload> fileUploads, Long groupGalleryId, PublishJobService.ClaimedGroup claimedGroup)
+			throws InterruptedException, ExecutionException {
+		Long galleryId   = null;
+		var  failedFiles = 0;
+		var  pending     = fileUploads;
+
+		if (groupGalleryId == null && !pending.isEmpty()) {
+			var fileResult = uploadFile(pending.getFirst(), claimedGroup);
+			galleryId   = fileResult.galleryId();
+			failedFiles = fileResult.failed() ? 1 : 0;
+			pending     = pending.subList(1, pending.size());
+
+			if (galleryId != null) {
+				for (var fileUpload : pending) {
+					fileUpload.fileIngestRequest()
+							  .setGalleryId(galleryId);
+				}
 			}
+		}
 
-			for (var projection : pg.getContent()) {
-				var groupId = projection.id();
-				var req = PublishFileGroupRequest.builder()
-												 .fileGroupId(groupId)
-												 .galleryName(projection.groupName())
-												 .galleryDescription(projection.description() != null && projection.description()
-																												   .length() > 2 ?
-																	 projection.description() : projection.groupName())
-												 .build();
-				// mark scheduled
-				progressStore.markScheduled(groupId);
-				proxy.publishFileGroup(req);
-				scheduledCount++;
+		try (var executor = Executors.newFixedThreadPool(Math.max(1, fileParallelism), Thread.ofVirtual()
+																							.name("publish-file-", 0)
+																							.factory())) {
+			var futures = new ArrayList<Future<FileResult>>();
+
+			for (var fileUpload : pending) {
+				futures.add(executor.submit(() -> uploadFile(fileUpload, claimedGroup)));
 			}
 
-			page++;
-			if (page >= pg.getTotalPages()) {
-				break;
+			for (var future : futures) {
+				var fileResult = future.get();
+
+				if (fileResult.galleryId() != null) {
+					galleryId = fileResult.galleryId();
+				}
+
+				if (fileResult.failed()) {
+					failedFiles++;
+				}
 			}
 		}
 
-		return scheduledCount;
+		return new UploadResult(galleryId, failedFiles);
+	}
+
+	private FileResult uploadFile(FileUpload fileUpload, PublishJobService.ClaimedGroup claimedGroup) {
+		var                         fileGroupId       = claimedGroup.request()
+																	.getFileGroupId();
+		var                         exportFile        = fileUpload.exportFile();
+		var                         exportFilePath    = fileUpload.exportFilePath();
+		var                         fileIngestRequest = fileUpload.fileIngestRequest();
+		Path                        uploadPath        = exportFilePath;
+		byte[]                      uploadContent     = null;
+		Path                        tempPathToDelete  = null;
+		SiteImageCache.ResizedImage resizedImage      = null;
+
+		try {
+			if (fileUpload.fileType()
+						  .equals(FileTypeEnum.IMAGE)) {
+				// Resize: smaller dimension to siteImageSize, keep quality 0.7
+				resizedImage  = siteImageCache.resize(exportFilePath, exportFile.getSha256sum(), siteImageSize, 0.7f, exportFileType, fileUpload.metadataJson());
+				uploadPath    = resizedImage.path();
+				// A freshly resized image is uploaded from the bytes it was hashed from instead of reading the file again
+				uploadContent = resizedImage.content();
+
+				if (resizedImage.temporary()) {
+					tempPathToDelete = uploadPath;
+				}
+
+				applyResizedImage(fileIngestRequest, resizedImage);
+			} else {
+				fileIngestRequest.setSha256sum(exportFileSha256(exportFile, uploadPath));
+			}
+
+			if (fileUpload.skipIfUnchanged()
+				&& fileIngestRequest.getSha256sum() != null
+				&& fileIngestRequest.getSha256sum()
+									.equals(exportFile.getPublishedSha256sum())) {
+				log.debug("File {} from group {} is unchanged on the site, skipping", exportFilePath.getFileName(), fileGroupId);
+				publishJobService.recordFileResult(claimedGroup, fileUpload.fileId(), true, exportFile.getPublishedGalleryId(), null);
+				return new FileResult(exportFile.getPublishedGalleryId(), false);
+			}
+
+			if (!fileUpload.fileType()
+						   .equals(FileTypeEnum.IMAGE)) {
+				fileIngestRequest.setMimeType(exportFileMimetype(exportFile, uploadPath));
+			}
+
+			log.debug("Publishing {}", JsonTools.toJson(fileIngestRequest));
+			// Upload with authentication retry
+			final int maxRetries = 3;
+			int       attempt    = 0;
+
+			while (true) {
+				var requestStarted = Instant.now();
+
+				try {
+					var fileIngestResponse = vempainAdminService.uploadAsSiteFile(uploadPath.toFile(), uploadContent, fileIngestRequest);
+					var galleryId          = fileIngestResponse.getGalleryId();
+					log.debug("Published file {} from group {} as site file to gallery ID {}", exportFilePath.getFileName(), fileGroupId, galleryId);
+					exportFileRepository.updatePublishState(exportFile.getId(), fileIngestRequest.getSha256sum(), fileUpload.metadataHash(), galleryId,
+															Instant.now());
+					publishJobService.recordFileResult(claimedGroup, fileUpload.fileId(), false, galleryId, null);
+					return new FileResult(galleryId, false);
+				} catch (VempainAuthenticationException authEx) {
+					attempt++;
+					if (attempt >= maxRetries) {
+						log.error("Authentication failed after {} attempts for file {} in group {}", attempt, exportFilePath.getFileName(), fileGroupId);
+						throw authEx;
+					}
+					log.warn("Authentication failed (attempt {}/{}). Re-authenticating and retrying...", attempt, maxRetries);
+					// The token is renewed by the next request, only once for all the uploads it was rejected from
+					vempainAdminTokenProvider.tokenRejected(requestStarted);
+				}
+			}
+		} catch (Exception ex) {
+			log.error("Failed to publish file {} from group {}", exportFilePath.getFileName(), fileGroupId, ex);
+			var error = ex.getMessage() != null ? ex.getMessage() : ex.getClass()
+																	 .getSimpleName();
+			publishJobService.recordFileResult(claimedGroup, fileUpload.fileId(), false, null, error);
+			return new FileResult(null, true);
+		} finally {
+			// The cached image may be evicted again once it has been uploaded
+			if (resizedImage != null) {
+				resizedImage.close();
+			}
+
+			// Cleanup temp image if created
+			if (tempPathToDelete != null) {
+				try {
+					Files.deleteIfExists(tempPathToDelete);
+				} catch (IOException ioe) {
+					log.warn("Failed to delete temp file {}", tempPathToDelete, ioe);
+				}
+			}
+		}
 	}
 
-	private Path resolveExportedPath(long fileId) {
+	private String collectStandardMetadata(FileEntity fileEntity) {
+		// Files scanned before the metadata document existed and not yet backfilled still have only the metadata rows
+		if (fileEntity.getMetadataDocument() != null) {
+			return collectStandardMetadataFromDocument(fileEntity.getMetadataDocument(), fileEntity);
+		}
+
+		return collectStandardMetadataAsJson(metadataRepository.findByFile(fileEntity), fileEntity);
+	}
+
+	private record FileUpload(long fileId, Path exportFilePath, ExportFileEntity exportFile, FileTypeEnum fileType, String metadataJson,
+							  String metadataHash, boolean skipIfUnchanged, FileIngestRequest fileIngestRequest) {
+	}
+
+	private record FileResult(Long galleryId, boolean failed) {
+	}
+
+	private record PreparedFileGroup(Long groupGalleryId, List<FileUpload> fileUploads) {
+	}
+
+	private record UploadResult(Long galleryId, int failedFiles) {
+	}
+
+	private void applyResizedImage(FileIngestRequest fileIngestRequest, SiteImageCache.ResizedImage resizedImage) {
+		var sha256sum = resizedImage.sha256sum();
+
+		if (sha256sum == null || sha256sum.isBlank()) {
+			sha256sum = computeSha256(resizedImage.path()
+												  .toFile());
+		}
+
+		fileIngestRequest.setMimeType(resizedImage.mimeType());
+		fileIngestRequest.setSha256sum(sha256sum);
+		fileIngestRequest.setWidth(resizedImage.dimensions().width);
+		fileIngestRequest.setHeight(resizedImage.dimensions().height);
+	}
+
+	private String exportFileMimetype(ExportFileEntity exportFileEntity, Path exportFilePath) throws IOException {
+		// The mimetype was probed when the export file was scanned, exiftool is only run again if it is missing
+		if (exportFileEntity.getMimetype() != null && !exportFileEntity.getMimetype()
+																		.isBlank()) {
+			return exportFileEntity.getMimetype();
+		}
+
+		return MetadataTool.extractMimetype(exifToolPool.extractMetadataJsonObject(exportFilePath.toFile()));
+	}
+
+	/**
+	 * The recorded sha256sum of the export file as long as the file still has the stat recorded with it. Otherwise the file is
+	 * hashed again and the new sum is recorded.
+	 */
+	private String exportFileSha256(ExportFileEntity exportFileEntity, Path exportFilePath) {
+		var fileStat = statFile(exportFilePath.toFile());
+
+		if (fileStat != null && fileStat.matches(exportFileEntity.getFilesize(), exportFileEntity.getFileMtime(), exportFileEntity.getFileKey())) {
+			return exportFileEntity.getSha256sum();
+		}
+
+		var sha256sum = computeSha256(exportFilePath.toFile());
+
+		if (sha256sum != null && fileStat != null) {
+			// Stat taken before the hash, a change during the hash is caught by the next publish
+			exportFileRepository.updateContentState(exportFileEntity.getId(), sha256sum, fileStat.size(), fileStat.mtime(), fileStat.fileKey());
+		}
+
+		return sha256sum;
+	}
+
+	private ExportFileEntity findExportFile(long fileId) {
 		// Look up the exported file from export repository
 		var optionalExportFileEntity = exportFileRepository.findByFileId(fileId);
 
@@ -404,7 +589,13 @@ public class PublishService {
 			return null;
 		}
 
-		var exportFileEntity = optionalExportFileEntity.get();
+		return optionalExportFileEntity.get();
+	}
+
+	private Path resolveExportedPath(ExportFileEntity exportFileEntity) {
+		if (exportFileEntity == null) {
+			return null;
+		}
 
 		String relativePath = exportFileEntity.getFilePath() == null ? "" : exportFileEntity.getFilePath();
 
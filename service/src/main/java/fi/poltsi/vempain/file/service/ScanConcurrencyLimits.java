@@ -0,0 +1,86 @@
+package fi.poltsi.vempain.file.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Concurrency limits of the parallel original file scan. Disk reads, exiftool runs and database transactions each have their own
+ * permits, so a latency-bound NAS can be kept busy without exhausting the exiftool pool or the database connection pool. The
+ * directory permits limit how many leaf directories are in progress at once, which bounds the prepared files held in memory while
+ * they wait for a database permit.
+ */
+@Slf4j
+@Component
+public class ScanConcurrencyLimits {
+
+	@Getter
+	@Value("${vempain.scan.parallel.enabled:false}")
+	private boolean enabled;
+
+	@Value("${vempain.scan.parallel.disk-permits:8}")
+	private int diskPermits;
+
+	@Value("${vempain.scan.parallel.exiftool-permits:4}")
+	private int exiftoolPermits;
+
+	@Value("${vempain.scan.parallel.db-permits:2}")
+	private int dbPermits;
+
+	@Value("${vempain.scan.parallel.directory-permits:4}")
+	private int directoryPermits;
+
+	private Semaphore diskSemaphore;
+	private Semaphore exiftoolSemaphore;
+	private Semaphore dbSemaphore;
+	private Semaphore directorySemaphore;
+
+	@PostConstruct
+	public void init() {
+		diskSemaphore      = new Semaphore(Math.max(1, diskPermits), true);
+		exiftoolSemaphore  = new Semaphore(Math.max(1, exiftoolPermits), true);
+		dbSemaphore        = new Semaphore(Math.max(1, dbPermits), true);
+		directorySemaphore = new Semaphore(Math.max(1, directoryPermits), true);
+
+		if (enabled) {
+			log.info("Parallel scan enabled with {} disk, {} exiftool, {} database and {} directory permits", diskSemaphore.availablePermits(),
+					 exiftoolSemaphore.availablePermits(), dbSemaphore.availablePermits(), directorySemaphore.availablePermits());
+		}
+	}
+
+	public <T> T withDiskPermit(Callable<T> task) throws Exception {
+		return runWithPermit(diskSemaphore, task);
+	}
+
+	public <T> T withExiftoolPermit(Callable<T> task) throws Exception {
+		return runWithPermit(exiftoolSemaphore, task);
+	}
+
+	public <T> T withDbPermit(Callable<T> task) throws Exception {
+		return runWithPermit(dbSemaphore, task);
+	}
+
+	public <T> T withDirectoryPermit(Callable<T> task) throws Exception {
+		return runWithPermit(directorySemaphore, task);
+	}
+
+	private <T> T runWithPermit(Semaphore semaphore, Callable<T> task) throws Exception {
+		if (semaphore == null) {
+			// Not initialized by Spring, e.g. in plain unit tests
+			return task.call();
+		}
+
+		semaphore.acquire();
+
+		try {
+			return task.call();
+		} finally {
+			semaphore.release();
+		}
+	}
+}
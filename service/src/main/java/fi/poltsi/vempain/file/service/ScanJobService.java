@@ -0,0 +1,450 @@
+package fi.poltsi.vempain.file.service;
+
+import fi.poltsi.vempain.auth.api.request.PagedRequest;
+import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.auth.exception.VempainAuthenticationException;
+import fi.poltsi.vempain.auth.tools.AuthTools;
+import fi.poltsi.vempain.file.api.ScanJobStatusEnum;
+import fi.poltsi.vempain.file.api.request.ScanRequest;
+import fi.poltsi.vempain.file.api.response.ExportFileResponse;
+import fi.poltsi.vempain.file.api.response.ScanJobFileResponse;
+import fi.poltsi.vempain.file.api.response.ScanJobResponse;
+import fi.poltsi.vempain.file.api.response.files.FileResponse;
+import fi.poltsi.vempain.file.entity.ScanJobDirectoryEntity;
+import fi.poltsi.vempain.file.entity.ScanJobEntity;
+import fi.poltsi.vempain.file.entity.ScanJobFileEntity;
+import fi.poltsi.vempain.file.repository.ScanJobDirectoryRepository;
+import fi.poltsi.vempain.file.repository.ScanJobFileRepository;
+import fi.poltsi.vempain.file.repository.ScanJobRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs scans as background jobs. The job, its per-directory progress and the per-file results are stored in the database so
+ * that the status can be polled, also after a restart, and the results are fetched page by page instead of being collected in
+ * memory. Jobs are executed one at a time in the order they were started. The progress of a job can also be followed as a stream
+ * of events instead of polling its status.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScanJobService {
+	private static final int                     MAX_ERROR_MESSAGE_LENGTH = 65_536;
+	private static final List<ScanJobStatusEnum> ACTIVE_STATUSES          = List.of(ScanJobStatusEnum.QUEUED, ScanJobStatusEnum.RUNNING);
+	private static final String                  JOB_EVENT                = "job";
+	private static final String                  DIRECTORY_EVENT          = "directory";
+
+	private final ScanJobRepository          scanJobRepository;
+	private final ScanJobDirectoryRepository scanJobDirectoryRepository;
+	private final ScanJobFileRepository      scanJobFileRepository;
+	private final FileScannerService         fileScannerService;
+	private final ScanConcurrencyLimits      scanConcurrencyLimits;
+	private final ProgressEventService       progressEventService;
+
+	private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor(Thread.ofVirtual()
+																						   .name("scan-job-", 0)
+																						   .factory());
+
+	@Value("${vempain.original-root-directory}")
+	private String originalRootDirectory;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void failInterruptedJobs() {
+		for (var job : scanJobRepository.findByStatusIn(ACTIVE_STATUSES)) {
+			log.warn("Scan job {} was left in state {} by a previous run, marking it as failed", job.getId(), job.getStatus());
+			job.setStatus(ScanJobStatusEnum.FAILED);
+			job.setFinished(Instant.now());
+			job.setErrorMessage(appendLimited(job.getErrorMessage(), "Interrupted by a service restart\n"));
+			scanJobRepository.save(job);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		jobExecutor.shutdownNow();
+	}
+
+	public ScanJobResponse startJob(ScanRequest scanRequest) {
+		Long userId = null;
+
+		try {
+			userId = AuthTools.getCurrentUserId();
+		} catch (VempainAuthenticationException e) {
+			log.warn("Could not resolve the user starting the scan job", e);
+		}
+
+		var job = scanJobRepository.save(ScanJobEntity.builder()
+													  .status(ScanJobStatusEnum.QUEUED)
+													  .originalDirectory(scanRequest.getOriginalDirectory())
+													  .exportDirectory(scanRequest.getExportDirectory())
+													  .creator(userId)
+													  .created(Instant.now())
+													  .build());
+		var jobId = job.getId();
+		log.info("Queued scan job {} for original directory {} and export directory {}", jobId, job.getOriginalDirectory(), job.getExportDirectory());
+		// The security context carries the user, which the scan needs when it creates the file entities
+		jobExecutor.submit(new DelegatingSecurityContextRunnable(() -> runJob(jobId)));
+		return job.toResponse();
+	}
+
+	public ScanJobResponse getJob(Long jobId) {
+		var job      = findJob(jobId);
+		var response = withRate(job);
+		response.setDirectories(scanJobDirectoryRepository.findByScanJobIdOrderByIdAsc(jobId)
+														  .stream()
+														  .map(ScanJobDirectoryEntity::toResponse)
+														  .toList());
+		return response;
+	}
+
+	public ScanJobResponse cancelJob(Long jobId) {
+		var job = findJob(jobId);
+
+		if (ACTIVE_STATUSES.contains(job.getStatus())) {
+			log.info("Cancellation requested for scan job {}", jobId);
+			scanJobRepository.requestCancel(jobId);
+			job = findJob(jobId);
+			emitJob(jobId);
+		}
+
+		return withRate(job);
+	}
+
+	/**
+	 * Subscribe to the progress events of a scan job. The stream starts with the detailed status of the job, and continues with a
+	 * job event when the counters of the job change and a directory event when the state of a directory changes.
+	 */
+	public SseEmitter subscribeJob(Long jobId) {
+		var job = getJob(jobId);
+		// Keyed apart from the later job events so that a job event emitted meanwhile does not replace the directory list
+		var initialEvent = new ProgressEventService.ProgressEvent(JOB_EVENT, "status", () -> job);
+		return progressEventService.subscribe(progressTopic(jobId), List.of(initialEvent));
+	}
+
+	public PagedResponse<ScanJobFileResponse> getJobResults(Long jobId, PagedRequest pagedRequest) {
+		findJob(jobId);
+		var safePage   = Math.max(0, pagedRequest.getPage());
+		var safeSize   = Math.min(Math.max(pagedRequest.getSize(), 1), 200);
+		var pageResult = scanJobFileRepository.findByScanJobId(jobId, PageRequest.of(safePage, safeSize, Sort.by("id")));
+		var content = pageResult.getContent()
+								.stream()
+								.map(ScanJobFileEntity::toResponse)
+								.toList();
+
+		return PagedResponse.of(content, pageResult.getNumber(), pageResult.getSize(), pageResult.getTotalElements(), pageResult.getTotalPages(),
+								pageResult.isFirst(), pageResult.isLast());
+	}
+
+	void runJob(Long jobId) {
+		var job = scanJobRepository.findById(jobId)
+								   .orElse(null);
+
+		if (job == null) {
+			log.error("Scan job {} disappeared before it was started", jobId);
+			return;
+		}
+
+		if (job.isCancelRequested()) {
+			finishJob(jobId, ScanJobStatusEnum.CANCELLED, "");
+			return;
+		}
+
+		// Updated in place, saving the loaded job would overwrite a cancel requested after it was loaded
+		scanJobRepository.markStarted(jobId, ScanJobStatusEnum.RUNNING, Instant.now());
+		emitJob(jobId);
+
+		var errorMessage = new StringBuilder();
+		var status       = ScanJobStatusEnum.COMPLETED;
+
+		try {
+			if (job.getOriginalDirectory() != null
+				&& !scanOriginal(job, errorMessage)) {
+				status = ScanJobStatusEnum.FAILED;
+			}
+
+			if (job.getExportDirectory() != null
+				&& !scanJobRepository.isCancelRequested(jobId)) {
+				scanExport(job, errorMessage);
+			}
+
+			if (scanJobRepository.isCancelRequested(jobId)) {
+				status = ScanJobStatusEnum.CANCELLED;
+			}
+		} catch (Exception e) {
+			log.error("Scan job {} failed", jobId, e);
+			status = ScanJobStatusEnum.FAILED;
+			synchronized (errorMessage) {
+				errorMessage.append("Scan failed: ")
+							.append(e.getMessage())
+							.append("\n");
+			}
+		}
+
+		finishJob(jobId, status, errorMessage.toString());
+	}
+
+	private boolean scanOriginal(ScanJobEntity job, StringBuilder errorMessage) throws Exception {
+		var leafDirectories = fileScannerService.findOriginalLeafDirectories(job.getOriginalDirectory(), errorMessage);
+
+		if (leafDirectories == null) {
+			return false;
+		}
+
+		var directories = new ArrayList<ScanJobDirectoryEntity>(leafDirectories.size());
+		var totalFiles  = 0L;
+
+		for (var leafDir : leafDirectories) {
+			var files     = leafDir.toFile()
+								   .listFiles(File::isFile);
+			var fileCount = files == null ? 0L : files.length;
+			totalFiles += fileCount;
+			directories.add(ScanJobDirectoryEntity.builder()
+												  .scanJobId(job.getId())
+												  .directory(relativeDirectory(leafDir))
+												  .status(ScanJobStatusEnum.QUEUED)
+												  .totalFiles(fileCount)
+												  .build());
+		}
+
+		var savedDirectories = scanJobDirectoryRepository.saveAll(directories);
+		scanJobRepository.setTotals(job.getId(), leafDirectories.size(), totalFiles);
+		emitJob(job.getId());
+
+		var succeeded = true;
+
+		if (!scanConcurrencyLimits.isEnabled()) {
+			for (int i = 0; i < leafDirectories.size(); i++) {
+				succeeded &= scanDirectory(job.getId(), leafDirectories.get(i), savedDirectories.get(i), errorMessage);
+			}
+
+			return succeeded;
+		}
+
+		var futures = new ArrayList<Future<Boolean>>(leafDirectories.size());
+
+		try (var executor = new DelegatingSecurityContextExecutorService(Executors.newVirtualThreadPerTaskExecutor())) {
+			for (int i = 0; i < leafDirectories.size(); i++) {
+				var leafDir   = leafDirectories.get(i);
+				var directory = savedDirectories.get(i);
+				futures.add(executor.submit(() -> scanDirectory(job.getId(), leafDir, directory, errorMessage)));
+			}
+		}
+
+		for (var future : futures) {
+			succeeded &= future.get();
+		}
+
+		return succeeded;
+	}
+
+	/**
+	 * Scan one leaf directory once it gets a directory permit. In parallel mode the directories queue for the permits, so the
+	 * cancellation is checked and the directory marked as running only when its turn comes.
+	 *
+	 * @return false if the directory failed, true if it completed or was cancelled
+	 */
+	private boolean scanDirectory(Long jobId, Path leafDir, ScanJobDirectoryEntity directory, StringBuilder errorMessage) throws Exception {
+		return scanConcurrencyLimits.withDirectoryPermit(() -> scanDirectoryWithPermit(jobId, leafDir, directory, errorMessage));
+	}
+
+	private boolean scanDirectoryWithPermit(Long jobId, Path leafDir, ScanJobDirectoryEntity directory, StringBuilder errorMessage) {
+		if (scanJobRepository.isCancelRequested(jobId)) {
+			directory.setStatus(ScanJobStatusEnum.CANCELLED);
+			scanJobDirectoryRepository.save(directory);
+			emitDirectory(directory);
+			return true;
+		}
+
+		directory.setStatus(ScanJobStatusEnum.RUNNING);
+		directory.setStarted(Instant.now());
+		scanJobDirectoryRepository.save(directory);
+		emitDirectory(directory);
+
+		var localErrors     = new StringBuilder();
+		var localFailed     = new ArrayList<String>();
+		var localSuccessful = new ArrayList<FileResponse>();
+
+		try {
+			var results = fileScannerService.processOriginalLeafDirectory(leafDir, localErrors, localFailed, localSuccessful);
+			saveOriginalResults(jobId, directory.getDirectory(), localFailed, localSuccessful);
+			directory.setScannedFiles(results.get(0));
+			directory.setNewFiles(results.get(1));
+			directory.setFailedFiles(localFailed.size());
+			directory.setStatus(ScanJobStatusEnum.COMPLETED);
+		} catch (Exception e) {
+			log.error("Scan job {} failed to scan directory {}", jobId, leafDir, e);
+			localErrors.append("Error scanning directory: ")
+					   .append(directory.getDirectory())
+					   .append(" - ")
+					   .append(e.getMessage())
+					   .append("\n");
+			directory.setStatus(ScanJobStatusEnum.FAILED);
+		}
+
+		directory.setErrorMessage(localErrors.isEmpty() ? null : appendLimited(null, localErrors.toString()));
+		directory.setFinished(Instant.now());
+		scanJobDirectoryRepository.save(directory);
+		scanJobRepository.addDirectoryResult(jobId, directory.getScannedFiles(), directory.getNewFiles(), directory.getFailedFiles());
+		emitDirectory(directory);
+		emitJob(jobId);
+
+		if (!localErrors.isEmpty()) {
+			synchronized (errorMessage) {
+				errorMessage.append(localErrors);
+			}
+		}
+
+		return directory.getStatus() != ScanJobStatusEnum.FAILED;
+	}
+
+	private void saveOriginalResults(Long jobId, String directory, List<String> failedFiles, List<FileResponse> successfulFiles) {
+		var rows = new ArrayList<ScanJobFileEntity>(failedFiles.size() + successfulFiles.size());
+
+		for (var fileResponse : successfulFiles) {
+			rows.add(ScanJobFileEntity.builder()
+									  .scanJobId(jobId)
+									  .fileId(fileResponse.getId())
+									  .filename(fileResponse.getFilename())
+									  .filePath(fileResponse.getFilePath())
+									  .success(true)
+									  .build());
+		}
+
+		for (var failedFile : failedFiles) {
+			rows.add(ScanJobFileEntity.builder()
+									  .scanJobId(jobId)
+									  .filename(failedFile)
+									  .filePath(directory)
+									  .success(false)
+									  .message("Failed to process file")
+									  .build());
+		}
+
+		scanJobFileRepository.saveAll(rows);
+	}
+
+	private void scanExport(ScanJobEntity job, StringBuilder errorMessage) {
+		var exportResponse = fileScannerService.scanExportDirectory(job.getExportDirectory());
+		var rows           = new ArrayList<ScanJobFileEntity>();
+
+		for (var exportFile : exportResponse.getSuccessfulFiles() == null ? List.<ExportFileResponse>of() : exportResponse.getSuccessfulFiles()) {
+			rows.add(ScanJobFileEntity.builder()
+									  .scanJobId(job.getId())
+									  .fileId(exportFile.getFile_id())
+									  .filename(exportFile.getFilename())
+									  .filePath(exportFile.getFilePath())
+									  .success(true)
+									  .build());
+		}
+
+		for (var orphanedFile : exportResponse.getFailedFiles() == null ? List.<String>of() : exportResponse.getFailedFiles()) {
+			rows.add(ScanJobFileEntity.builder()
+									  .scanJobId(job.getId())
+									  .filename(orphanedFile)
+									  .filePath(job.getExportDirectory())
+									  .success(false)
+									  .message("Exported file has no matching original file")
+									  .build());
+		}
+
+		scanJobFileRepository.saveAll(rows);
+
+		if (exportResponse.getErrorMessage() != null && !exportResponse.getErrorMessage()
+																		 .isBlank()) {
+			synchronized (errorMessage) {
+				errorMessage.append(exportResponse.getErrorMessage());
+			}
+		}
+	}
+
+	private void finishJob(Long jobId, ScanJobStatusEnum status, String errorMessage) {
+		// Reload, the counters have been updated directly in the database while the job was running
+		var job = findJob(jobId);
+		job.setStatus(status);
+		job.setFinished(Instant.now());
+		job.setErrorMessage(errorMessage.isEmpty() ? null : appendLimited(null, errorMessage));
+		scanJobRepository.save(job);
+		emitJob(jobId);
+		log.info("Scan job {} finished with status {}: {} files scanned, {} new, {} failed", jobId, status, job.getScannedFiles(), job.getNewFiles(),
+				 job.getFailedFiles());
+	}
+
+	private void emitJob(Long jobId) {
+		progressEventService.emit(progressTopic(jobId), JOB_EVENT, JOB_EVENT, () -> withRate(findJob(jobId)));
+	}
+
+	private void emitDirectory(ScanJobDirectoryEntity directory) {
+		var directoryResponse = directory.toResponse();
+		progressEventService.emit(progressTopic(directory.getScanJobId()), DIRECTORY_EVENT, DIRECTORY_EVENT + ":" + directory.getId(),
+								  () -> directoryResponse);
+	}
+
+	private static String progressTopic(Long jobId) {
+		return "scan-job:" + jobId;
+	}
+
+	private ScanJobResponse withRate(ScanJobEntity job) {
+		var response = job.toResponse();
+
+		if (job.getStarted() == null) {
+			return response;
+		}
+
+		var end     = job.getFinished() != null ? job.getFinished() : Instant.now();
+		var seconds = Duration.between(job.getStarted(), end)
+							  .toMillis() / 1000.0;
+
+		if (seconds <= 0 || job.getScannedFiles() == 0) {
+			return response;
+		}
+
+		var filesPerSecond = job.getScannedFiles() / seconds;
+		response.setFilesPerSecond(filesPerSecond);
+
+		if (job.getStatus() == ScanJobStatusEnum.RUNNING) {
+			var remaining = Math.max(0L, job.getTotalFiles() - job.getScannedFiles());
+			response.setEtaSeconds(Math.round(remaining / filesPerSecond));
+		}
+
+		return response;
+	}
+
+	private ScanJobEntity findJob(Long jobId) {
+		return scanJobRepository.findById(jobId)
+								.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Scan job not found"));
+	}
+
+	private String relativeDirectory(Path leafDir) {
+		var relative = Path.of(originalRootDirectory)
+						   .relativize(leafDir)
+						   .toString();
+		return "/" + relative;
+	}
+
+	private static String appendLimited(String existing, String addition) {
+		var combined = (existing == null ? "" : existing) + addition;
+		return combined.length() > MAX_ERROR_MESSAGE_LENGTH ? combined.substring(0, MAX_ERROR_MESSAGE_LENGTH) : combined;
+	}
+}
@@ -0,0 +1,105 @@
+package fi.poltsi.vempain.file.service;
+
+import fi.poltsi.vempain.admin.api.response.file.SiteFileResponse;
+import fi.poltsi.vempain.file.api.FileTypeEnum;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static fi.poltsi.vempain.file.service.UpdatedFileRefreshSchedulerService.normalizePath;
+
+/**
+ * Snapshot of the site files of the admin service for one refresh run. The catalog of a file type is paged through once, when
+ * the first file of the type needs it, and the publication of the files is then resolved locally instead of searching the admin
+ * service for each file.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class SiteFileCatalog {
+	private final VempainAdminService vempainAdminService;
+	private final int                 pageSize;
+
+	private final Map<FileTypeEnum, Set<String>> siteFiles   = new EnumMap<>(FileTypeEnum.class);
+	private final Set<FileTypeEnum>              unavailable = EnumSet.noneOf(FileTypeEnum.class);
+
+	/**
+	 * Whether a site file exists in the directory with any of the file names.
+	 *
+	 * @return Null if the catalog of the file type could not be loaded
+	 */
+	Boolean isPublished(FileTypeEnum fileType, String filePath, Collection<String> filenames) {
+		if (unavailable.contains(fileType)) {
+			return null;
+		}
+
+		var files = siteFiles.get(fileType);
+
+		if (files == null) {
+			files = load(fileType);
+
+			if (files == null) {
+				unavailable.add(fileType);
+				return null;
+			}
+
+			siteFiles.put(fileType, files);
+		}
+
+		var directory = normalizePath(filePath);
+
+		for (var filename : filenames) {
+			if (files.contains(key(directory, filename))) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private Set<String> load(FileTypeEnum fileType) {
+		var files = new HashSet<String>();
+		var page  = 0;
+
+		try {
+			while (true) {
+				var response = vempainAdminService.getPageableSiteFiles(fileType, page, pageSize, "id", Sort.Direction.ASC, null, null);
+
+				if (response == null) {
+					log.warn("Could not load page {} of the {} site files, their publication is resolved on a later run", page, fileType);
+					return null;
+				}
+
+				var content = response.getContent();
+
+				if (content != null) {
+					for (SiteFileResponse siteFile : content) {
+						files.add(key(normalizePath(siteFile.getFilePath()), siteFile.getFileName()));
+					}
+				}
+
+				page++;
+
+				if (content == null || content.isEmpty() || response.isLast() || page >= response.getTotalPages()) {
+					break;
+				}
+			}
+		} catch (RuntimeException e) {
+			log.warn("Could not load the {} site files, their publication is resolved on a later run: {}", fileType, e.getMessage());
+			return null;
+		}
+
+		log.info("Loaded {} {} site files from the admin service in {} requests", files.size(), fileType, page);
+		return files;
+	}
+
+	private static String key(String directory, String filename) {
+		return directory + '\u0000' + filename;
+	}
+}
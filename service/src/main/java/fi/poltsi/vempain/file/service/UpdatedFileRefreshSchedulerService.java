@@ -3,27 +3,32 @@ package fi.poltsi.vempain.file.service;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
 import fi.poltsi.vempain.file.api.FileTypeEnum;
 import fi.poltsi.vempain.file.entity.ExportFileEntity;
-import fi.poltsi.vempain.file.entity.FileEntity;
 import fi.poltsi.vempain.file.entity.SchedulerCheckpointEntity;
 import fi.poltsi.vempain.file.repository.ExportFileRepository;
 import fi.poltsi.vempain.file.repository.SchedulerCheckpointRepository;
+import fi.poltsi.vempain.file.repository.files.FileRefreshRow;
 import fi.poltsi.vempain.file.repository.files.FileRepository;
+import fi.poltsi.vempain.file.tools.ExifToolPool;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static fi.poltsi.vempain.file.tools.FileTool.computeSha256;
-import static fi.poltsi.vempain.file.tools.MetadataTool.extractMetadataJsonObject;
+import static fi.poltsi.vempain.file.tools.FileTool.statFile;
 import static fi.poltsi.vempain.file.tools.MetadataTool.extractMimetype;
 
 @Slf4j
@@ -32,6 +37,7 @@ import static fi.poltsi.vempain.file.tools.MetadataTool.extractMimetype;
 public class UpdatedFileRefreshSchedulerService {
 
 	private static final String TASK_NAME = "updated_file_refresh";
+	private static final int    PAGE_SIZE = 500;
 
 	private final FileRepository                fileRepository;
 	private final ExportFileRepository          exportFileRepository;
@@ -39,6 +45,10 @@ public class UpdatedFileRefreshSchedulerService {
 	private final DirectoryProcessorService     directoryProcessorService;
 	private final PublishService                publishService;
 	private final VempainAdminService           vempainAdminService;
+	private final ExifToolPool                  exifToolPool;
+
+	// The cron sweep and the file watcher must not refresh the same file at the same time
+	private final ReentrantLock refreshLock = new ReentrantLock();
 
 	@Value("${vempain.refresh-updated-files.enabled:true}")
 	private boolean schedulerEnabled;
@@ -52,15 +62,83 @@ public class UpdatedFileRefreshSchedulerService {
 	@Value("${vempain.export-file-type:jpeg}")
 	private String exportFileType;
 
+	@Value("${vempain.refresh-updated-files.watch.enabled:false}")
+	private boolean watchEnabled;
+
+	// Resolve the unknown site file publications of a run from one snapshot of the admin site files instead of searching per file
+	@Value("${vempain.refresh-updated-files.site-catalog.enabled:true}")
+	private boolean siteCatalogEnabled;
+
+	@Value("${vempain.refresh-updated-files.site-catalog.page-size:1000}")
+	private int siteCatalogPageSize;
+
 	@Scheduled(cron = "${vempain.refresh-updated-files.cron:0 */10 * * * *}")
 	public void refreshUpdatedFilesScheduled() {
-		if (!schedulerEnabled) {
+		// With the file watcher the changes arrive as events, only the low-frequency sweep below is run
+		if (!schedulerEnabled || watchEnabled) {
+			return;
+		}
+		runRefresh();
+	}
+
+	@Scheduled(cron = "${vempain.refresh-updated-files.watch.sweep-cron:0 0 3 * * *}")
+	public void fullSweepScheduled() {
+		if (!schedulerEnabled || !watchEnabled) {
 			return;
 		}
+		log.info("Running full sweep to reconcile file events the watcher may have missed");
 		runRefresh();
 	}
 
 	public void runRefresh() {
+		refreshLock.lock();
+
+		try {
+			runRefreshLocked();
+		} finally {
+			refreshLock.unlock();
+		}
+	}
+
+	/**
+	 * Refresh the files behind a batch of file system events. Original files are refreshed when their content has changed,
+	 * export files are refreshed in place. Paths that are not in the database are ignored, new files are added by a scan.
+	 */
+	public void refreshChangedPaths(Collection<Path> originalPaths, Collection<Path> exportPaths) {
+		refreshLock.lock();
+
+		try {
+			for (var originalPath : originalPaths) {
+				if (!Files.isRegularFile(originalPath)) {
+					continue;
+				}
+
+				var filename  = originalPath.getFileName()
+				                            .toString();
+				var directory = relativeDirectory(originalRootDirectory, originalPath);
+				fileRepository.findRefreshRowByFilePathAndFilename(directory, filename)
+				              .ifPresentOrElse(fileRow -> refreshIfChanged(fileRow, originalPath, null),
+				                               () -> log.debug("Changed file {} has not been scanned, ignoring it", originalPath));
+			}
+
+			for (var exportPath : exportPaths) {
+				if (!Files.isRegularFile(exportPath)) {
+					continue;
+				}
+
+				var filename  = exportPath.getFileName()
+				                          .toString();
+				var directory = relativeDirectory(exportRootDirectory, exportPath);
+				exportFileRepository.findByFilePathAndFilename(directory, filename)
+				                    .ifPresent(exportFile -> refreshLinkedExport(exportFile.getFile()
+				                                                                           .getId()));
+			}
+		} finally {
+			refreshLock.unlock();
+		}
+	}
+
+	private void runRefreshLocked() {
 		var runStartedAt = Instant.now();
 		var checkpoint   = schedulerCheckpointRepository.findById(TASK_NAME)
 		                                                .orElse(null);
@@ -69,9 +147,24 @@ public class UpdatedFileRefreshSchedulerService {
 
 		log.info("Starting updated file refresh. firstRun={}, lastCheckAt={}", firstRun, lastCheckAt);
 
-		for (var fileEntity : fileRepository.findAll()) {
-			processSingleFile(fileEntity, lastCheckAt, firstRun);
-		}
+		var siteFileCatalog = siteCatalogEnabled ? new SiteFileCatalog(vempainAdminService, siteCatalogPageSize) : null;
+
+		// Walk the table in keyset pages of lightweight rows, full entities are only loaded for files that have changed
+		var                  lastId = 0L;
+		List<FileRefreshRow> page;
+
+		do {
+			page = fileRepository.findRefreshRowsAfterId(lastId, PageRequest.of(0, PAGE_SIZE));
+
+			for (var fileRow : page) {
+				processSingleFile(fileRow, lastCheckAt, firstRun, siteFileCatalog);
+			}
+
+			if (!page.isEmpty()) {
+				lastId = page.getLast()
+							 .id();
+			}
+		} while (page.size() == PAGE_SIZE);
 
 		schedulerCheckpointRepository.save(SchedulerCheckpointEntity.builder()
 		                                                            .taskName(TASK_NAME)
@@ -80,8 +173,8 @@ public class UpdatedFileRefreshSchedulerService {
 		log.info("Updated file refresh finished. New checkpoint={}", runStartedAt);
 	}
 
-	private void processSingleFile(FileEntity fileEntity, Instant lastCheckAt, boolean firstRun) {
-		var sourcePath = resolveOriginalPath(fileEntity);
+	private void processSingleFile(FileRefreshRow fileRow, Instant lastCheckAt, boolean firstRun, SiteFileCatalog siteFileCatalog) {
+		var sourcePath = resolveOriginalPath(fileRow.filePath(), fileRow.filename());
 		if (!Files.exists(sourcePath)) {
 			return;
 		}
@@ -97,21 +190,48 @@ public class UpdatedFileRefreshSchedulerService {
 			return;
 		}
 
-		var sitePublished = fileEntity.getSiteFilePublished();
+		refreshIfChanged(fileRow, sourcePath, siteFileCatalog);
+	}
+
+	/**
+	 * @param siteFileCatalog Site files of the run, null to search the admin service for the file
+	 */
+	private void refreshIfChanged(FileRefreshRow fileRow, Path sourcePath, SiteFileCatalog siteFileCatalog) {
+		var sitePublished = fileRow.siteFilePublished();
 		if (sitePublished == null) {
-			sitePublished = detectSiteFilePublication(fileEntity);
-			fileEntity.setSiteFilePublished(sitePublished);
-			fileRepository.save(fileEntity);
+			if (siteFileCatalog != null) {
+				sitePublished = lookupSiteFilePublication(fileRow, siteFileCatalog);
+			} else {
+				sitePublished = detectSiteFilePublication(fileRow);
+			}
+
+			// Left unknown when the catalog could not be loaded, it is resolved on a later run
+			if (sitePublished != null) {
+				fileRepository.updateSiteFilePublished(fileRow.id(), sitePublished);
+			}
+		}
+
+		// The stat still matches the scan manifest, the content has not changed since it was ingested
+		var fileStat = statFile(sourcePath.toFile());
+		if (fileStat != null && fileRow.fileMtime() != null && fileStat.mtime() == fileRow.fileMtime() && fileStat.size() == fileRow.filesize()
+			&& Objects.equals(fileStat.fileKey(), fileRow.fileKey())) {
+			return;
 		}
 
 		var currentSha = computeSha256(sourcePath.toFile());
-		if (currentSha == null || Objects.equals(currentSha, fileEntity.getSha256sum())) {
+		if (currentSha == null || Objects.equals(currentSha, fileRow.sha256sum())) {
 			return;
 		}
 
+		var optionalFileEntity = fileRepository.findById(fileRow.id());
+		if (optionalFileEntity.isEmpty()) {
+			return;
+		}
+
+		var fileEntity = optionalFileEntity.get();
 		log.info("Refreshing updated file id={} path={}", fileEntity.getId(), sourcePath);
 		try {
-			var updated = directoryProcessorService.refreshExistingOriginalFile(fileEntity, sourcePath.toFile());
+			var updated = directoryProcessorService.refreshExistingOriginalFile(fileEntity, sourcePath.toFile(), currentSha, fileStat);
 			if (!updated) {
 				return;
 			}
@@ -126,21 +246,29 @@ public class UpdatedFileRefreshSchedulerService {
 		}
 	}
 
-	private boolean detectSiteFilePublication(FileEntity fileEntity) {
-		if (fileEntity.getFileType() == FileTypeEnum.UNKNOWN) {
+	private Boolean lookupSiteFilePublication(FileRefreshRow fileRow, SiteFileCatalog siteFileCatalog) {
+		if (fileRow.fileType() == FileTypeEnum.UNKNOWN) {
 			return false;
 		}
 
-		for (String filenameCandidate : resolveSiteFileNameCandidates(fileEntity)) {
+		return siteFileCatalog.isPublished(fileRow.fileType(), fileRow.filePath(), resolveSiteFileNameCandidates(fileRow));
+	}
+
+	private boolean detectSiteFilePublication(FileRefreshRow fileRow) {
+		if (fileRow.fileType() == FileTypeEnum.UNKNOWN) {
+			return false;
+		}
+
+		for (String filenameCandidate : resolveSiteFileNameCandidates(fileRow)) {
 			for (String filterColumn : List.of("file_name", "filename")) {
 				PagedResponse<fi.poltsi.vempain.admin.api.response.file.SiteFileResponse> response =
-						vempainAdminService.getPageableSiteFiles(fileEntity.getFileType(), 0, 50, "id", Sort.Direction.ASC, filenameCandidate, filterColumn);
+						vempainAdminService.getPageableSiteFiles(fileRow.fileType(), 0, 50, "id", Sort.Direction.ASC, filenameCandidate, filterColumn);
 				if (response == null || response.getContent() == null || response.getContent()
 				                                                                 .isEmpty()) {
 					continue;
 				}
 
-				var expectedPath = normalizePath(fileEntity.getFilePath());
+				var expectedPath = normalizePath(fileRow.filePath());
 				boolean match = response.getContent()
 				                        .stream()
 				                        .anyMatch(siteFile -> Objects.equals(normalizePath(siteFile.getFilePath()), expectedPath)
@@ -166,7 +294,8 @@ public class UpdatedFileRefreshSchedulerService {
 			return;
 		}
 
-		var sha = computeSha256(exportPath.toFile());
+		var fileStat = statFile(exportPath.toFile());
+		var sha      = computeSha256(exportPath.toFile());
 		if (sha == null) {
 			return;
 		}
@@ -174,7 +303,9 @@ public class UpdatedFileRefreshSchedulerService {
 		try {
 			exportFile.setSha256sum(sha);
 			exportFile.setFilesize(Files.size(exportPath));
-			exportFile.setMimetype(extractMimetype(extractMetadataJsonObject(exportPath.toFile())));
+			exportFile.setFileMtime(fileStat != null ? fileStat.mtime() : null);
+			exportFile.setFileKey(fileStat != null ? fileStat.fileKey() : null);
+			exportFile.setMimetype(extractMimetype(exifToolPool.extractMetadataJsonObject(exportPath.toFile())));
 			exportFile.setOriginalDocumentId(exportFile.getFile()
 			                                           .getOriginalDocumentId());
 			exportFileRepository.save(exportFile);
@@ -183,11 +314,11 @@ public class UpdatedFileRefreshSchedulerService {
 		}
 	}
 
-	private Path resolveOriginalPath(FileEntity fileEntity) {
-		var relativePath = normalizePath(fileEntity.getFilePath());
+	private Path resolveOriginalPath(String filePath, String filename) {
+		var relativePath = normalizePath(filePath);
 		return Path.of(originalRootDirectory)
 		           .resolve(relativePath)
-		           .resolve(fileEntity.getFilename());
+		           .resolve(filename);
 	}
 
 	private Path resolveExportPath(ExportFileEntity exportFileEntity) {
@@ -197,26 +328,37 @@ public class UpdatedFileRefreshSchedulerService {
 		           .resolve(exportFileEntity.getFilename());
 	}
 
-	private String normalizePath(String value) {
+	private String relativeDirectory(String rootDirectory, Path path) {
+		var relativePath = Path.of(rootDirectory)
+		                       .toAbsolutePath()
+		                       .normalize()
+		                       .relativize(path.toAbsolutePath()
+		                                       .normalize()
+		                                       .getParent());
+		return "/" + relativePath.toString()
+		                         .replace(File.separatorChar, '/');
+	}
+
+	static String normalizePath(String value) {
 		if (value == null || value.isBlank() || "/".equals(value)) {
 			return "";
 		}
 		return value.startsWith("/") ? value.substring(1) : value;
 	}
 
-	private List<String> resolveSiteFileNameCandidates(FileEntity fileEntity) {
+	private List<String> resolveSiteFileNameCandidates(FileRefreshRow fileRow) {
 		var candidates = new ArrayList<String>();
-		exportFileRepository.findByFileId(fileEntity.getId())
+		exportFileRepository.findByFileId(fileRow.id())
 		                    .map(ExportFileEntity::getFilename)
 		                    .ifPresent(candidates::add);
-		candidates.add(fileEntity.getFilename());
+		candidates.add(fileRow.filename());
 
-		if (fileEntity.getFileType() == FileTypeEnum.IMAGE && fileEntity.getFilename() != null) {
-			int suffixIndex = fileEntity.getFilename()
-			                            .lastIndexOf('.');
+		if (fileRow.fileType() == FileTypeEnum.IMAGE && fileRow.filename() != null) {
+			int suffixIndex = fileRow.filename()
+			                         .lastIndexOf('.');
 			if (suffixIndex > 0) {
-				candidates.add(fileEntity.getFilename()
-				                         .substring(0, suffixIndex) + "." + exportFileType);
+				candidates.add(fileRow.filename()
+				                      .substring(0, suffixIndex) + "." + exportFileType);
 			}
 		}
 
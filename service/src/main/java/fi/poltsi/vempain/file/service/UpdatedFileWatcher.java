@@ -0,0 +1,221 @@
+package fi.poltsi.vempain.file.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Watches the original and export directory trees for changes and feeds the changed files to the updated file refresh. Events
+ * of the same file are coalesced, and a file is only refreshed once it has been quiet for the debounce period, so that a file
+ * being copied or saved in several writes is refreshed once. Events can be lost, e.g. on queue overflow or on network mounts,
+ * which is why the refresh scheduler keeps running a low-frequency full sweep while the watcher is enabled.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UpdatedFileWatcher {
+
+	private final UpdatedFileRefreshSchedulerService updatedFileRefreshSchedulerService;
+
+	private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+	// Changed path and the nano time of its latest event
+	private final Map<Path, Long>     pendingPaths       = new ConcurrentHashMap<>();
+
+	@Value("${vempain.refresh-updated-files.watch.enabled:false}")
+	private boolean watchEnabled;
+
+	@Value("${vempain.refresh-updated-files.watch.debounce-millis:2000}")
+	private long debounceMillis;
+
+	@Value("${vempain.original-root-directory}")
+	private String originalRootDirectory;
+
+	@Value("${vempain.export-root-directory}")
+	private String exportRootDirectory;
+
+	private WatchService             watchService;
+	private ScheduledExecutorService debounceExecutor;
+	// Replaced in the unit tests to move time forward without sleeping
+	private LongSupplier             nanoClock = System::nanoTime;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (!watchEnabled) {
+			return;
+		}
+
+		try {
+			watchService = FileSystems.getDefault()
+									  .newWatchService();
+		} catch (IOException e) {
+			log.error("Could not create a file watch service, relying on the scheduled sweep only", e);
+			return;
+		}
+
+		registerTree(Path.of(originalRootDirectory));
+		registerTree(Path.of(exportRootDirectory));
+
+		var delay = Math.max(100L, debounceMillis / 2);
+		debounceExecutor = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual()
+																			.name("file-watch-debounce")
+																			.factory());
+		debounceExecutor.scheduleWithFixedDelay(this::flushQuietPaths, delay, delay, TimeUnit.MILLISECONDS);
+		Thread.ofVirtual()
+			  .name("file-watch")
+			  .start(this::pollEvents);
+		log.info("Watching {} directories for changes, debounce {} ms", watchedDirectories.size(), debounceMillis);
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (debounceExecutor != null) {
+			debounceExecutor.shutdownNow();
+		}
+
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				log.warn("Failed to close the file watch service", e);
+			}
+		}
+	}
+
+	private void pollEvents() {
+		while (true) {
+			WatchKey watchKey;
+
+			try {
+				watchKey = watchService.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+					  .interrupt();
+				return;
+			} catch (ClosedWatchServiceException e) {
+				return;
+			}
+
+			var directory = watchedDirectories.get(watchKey);
+
+			for (var event : watchKey.pollEvents()) {
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					log.warn("File watch events were lost, the changes are picked up by the next full sweep");
+					continue;
+				}
+
+				if (directory == null) {
+					continue;
+				}
+
+				var path = directory.resolve((Path) event.context());
+
+				if (Files.isDirectory(path)) {
+					if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+						// A new directory may already contain files by the time it is registered
+						registerTree(path);
+						queueFilesOf(path);
+					}
+				} else {
+					recordChange(path);
+				}
+			}
+
+			if (!watchKey.reset()) {
+				watchedDirectories.remove(watchKey);
+			}
+		}
+	}
+
+	void recordChange(Path path) {
+		pendingPaths.put(path, nanoClock.getAsLong());
+	}
+
+	void flushQuietPaths() {
+		var quietBefore   = nanoClock.getAsLong() - TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+		var exportRoot    = Path.of(exportRootDirectory)
+								.toAbsolutePath()
+								.normalize();
+		var originalPaths = new ArrayList<Path>();
+		var exportPaths   = new ArrayList<Path>();
+
+		for (var entry : pendingPaths.entrySet()) {
+			// Only remove the entry if no newer event has arrived in the meantime
+			if (entry.getValue() <= quietBefore && pendingPaths.remove(entry.getKey(), entry.getValue())) {
+				var path = entry.getKey()
+								.toAbsolutePath()
+								.normalize();
+
+				if (path.startsWith(exportRoot)) {
+					exportPaths.add(path);
+				} else {
+					originalPaths.add(path);
+				}
+			}
+		}
+
+		if (originalPaths.isEmpty() && exportPaths.isEmpty()) {
+			return;
+		}
+
+		log.debug("Refreshing {} original and {} export files after file events", originalPaths.size(), exportPaths.size());
+
+		try {
+			updatedFileRefreshSchedulerService.refreshChangedPaths(originalPaths, exportPaths);
+		} catch (Exception e) {
+			log.error("Failed to refresh files after file events", e);
+		}
+	}
+
+	private void registerTree(Path root) {
+		if (!Files.isDirectory(root)) {
+			log.warn("Not watching {}, it is not a directory", root);
+			return;
+		}
+
+		try (var paths = Files.walk(root)) {
+			paths.filter(Files::isDirectory)
+				 .forEach(this::registerDirectory);
+		} catch (IOException e) {
+			log.warn("Failed to walk {} for file watching", root, e);
+		}
+	}
+
+	private void registerDirectory(Path directory) {
+		try {
+			var watchKey = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			watchedDirectories.put(watchKey, directory);
+		} catch (IOException e) {
+			// Typically the inotify watch limit, see fs.inotify.max_user_watches
+			log.warn("Failed to watch directory {}", directory, e);
+		}
+	}
+
+	private void queueFilesOf(Path directory) {
+		try (var paths = Files.walk(directory)) {
+			paths.filter(Files::isRegularFile)
+				 .forEach(this::recordChange);
+		} catch (IOException e) {
+			log.warn("Failed to list new directory {}", directory, e);
+		}
+	}
+}
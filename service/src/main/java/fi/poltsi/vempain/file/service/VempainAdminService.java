@@ -9,6 +9,7 @@ import fi.poltsi.vempain.auth.exception.VempainAuthenticationException;
 import fi.poltsi.vempain.file.api.FileTypeEnum;
 import fi.poltsi.vempain.file.feign.VempainAdminFileClient;
 import fi.poltsi.vempain.file.feign.VempainAdminFileIngestClient;
+import fi.poltsi.vempain.file.feign.VempainAdminResilience;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Sort;
@@ -25,11 +26,22 @@ public class VempainAdminService {
 	private final VempainAdminFileIngestClient vempainAdminFileIngestClient;
 	private final VempainAdminFileClient vempainAdminFileClient;
 	private final ObjectMapper objectMapper;
+	private final VempainAdminResilience vempainAdminResilience;
 
 	public FileIngestResponse uploadAsSiteFile(File exportedFile, FileIngestRequest fileIngestRequest) {
+		return uploadAsSiteFile(exportedFile, null, fileIngestRequest);
+	}
+
+	/**
+	 * Upload a file as a site file.
+	 *
+	 * @param content Content of the file if it is already in memory, null to stream it from the file
+	 */
+	public FileIngestResponse uploadAsSiteFile(File exportedFile, byte[] content, FileIngestRequest fileIngestRequest) {
 		var multiPartFile = VempainMultipartFile.builder()
 												.path(exportedFile.toPath())
 												.contentType(fileIngestRequest.getMimeType())
+												.content(content)
 												.build();
 		String fileIngestRequestString;
 
@@ -38,7 +50,7 @@ public class VempainAdminService {
 		log.debug("Uploading file {} to Vempain Admin service", exportedFile.getAbsolutePath());
 
 		try {
-			var responseEntity = vempainAdminFileIngestClient.ingest(fileIngestRequestString, multiPartFile);
+			var responseEntity = vempainAdminResilience.upload("ingest", () -> vempainAdminFileIngestClient.ingest(fileIngestRequestString, multiPartFile));
 			if (responseEntity == null || !responseEntity.getStatusCode()
 														 .is2xxSuccessful()) {
 				log.error("File upload to Vempain admin failed with HTTP status {}", responseEntity != null ? responseEntity.getStatusCode() : "null");
@@ -65,7 +77,9 @@ public class VempainAdminService {
 	                                                            String filter,
 	                                                            String filterColumn) {
 		try {
-			var responseEntity = vempainAdminFileClient.getPageableSiteFiles(fileType, pageNumber, pageSize, sortBy, direction, filter, filterColumn);
+			var responseEntity = vempainAdminResilience.call("site-files",
+			                                                  () -> vempainAdminFileClient.getPageableSiteFiles(fileType, pageNumber, pageSize, sortBy,
+			                                                                                                    direction, filter, filterColumn));
 			if (responseEntity == null || !responseEntity.getStatusCode()
 			                                             .is2xxSuccessful()) {
 				HttpStatusCode status = responseEntity != null ? responseEntity.getStatusCode() : null;
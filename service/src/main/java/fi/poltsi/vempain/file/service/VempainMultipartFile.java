@@ -7,11 +7,13 @@ import lombok.Builder;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 @Builder
 @AllArgsConstructor(access = AccessLevel.PACKAGE)
@@ -19,6 +21,8 @@ import java.nio.file.Path;
 public class VempainMultipartFile implements MultipartFile {
 	private Path   path;
 	private String contentType;
+	// Content of the file if already in memory, otherwise the file is read from the path
+	private byte[] content;
 
 	@Nonnull
 	@Override
@@ -39,6 +43,10 @@ public class VempainMultipartFile implements MultipartFile {
 
 	@Override
 	public long getSize() {
+		if (content != null) {
+			return content.length;
+		}
+
 		try {
 			return Files.size(path);
 		} catch (IOException e) {
@@ -54,12 +62,20 @@ public class VempainMultipartFile implements MultipartFile {
 	@Nonnull
 	@Override
 	public byte[] getBytes() throws IOException {
+		if (content != null) {
+			return content;
+		}
+
 		return Files.readAllBytes(path);
 	}
 
 	@Nonnull
 	@Override
 	public InputStream getInputStream() throws IOException {
+		if (content != null) {
+			return new ByteArrayInputStream(content);
+		}
+
 		return Files.newInputStream(path);
 	}
 
@@ -70,6 +86,11 @@ public class VempainMultipartFile implements MultipartFile {
 
 	@Override
 	public void transferTo(@Nonnull Path dest) throws IOException, IllegalStateException {
+		if (content != null) {
+			Files.write(dest, content, StandardOpenOption.CREATE_NEW);
+			return;
+		}
+
 		Files.copy(path, dest);
 	}
 }
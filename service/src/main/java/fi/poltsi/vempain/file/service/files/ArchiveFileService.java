@@ -2,8 +2,11 @@ package fi.poltsi.vempain.file.service.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.ArchiveFileResponse;
 import fi.poltsi.vempain.file.entity.ArchiveFileEntity;
+import fi.poltsi.vempain.file.repository.FileListRepository;
 import fi.poltsi.vempain.file.repository.files.ArchiveFileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class ArchiveFileService {
 
 	private final ArchiveFileRepository archiveFileRepository;
+	private final FileListRepository    fileListRepository;
 
 	@Transactional(readOnly = true)
 	public PagedResponse<ArchiveFileResponse> findAll(PagedRequest pagedRequest) {
@@ -27,7 +31,7 @@ public class ArchiveFileService {
 		var                              sort       = FileSearchHelper.buildSort(pagedRequest.getSortBy(), pagedRequest.getDirection());
 		Specification<ArchiveFileEntity> spec       = FileSearchHelper.buildSpecification(pagedRequest.getSearch(), Boolean.TRUE.equals(pagedRequest.getCaseSensitive()));
 		var                              pageable   = PageRequest.of(safePage, safeSize, sort);
-		var                              pageResult = archiveFileRepository.findAll(spec, pageable);
+		var                              pageResult = fileListRepository.findPage(ArchiveFileEntity.class, spec, pageable);
 		var content = pageResult.getContent()
 								.stream()
 								.map(ArchiveFileEntity::toResponse)
@@ -43,6 +47,11 @@ public class ArchiveFileService {
 		);
 	}
 
+	@Transactional(readOnly = true)
+	public CursorPagedResponse<ArchiveFileResponse> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return FileSearchHelper.findCursorPage(fileListRepository, ArchiveFileEntity.class, cursorPagedRequest, ArchiveFileEntity::toResponse);
+	}
+
 	@Transactional(readOnly = true)
 	public ArchiveFileResponse findById(long id) {
 		var entityOpt = archiveFileRepository.findById(id);
@@ -2,8 +2,11 @@ package fi.poltsi.vempain.file.service.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.AudioFileResponse;
 import fi.poltsi.vempain.file.entity.AudioFileEntity;
+import fi.poltsi.vempain.file.repository.FileListRepository;
 import fi.poltsi.vempain.file.repository.files.AudioFileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class AudioFileService {
 
 	private final AudioFileRepository audioFileRepository;
+	private final FileListRepository  fileListRepository;
 
 	@Transactional(readOnly = true)
 	public PagedResponse<AudioFileResponse> findAll(PagedRequest pagedRequest) {
@@ -27,7 +31,7 @@ public class AudioFileService {
 		var                            sort       = FileSearchHelper.buildSort(pagedRequest.getSortBy(), pagedRequest.getDirection());
 		Specification<AudioFileEntity> spec       = FileSearchHelper.buildSpecification(pagedRequest.getSearch(), Boolean.TRUE.equals(pagedRequest.getCaseSensitive()));
 		var                            pageable   = PageRequest.of(safePage, safeSize, sort);
-		var                            pageResult = audioFileRepository.findAll(spec, pageable);
+		var                            pageResult = fileListRepository.findPage(AudioFileEntity.class, spec, pageable);
 		var content = pageResult.getContent()
 								.stream()
 								.map(AudioFileEntity::toResponse)
@@ -43,6 +47,11 @@ public class AudioFileService {
 		);
 	}
 
+	@Transactional(readOnly = true)
+	public CursorPagedResponse<AudioFileResponse> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return FileSearchHelper.findCursorPage(fileListRepository, AudioFileEntity.class, cursorPagedRequest, AudioFileEntity::toResponse);
+	}
+
 	@Transactional(readOnly = true)
 	public AudioFileResponse findById(long id) {
 		var entityOpt = audioFileRepository.findById(id);
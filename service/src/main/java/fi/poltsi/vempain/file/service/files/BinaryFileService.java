@@ -2,8 +2,11 @@ package fi.poltsi.vempain.file.service.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.BinaryFileResponse;
 import fi.poltsi.vempain.file.entity.BinaryFileEntity;
+import fi.poltsi.vempain.file.repository.FileListRepository;
 import fi.poltsi.vempain.file.repository.files.BinaryFileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class BinaryFileService {
 
 	private final BinaryFileRepository repository;
+	private final FileListRepository   fileListRepository;
 
 	@Transactional(readOnly = true)
 	public PagedResponse<BinaryFileResponse> findAll(PagedRequest pagedRequest) {
@@ -27,7 +31,7 @@ public class BinaryFileService {
 		var                             sort       = FileSearchHelper.buildSort(pagedRequest.getSortBy(), pagedRequest.getDirection());
 		Specification<BinaryFileEntity> spec       = FileSearchHelper.buildSpecification(pagedRequest.getSearch(), Boolean.TRUE.equals(pagedRequest.getCaseSensitive()));
 		var                             pageable   = PageRequest.of(safePage, safeSize, sort);
-		var                             pageResult = repository.findAll(spec, pageable);
+		var                             pageResult = fileListRepository.findPage(BinaryFileEntity.class, spec, pageable);
 		var content = pageResult.getContent()
 		                        .stream()
 		                        .map(BinaryFileEntity::toResponse)
@@ -43,6 +47,11 @@ public class BinaryFileService {
 		);
 	}
 
+	@Transactional(readOnly = true)
+	public CursorPagedResponse<BinaryFileResponse> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return FileSearchHelper.findCursorPage(fileListRepository, BinaryFileEntity.class, cursorPagedRequest, BinaryFileEntity::toResponse);
+	}
+
 	@Transactional(readOnly = true)
 	public BinaryFileResponse findById(long id) {
 		return repository.findById(id)
@@ -2,8 +2,11 @@ package fi.poltsi.vempain.file.service.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.DataFileResponse;
 import fi.poltsi.vempain.file.entity.DataFileEntity;
+import fi.poltsi.vempain.file.repository.FileListRepository;
 import fi.poltsi.vempain.file.repository.files.DataFileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class DataFileService {
 
 	private final DataFileRepository repository;
+	private final FileListRepository fileListRepository;
 
 	@Transactional(readOnly = true)
 	public PagedResponse<DataFileResponse> findAll(PagedRequest pagedRequest) {
@@ -27,7 +31,7 @@ public class DataFileService {
 		var                           sort       = FileSearchHelper.buildSort(pagedRequest.getSortBy(), pagedRequest.getDirection());
 		Specification<DataFileEntity> spec       = FileSearchHelper.buildSpecification(pagedRequest.getSearch(), Boolean.TRUE.equals(pagedRequest.getCaseSensitive()));
 		var                           pageable   = PageRequest.of(safePage, safeSize, sort);
-		var                           pageResult = repository.findAll(spec, pageable);
+		var                           pageResult = fileListRepository.findPage(DataFileEntity.class, spec, pageable);
 		var content = pageResult.getContent()
 		                        .stream()
 		                        .map(DataFileEntity::toResponse)
@@ -43,6 +47,11 @@ public class DataFileService {
 		);
 	}
 
+	@Transactional(readOnly = true)
+	public CursorPagedResponse<DataFileResponse> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return FileSearchHelper.findCursorPage(fileListRepository, DataFileEntity.class, cursorPagedRequest, DataFileEntity::toResponse);
+	}
+
 	@Transactional(readOnly = true)
 	public DataFileResponse findById(long id) {
 		return repository.findById(id)
@@ -2,9 +2,12 @@ package fi.poltsi.vempain.file.service.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.DocumentFileResponse;
 import fi.poltsi.vempain.file.entity.DocumentFileEntity;
 import fi.poltsi.vempain.file.repository.DocumentFileRepository;
+import fi.poltsi.vempain.file.repository.FileListRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
@@ -19,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class DocumentFileService {
 
 	private final DocumentFileRepository documentFileRepository;
+	private final FileListRepository     fileListRepository;
 
 	@Transactional(readOnly = true)
 	public PagedResponse<DocumentFileResponse> findAll(PagedRequest pagedRequest) {
@@ -27,7 +31,7 @@ public class DocumentFileService {
 		var                               sort       = FileSearchHelper.buildSort(pagedRequest.getSortBy(), pagedRequest.getDirection());
 		Specification<DocumentFileEntity> spec       = FileSearchHelper.buildSpecification(pagedRequest.getSearch(), Boolean.TRUE.equals(pagedRequest.getCaseSensitive()));
 		var                               pageable   = PageRequest.of(safePage, safeSize, sort);
-		var                               pageResult = documentFileRepository.findAll(spec, pageable);
+		var                               pageResult = fileListRepository.findPage(DocumentFileEntity.class, spec, pageable);
 		var content = pageResult.getContent()
 								.stream()
 								.map(DocumentFileEntity::toResponse)
@@ -43,6 +47,11 @@ public class DocumentFileService {
 		);
 	}
 
+	@Transactional(readOnly = true)
+	public CursorPagedResponse<DocumentFileResponse> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return FileSearchHelper.findCursorPage(fileListRepository, DocumentFileEntity.class, cursorPagedRequest, DocumentFileEntity::toResponse);
+	}
+
 	@Transactional(readOnly = true)
 	public DocumentFileResponse findById(long id) {
 		var entityOpt = documentFileRepository.findById(id);
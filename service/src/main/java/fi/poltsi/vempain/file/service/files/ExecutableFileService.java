@@ -2,8 +2,11 @@ package fi.poltsi.vempain.file.service.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.ExecutableFileResponse;
 import fi.poltsi.vempain.file.entity.ExecutableFileEntity;
+import fi.poltsi.vempain.file.repository.FileListRepository;
 import fi.poltsi.vempain.file.repository.files.ExecutableFileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class ExecutableFileService {
 
 	private final ExecutableFileRepository repository;
+	private final FileListRepository       fileListRepository;
 
 	@Transactional(readOnly = true)
 	public PagedResponse<ExecutableFileResponse> findAll(PagedRequest pagedRequest) {
@@ -27,7 +31,7 @@ public class ExecutableFileService {
 		var                                 sort       = FileSearchHelper.buildSort(pagedRequest.getSortBy(), pagedRequest.getDirection());
 		Specification<ExecutableFileEntity> spec       = FileSearchHelper.buildSpecification(pagedRequest.getSearch(), Boolean.TRUE.equals(pagedRequest.getCaseSensitive()));
 		var                                 pageable   = PageRequest.of(safePage, safeSize, sort);
-		var                                 pageResult = repository.findAll(spec, pageable);
+		var                                 pageResult = fileListRepository.findPage(ExecutableFileEntity.class, spec, pageable);
 		var content = pageResult.getContent()
 		                        .stream()
 		                        .map(ExecutableFileEntity::toResponse)
@@ -43,6 +47,11 @@ public class ExecutableFileService {
 		);
 	}
 
+	@Transactional(readOnly = true)
+	public CursorPagedResponse<ExecutableFileResponse> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return FileSearchHelper.findCursorPage(fileListRepository, ExecutableFileEntity.class, cursorPagedRequest, ExecutableFileEntity::toResponse);
+	}
+
 	@Transactional(readOnly = true)
 	public ExecutableFileResponse findById(long id) {
 		return repository.findById(id)
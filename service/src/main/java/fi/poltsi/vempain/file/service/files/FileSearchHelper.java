@@ -1,12 +1,23 @@
 package fi.poltsi.vempain.file.service.files;
 
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.entity.FileEntity;
+import fi.poltsi.vempain.file.repository.FileListRepository;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -25,6 +36,8 @@ public final class FileSearchHelper {
 	 * Builds a JPA Specification that performs a multi-token LIKE search across
 	 * filename, filePath, description, and mimetype fields inherited from FileEntity.
 	 * Each token must match at least one of those fields (AND between tokens, OR between fields).
+	 * The fields are always matched lowered, which the trigram indexes on the lowered fields can serve;
+	 * a case-sensitive search additionally matches the field as is.
 	 *
 	 * @param search        raw search string (may be null or blank)
 	 * @param caseSensitive whether the search should be case-sensitive
@@ -39,14 +52,16 @@ public final class FileSearchHelper {
 		return (root, query, cb) -> {
 			List<Predicate> andPredicates = new ArrayList<>();
 			for (String token : tokens) {
-				String          pattern      = "%" + (caseSensitive ? token : token.toLowerCase()) + "%";
+				String          lowerPattern = "%" + token.toLowerCase() + "%";
+				String          pattern      = "%" + token + "%";
 				List<Predicate> orPredicates = new ArrayList<>();
 				for (String field : List.of("filename", "filePath", "description", "mimetype")) {
-					var path = root.<String>get(field);
+					var path      = root.<String>get(field);
+					var lowerLike = cb.like(cb.lower(path), lowerPattern);
 					if (caseSensitive) {
-						orPredicates.add(cb.like(path, pattern));
+						orPredicates.add(cb.and(lowerLike, cb.like(path, pattern)));
 					} else {
-						orPredicates.add(cb.like(cb.lower(path), pattern));
+						orPredicates.add(lowerLike);
 					}
 				}
 				andPredicates.add(cb.or(orPredicates.toArray(new Predicate[0])));
@@ -61,7 +76,58 @@ public final class FileSearchHelper {
 	 * Defaults to filename ASC.
 	 */
 	public static Sort buildSort(String sortBy, Sort.Direction direction) {
-		String property = switch (sortBy == null ? "" : sortBy.toLowerCase()) {
+		return Sort.by(directionOf(direction), sortProperty(sortBy));
+	}
+
+	/**
+	 * Fetches one page of a cursor paged listing. Instead of skipping the rows of the earlier pages like an offset does, the page
+	 * starts after the sort key and id of the last file of the previous page, which the cursor carries. With an index on the sort
+	 * key and id, each page costs the same however deep into the listing it is. The files are sorted by id within equal sort keys,
+	 * so that no file is skipped or repeated between the pages. The matching files are only counted when requested.
+	 * Only the sort fields which cannot be null can be used, as null sort keys cannot be compared.
+	 *
+	 * @param fileListRepository loads the listed columns of the files
+	 * @param type               entity class of the file type
+	 * @param request            cursor paged request
+	 * @param mapper             converts the entities to the response items
+	 * @return Page of the listing with the cursor for the next page
+	 */
+	public static <T extends FileEntity, R> CursorPagedResponse<R> findCursorPage(FileListRepository fileListRepository, Class<T> type,
+																				 CursorPagedRequest request, Function<T, R> mapper) {
+		var        size      = Math.min(Math.max(request.getSize(), 1), 200);
+		FileCursor position  = request.getCursor() == null || request.getCursor()
+																	 .isBlank() ? null : decodeCursor(request.getCursor());
+		var        key       = position != null ? position.key() : KeysetKey.of(sortProperty(request.getSortBy()));
+		var        direction = position != null ? position.direction() : directionOf(request.getDirection());
+
+		Specification<T> search = buildSpecification(request.getSearch(), Boolean.TRUE.equals(request.getCaseSensitive()));
+		Specification<T> spec   = position == null ? search : search == null ? after(position) : search.and(after(position));
+		var              sort   = key == KeysetKey.ID ? Sort.by(direction, "id") : Sort.by(direction, key.property, "id");
+
+		// One more than the page size tells whether there is a next page without counting
+		List<T> rows       = fileListRepository.findList(type, spec, sort, 0, size + 1);
+		var     hasNext    = rows.size() > size;
+		var     page       = hasNext ? rows.subList(0, size) : rows;
+		var     last       = page.isEmpty() ? null : page.getLast();
+		var     nextCursor = hasNext ? encodeCursor(new FileCursor(key, direction, key.valueOf(last), last.getId())) : null;
+
+		return CursorPagedResponse.<R>builder()
+								  .content(page.stream()
+											   .map(mapper)
+											   .toList())
+								  .size(size)
+								  .hasNext(hasNext)
+								  .nextCursor(nextCursor)
+								  .totalElements(request.isIncludeTotal() ? fileListRepository.count(type, search) : null)
+								  .build();
+	}
+
+	private static Sort.Direction directionOf(Sort.Direction direction) {
+		return direction == null ? Sort.Direction.ASC : direction;
+	}
+
+	private static String sortProperty(String sortBy) {
+		return switch (sortBy == null ? "" : sortBy.toLowerCase()) {
 			case "id" -> "id";
 			case "filename" -> "filename";
 			case "filepath", "file_path" -> "filePath";
@@ -72,8 +138,106 @@ public final class FileSearchHelper {
 			case "modified" -> "modified";
 			default -> "filename";
 		};
-		Sort.Direction dir = direction == null ? Sort.Direction.ASC : direction;
-		return Sort.by(dir, property);
+	}
+
+	/**
+	 * Matches the files after the cursor position in the sort order. The inclusive bound on the sort key alone is redundant, it
+	 * lets the database start the index scan at the position.
+	 */
+	private static <T extends FileEntity> Specification<T> after(FileCursor position) {
+		return (root, query, cb) -> {
+			var        descending = position.direction()
+											.isDescending();
+			Path<Long> id         = root.get("id");
+			var        idAfter    = descending ? cb.lessThan(id, position.id()) : cb.greaterThan(id, position.id());
+
+			if (position.key() == KeysetKey.ID) {
+				return idAfter;
+			}
+
+			Path<Comparable<Object>> sortKey = root.get(position.key().property);
+			var                      value   = position.value();
+			return cb.and(compare(cb, sortKey, value, descending, true),
+						  cb.or(compare(cb, sortKey, value, descending, false), cb.and(cb.equal(sortKey, value), idAfter)));
+		};
+	}
+
+	private static Predicate compare(CriteriaBuilder cb, Path<Comparable<Object>> path, Comparable<Object> value, boolean descending, boolean inclusive) {
+		if (descending) {
+			return inclusive ? cb.lessThanOrEqualTo(path, value) : cb.lessThan(path, value);
+		}
+
+		return inclusive ? cb.greaterThanOrEqualTo(path, value) : cb.greaterThan(path, value);
+	}
+
+	static String encodeCursor(FileCursor position) {
+		var raw = position.key().property + "\n" + position.direction() + "\n" + position.id() + "\n" + position.value();
+		return Base64.getUrlEncoder()
+					 .withoutPadding()
+					 .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	static FileCursor decodeCursor(String cursor) {
+		try {
+			var raw   = new String(Base64.getUrlDecoder()
+										 .decode(cursor), StandardCharsets.UTF_8);
+			// The sort key comes last as it may contain the separator
+			var parts = raw.split("\n", 4);
+			var key   = KeysetKey.of(parts[0]);
+			return new FileCursor(key, Sort.Direction.fromString(parts[1]), key.parse(parts[3]), Long.parseLong(parts[2]));
+		} catch (ResponseStatusException e) {
+			throw e;
+		} catch (RuntimeException e) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+		}
+	}
+
+	/**
+	 * Position of a cursor paged listing: the sort key and id of the last file of the previous page.
+	 */
+	record FileCursor(KeysetKey key, Sort.Direction direction, Comparable<Object> value, long id) {
+	}
+
+	/**
+	 * The sort fields usable with a cursor, with the conversions of their values to and from the cursor.
+	 */
+	@SuppressWarnings("unchecked")
+	enum KeysetKey {
+		ID("id", FileEntity::getId, Long::valueOf),
+		FILENAME("filename", FileEntity::getFilename, value -> value),
+		FILE_PATH("filePath", FileEntity::getFilePath, value -> value),
+		MIMETYPE("mimetype", FileEntity::getMimetype, value -> value),
+		FILESIZE("filesize", FileEntity::getFilesize, Long::valueOf),
+		CREATED("created", FileEntity::getCreated, Instant::parse);
+
+		private final String                              property;
+		private final Function<FileEntity, Comparable<?>> getter;
+		private final Function<String, Comparable<?>>     parser;
+
+		KeysetKey(String property, Function<FileEntity, Comparable<?>> getter, Function<String, Comparable<?>> parser) {
+			this.property = property;
+			this.getter   = getter;
+			this.parser   = parser;
+		}
+
+		static KeysetKey of(String property) {
+			for (var key : values()) {
+				if (key.property.equals(property)) {
+					return key;
+				}
+			}
+
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor paging cannot sort by " + property
+																	  + ", use id, filename, file_path, mimetype, filesize or created");
+		}
+
+		Comparable<Object> valueOf(FileEntity entity) {
+			return (Comparable<Object>) getter.apply(entity);
+		}
+
+		Comparable<Object> parse(String value) {
+			return (Comparable<Object>) parser.apply(value);
+		}
 	}
 
 	private static List<String> tokenize(String search) {
@@ -2,8 +2,11 @@ package fi.poltsi.vempain.file.service.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.FontFileResponse;
 import fi.poltsi.vempain.file.entity.FontFileEntity;
+import fi.poltsi.vempain.file.repository.FileListRepository;
 import fi.poltsi.vempain.file.repository.files.FontFileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class FontFileService {
 
 	private final FontFileRepository fontFileRepository;
+	private final FileListRepository fileListRepository;
 
 	@Transactional(readOnly = true)
 	public PagedResponse<FontFileResponse> findAll(PagedRequest pagedRequest) {
@@ -27,7 +31,7 @@ public class FontFileService {
 		var                           sort       = FileSearchHelper.buildSort(pagedRequest.getSortBy(), pagedRequest.getDirection());
 		Specification<FontFileEntity> spec       = FileSearchHelper.buildSpecification(pagedRequest.getSearch(), Boolean.TRUE.equals(pagedRequest.getCaseSensitive()));
 		var                           pageable   = PageRequest.of(safePage, safeSize, sort);
-		var                           pageResult = fontFileRepository.findAll(spec, pageable);
+		var                           pageResult = fileListRepository.findPage(FontFileEntity.class, spec, pageable);
 		var content = pageResult.getContent()
 								.stream()
 								.map(FontFileEntity::toResponse)
@@ -43,6 +47,11 @@ public class FontFileService {
 		);
 	}
 
+	@Transactional(readOnly = true)
+	public CursorPagedResponse<FontFileResponse> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return FileSearchHelper.findCursorPage(fileListRepository, FontFileEntity.class, cursorPagedRequest, FontFileEntity::toResponse);
+	}
+
 	@Transactional(readOnly = true)
 	public FontFileResponse findById(long id) {
 		var entityOpt = fontFileRepository.findById(id);
@@ -2,8 +2,11 @@ package fi.poltsi.vempain.file.service.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.IconFileResponse;
 import fi.poltsi.vempain.file.entity.IconFileEntity;
+import fi.poltsi.vempain.file.repository.FileListRepository;
 import fi.poltsi.vempain.file.repository.files.IconFileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class IconFileService {
 
 	private final IconFileRepository iconFileRepository;
+	private final FileListRepository fileListRepository;
 
 	@Transactional(readOnly = true)
 	public PagedResponse<IconFileResponse> findAll(PagedRequest pagedRequest) {
@@ -27,7 +31,7 @@ public class IconFileService {
 		var                           sort       = FileSearchHelper.buildSort(pagedRequest.getSortBy(), pagedRequest.getDirection());
 		Specification<IconFileEntity> spec       = FileSearchHelper.buildSpecification(pagedRequest.getSearch(), Boolean.TRUE.equals(pagedRequest.getCaseSensitive()));
 		var                           pageable   = PageRequest.of(safePage, safeSize, sort);
-		var                           pageResult = iconFileRepository.findAll(spec, pageable);
+		var                           pageResult = fileListRepository.findPage(IconFileEntity.class, spec, pageable);
 		var content = pageResult.getContent()
 								.stream()
 								.map(IconFileEntity::toResponse)
@@ -43,6 +47,11 @@ public class IconFileService {
 		);
 	}
 
+	@Transactional(readOnly = true)
+	public CursorPagedResponse<IconFileResponse> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return FileSearchHelper.findCursorPage(fileListRepository, IconFileEntity.class, cursorPagedRequest, IconFileEntity::toResponse);
+	}
+
 	@Transactional(readOnly = true)
 	public IconFileResponse findById(long id) {
 		var entityOpt = iconFileRepository.findById(id);
@@ -2,8 +2,11 @@ package fi.poltsi.vempain.file.service.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.ImageFileResponse;
 import fi.poltsi.vempain.file.entity.ImageFileEntity;
+import fi.poltsi.vempain.file.repository.FileListRepository;
 import fi.poltsi.vempain.file.repository.files.ImageFileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class ImageFileService {
 
 	private final ImageFileRepository imageFileRepository;
+	private final FileListRepository  fileListRepository;
 
 	@Transactional(readOnly = true)
 	public PagedResponse<ImageFileResponse> findAll(PagedRequest pagedRequest) {
@@ -27,7 +31,7 @@ public class ImageFileService {
 		var                            sort       = FileSearchHelper.buildSort(pagedRequest.getSortBy(), pagedRequest.getDirection());
 		Specification<ImageFileEntity> spec       = FileSearchHelper.buildSpecification(pagedRequest.getSearch(), Boolean.TRUE.equals(pagedRequest.getCaseSensitive()));
 		var pageable = PageRequest.of(safePage, safeSize, sort);
-		var                            pageResult = imageFileRepository.findAll(spec, pageable);
+		var                            pageResult = fileListRepository.findPage(ImageFileEntity.class, spec, pageable);
 		var content = pageResult.getContent()
 								.stream()
 								.map(ImageFileEntity::toResponse)
@@ -43,6 +47,11 @@ public class ImageFileService {
 		);
 	}
 
+	@Transactional(readOnly = true)
+	public CursorPagedResponse<ImageFileResponse> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return FileSearchHelper.findCursorPage(fileListRepository, ImageFileEntity.class, cursorPagedRequest, ImageFileEntity::toResponse);
+	}
+
 
 	@Transactional(readOnly = true)
 	public ImageFileResponse findById(long id) {
@@ -2,8 +2,11 @@ package fi.poltsi.vempain.file.service.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.InteractiveFileResponse;
 import fi.poltsi.vempain.file.entity.InteractiveFileEntity;
+import fi.poltsi.vempain.file.repository.FileListRepository;
 import fi.poltsi.vempain.file.repository.files.InteractiveFileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class InteractiveFileService {
 
 	private final InteractiveFileRepository repository;
+	private final FileListRepository        fileListRepository;
 
 	@Transactional(readOnly = true)
 	public PagedResponse<InteractiveFileResponse> findAll(PagedRequest pagedRequest) {
@@ -27,7 +31,7 @@ public class InteractiveFileService {
 		var                                  sort       = FileSearchHelper.buildSort(pagedRequest.getSortBy(), pagedRequest.getDirection());
 		Specification<InteractiveFileEntity> spec       = FileSearchHelper.buildSpecification(pagedRequest.getSearch(), Boolean.TRUE.equals(pagedRequest.getCaseSensitive()));
 		var                                  pageable   = PageRequest.of(safePage, safeSize, sort);
-		var                                  pageResult = repository.findAll(spec, pageable);
+		var                                  pageResult = fileListRepository.findPage(InteractiveFileEntity.class, spec, pageable);
 		var content = pageResult.getContent()
 		                        .stream()
 		                        .map(InteractiveFileEntity::toResponse)
@@ -43,6 +47,11 @@ public class InteractiveFileService {
 		);
 	}
 
+	@Transactional(readOnly = true)
+	public CursorPagedResponse<InteractiveFileResponse> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return FileSearchHelper.findCursorPage(fileListRepository, InteractiveFileEntity.class, cursorPagedRequest, InteractiveFileEntity::toResponse);
+	}
+
 	@Transactional(readOnly = true)
 	public InteractiveFileResponse findById(long id) {
 		return repository.findById(id)
@@ -2,8 +2,11 @@ package fi.poltsi.vempain.file.service.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.MusicFileResponse;
 import fi.poltsi.vempain.file.entity.MusicFileEntity;
+import fi.poltsi.vempain.file.repository.FileListRepository;
 import fi.poltsi.vempain.file.repository.files.MusicFileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -21,6 +24,7 @@ import java.util.List;
 public class MusicFileService {
 
 	private final MusicFileRepository musicFileRepository;
+	private final FileListRepository  fileListRepository;
 
 	@Transactional(readOnly = true)
 	public PagedResponse<MusicFileResponse> findAll(PagedRequest pagedRequest) {
@@ -29,7 +33,7 @@ public class MusicFileService {
 		var                           sort       = FileSearchHelper.buildSort(pagedRequest.getSortBy(), pagedRequest.getDirection());
 		Specification<MusicFileEntity> spec      = FileSearchHelper.buildSpecification(pagedRequest.getSearch(), Boolean.TRUE.equals(pagedRequest.getCaseSensitive()));
 		var                           pageable   = PageRequest.of(safePage, safeSize, sort);
-		var                           pageResult = musicFileRepository.findAll(spec, pageable);
+		var                           pageResult = fileListRepository.findPage(MusicFileEntity.class, spec, pageable);
 		var content = pageResult.getContent()
 								.stream()
 								.map(MusicFileEntity::toResponse)
@@ -45,6 +49,11 @@ public class MusicFileService {
 		);
 	}
 
+	@Transactional(readOnly = true)
+	public CursorPagedResponse<MusicFileResponse> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return FileSearchHelper.findCursorPage(fileListRepository, MusicFileEntity.class, cursorPagedRequest, MusicFileEntity::toResponse);
+	}
+
 	@Transactional(readOnly = true)
 	public MusicFileResponse findById(long id) {
 		var entityOpt = musicFileRepository.findById(id);
@@ -2,8 +2,11 @@ package fi.poltsi.vempain.file.service.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.ThumbFileResponse;
 import fi.poltsi.vempain.file.entity.ThumbFileEntity;
+import fi.poltsi.vempain.file.repository.FileListRepository;
 import fi.poltsi.vempain.file.repository.files.ThumbFileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class ThumbFileService {
 
 	private final ThumbFileRepository repository;
+	private final FileListRepository  fileListRepository;
 
 	@Transactional(readOnly = true)
 	public PagedResponse<ThumbFileResponse> findAll(PagedRequest pagedRequest) {
@@ -27,7 +31,7 @@ public class ThumbFileService {
 		var                            sort       = FileSearchHelper.buildSort(pagedRequest.getSortBy(), pagedRequest.getDirection());
 		Specification<ThumbFileEntity> spec       = FileSearchHelper.buildSpecification(pagedRequest.getSearch(), Boolean.TRUE.equals(pagedRequest.getCaseSensitive()));
 		var                            pageable   = PageRequest.of(safePage, safeSize, sort);
-		var                            pageResult = repository.findAll(spec, pageable);
+		var                            pageResult = fileListRepository.findPage(ThumbFileEntity.class, spec, pageable);
 		var content = pageResult.getContent()
 		                        .stream()
 		                        .map(ThumbFileEntity::toResponse)
@@ -43,6 +47,11 @@ public class ThumbFileService {
 		);
 	}
 
+	@Transactional(readOnly = true)
+	public CursorPagedResponse<ThumbFileResponse> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return FileSearchHelper.findCursorPage(fileListRepository, ThumbFileEntity.class, cursorPagedRequest, ThumbFileEntity::toResponse);
+	}
+
 	@Transactional(readOnly = true)
 	public ThumbFileResponse findById(long id) {
 		return repository.findById(id)
@@ -2,8 +2,11 @@ package fi.poltsi.vempain.file.service.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.VectorFileResponse;
 import fi.poltsi.vempain.file.entity.VectorFileEntity;
+import fi.poltsi.vempain.file.repository.FileListRepository;
 import fi.poltsi.vempain.file.repository.files.VectorFileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class VectorFileService {
 
 	private final VectorFileRepository vectorFileRepository;
+	private final FileListRepository   fileListRepository;
 
 	@Transactional(readOnly = true)
 	public PagedResponse<VectorFileResponse> findAll(PagedRequest pagedRequest) {
@@ -27,7 +31,7 @@ public class VectorFileService {
 		var                             sort       = FileSearchHelper.buildSort(pagedRequest.getSortBy(), pagedRequest.getDirection());
 		Specification<VectorFileEntity> spec       = FileSearchHelper.buildSpecification(pagedRequest.getSearch(), Boolean.TRUE.equals(pagedRequest.getCaseSensitive()));
 		var                             pageable   = PageRequest.of(safePage, safeSize, sort);
-		var                             pageResult = vectorFileRepository.findAll(spec, pageable);
+		var                             pageResult = fileListRepository.findPage(VectorFileEntity.class, spec, pageable);
 		var content = pageResult.getContent()
 								.stream()
 								.map(VectorFileEntity::toResponse)
@@ -43,6 +47,11 @@ public class VectorFileService {
 		);
 	}
 
+	@Transactional(readOnly = true)
+	public CursorPagedResponse<VectorFileResponse> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return FileSearchHelper.findCursorPage(fileListRepository, VectorFileEntity.class, cursorPagedRequest, VectorFileEntity::toResponse);
+	}
+
 	@Transactional(readOnly = true)
 	public VectorFileResponse findById(long id) {
 		var entityOpt = vectorFileRepository.findById(id);
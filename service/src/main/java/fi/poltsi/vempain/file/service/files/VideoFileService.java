@@ -2,8 +2,11 @@ package fi.poltsi.vempain.file.service.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.auth.api.response.PagedResponse;
+import fi.poltsi.vempain.file.api.request.CursorPagedRequest;
+import fi.poltsi.vempain.file.api.response.CursorPagedResponse;
 import fi.poltsi.vempain.file.api.response.files.VideoFileResponse;
 import fi.poltsi.vempain.file.entity.VideoFileEntity;
+import fi.poltsi.vempain.file.repository.FileListRepository;
 import fi.poltsi.vempain.file.repository.files.VideoFileRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +22,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class VideoFileService {
 
 	private final VideoFileRepository videoFileRepository;
+	private final FileListRepository  fileListRepository;
 
 	@Transactional(readOnly = true)
 	public PagedResponse<VideoFileResponse> findAll(PagedRequest pagedRequest) {
@@ -27,7 +31,7 @@ public class VideoFileService {
 		var                            sort       = FileSearchHelper.buildSort(pagedRequest.getSortBy(), pagedRequest.getDirection());
 		Specification<VideoFileEntity> spec       = FileSearchHelper.buildSpecification(pagedRequest.getSearch(), Boolean.TRUE.equals(pagedRequest.getCaseSensitive()));
 		var                            pageable   = PageRequest.of(safePage, safeSize, sort);
-		var                            pageResult = videoFileRepository.findAll(spec, pageable);
+		var                            pageResult = fileListRepository.findPage(VideoFileEntity.class, spec, pageable);
 		var content = pageResult.getContent()
 								.stream()
 								.map(VideoFileEntity::toResponse)
@@ -43,6 +47,11 @@ public class VideoFileService {
 		);
 	}
 
+	@Transactional(readOnly = true)
+	public CursorPagedResponse<VideoFileResponse> findAllByCursor(CursorPagedRequest cursorPagedRequest) {
+		return FileSearchHelper.findCursorPage(fileListRepository, VideoFileEntity.class, cursorPagedRequest, VideoFileEntity::toResponse);
+	}
+
 	@Transactional(readOnly = true)
 	public VideoFileResponse findById(long id) {
 		var entityOpt = videoFileRepository.findById(id);
@@ -0,0 +1,236 @@
+package fi.poltsi.vempain.file.tools;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bookkeeping of an on-disk cache kept under a size limit by evicting the least recently used entries. An entry is one or more
+ * files, the first of which carries the recency of the entry as its modification time so that it survives a restart. The files are
+ * written by the caller and handed over with {@link #put(String, List)}.
+ *
+ * <p>An entry is pinned for as long as a {@link Lease} on it is open, and a pinned entry is never deleted: it is skipped by the
+ * eviction, and an entry discarded while pinned is deleted when its last lease is closed. The cache may therefore go over its limit
+ * for as long as the entries which should be evicted are in use.</p>
+ */
+@Slf4j
+public class DiskLruCache {
+	private final String name;
+	private final long   maxBytes;
+
+	// Cache key and its entry in least recently used order
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private       long                         totalBytes;
+
+	/**
+	 * @param name     Name of the cache used in the log
+	 * @param maxBytes Size limit of the cache
+	 */
+	public DiskLruCache(String name, long maxBytes) {
+		this.name     = name;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Pin a cached entry and mark it as used.
+	 *
+	 * @return Lease on the entry which the caller must close once it no longer reads the files, null if the key is not cached
+	 */
+	public Lease acquire(String key) {
+		Entry entry;
+
+		synchronized (entries) {
+			// Also moves the entry to the most recently used end
+			entry = entries.get(key);
+
+			if (entry == null) {
+				return null;
+			}
+
+			entry.pins++;
+		}
+
+		var lease = new Lease(entry);
+
+		try {
+			Files.setLastModifiedTime(entry.files.getFirst(), FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			log.warn("Dropping missing entry {} from the {} cache", entry.files.getFirst(), name);
+			lease.discard();
+			return null;
+		}
+
+		return lease;
+	}
+
+	/**
+	 * Add the files of a new entry, replacing the entry of the same key. The files must already be in their place.
+	 *
+	 * @return Lease on the new entry, so that it is not evicted before the caller has used it
+	 */
+	public Lease put(String key, List<Path> files) throws IOException {
+		var bytes = 0L;
+
+		for (var file : files) {
+			bytes += Files.size(file);
+		}
+
+		var entry = new Entry(key, List.copyOf(files), bytes);
+		entry.pins = 1;
+		List<Entry> evicted;
+
+		synchronized (entries) {
+			// The files of a replaced entry are the files of the new one, they are not deleted
+			var previous = entries.put(key, entry);
+
+			if (previous != null) {
+				totalBytes -= previous.bytes;
+			}
+
+			totalBytes += bytes;
+			evicted = evictOverLimit();
+		}
+
+		deleteFiles(evicted);
+		return new Lease(entry);
+	}
+
+	/**
+	 * Add an entry found on disk, e.g. when the cache is loaded at startup.
+	 */
+	public void load(String key, List<Path> files) throws IOException {
+		put(key, files).close();
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long totalBytes() {
+		synchronized (entries) {
+			return totalBytes;
+		}
+	}
+
+	/**
+	 * Remove the least recently used entries which are not in use until the cache is under its limit.
+	 *
+	 * @return Evicted entries whose files are to be deleted outside the lock
+	 */
+	private List<Entry> evictOverLimit() {
+		var evicted  = new ArrayList<Entry>();
+		var iterator = entries.values()
+							  .iterator();
+
+		while (totalBytes > maxBytes && iterator.hasNext()) {
+			var eldest = iterator.next();
+
+			if (eldest.pins > 0) {
+				continue;
+			}
+
+			iterator.remove();
+			totalBytes -= eldest.bytes;
+			evicted.add(eldest);
+		}
+
+		return evicted;
+	}
+
+	private void release(Entry entry, boolean discard) {
+		var toDelete = new ArrayList<Entry>();
+
+		synchronized (entries) {
+			entry.pins--;
+
+			if (discard && entries.remove(entry.key, entry)) {
+				totalBytes -= entry.bytes;
+				entry.discarded = true;
+			}
+
+			if (entry.pins == 0) {
+				// Unless a new entry of the same key has taken over the files meanwhile
+				if (entry.discarded && !entries.containsKey(entry.key)) {
+					toDelete.add(entry);
+				}
+
+				toDelete.addAll(evictOverLimit());
+			}
+		}
+
+		deleteFiles(toDelete);
+	}
+
+	private void deleteFiles(List<Entry> deleted) {
+		for (var entry : deleted) {
+			// In reverse order, without the first file the others are no longer a valid entry
+			for (var file : entry.files.reversed()) {
+				try {
+					Files.deleteIfExists(file);
+				} catch (IOException e) {
+					log.warn("Failed to delete {} from the {} cache", file, name, e);
+				}
+			}
+		}
+
+		if (!deleted.isEmpty()) {
+			log.debug("Deleted {} entries from the {} cache", deleted.size(), name);
+		}
+	}
+
+	/**
+	 * Pin on a cache entry, the files of the entry are not deleted until it is closed.
+	 */
+	public final class Lease implements AutoCloseable {
+		private final Entry         entry;
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		private Lease(Entry entry) {
+			this.entry = entry;
+		}
+
+		public List<Path> files() {
+			return entry.files;
+		}
+
+		/**
+		 * Drop a broken entry from the cache. Its files are deleted once no other lease is using them.
+		 */
+		public void discard() {
+			if (closed.compareAndSet(false, true)) {
+				release(entry, true);
+			}
+		}
+
+		@Override
+		public void close() {
+			if (closed.compareAndSet(false, true)) {
+				release(entry, false);
+			}
+		}
+	}
+
+	private static final class Entry {
+		private final String     key;
+		private final List<Path> files;
+		private final long       bytes;
+		// Guarded by the entries map
+		private       int        pins;
+		private       boolean    discarded;
+
+		private Entry(String key, List<Path> files, long bytes) {
+			this.key   = key;
+			this.files = files;
+			this.bytes = bytes;
+		}
+	}
+}
@@ -0,0 +1,286 @@
+package fi.poltsi.vempain.file.tools;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+/**
+ * Pool of long-lived {@code exiftool -stay_open True -@ -} processes. Each worker reads its arguments one per line from stdin and
+ * answers a request once it receives {@code -executeN}, terminating the output with {@code {readyN}}. A persistent exiftool has no
+ * exit code per request, so every request also asks exiftool to echo its exit status as the last line before the ready-marker.
+ * Workers are started lazily, handed out to one caller at a time and restarted when they die or exceed the request timeout.
+ */
+@Slf4j
+@Component
+public class ExifToolPool {
+
+	private static final String  EXIFTOOL_COMMAND = "exiftool";
+	private static final String  STATUS_ECHO      = "{status${status}}";
+	private static final Pattern STATUS_LINE      = Pattern.compile("\\{status(\\d+)}");
+
+	@Value("${vempain.exiftool.pool-size:4}")
+	private int poolSize;
+
+	@Value("${vempain.exiftool.request-timeout-seconds:120}")
+	private long requestTimeoutSeconds;
+
+	private List<String> command = List.of(EXIFTOOL_COMMAND, "-stay_open", "True", "-@", "-");
+
+	private BlockingQueue<Worker> availableWorkers;
+	private List<Worker>          allWorkers;
+	private ExecutorService       readerExecutor;
+	private volatile boolean      shutdown = false;
+
+	@PostConstruct
+	public void init() {
+		var size = Math.max(1, poolSize);
+		availableWorkers = new ArrayBlockingQueue<>(size);
+		allWorkers       = new ArrayList<>(size);
+		readerExecutor   = Executors.newVirtualThreadPerTaskExecutor();
+
+		for (int i = 0; i < size; i++) {
+			var worker = new Worker(i);
+			allWorkers.add(worker);
+			availableWorkers.add(worker);
+		}
+
+		log.info("Initialized exiftool pool with {} workers, request timeout {} seconds", size, requestTimeoutSeconds);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		shutdown = true;
+
+		for (var worker : allWorkers) {
+			worker.stop();
+		}
+
+		readerExecutor.shutdownNow();
+		log.info("Exiftool pool shut down");
+	}
+
+	public String extractMetadataJson(File file) throws IOException {
+		return MetadataTool.extractMetadataJson(this::execute, file);
+	}
+
+	public JSONObject extractMetadataJsonObject(File file) throws IOException {
+		return MetadataTool.extractMetadataJsonObject(this::execute, file);
+	}
+
+	public void copyMetadata(File sourceFile, File destinationFile) throws IOException {
+		MetadataTool.copyMetadata(this::execute, sourceFile, destinationFile);
+	}
+
+	public void writeMetadataFromJson(File file, String metadataJson) {
+		MetadataTool.writeMetadataFromJson(this::execute, file, metadataJson);
+	}
+
+	/**
+	 * Run a single exiftool request on one of the pooled workers.
+	 *
+	 * @param arguments exiftool arguments, one per element, including the file path(s)
+	 * @return Standard output of the request without the status line and the ready-marker, and whether exiftool reported a failure
+	 * @throws IOException if the worker failed, timed out or the pool has been shut down
+	 */
+	MetadataTool.ExifToolResult execute(List<String> arguments) throws IOException {
+		if (shutdown) {
+			throw new IOException("Exiftool pool has been shut down");
+		}
+
+		Worker worker;
+
+		try {
+			worker = availableWorkers.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				  .interrupt();
+			throw new IOException("Interrupted while waiting for an exiftool worker", e);
+		}
+
+		try {
+			return worker.execute(arguments, Duration.ofSeconds(requestTimeoutSeconds));
+		} finally {
+			availableWorkers.add(worker);
+		}
+	}
+
+	private class Worker {
+		private final int id;
+
+		private Process        process;
+		private BufferedWriter stdin;
+		private BufferedReader stdout;
+		private long           requestCounter = 0L;
+
+		Worker(int id) {
+			this.id = id;
+		}
+
+		MetadataTool.ExifToolResult execute(List<String> arguments, Duration timeout) throws IOException {
+			ensureRunning();
+			var requestId = ++requestCounter;
+
+			try {
+				for (var argument : arguments) {
+					if (argument.indexOf('\n') >= 0) {
+						throw new IOException("Exiftool argument may not contain a line break: " + argument);
+					}
+
+					stdin.write(argument);
+					stdin.newLine();
+				}
+
+				stdin.write("-echo3");
+				stdin.newLine();
+				stdin.write(STATUS_ECHO);
+				stdin.newLine();
+				stdin.write("-execute" + requestId);
+				stdin.newLine();
+				stdin.flush();
+			} catch (IOException e) {
+				log.warn("Exiftool worker {} failed to receive request, restarting it", id, e);
+				stop();
+				throw e;
+			}
+
+			var readyMarker = "{ready" + requestId + "}";
+			// The reader gets the stream of this process, a reader left behind by a timeout can not read from a restarted process
+			var output      = stdout;
+			var future      = readerExecutor.submit(() -> readUntil(output, readyMarker));
+
+			try {
+				return toResult(future.get(timeout.toMillis(), TimeUnit.MILLISECONDS));
+			} catch (TimeoutException e) {
+				log.error("Exiftool worker {} did not answer within {} seconds, restarting it. Arguments: {}", id, timeout.toSeconds(), arguments);
+				future.cancel(true);
+				stop();
+				throw new IOException("Exiftool request timed out", e);
+			} catch (ExecutionException e) {
+				log.warn("Exiftool worker {} failed while reading response, restarting it", id, e.getCause());
+				stop();
+				throw new IOException("Exiftool request failed", e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+					  .interrupt();
+				future.cancel(true);
+				stop();
+				throw new IOException("Interrupted while waiting for exiftool response", e);
+			}
+		}
+
+		/**
+		 * Split the echoed exit status from the end of the output. An output without the status line is taken as a failure, as
+		 * exiftool did not confirm that it completed the request.
+		 */
+		private MetadataTool.ExifToolResult toResult(String output) {
+			var end        = output.endsWith("\n") ? output.length() - 1 : output.length();
+			var lineStart  = output.lastIndexOf('\n', end - 1) + 1;
+			var statusLine = output.substring(lineStart, end);
+			var matcher    = STATUS_LINE.matcher(statusLine.trim());
+
+			if (!matcher.matches()) {
+				log.warn("Exiftool worker {} did not report the exit status of the request", id);
+				return new MetadataTool.ExifToolResult(output, true);
+			}
+
+			var failed = !"0".equals(matcher.group(1));
+			return new MetadataTool.ExifToolResult(output.substring(0, lineStart), failed);
+		}
+
+		private String readUntil(BufferedReader output, String readyMarker) throws IOException {
+			var    response = new StringBuilder();
+			String line;
+
+			while ((line = output.readLine()) != null) {
+				if (line.trim()
+						.equals(readyMarker)) {
+					return response.toString();
+				}
+
+				response.append(line)
+						.append('\n');
+			}
+
+			throw new IOException("Exiftool process ended before answering the request");
+		}
+
+		private void ensureRunning() throws IOException {
+			if (process != null && process.isAlive()) {
+				return;
+			}
+
+			stop();
+			log.debug("Starting exiftool worker {}", id);
+			process = new ProcessBuilder(command).start();
+			stdin   = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+			stdout  = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+			requestCounter = 0L;
+			var errorStream = process.getErrorStream();
+			// Drain stderr so that a chatty exiftool can never block on a full pipe
+			Thread.ofVirtual()
+				  .name("exiftool-stderr-" + id)
+				  .start(() -> {
+					  try (var reader = new BufferedReader(new InputStreamReader(errorStream, StandardCharsets.UTF_8))) {
+						  String line;
+						  while ((line = reader.readLine()) != null) {
+							  log.debug("exiftool worker {}: {}", id, line);
+						  }
+					  } catch (IOException ignored) {
+						  // The process was stopped
+					  }
+				  });
+		}
+
+		private void stop() {
+			if (process == null) {
+				return;
+			}
+
+			try {
+				if (process.isAlive()) {
+					stdin.write("-stay_open");
+					stdin.newLine();
+					stdin.write("False");
+					stdin.newLine();
+					stdin.flush();
+
+					if (!process.waitFor(2, TimeUnit.SECONDS)) {
+						process.destroyForcibly();
+					}
+				}
+			} catch (IOException e) {
+				process.destroyForcibly();
+			} catch (InterruptedException e) {
+				Thread.currentThread()
+					  .interrupt();
+				process.destroyForcibly();
+			} finally {
+				process = null;
+				stdin   = null;
+				stdout  = null;
+			}
+		}
+	}
+}
@@ -1,21 +1,105 @@
 package fi.poltsi.vempain.file.tools;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.codec.binary.Hex;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 public class FileTool {
+	private static final int DIGEST_BUFFER_SIZE = 1024 * 1024;
+	// As many direct buffers as the scan has disk permits by default, further concurrent hashes use a heap buffer
+	private static final int MAX_DIRECT_BUFFERS = 8;
+
+	// Direct buffers are shared through a bounded pool, a thread local would allocate a new buffer for every virtual thread
+	private static final Queue<ByteBuffer> DIGEST_BUFFERS         = new ConcurrentLinkedQueue<>();
+	private static final AtomicInteger     DIRECT_BUFFERS_CREATED = new AtomicInteger();
 
 	public static String computeSha256(File file) {
-		try {
-			return DigestUtils.sha256Hex(Files.readAllBytes(file.toPath()));
+		var buffer = acquireDigestBuffer();
+
+		try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			var digest = MessageDigest.getInstance("SHA-256");
+
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+
+			return Hex.encodeHexString(digest.digest());
 		} catch (IOException e) {
 			log.warn("Failed to generate sha256sum for file {}", file, e);
 			return null;
+		} catch (NoSuchAlgorithmException e) {
+			log.error("SHA-256 is not available in this JVM", e);
+			return null;
+		} finally {
+			releaseDigestBuffer(buffer);
+		}
+	}
+
+	/**
+	 * Read the size, last-modified time and file key (device and inode on POSIX) of a file with a single stat call.
+	 *
+	 * @return File stat, or null if the attributes could not be read
+	 */
+	public static FileStat statFile(File file) {
+		try {
+			var attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			var fileKey    = attributes.fileKey();
+			return new FileStat(attributes.size(), attributes.lastModifiedTime()
+															 .toMillis(), fileKey == null ? null : fileKey.toString());
+		} catch (IOException e) {
+			log.warn("Failed to read attributes of file {}", file, e);
+			return null;
+		}
+	}
+
+	private static ByteBuffer acquireDigestBuffer() {
+		var buffer = DIGEST_BUFFERS.poll();
+
+		if (buffer != null) {
+			return buffer;
+		}
+
+		if (DIRECT_BUFFERS_CREATED.incrementAndGet() <= MAX_DIRECT_BUFFERS) {
+			return ByteBuffer.allocateDirect(DIGEST_BUFFER_SIZE);
+		}
+
+		DIRECT_BUFFERS_CREATED.decrementAndGet();
+		return ByteBuffer.allocate(DIGEST_BUFFER_SIZE);
+	}
+
+	private static void releaseDigestBuffer(ByteBuffer buffer) {
+		if (buffer.isDirect()) {
+			buffer.clear();
+			DIGEST_BUFFERS.offer(buffer);
+		}
+	}
+
+	public record FileStat(long size, long mtime, String fileKey) {
+
+		/**
+		 * Whether the file still has the recorded stat. A file without a recorded mtime never matches, the file key is compared only
+		 * when both sides have one.
+		 */
+		public boolean matches(long recordedSize, Long recordedMtime, String recordedFileKey) {
+			return recordedMtime != null
+				   && size == recordedSize
+				   && mtime == recordedMtime
+				   && (fileKey == null || recordedFileKey == null || fileKey.equals(recordedFileKey));
 		}
 	}
 }
@@ -3,16 +3,33 @@ package fi.poltsi.vempain.file.tools;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.coobird.thumbnailator.Thumbnails;
+import net.coobird.thumbnailator.util.exif.ExifFilterUtils;
+import net.coobird.thumbnailator.util.exif.ExifUtils;
+import net.coobird.thumbnailator.util.exif.Orientation;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 @Slf4j
 @Component
@@ -20,47 +37,85 @@ import java.util.Iterator;
 public class ImageTool {
 
 	private static final String RESPONSE_STATUS_EXCEPTION_MESSAGE = "Unknown error";
+	// The subsampled decode keeps the smaller side at least this many times the target, the final scale smooths out the aliasing
+	private static final double SUBSAMPLING_MARGIN                = 1.5;
+	// EXIF orientations where the stored image is rotated by 90 degrees
+	private static final Set<Orientation> SWAPPED_AXES = EnumSet.of(Orientation.LEFT_TOP, Orientation.RIGHT_TOP, Orientation.RIGHT_BOTTOM,
+																	Orientation.LEFT_BOTTOM);
 
-	public Dimension resizeImage(Path sourceFile, Path destinationFile, int imageMinimumSize, float quality, String metadataJson) {
-		// Get the original dimensions of the source file in order to see whether it should be resized
-		var origDimensions   = getImageDimensions(sourceFile);
-		var targetDimensions = new Dimension();
-		var imageFormat = destinationFile.toString()
-										 .substring(destinationFile.toString()
-																   .lastIndexOf(".") + 1);
+	// Mimetype per image format, as reported by the image writers
+	private static final Map<String, String> MIME_TYPES = new ConcurrentHashMap<>();
 
-		// If the original image is smaller than the minimum size, just copy it
-		if (origDimensions.height < imageMinimumSize || origDimensions.width < imageMinimumSize) {
-			targetDimensions.setSize(origDimensions.width, origDimensions.height);
-		} else {
-			// Set the target dimensions so that the smaller dimension is equal to imageMinimumSize
-			if (origDimensions.height > origDimensions.width) {
-				targetDimensions.setSize(imageMinimumSize, (int) (origDimensions.height * ((double) imageMinimumSize / origDimensions.width)));
-			} else {
-				targetDimensions.setSize((int) (origDimensions.width * ((double) imageMinimumSize / origDimensions.height)), imageMinimumSize);
-			}
-		}
+	private final ExifToolPool exifToolPool;
+
+	// Idle image writers per format, looking up and creating a writer for every image is not free
+	private final Map<String, Queue<ImageWriter>> idleWriters = new ConcurrentHashMap<>();
+
+	@Value("${vempain.image.subsampled-resize:true}")
+	private boolean subsampledResize;
 
+	public Dimension resizeImage(Path sourceFile, Path destinationFile, int imageMinimumSize, float quality, String metadataJson) {
 		try {
-			Thumbnails
-					.of(sourceFile.toFile())
-					.size(targetDimensions.width, targetDimensions.height)
-					.outputFormat(imageFormat)
-					.outputQuality(quality)
-					.allowOverwrite(true)
-					.useExifOrientation(true)
-					.toFile(destinationFile.toFile());
+			var resizedDimensions = resize(sourceFile, destinationFile, imageMinimumSize, quality);
 
 			if (metadataJson != null) {
-				MetadataTool.writeMetadataFromJson(destinationFile.toFile(), metadataJson);
+				exifToolPool.writeMetadataFromJson(destinationFile.toFile(), metadataJson);
 			} else {
-				MetadataTool.copyMetadata(sourceFile.toFile(), destinationFile.toFile());
+				exifToolPool.copyMetadata(sourceFile.toFile(), destinationFile.toFile());
 			}
+
+			return resizedDimensions;
 		} catch (IOException e) {
 			log.error("Failed to copy/convert {} to {}", sourceFile, destinationFile, e);
 			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, RESPONSE_STATUS_EXCEPTION_MESSAGE);
 		}
+	}
+
+	/**
+	 * Resize an image for previewing it. Unlike {@link #resizeImage} no metadata is written into the image, which keeps the preview
+	 * small and does not run exiftool.
+	 */
+	public Dimension renderPreview(Path sourceFile, Path destinationFile, int imageMinimumSize, float quality) {
+		try {
+			return resize(sourceFile, destinationFile, imageMinimumSize, quality);
+		} catch (IOException e) {
+			log.error("Failed to render preview of {} to {}", sourceFile, destinationFile, e);
+			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, RESPONSE_STATUS_EXCEPTION_MESSAGE);
+		}
+	}
 
+	private Dimension resize(Path sourceFile, Path destinationFile, int imageMinimumSize, float quality) throws IOException {
+		var imageFormat = destinationFile.toString()
+										 .substring(destinationFile.toString()
+																   .lastIndexOf(".") + 1);
+		Dimension origDimensions = null;
+
+		if (subsampledResize) {
+			var subsampled = subsampledResize(sourceFile, destinationFile, imageMinimumSize, quality, imageFormat);
+
+			if (subsampled.resizedDimensions() != null) {
+				return subsampled.resizedDimensions();
+			}
+
+			// The header was already read, it is not decoded again for the regular resize
+			origDimensions = subsampled.sourceDimensions();
+		}
+
+		if (origDimensions == null) {
+			// Get the original dimensions of the source file in order to see whether it should be resized
+			origDimensions = getImageDimensions(sourceFile);
+		}
+
+		var targetDimensions = targetDimensions(origDimensions, imageMinimumSize);
+
+		Thumbnails
+				.of(sourceFile.toFile())
+				.size(targetDimensions.width, targetDimensions.height)
+				.outputFormat(imageFormat)
+				.outputQuality(quality)
+				.allowOverwrite(true)
+				.useExifOrientation(true)
+				.toFile(destinationFile.toFile());
 		return targetDimensions;
 	}
 
@@ -97,4 +152,177 @@ public class ImageTool {
 		log.error("Unknown error to read metadata from thumb file: {}", imageFile);
 		throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, RESPONSE_STATUS_EXCEPTION_MESSAGE);
 	}
+
+	/**
+	 * Downscale by decoding only every n:th pixel of the source, so that the decoded image is already close to the target size
+	 * instead of being the full resolution image, and then scale the rest of the way with Thumbnailator. The dimensions and EXIF
+	 * orientation are read from the header before decoding.
+	 *
+	 * @return Dimensions of the source image as read from its header, and of the written image which are null if the image cannot be
+	 * handled this way and the regular resize is needed
+	 */
+	SubsampledResize subsampledResize(Path sourceFile, Path destinationFile, int imageMinimumSize, float quality, String imageFormat)
+			throws IOException {
+		try (var in = ImageIO.createImageInputStream(sourceFile.toFile())) {
+			if (in == null) {
+				return new SubsampledResize(null, null);
+			}
+
+			var readers = ImageIO.getImageReaders(in);
+
+			if (!readers.hasNext()) {
+				return new SubsampledResize(null, null);
+			}
+
+			Dimension sourceDimensions = null;
+
+			var reader = readers.next();
+
+			try {
+				reader.setInput(in, true, false);
+				var width       = reader.getWidth(0);
+				var height      = reader.getHeight(0);
+				var subsampling = (int) (Math.min(width, height) / (imageMinimumSize * SUBSAMPLING_MARGIN));
+				sourceDimensions = new Dimension(width, height);
+
+				if (subsampling < 2) {
+					// Not large enough for subsampling to save anything
+					return new SubsampledResize(sourceDimensions, null);
+				}
+
+				var orientation = ExifUtils.getExifOrientation(reader, 0);
+				var readParam   = reader.getDefaultReadParam();
+				readParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				BufferedImage image = reader.read(0, readParam);
+
+				if (orientation != null && orientation != Orientation.TOP_LEFT) {
+					image = ExifFilterUtils.getFilterForOrientation(orientation)
+										   .apply(image);
+				}
+
+				// The target is computed from the full size like in the regular resize, not from the rounded subsampled size
+				var target  = targetDimensions(SWAPPED_AXES.contains(orientation) ? new Dimension(height, width) : new Dimension(width, height),
+											   imageMinimumSize);
+				var resized = Thumbnails.of(image)
+										.forceSize(target.width, target.height)
+										.imageType(isJpeg(imageFormat) ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB)
+										.asBufferedImage();
+
+				if (!writeImage(resized, destinationFile, imageFormat, quality)) {
+					return new SubsampledResize(sourceDimensions, null);
+				}
+
+				return new SubsampledResize(sourceDimensions, new Dimension(resized.getWidth(), resized.getHeight()));
+			} catch (IIOException | IllegalArgumentException e) {
+				// E.g. CMYK JPEG files, which the regular resize path can still handle
+				log.debug("Subsampled decode of {} failed, using the regular resize: {}", sourceFile, e.getMessage());
+				return new SubsampledResize(sourceDimensions, null);
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	private boolean writeImage(BufferedImage image, Path destinationFile, String imageFormat, float quality) throws IOException {
+		var writer = borrowWriter(imageFormat);
+
+		if (writer == null) {
+			return false;
+		}
+
+		var reusable = false;
+		Files.deleteIfExists(destinationFile);
+
+		try (var out = ImageIO.createImageOutputStream(destinationFile.toFile())) {
+			writer.setOutput(out);
+			var writeParam = writer.getDefaultWriteParam();
+
+			if (writeParam.canWriteCompressed()) {
+				writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+
+				if (writeParam.getCompressionTypes() != null && writeParam.getCompressionType() == null) {
+					writeParam.setCompressionType(writeParam.getCompressionTypes()[0]);
+				}
+
+				writeParam.setCompressionQuality(quality);
+			}
+
+			writer.write(null, new IIOImage(image, null, null), writeParam);
+			reusable = true;
+		} finally {
+			if (reusable) {
+				writer.reset();
+				idleWriters.computeIfAbsent(imageFormat, ignored -> new ConcurrentLinkedQueue<>())
+						   .offer(writer);
+			} else {
+				writer.dispose();
+			}
+		}
+
+		return true;
+	}
+
+	private ImageWriter borrowWriter(String imageFormat) {
+		var idle   = idleWriters.get(imageFormat);
+		var writer = idle != null ? idle.poll() : null;
+
+		if (writer != null) {
+			return writer;
+		}
+
+		var writers = ImageIO.getImageWritersByFormatName(imageFormat);
+		return writers.hasNext() ? writers.next() : null;
+	}
+
+	/**
+	 * Get the mimetype of the images written in the given format, e.g. image/jpeg for jpeg.
+	 *
+	 * @return Mimetype, or null if no image writer of the format is available
+	 */
+	public static String mimeTypeOf(String imageFormat) {
+		return MIME_TYPES.computeIfAbsent(imageFormat.toLowerCase(Locale.ROOT), format -> {
+			var writers = ImageIO.getImageWritersByFormatName(format);
+
+			while (writers.hasNext()) {
+				var mimeTypes = writers.next()
+									   .getOriginatingProvider()
+									   .getMIMETypes();
+
+				if (mimeTypes != null && mimeTypes.length > 0) {
+					return mimeTypes[0];
+				}
+			}
+
+			return null;
+		});
+	}
+
+	private static Dimension targetDimensions(Dimension origDimensions, int imageMinimumSize) {
+		var targetDimensions = new Dimension();
+
+		// If the original image is smaller than the minimum size, just copy it
+		if (origDimensions.height < imageMinimumSize || origDimensions.width < imageMinimumSize) {
+			targetDimensions.setSize(origDimensions.width, origDimensions.height);
+		} else {
+			// Set the target dimensions so that the smaller dimension is equal to imageMinimumSize
+			if (origDimensions.height > origDimensions.width) {
+				targetDimensions.setSize(imageMinimumSize, (int) (origDimensions.height * ((double) imageMinimumSize / origDimensions.width)));
+			} else {
+				targetDimensions.setSize((int) (origDimensions.width * ((double) imageMinimumSize / origDimensions.height)), imageMinimumSize);
+			}
+		}
+
+		return targetDimensions;
+	}
+
+	private static boolean isJpeg(String imageFormat) {
+		return imageFormat.equalsIgnoreCase("jpg") || imageFormat.equalsIgnoreCase("jpeg");
+	}
+
+	/**
+	 * @param sourceDimensions  Dimensions of the source image, null if its header could not be read
+	 * @param resizedDimensions Dimensions of the written image, null if it was not written
+	 */
+	record SubsampledResize(Dimension sourceDimensions, Dimension resizedDimensions) {
+	}
 }
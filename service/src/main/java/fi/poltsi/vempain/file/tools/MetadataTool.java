@@ -33,7 +33,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Scanner;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 import static java.util.Map.entry;
@@ -78,12 +78,19 @@ public class MetadataTool {
 	private static final int GPS_DECIMAL_PRECISION = 5;
 	private static final long MAX_DURATION_SECONDS = 99_999L;
 
-	public static String extractMetadataJson(File file) throws IOException {
-		return runExifTool(file, "-a", "-u", "-ee", "-api", "RequestAll=3", "-g1", "-J");
+	// Groups of the grouped (-g1) output in the order they are searched for a tag. Tags such as Duration, SampleRate or FileType are
+	// found in several groups, so the container level groups come before the tracks and the embedded EXIF and XMP groups.
+	private static final List<String> TAG_GROUP_ORDER = List.of(COMPOSITE_KEY, FILE_KEY, "QuickTime", "Matroska", "RIFF", "ASF", "MPEG",
+																"FLAC", "Vorbis", "ID3v2_4", "ID3v2_3", "ID3v2_2", "ID3v1", "PDF",
+																"PostScript", "Font", "SVG", "PNG", "ZIP", "RAR", "Track1", "Track2",
+																"Track3", "Track4", IFD0_KEY, EXIF_IFD_KEY, XMP_KEY);
+
+	static String extractMetadataJson(ExifToolRunner runner, File file) throws IOException {
+		return runExifTool(runner, file, "-a", "-u", "-ee", "-api", "RequestAll=3", "-g1", "-J");
 	}
 
-	public static JSONObject extractMetadataJsonObject(File file) throws IOException {
-		var metadata = extractMetadataJson(file);
+	static JSONObject extractMetadataJsonObject(ExifToolRunner runner, File file) throws IOException {
+		var metadata = extractMetadataJson(runner, file);
 
 		if (metadata == null || metadata.isBlank()) {
 			log.warn("No metadata found for file: {}", file.getAbsolutePath());
@@ -211,53 +218,47 @@ public class MetadataTool {
 		return tagValue.intValue();
 	}
 
-	public static double extractFrameRate(File file) throws IOException {
-		var output = runExifTool(file, "-VideoFrameRate");
-		return Double.parseDouble(getTagValue(output, "VideoFrameRate"));
+	public static double extractFrameRate(JSONObject jsonObject) {
+		var parsed = parseDoubleSafe(getTagValue(jsonObject, "VideoFrameRate"));
+		return parsed != null ? parsed : 0.0;
 	}
 
-	public static String extractVideoCodec(File file) throws IOException {
-		var output = runExifTool(file, "-VideoCodec");
-		return getTagValue(output, "VideoCodec");
+	public static String extractVideoCodec(JSONObject jsonObject) {
+		return getTagValue(jsonObject, "VideoCodec");
 	}
 
-	public static Duration extractAudioVideoDuration(File file) throws IOException {
-		var output = runExifTool(file, "-Duration");
-		var durationStr = getTagValue(output, "Duration");
+	public static Duration extractAudioVideoDuration(JSONObject jsonObject) {
+		var durationStr = getTagValue(jsonObject, "Duration");
 		return durationFromString(durationStr);
 	}
 
-	public static int extractAudioBitRate(File file) throws IOException {
-		var output = runExifTool(file, "-AudioBitrate", "-AvgBitrate", "-NominalBitrate", "-BitRate", "-Duration");
-		return parseAudioBitRateKbps(output, file.length());
+	public static int extractAudioBitRate(JSONObject jsonObject, long fileSize) {
+		return parseAudioBitRateKbps(jsonObject, fileSize);
 	}
 
-	public static int extractAudioSampleRate(File file) throws IOException {
-		var output = runExifTool(file, "-AudioSampleRate", "-SampleRate");
-		var parsed = parseIntegerWithUnits(getTagValue(output, "AudioSampleRate"));
+	public static int extractAudioSampleRate(JSONObject jsonObject) {
+		var parsed = parseIntegerWithUnits(getTagValue(jsonObject, "AudioSampleRate"));
 
 		if (parsed != null && parsed > 0) {
 			return parsed;
 		}
 
-		parsed = parseIntegerWithUnits(getTagValue(output, "SampleRate"));
+		parsed = parseIntegerWithUnits(getTagValue(jsonObject, "SampleRate"));
 		return parsed != null ? parsed : 0;
 	}
 
-	public static String extractAudioCodec(File file) throws IOException {
-		var output = runExifTool(file, "-AudioCodec");
-		return getTagValue(output, "AudioCodec");
+	public static String extractAudioCodec(JSONObject jsonObject) {
+		return getTagValue(jsonObject, "AudioCodec");
 	}
 
-	public static int extractAudioChannels(File file) throws IOException {
-		var output = runExifTool(file, "-AudioChannels", "-Channels");
-		var parsed = parseIntegerWithUnits(getTagValue(output, "AudioChannels"));
+	public static int extractAudioChannels(JSONObject jsonObject) {
+		var parsed = parseIntegerWithUnits(getTagValue(jsonObject, "AudioChannels"));
 
 		if (parsed != null && parsed > 0) {
 			return parsed;
 		}
 
-		parsed = parseIntegerWithUnits(getTagValue(output, "Channels"));
+		parsed = parseIntegerWithUnits(getTagValue(jsonObject, "Channels"));
 		return parsed != null ? parsed : 0;
 	}
 
@@ -572,66 +573,66 @@ public class MetadataTool {
 		       || extractMusicGenre(jsonObject) != null;
 	}
 
-	public static int extractDocumentPageCount(File file) throws IOException {
-		var output = runExifTool(file, "-PageCount");
-		return Integer.parseInt(getTagValue(output, "PageCount"));
+	public static int extractDocumentPageCount(JSONObject jsonObject) {
+		var parsed = parseIntegerSafe(getTagValue(jsonObject, "PageCount"));
+		return parsed != null ? parsed : 0;
 	}
 
-	public static String extractDocumentFormat(File file) throws IOException {
-		var output = runExifTool(file, "-FileType");
-		return getTagValue(output, "FileType");
+	public static String extractDocumentFormat(JSONObject jsonObject) {
+		return getTagValue(jsonObject, "FileType");
 	}
 
-	public static int extractVectorLayersCount(File file) throws IOException {
-		var output = runExifTool(file, "-Layers");
-		return Integer.parseInt(getTagValue(output, "Layers"));
+	public static int extractVectorLayersCount(JSONObject jsonObject) {
+		var parsed = parseIntegerSafe(getTagValue(jsonObject, "Layers"));
+		return parsed != null ? parsed : 0;
 	}
 
-	public static Dimension extractXYResolution(File file) throws IOException {
-		var output = runExifTool(file, "-ImageWidth", "-ImageHeight");
-		var width  = Integer.parseInt(getTagValue(output, "ImageWidth"));
-		var height = Integer.parseInt(getTagValue(output, "ImageHeight"));
-		return new Dimension(width, height);
+	public static Dimension extractXYResolution(JSONObject jsonObject) {
+		// Composite:ImageSize is the resolved size of the primary image/video stream, prefer it over the per-track values
+		var imageSize = getTagValue(jsonObject, COMPOSITE_IMAGE_SIZE_FIELD);
+
+		if (imageSize.matches("\\d+[x ]\\d+")) {
+			var parts = imageSize.split("[x ]");
+			return new Dimension(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+		}
+
+		var width  = parseIntegerSafe(getTagValue(jsonObject, SUBIFD_IMAGE_WIDTH_FIELD));
+		var height = parseIntegerSafe(getTagValue(jsonObject, SUBIFD_IMAGE_HEIGHT_FIELD));
+		return new Dimension(width != null ? width : 0, height != null ? height : 0);
 	}
 
-	public static boolean extractIconIsScalable(File file) throws IOException {
-		var output = runExifTool(file, "-Scalable");
-		return Boolean.parseBoolean(getTagValue(output, "Scalable"));
+	public static boolean extractIconIsScalable(JSONObject jsonObject) {
+		return parseBooleanSafe(getTagValue(jsonObject, "Scalable"));
 	}
 
-	public static String extractFontFamily(File file) throws IOException {
-		var output = runExifTool(file, "-FontFamily");
-		return getTagValue(output, "FontFamily");
+	public static String extractFontFamily(JSONObject jsonObject) {
+		return getTagValue(jsonObject, "FontFamily");
 	}
 
-	public static String extractFontWeight(File file) throws IOException {
-		var output = runExifTool(file, "-FontWeight");
-		return getTagValue(output, "FontWeight");
+	public static String extractFontWeight(JSONObject jsonObject) {
+		return getTagValue(jsonObject, "FontWeight");
 	}
 
-	public static String extractFontStyle(File file) throws IOException {
-		var output = runExifTool(file, "-FontStyle");
-		return getTagValue(output, "FontStyle");
+	public static String extractFontStyle(JSONObject jsonObject) {
+		return getTagValue(jsonObject, "FontStyle");
 	}
 
-	public static String extractArchiveCompressionMethod(File file) throws IOException {
-		var output = runExifTool(file, "-Compression");
-		return getTagValue(output, "Compression");
+	public static String extractArchiveCompressionMethod(JSONObject jsonObject) {
+		return getTagValue(jsonObject, "Compression");
 	}
 
-	public static long extractArchiveUncompressedSize(File file) throws IOException {
-		var output = runExifTool(file, "-UncompressedSize");
-		return Long.parseLong(getTagValue(output, "UncompressedSize"));
+	public static long extractArchiveUncompressedSize(JSONObject jsonObject) {
+		var value = getTagValue(jsonObject, "UncompressedSize").replaceAll("[^0-9]", "");
+		return value.isEmpty() ? 0L : Long.parseLong(value);
 	}
 
-	public static int extractArchiveContentCount(File file) throws IOException {
-		var output = runExifTool(file, "-ContentCount");
-		return Integer.parseInt(getTagValue(output, "ContentCount"));
+	public static int extractArchiveContentCount(JSONObject jsonObject) {
+		var parsed = parseIntegerSafe(getTagValue(jsonObject, "ContentCount"));
+		return parsed != null ? parsed : 0;
 	}
 
-	public static boolean extractArchiveIsEncrypted(File file) throws IOException {
-		var output = runExifTool(file, "-Encrypted");
-		return Boolean.parseBoolean(getTagValue(output, "Encrypted"));
+	public static boolean extractArchiveIsEncrypted(JSONObject jsonObject) {
+		return parseBooleanSafe(getTagValue(jsonObject, "Encrypted"));
 	}
 
 	/**
@@ -1161,41 +1162,24 @@ public class MetadataTool {
 		return new ArrayList<>();
 	}
 
-	public static void copyMetadata(File sourceFile, File destinationFile) throws IOException {
-		var command = new ArrayList<String>();
-
-		command.add("exiftool");
-		command.add("-overwrite_original_in_place");
-		command.add("-TagsFromFile");
-		command.add(sourceFile.getAbsolutePath());
-		command.add("-all:all");
-		command.add(destinationFile.getAbsolutePath());
-
-		log.debug("Running exiftool copy with command: {}", command);
+	static void copyMetadata(ExifToolRunner runner, File sourceFile, File destinationFile) throws IOException {
+		var arguments = List.of("-overwrite_original_in_place",
+								"-TagsFromFile",
+								sourceFile.getAbsolutePath(),
+								"-all:all",
+								destinationFile.getAbsolutePath());
 
-		var processBuilder = new ProcessBuilder(command);
-		var process        = processBuilder.start();
+		log.debug("Running exiftool copy with arguments: {}", arguments);
+		var result = runner.run(arguments);
 
-		if (process.isAlive()) {
-			try {
-				int exitCode = process.waitFor();
-				if (exitCode != 0) {
-					log.error("Exiftool copy process exited with code: {}", exitCode);
-				} else {
-					log.debug("Exiftool copy process completed successfully.");
-				}
-			} catch (InterruptedException e) {
-				Thread.currentThread()
-					  .interrupt();
-				log.error("Exiftool copy process was interrupted", e);
-			}
+		if (result.failed()) {
+			log.error("Exiftool copy failed from {} to {}: {}", sourceFile.getAbsolutePath(), destinationFile.getAbsolutePath(), result.output());
 		} else {
-			log.error("Exiftool copy process failed to start.");
+			log.debug("Exiftool copy process completed successfully.");
 		}
 	}
 
-
-	public static void writeMetadataFromJson(File file, String metadataJson) {
+	static void writeMetadataFromJson(ExifToolRunner runner, File file, String metadataJson) {
 		if (file == null || metadataJson == null || metadataJson.isBlank()) {
 			log.warn("writeMetadataFromJson called with empty inputs. File: {}, metadataJson empty: {}", file, metadataJson == null || metadataJson.isBlank());
 			return;
@@ -1207,19 +1191,17 @@ public class MetadataTool {
 			Files.writeString(tempJson.toPath(), metadataJson, StandardCharsets.UTF_8);
 			log.debug("Temporary metadata JSON written to {}", tempJson.getAbsolutePath());
 
-			wipeMetadataFromFile(file);
+			wipeMetadataFromFile(runner, file);
 
-			var importCmd = new ArrayList<String>();
-			importCmd.add("exiftool");
-			importCmd.add("-overwrite_original_in_place");
-			importCmd.add("-json=" + tempJson.getAbsolutePath());
-			importCmd.add(file.getAbsolutePath());
+			var arguments = List.of("-overwrite_original_in_place",
+									"-json=" + tempJson.getAbsolutePath(),
+									file.getAbsolutePath());
 
-			log.debug("Importing metadata with command: {}", importCmd);
-			var process = new ProcessBuilder(importCmd).start();
-			int exit    = process.waitFor();
-			if (exit != 0) {
-				log.error("Exiftool import (-json=) exited with code {} for file {}", exit, file.getAbsolutePath());
+			log.debug("Importing metadata with arguments: {}", arguments);
+			var result = runner.run(arguments);
+
+			if (result.failed()) {
+				log.error("Exiftool import (-json=) failed for file {}: {}", file.getAbsolutePath(), result.output());
 			} else {
 				log.debug("Metadata successfully written to {}", file.getAbsolutePath());
 			}
@@ -1237,18 +1219,16 @@ public class MetadataTool {
 		}
 	}
 
-	public static void wipeMetadataFromFile(File file) throws IOException, InterruptedException {
-		var wipeCmd = new ArrayList<String>();
-		wipeCmd.add("exiftool");
-		wipeCmd.add("-overwrite_original_in_place");
-		wipeCmd.add("-all=");
-		wipeCmd.add(file.getAbsolutePath());
+	static void wipeMetadataFromFile(ExifToolRunner runner, File file) throws IOException {
+		var arguments = List.of("-overwrite_original_in_place",
+								"-all=",
+								file.getAbsolutePath());
+
+		log.debug("Wiping metadata with arguments: {}", arguments);
+		var result = runner.run(arguments);
 
-		log.debug("Wiping metadata with command: {}", wipeCmd);
-		var process = new ProcessBuilder(wipeCmd).start();
-		int exit    = process.waitFor();
-		if (exit != 0) {
-			log.error("Exiftool wipe (-all=) exited with code {} for file {}", exit, file.getAbsolutePath());
+		if (result.failed()) {
+			log.error("Exiftool wipe (-all=) failed for file {}: {}", file.getAbsolutePath(), result.output());
 		}
 	}
 
@@ -1345,41 +1325,67 @@ public class MetadataTool {
 		return null;
 	}
 
-	private static String runExifTool(File file, String... params) throws IOException {
+	private static String runExifTool(ExifToolRunner runner, File file, String... params) throws IOException {
 		log.debug("Running exiftool on file {} with tags: {}", file, String.join(", ", params));
 
-		// Prepare command: exiftool -tag1 -tag2 ... file
-		var command = new ArrayList<String>();
-		command.add("exiftool");
-		command.add("-j"); // Output in JSON so we get the correct field names
-		Collections.addAll(command, params);
-		command.add(file.getAbsolutePath());
+		// Prepare arguments: -j -tag1 -tag2 ... file
+		var arguments = new ArrayList<String>();
+		arguments.add("-j"); // Output in JSON so we get the correct field names
+		Collections.addAll(arguments, params);
+		arguments.add(file.getAbsolutePath());
 
-		log.debug("Running exiftool with command: {}", command);
+		return runner.run(arguments)
+					 .output();
+	}
 
-		var processBuilder = new ProcessBuilder(command);
-		var process        = processBuilder.start();
+	/**
+	 * Runs a single exiftool request on one of the pooled exiftool processes, see {@link ExifToolPool}.
+	 */
+	@FunctionalInterface
+	interface ExifToolRunner {
+		ExifToolResult run(List<String> arguments) throws IOException;
+	}
 
-		var scanner = new Scanner(process.getInputStream()).useDelimiter("\\A");
-		return scanner.hasNext() ? scanner.next() : "";
+	/**
+	 * @param output Standard output of exiftool
+	 * @param failed Whether exiftool reported a non-zero exit status
+	 */
+	record ExifToolResult(String output, boolean failed) {
 	}
 
-	private static String getTagValue(String jsonOutput, String tag) {
-		try {
-			var mapper = new ObjectMapper();
-			var root   = mapper.readTree(jsonOutput);
+	/**
+	 * Look up a single tag from the metadata. Flat exiftool JSON has the tags on root level, grouped ({@code -g1}) output is
+	 * searched in the order of {@link #TAG_GROUP_ORDER} and then from the other groups in alphabetical order, so that the same
+	 * group wins regardless of the order of the groups in the JSON.
+	 *
+	 * @param jsonObject Extracted JSON formatted metadata
+	 * @param tag        Tag name without group, e.g. "Duration"
+	 * @return Value of the tag as a string, or an empty string if it was not found
+	 */
+	private static String getTagValue(JSONObject jsonObject, String tag) {
+		if (jsonObject == null) {
+			return "";
+		}
+
+		var value = jsonObject.opt(tag);
+
+		if (value == null) {
+			var otherGroups = new TreeSet<>(jsonObject.keySet());
+			TAG_GROUP_ORDER.forEach(otherGroups::remove);
+			var groupKeys = new ArrayList<>(TAG_GROUP_ORDER);
+			groupKeys.addAll(otherGroups);
 
-			if (root.isArray()
-				&& !root.isEmpty()) {
-				var first     = root.get(0);
-				var valueNode = first.get(tag);
-				return valueNode != null ? mapper.convertValue(valueNode, String.class) : "";
+			for (var groupKey : groupKeys) {
+				var group = jsonObject.optJSONObject(groupKey);
+
+				if (group != null && group.has(tag)) {
+					value = group.opt(tag);
+					break;
+				}
 			}
-		} catch (Exception e) {
-			log.error("Failed to parse exiftool JSON output", e);
 		}
 
-		return "";
+		return (value == null || JSONObject.NULL.equals(value)) ? "" : value.toString();
 	}
 
 	static Duration durationFromString(String durationStr) {
@@ -1439,19 +1445,23 @@ public class MetadataTool {
 	}
 
 	static int parseAudioBitRateKbps(String exifJsonOutput, long fallbackFileSizeBytes) {
-		var primary = parseIntegerWithUnits(getTagValue(exifJsonOutput, "AudioBitrate"));
+		return parseAudioBitRateKbps(metadataToJsonObject(exifJsonOutput), fallbackFileSizeBytes);
+	}
+
+	static int parseAudioBitRateKbps(JSONObject jsonObject, long fallbackFileSizeBytes) {
+		var primary = parseIntegerWithUnits(getTagValue(jsonObject, "AudioBitrate"));
 		if (primary != null && primary > 0) {
 			return primary;
 		}
 
 		for (var tag : List.of("AvgBitrate", "NominalBitrate", "BitRate")) {
-			var parsed = parseIntegerWithUnits(getTagValue(exifJsonOutput, tag));
+			var parsed = parseIntegerWithUnits(getTagValue(jsonObject, tag));
 			if (parsed != null && parsed > 0) {
 				return parsed;
 			}
 		}
 
-		var duration = durationFromString(getTagValue(exifJsonOutput, "Duration"));
+		var duration = durationFromString(getTagValue(jsonObject, "Duration"));
 		if (duration.isZero() || duration.isNegative() || fallbackFileSizeBytes <= 0) {
 			return 0;
 		}
@@ -1543,11 +1553,8 @@ public class MetadataTool {
 	 * Returned JSON is an array with a single object, compatible with exiftool -json ingestion.
 	 */
 	public static String collectStandardMetadataAsJson(List<MetadataEntity> metadataEntities, FileEntity fileEntity) {
-		var result = new LinkedHashMap<String, Object>();
 		if (metadataEntities == null || metadataEntities.isEmpty()) {
-			// still include rights/creator if present
-			putFileRightsAndCreatorForExif(result, fileEntity);
-			return writeJsonArray(result);
+			return collectStandardMetadata(Map.of(), fileEntity);
 		}
 
 		// Build quick lookup: Map<groupLower, Map<keyLower, value>>
@@ -1563,6 +1570,71 @@ public class MetadataTool {
 											)
 									));
 
+		return collectStandardMetadata(index, fileEntity);
+	}
+
+	/**
+	 * Same as {@link #collectStandardMetadataAsJson(List, FileEntity)}, but reads the values from the grouped metadata document
+	 * of the file (see {@link #buildMetadataDocument(JSONObject)}) instead of the metadata rows.
+	 */
+	public static String collectStandardMetadataFromDocument(String metadataDocument, FileEntity fileEntity) {
+		var index = new LinkedHashMap<String, Map<String, String>>();
+
+		if (metadataDocument != null && !metadataDocument.isBlank()) {
+			var document = new JSONObject(metadataDocument);
+
+			for (var group : document.keySet()) {
+				if (!(document.get(group) instanceof JSONObject groupObject)) {
+					continue;
+				}
+
+				var groupIndex = index.computeIfAbsent(normalizeName(group), ignored -> new LinkedHashMap<>());
+
+				for (var key : groupObject.keySet()) {
+					groupIndex.putIfAbsent(normalizeName(key), Objects.toString(groupObject.get(key), null));
+				}
+			}
+		}
+
+		return collectStandardMetadata(index, fileEntity);
+	}
+
+	/**
+	 * Build the grouped metadata document stored on the file: one object per exiftool group with the tag values as strings,
+	 * the same values that are stored in the metadata rows. Top level values that are not groups, like SourceFile, are left out.
+	 */
+	public static String buildMetadataDocument(JSONObject jsonObject) {
+		var document = new JSONObject();
+
+		for (var group : jsonObject.keySet()) {
+			if (!(jsonObject.get(group) instanceof JSONObject groupObject)) {
+				continue;
+			}
+
+			var groupDocument = new JSONObject();
+
+			for (var key : groupObject.keySet()) {
+				var value = Objects.toString(groupObject.get(key), null);
+
+				if (value != null) {
+					groupDocument.put(key, value);
+				}
+			}
+
+			document.put(group, groupDocument);
+		}
+
+		return document.toString();
+	}
+
+	private static String collectStandardMetadata(Map<String, Map<String, String>> index, FileEntity fileEntity) {
+		var result = new LinkedHashMap<String, Object>();
+		if (index.isEmpty()) {
+			// still include rights/creator if present
+			putFileRightsAndCreatorForExif(result, fileEntity);
+			return writeJsonArray(result);
+		}
+
 		// Helper to fetch by prioritized (group,key) pairs
 		java.util.function.BiFunction<List<String>, List<String>, String> findFirst = (groups, keys) -> {
 			for (String g : groups) {
@@ -1824,6 +1896,15 @@ public class MetadataTool {
 		}
 	}
 
+	private static boolean parseBooleanSafe(String s) {
+		if (s == null) {
+			return false;
+		}
+
+		var trimmed = s.trim();
+		return trimmed.equalsIgnoreCase("true") || trimmed.equalsIgnoreCase("yes");
+	}
+
 	private static Integer parseIntegerWithUnits(String s) {
 		if (s == null || s.isBlank()) {
 			return null;
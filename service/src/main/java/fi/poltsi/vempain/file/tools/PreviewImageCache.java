@@ -0,0 +1,282 @@
+package fi.poltsi.vempain.file.tools;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * On-disk cache of the preview images shown in the image grids. A preview is addressed by the sha256 of the original file and
+ * the preview size, so it is rendered once per content and size. The concurrent requests for a preview which is not cached yet
+ * wait for a single render, and the number of renders running at a time is limited. The cache is kept under its size limit by
+ * evicting the least recently used previews, with the recency persisted as the modification time of the preview. A preview is
+ * pinned until the {@link Preview} returned for it is closed, so that it is not evicted while it is being served. If the cache
+ * directory can not be used, the previews are rendered on every request.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PreviewImageCache {
+	private static final String PREVIEW_TYPE = "jpg";
+	private static final String TEMP_PREFIX  = "tmp-";
+	private static final long   BYTES_PER_MB = 1024L * 1024L;
+
+	private final ImageTool imageTool;
+
+	private final Map<String, CompletableFuture<Void>> rendering = new ConcurrentHashMap<>();
+
+	@Value("${vempain.preview.cache.directory:${java.io.tmpdir}/vempain-previews}")
+	private String cacheDirectory;
+
+	@Value("${vempain.preview.cache.max-size-mb:1024}")
+	private long maxSizeMb;
+
+	@Value("${vempain.preview.quality:0.8}")
+	private float quality;
+
+	@Value("${vempain.preview.max-concurrent-renders:4}")
+	private int maxConcurrentRenders;
+
+	private Path         cacheRoot;
+	private DiskLruCache cache;
+	private Semaphore    renderPermits;
+
+	@PostConstruct
+	public void init() {
+		renderPermits = new Semaphore(Math.max(1, maxConcurrentRenders), true);
+
+		try {
+			cacheRoot = Files.createDirectories(Path.of(cacheDirectory));
+			cache     = new DiskLruCache("preview", maxSizeMb * BYTES_PER_MB);
+			loadEntries();
+			log.info("Preview cache at {} holds {} previews, {} MB", cacheRoot, cache.size(), cache.totalBytes() / BYTES_PER_MB);
+		} catch (IOException e) {
+			log.error("Could not use {} as the preview cache, previews are rendered on every request", cacheDirectory, e);
+			cacheRoot = null;
+		}
+	}
+
+	public String getMimeType() {
+		return ImageTool.mimeTypeOf(PREVIEW_TYPE);
+	}
+
+	/**
+	 * Open the preview of an image, rendering it if it is not cached yet. The caller must close the returned preview once it has
+	 * read it.
+	 *
+	 * @param sourceSha256 sha256sum of the current content of the source file
+	 */
+	public Preview getPreview(Path source, String sourceSha256, int size) {
+		if (cacheRoot == null) {
+			return renderUncached(source, size);
+		}
+
+		var key = sourceSha256 + "-" + size;
+
+		while (true) {
+			var lease = cache.acquire(key);
+
+			if (lease != null) {
+				return open(lease);
+			}
+
+			var future = new CompletableFuture<Void>();
+			var active = rendering.putIfAbsent(key, future);
+
+			if (active != null) {
+				log.debug("Waiting for the preview {} being rendered by another request", key);
+				join(active);
+				// Looked up again, as it may have been evicted already
+				continue;
+			}
+
+			try {
+				// Rendered meanwhile by a request which finished before this one registered
+				lease = cache.acquire(key);
+
+				if (lease == null) {
+					lease = render(source, key, size);
+				}
+
+				future.complete(null);
+			} catch (IOException | RuntimeException e) {
+				future.completeExceptionally(e);
+			} finally {
+				rendering.remove(key, future);
+			}
+
+			join(future);
+			return open(lease);
+		}
+	}
+
+	private DiskLruCache.Lease render(Path source, String key, int size) throws IOException {
+		var tempPreview = Files.createTempFile(cacheRoot, TEMP_PREFIX, "." + PREVIEW_TYPE);
+		var preview     = cacheRoot.resolve(key + "." + PREVIEW_TYPE);
+
+		try {
+			renderWithPermit(source, tempPreview, size);
+			Files.move(tempPreview, preview, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tempPreview);
+		}
+
+		return cache.put(key, List.of(preview));
+	}
+
+	private Preview renderUncached(Path source, int size) {
+		Path tempPreview = null;
+
+		try {
+			tempPreview = Files.createTempFile(Path.of(System.getProperty("java.io.tmpdir")), "vempain-preview-", "." + PREVIEW_TYPE);
+			renderWithPermit(source, tempPreview, size);
+			var deleted = tempPreview;
+			return new Preview(new ReleasingInputStream(Files.newInputStream(tempPreview), () -> Files.deleteIfExists(deleted)),
+							   Files.size(tempPreview));
+		} catch (IOException e) {
+			deleteQuietly(tempPreview);
+			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to render the preview", e);
+		} catch (RuntimeException e) {
+			deleteQuietly(tempPreview);
+			throw e;
+		}
+	}
+
+	private void renderWithPermit(Path source, Path destination, int size) {
+		try {
+			renderPermits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				  .interrupt();
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting to render the preview");
+		}
+
+		try {
+			imageTool.renderPreview(source, destination, size, quality);
+		} finally {
+			renderPermits.release();
+		}
+	}
+
+	/**
+	 * Open the pinned preview, the pin is released when the content is closed.
+	 */
+	private Preview open(DiskLruCache.Lease lease) {
+		var preview = lease.files()
+						   .getFirst();
+
+		try {
+			return new Preview(new ReleasingInputStream(Files.newInputStream(preview), lease::close), Files.size(preview));
+		} catch (IOException e) {
+			log.warn("Dropping unreadable preview {} from the cache", preview, e);
+			lease.discard();
+			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read the preview", e);
+		}
+	}
+
+	private void loadEntries() throws IOException {
+		var found = new ArrayList<LoadedEntry>();
+
+		try (var paths = Files.list(cacheRoot)) {
+			for (var path : paths.toList()) {
+				var name = path.getFileName()
+							   .toString();
+
+				if (name.startsWith(TEMP_PREFIX)) {
+					// Left over from an interrupted render
+					Files.deleteIfExists(path);
+				} else if (name.endsWith("." + PREVIEW_TYPE)) {
+					found.add(new LoadedEntry(name.substring(0, name.length() - PREVIEW_TYPE.length() - 1), path, Files.getLastModifiedTime(path)));
+				}
+			}
+		}
+
+		found.sort(Comparator.comparing(LoadedEntry::lastUsed));
+
+		for (var loadedEntry : found) {
+			cache.load(loadedEntry.key(), List.of(loadedEntry.preview()));
+		}
+	}
+
+	private static void join(CompletableFuture<Void> future) {
+		try {
+			future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+
+			throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to render the preview", e.getCause());
+		}
+	}
+
+	private static void deleteQuietly(Path path) {
+		if (path == null) {
+			return;
+		}
+
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			log.warn("Failed to delete the temporary preview {}", path, e);
+		}
+	}
+
+	/**
+	 * An opened preview.
+	 *
+	 * @param content Content of the preview, closing it releases the preview
+	 * @param size    Size of the preview in bytes
+	 */
+	public record Preview(InputStream content, long size) implements AutoCloseable {
+
+		@Override
+		public void close() throws IOException {
+			content.close();
+		}
+	}
+
+	private record LoadedEntry(String key, Path preview, FileTime lastUsed) {
+	}
+
+	/**
+	 * Stream which releases the preview it reads once it is closed.
+	 */
+	private static final class ReleasingInputStream extends FilterInputStream {
+		private final Closeable release;
+
+		private ReleasingInputStream(InputStream in, Closeable release) {
+			super(in);
+			this.release = release;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				release.close();
+			}
+		}
+	}
+}
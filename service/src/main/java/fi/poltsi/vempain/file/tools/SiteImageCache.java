@@ -0,0 +1,250 @@
+package fi.poltsi.vempain.file.tools;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+import static fi.poltsi.vempain.file.tools.FileTool.computeSha256;
+
+/**
+ * On-disk cache of the resized site images. An entry is addressed by the sha256 of the source file, the target size, quality,
+ * image type and the metadata written into the image, so an unchanged export file is only resized once. Each entry is the image
+ * and a properties sidecar with its dimensions, mimetype and sha256sum; both are written to a temporary file and moved in place,
+ * and the sidecar is moved last so an entry is never seen half-written. The cache is kept under its size limit by evicting the
+ * least recently used entries, with the recency persisted as the modification time of the image. A cached image is pinned until the
+ * {@link ResizedImage} returned for it is closed, so that it is not evicted while it is being uploaded.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SiteImageCache {
+	private static final String SIDECAR_SUFFIX    = ".properties";
+	private static final String TEMP_PREFIX       = "tmp-";
+	private static final String WIDTH             = "width";
+	private static final String HEIGHT            = "height";
+	private static final String MIMETYPE          = "mimetype";
+	private static final String SHA256SUM         = "sha256sum";
+	private static final long   BYTES_PER_MB      = 1024L * 1024L;
+	// Newly created images up to this size are kept in memory for the upload instead of being read again from disk
+	private static final long   MAX_CONTENT_BYTES = 32L * BYTES_PER_MB;
+
+	private final ImageTool    imageTool;
+	private final ExifToolPool exifToolPool;
+
+	@Value("${vempain.publish.image-cache.enabled:true}")
+	private boolean enabled;
+
+	@Value("${vempain.publish.image-cache.directory:${java.io.tmpdir}/vempain-site-images}")
+	private String cacheDirectory;
+
+	@Value("${vempain.publish.image-cache.max-size-mb:2048}")
+	private long maxSizeMb;
+
+	private Path         cacheRoot;
+	private DiskLruCache cache;
+
+	@PostConstruct
+	public void init() {
+		if (!enabled) {
+			return;
+		}
+
+		try {
+			cacheRoot = Files.createDirectories(Path.of(cacheDirectory));
+			cache     = new DiskLruCache("site image", maxSizeMb * BYTES_PER_MB);
+			loadEntries();
+			log.info("Site image cache at {} holds {} images, {} MB", cacheRoot, cache.size(), cache.totalBytes() / BYTES_PER_MB);
+		} catch (IOException e) {
+			log.error("Could not use {} as the site image cache, images are resized on every publish", cacheDirectory, e);
+			cacheRoot = null;
+		}
+	}
+
+	/**
+	 * Resize the source image to the site image size. A cached copy is returned when there is one, otherwise the image is resized
+	 * and added to the cache. With the cache disabled the image is resized into a temporary file, which the caller must delete.
+	 * The caller must close the returned image once it has read it.
+	 *
+	 * @param sourceSha256 sha256sum of the source file if known, computed from the file if null
+	 */
+	public ResizedImage resize(Path source, String sourceSha256, int imageMinimumSize, float quality, String imageType, String metadataJson)
+			throws IOException {
+		if (cacheRoot == null) {
+			var tempFile = Files.createTempFile(Path.of(System.getProperty("java.io.tmpdir")), "vempain-", "." + imageType);
+			return createImage(source, tempFile, imageMinimumSize, quality, imageType, metadataJson);
+		}
+
+		var sha256sum = sourceSha256 != null ? sourceSha256 : computeSha256(source.toFile());
+
+		if (sha256sum == null) {
+			throw new IOException("Could not compute the sha256sum of " + source);
+		}
+
+		var key    = cacheKey(sha256sum, imageMinimumSize, quality, imageType, metadataJson);
+		var cached = lookup(key);
+
+		if (cached != null) {
+			log.debug("Using cached site image {} for {}", cached.path(), source);
+			return cached;
+		}
+
+		var tempImage = Files.createTempFile(cacheRoot, TEMP_PREFIX, "." + imageType);
+		var image     = cacheRoot.resolve(key + "." + imageType);
+		var sidecar   = cacheRoot.resolve(key + SIDECAR_SUFFIX);
+		var created   = createImage(source, tempImage, imageMinimumSize, quality, imageType, metadataJson);
+
+		try {
+			Files.move(tempImage, image, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			writeSidecar(sidecar, created);
+		} finally {
+			Files.deleteIfExists(tempImage);
+		}
+
+		var lease = cache.put(key, List.of(image, sidecar));
+		return new ResizedImage(image, created.dimensions(), created.mimeType(), created.sha256sum(), false, created.content(), lease);
+	}
+
+	static String cacheKey(String sourceSha256, int imageMinimumSize, float quality, String imageType, String metadataJson) {
+		var metadataSha256 = DigestUtils.sha256Hex(metadataJson == null ? "" : metadataJson);
+		return DigestUtils.sha256Hex(String.join("|", sourceSha256, Integer.toString(imageMinimumSize), Float.toString(quality), imageType,
+												 metadataSha256));
+	}
+
+	private ResizedImage createImage(Path source, Path destination, int imageMinimumSize, float quality, String imageType, String metadataJson)
+			throws IOException {
+		try {
+			var dimensions = imageTool.resizeImage(source, destination, imageMinimumSize, quality, metadataJson);
+			// The mimetype follows from the chosen image type, exiftool is only asked if no image writer knows it
+			var mimetype = ImageTool.mimeTypeOf(imageType);
+
+			if (mimetype == null) {
+				mimetype = MetadataTool.extractMimetype(exifToolPool.extractMetadataJsonObject(destination.toFile()));
+			}
+
+			// The finished image is read once, the same bytes are hashed here and uploaded by the caller
+			if (Files.size(destination) <= MAX_CONTENT_BYTES) {
+				var content = Files.readAllBytes(destination);
+				return new ResizedImage(destination, dimensions, mimetype, DigestUtils.sha256Hex(content), true, content, null);
+			}
+
+			return new ResizedImage(destination, dimensions, mimetype, computeSha256(destination.toFile()), true, null, null);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(destination);
+			throw e;
+		}
+	}
+
+	private ResizedImage lookup(String key) {
+		var lease = cache.acquire(key);
+
+		if (lease == null) {
+			return null;
+		}
+
+		var image   = lease.files()
+						   .get(0);
+		var sidecar = lease.files()
+						   .get(1);
+
+		try {
+			var properties = new Properties();
+
+			try (var reader = Files.newBufferedReader(sidecar)) {
+				properties.load(reader);
+			}
+
+			var dimensions = new Dimension(Integer.parseInt(properties.getProperty(WIDTH)), Integer.parseInt(properties.getProperty(HEIGHT)));
+			return new ResizedImage(image, dimensions, properties.getProperty(MIMETYPE), properties.getProperty(SHA256SUM), false, null, lease);
+		} catch (IOException | RuntimeException e) {
+			log.warn("Dropping unreadable site image cache entry {}", image, e);
+			lease.discard();
+			return null;
+		}
+	}
+
+	private void writeSidecar(Path sidecar, ResizedImage resizedImage) throws IOException {
+		var properties = new Properties();
+		properties.setProperty(WIDTH, Integer.toString(resizedImage.dimensions().width));
+		properties.setProperty(HEIGHT, Integer.toString(resizedImage.dimensions().height));
+		properties.setProperty(MIMETYPE, resizedImage.mimeType() == null ? "" : resizedImage.mimeType());
+		properties.setProperty(SHA256SUM, resizedImage.sha256sum() == null ? "" : resizedImage.sha256sum());
+
+		var tempSidecar = Files.createTempFile(cacheRoot, TEMP_PREFIX, SIDECAR_SUFFIX);
+
+		try {
+			try (var writer = Files.newBufferedWriter(tempSidecar)) {
+				properties.store(writer, null);
+			}
+
+			Files.move(tempSidecar, sidecar, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tempSidecar);
+		}
+	}
+
+	private void loadEntries() throws IOException {
+		var found = new ArrayList<LoadedEntry>();
+
+		try (var paths = Files.list(cacheRoot)) {
+			for (var path : paths.toList()) {
+				var name = path.getFileName()
+							   .toString();
+
+				if (name.startsWith(TEMP_PREFIX)) {
+					// Left over from an interrupted write
+					Files.deleteIfExists(path);
+				} else if (!name.endsWith(SIDECAR_SUFFIX)) {
+					var key     = name.substring(0, name.lastIndexOf('.') > 0 ? name.lastIndexOf('.') : name.length());
+					var sidecar = cacheRoot.resolve(key + SIDECAR_SUFFIX);
+
+					if (Files.exists(sidecar)) {
+						found.add(new LoadedEntry(key, path, sidecar, Files.getLastModifiedTime(path)));
+					} else {
+						Files.deleteIfExists(path);
+					}
+				}
+			}
+		}
+
+		found.sort(Comparator.comparing(LoadedEntry::lastUsed));
+
+		for (var loadedEntry : found) {
+			cache.load(loadedEntry.key(), List.of(loadedEntry.image(), loadedEntry.sidecar()));
+		}
+	}
+
+	/**
+	 * @param content The bytes of the image when it was just created, null for a cached image or one too large to hold in memory
+	 * @param lease   Pin on the cache entry of the image, null if the image is not cached
+	 */
+	public record ResizedImage(Path path, Dimension dimensions, String mimeType, String sha256sum, boolean temporary, byte[] content,
+							   DiskLruCache.Lease lease) implements AutoCloseable {
+
+		/**
+		 * Release the cached image so that it can be evicted again.
+		 */
+		@Override
+		public void close() {
+			if (lease != null) {
+				lease.close();
+			}
+		}
+	}
+
+	private record LoadedEntry(String key, Path image, Path sidecar, FileTime lastUsed) {
+	}
+}
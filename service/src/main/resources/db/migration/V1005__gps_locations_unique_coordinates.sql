@@ -0,0 +1,22 @@
+-- Parallel scans may resolve the same coordinates concurrently, make the lookup key unique so that duplicates are rejected.
+-- Existing duplicates are merged into the row with the lowest id first.
+
+UPDATE files f
+SET gps_location_id = d.keep_id
+FROM (SELECT id,
+             MIN(id) OVER (PARTITION BY latitude, latitude_ref, longitude, longitude_ref) AS keep_id
+      FROM gps_locations) d
+WHERE f.gps_location_id = d.id
+  AND d.id <> d.keep_id;
+
+DELETE
+FROM gps_locations g
+	USING gps_locations k
+WHERE g.latitude = k.latitude
+  AND g.latitude_ref = k.latitude_ref
+  AND g.longitude = k.longitude
+  AND g.longitude_ref = k.longitude_ref
+  AND g.id > k.id;
+
+ALTER TABLE gps_locations
+	ADD CONSTRAINT uq_gps_locations_coordinates UNIQUE (latitude, latitude_ref, longitude, longitude_ref);
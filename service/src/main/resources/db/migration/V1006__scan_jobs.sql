@@ -0,0 +1,55 @@
+-- Asynchronous scan jobs, their per-directory progress and per-file results
+
+CREATE TABLE scan_jobs
+(
+	id                    BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+	status                VARCHAR(16) NOT NULL,
+	original_directory    VARCHAR(255),
+	export_directory      VARCHAR(255),
+	total_directories     BIGINT      NOT NULL DEFAULT 0,
+	processed_directories BIGINT      NOT NULL DEFAULT 0,
+	total_files           BIGINT      NOT NULL DEFAULT 0,
+	scanned_files         BIGINT      NOT NULL DEFAULT 0,
+	new_files             BIGINT      NOT NULL DEFAULT 0,
+	failed_files          BIGINT      NOT NULL DEFAULT 0,
+	cancel_requested      BOOLEAN     NOT NULL DEFAULT false,
+	error_message         TEXT,
+	creator               BIGINT,
+	created               TIMESTAMP   NOT NULL,
+	started               TIMESTAMP,
+	finished              TIMESTAMP
+);
+
+CREATE TABLE scan_job_directories
+(
+	id            BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+	scan_job_id   BIGINT       NOT NULL,
+	directory     VARCHAR(512) NOT NULL,
+	status        VARCHAR(16)  NOT NULL,
+	total_files   BIGINT       NOT NULL DEFAULT 0,
+	scanned_files BIGINT       NOT NULL DEFAULT 0,
+	new_files     BIGINT       NOT NULL DEFAULT 0,
+	failed_files  BIGINT       NOT NULL DEFAULT 0,
+	error_message TEXT,
+	started       TIMESTAMP,
+	finished      TIMESTAMP,
+	CONSTRAINT fk_scan_job_directories_job FOREIGN KEY (scan_job_id) REFERENCES scan_jobs (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_scan_job_directories_job_id ON scan_job_directories (scan_job_id);
+
+CREATE TABLE scan_job_files
+(
+	id          BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+	scan_job_id BIGINT       NOT NULL,
+	file_id     BIGINT,
+	filename    VARCHAR(255) NOT NULL,
+	file_path   VARCHAR(512) NOT NULL,
+	success     BOOLEAN      NOT NULL,
+	message     TEXT,
+	CONSTRAINT fk_scan_job_files_job FOREIGN KEY (scan_job_id) REFERENCES scan_jobs (id) ON DELETE CASCADE,
+	CONSTRAINT fk_scan_job_files_file FOREIGN KEY (file_id) REFERENCES files (id) ON DELETE SET NULL
+);
+
+CREATE INDEX idx_scan_job_files_job_id ON scan_job_files (scan_job_id, id);
+CREATE INDEX idx_scan_job_files_file_id ON scan_job_files (file_id);
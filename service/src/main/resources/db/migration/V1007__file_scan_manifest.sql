@@ -0,0 +1,5 @@
+-- Scan manifest: last-modified time (epoch milliseconds) and file system key (device and inode) recorded when the file was
+-- ingested. Existing rows are left empty and get filled on the next rescan, which still hashes them once.
+ALTER TABLE files
+	ADD COLUMN file_mtime BIGINT,
+	ADD COLUMN file_key   VARCHAR(255);
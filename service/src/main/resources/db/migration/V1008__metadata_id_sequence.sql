@@ -0,0 +1,9 @@
+-- Metadata ids are allocated from a pooled sequence instead of an identity column, which lets Hibernate batch the inserts.
+-- The increment must match the allocationSize of MetadataEntity. With the pooled optimizer a fetched value is the upper end of
+-- the block, so the first value is set one increment above the current maximum id.
+ALTER TABLE metadata
+	ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE metadata_id_seq INCREMENT BY 50 OWNED BY metadata.id;
+
+SELECT setval('metadata_id_seq', COALESCE((SELECT MAX(id) FROM metadata), 0) + 50, false);
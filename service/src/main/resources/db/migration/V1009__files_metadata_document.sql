@@ -0,0 +1,16 @@
+-- Grouped metadata of a file as a single JSONB document, {"group": {"key": "value"}}. Replaces the one-row-per-tag metadata
+-- table as the primary storage, the table is kept for the optional row storage mode.
+ALTER TABLE files
+	ADD COLUMN metadata_document JSONB;
+
+UPDATE files f
+SET metadata_document = d.document
+FROM (SELECT g.file_id, jsonb_object_agg(g.metadata_group, g.group_document) AS document
+	  FROM (SELECT file_id, metadata_group, jsonb_object_agg(metadata_key, metadata_value) AS group_document
+			FROM metadata
+			GROUP BY file_id, metadata_group) g
+	  GROUP BY g.file_id) d
+WHERE f.id = d.file_id;
+
+-- jsonb_path_ops supports the containment operator @> used by the metadata search, with a smaller index than the default class
+CREATE INDEX IF NOT EXISTS idx_files_metadata_document ON files USING GIN (metadata_document jsonb_path_ops);
@@ -0,0 +1,8 @@
+-- Publish state of the export file: what was last uploaded to the admin site. The sha256sum is that of the uploaded bytes (the
+-- resized image for images), the hash covers the ingest request without the content and the gallery. Files with an unchanged
+-- state are skipped when their group is published again.
+ALTER TABLE export_files
+	ADD COLUMN published_sha256sum     VARCHAR(64),
+	ADD COLUMN published_metadata_hash VARCHAR(64),
+	ADD COLUMN published_gallery_id    BIGINT,
+	ADD COLUMN published_at            TIMESTAMP;
@@ -0,0 +1,65 @@
+-- Persisted publish jobs. A job has a row per file group to publish, and a row per file once the file has been worked on, so
+-- that an interrupted job continues where it was left. Groups are claimed by the publish workers of any service instance with
+-- SELECT ... FOR UPDATE SKIP LOCKED, the claim is a lease which is renewed as files get published.
+
+CREATE TABLE publish_jobs
+(
+	id               BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+	status           VARCHAR(16) NOT NULL,
+	all_groups       BOOLEAN     NOT NULL DEFAULT false,
+	force_publish    BOOLEAN     NOT NULL DEFAULT false,
+	total_groups     BIGINT      NOT NULL DEFAULT 0,
+	completed_groups BIGINT      NOT NULL DEFAULT 0,
+	failed_groups    BIGINT      NOT NULL DEFAULT 0,
+	files_published  BIGINT      NOT NULL DEFAULT 0,
+	files_skipped    BIGINT      NOT NULL DEFAULT 0,
+	creator          BIGINT,
+	created          TIMESTAMP   NOT NULL,
+	updated          TIMESTAMP   NOT NULL,
+	finished         TIMESTAMP
+);
+
+-- Only one publish of all file groups may run at a time
+CREATE UNIQUE INDEX uq_publish_jobs_running_all_groups ON publish_jobs (all_groups) WHERE status = 'RUNNING' AND all_groups;
+
+CREATE TABLE publish_job_groups
+(
+	id                  BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+	publish_job_id      BIGINT      NOT NULL,
+	file_group_id       BIGINT      NOT NULL,
+	gallery_name        VARCHAR(255),
+	gallery_description TEXT,
+	gallery_id          BIGINT,
+	status              VARCHAR(16) NOT NULL,
+	attempts            INT         NOT NULL DEFAULT 0,
+	available_at        TIMESTAMP,
+	claimed_by          VARCHAR(255),
+	claimed_at          TIMESTAMP,
+	last_error          TEXT,
+	started             TIMESTAMP,
+	finished            TIMESTAMP,
+	CONSTRAINT fk_publish_job_groups_job FOREIGN KEY (publish_job_id) REFERENCES publish_jobs (id) ON DELETE CASCADE,
+	CONSTRAINT fk_publish_job_groups_file_group FOREIGN KEY (file_group_id) REFERENCES file_group (id) ON DELETE CASCADE,
+	CONSTRAINT uq_publish_job_groups_job_group UNIQUE (publish_job_id, file_group_id)
+);
+
+-- The claim query only looks at the groups still to be done
+CREATE INDEX idx_publish_job_groups_claimable ON publish_job_groups (publish_job_id, id) WHERE status IN ('SCHEDULED', 'STARTED');
+CREATE INDEX idx_publish_job_groups_file_group_id ON publish_job_groups (file_group_id);
+
+CREATE TABLE publish_job_files
+(
+	id                   BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+	publish_job_group_id BIGINT      NOT NULL,
+	file_id              BIGINT      NOT NULL,
+	status               VARCHAR(16) NOT NULL,
+	skipped              BOOLEAN     NOT NULL DEFAULT false,
+	attempts             INT         NOT NULL DEFAULT 0,
+	last_error           TEXT,
+	finished             TIMESTAMP,
+	CONSTRAINT fk_publish_job_files_group FOREIGN KEY (publish_job_group_id) REFERENCES publish_job_groups (id) ON DELETE CASCADE,
+	CONSTRAINT fk_publish_job_files_file FOREIGN KEY (file_id) REFERENCES files (id) ON DELETE CASCADE,
+	CONSTRAINT uq_publish_job_files_group_file UNIQUE (publish_job_group_id, file_id)
+);
+
+CREATE INDEX idx_publish_job_files_file_id ON publish_job_files (file_id);
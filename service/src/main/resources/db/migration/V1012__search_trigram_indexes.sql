@@ -0,0 +1,13 @@
+-- Trigram indexes for the free text searches, which match LOWER(column) LIKE '%term%'. A B-tree index cannot serve a pattern with
+-- a leading wildcard, a trigram GIN index can. The case-sensitive searches filter with the same lowered predicate first, so the
+-- lowered expressions are the only ones indexed. pg_trgm is a trusted extension, the owner of the database can create it.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_files_filename_trgm ON files USING GIN (LOWER(filename) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_files_file_path_trgm ON files USING GIN (LOWER(file_path) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_files_description_trgm ON files USING GIN (LOWER(description) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_files_mimetype_trgm ON files USING GIN (LOWER(mimetype) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_file_group_path_trgm ON file_group USING GIN (LOWER(path) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_file_group_group_name_trgm ON file_group USING GIN (LOWER(group_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_file_group_description_trgm ON file_group USING GIN (LOWER(description) gin_trgm_ops);
@@ -0,0 +1,7 @@
+-- Indexes for the cursor paged file listings, which continue after the sort key and id of the last file of the previous page.
+-- With the id as the second column, a page is read from the index starting at the position and the listing needs no sorting.
+CREATE INDEX IF NOT EXISTS idx_files_filename_id ON files (filename, id);
+CREATE INDEX IF NOT EXISTS idx_files_file_path_id ON files (file_path, id);
+CREATE INDEX IF NOT EXISTS idx_files_mimetype_id ON files (mimetype, id);
+CREATE INDEX IF NOT EXISTS idx_files_filesize_id ON files (filesize, id);
+CREATE INDEX IF NOT EXISTS idx_files_created_id ON files (created, id);
@@ -0,0 +1,5 @@
+-- File counters of a publish group, so that a file result updates only the row of the group its worker has claimed instead of
+-- the job row shared by all workers. The counters of a group are added to the job when the group finishes.
+ALTER TABLE publish_job_groups
+	ADD COLUMN IF NOT EXISTS files_published BIGINT NOT NULL DEFAULT 0,
+	ADD COLUMN IF NOT EXISTS files_skipped   BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,6 @@
+-- Scan manifest of the export files: last-modified time (epoch milliseconds) and file system key recorded with the sha256sum.
+-- Lets the publish use the recorded sha256sum of an unchanged export file instead of hashing it again. Existing rows are left
+-- empty and are hashed once more on their next scan or publish.
+ALTER TABLE export_files
+	ADD COLUMN file_mtime BIGINT,
+	ADD COLUMN file_key   VARCHAR(255);
@@ -1,8 +1,8 @@
 package fi.poltsi.vempain.file;
 
 import fi.poltsi.vempain.file.api.PublishProgressStatusEnum;
-import fi.poltsi.vempain.file.service.PublishProgressStore;
-import fi.poltsi.vempain.file.service.PublishService;
+import fi.poltsi.vempain.file.api.PublishJobStatusEnum;
+import fi.poltsi.vempain.file.service.PublishJobService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -23,7 +23,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 @SpringBootTest(properties = {
 		"vempain.app.frontend-url=http://localhost:3000",
 		"vempain.original-root-directory=/tmp",
-		"vempain.export-root-directory=/tmp"
+		"vempain.export-root-directory=/tmp",
+		"vempain.publish.jobs.poll-interval-millis=100"
 })
 @Testcontainers
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
@@ -38,17 +39,14 @@ public class PublishServiceITC {
 	private JdbcTemplate jdbcTemplate;
 
 	@Autowired
-	private PublishService publishService;
-
-	@Autowired
-	private PublishProgressStore progressStore;
+	private PublishJobService publishJobService;
 
 	@BeforeEach
 	void setup() {
 		// Ensure table exists; simple schema sufficient for this integration test
 		jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS file_group (id BIGSERIAL PRIMARY KEY, path VARCHAR(255), group_name VARCHAR(255));");
 		// Clean tables that will be used in the test.
-		jdbcTemplate.update("TRUNCATE TABLE file_group RESTART IDENTITY CASCADE");
+		jdbcTemplate.update("TRUNCATE TABLE file_group, publish_jobs RESTART IDENTITY CASCADE");
 	}
 
 	@Test
@@ -61,31 +59,34 @@ public class PublishServiceITC {
 		jdbcTemplate.update("INSERT INTO file_group (path, group_name) VALUES (?, ?)",
 							"/g3", "group3");
 
-		long scheduled = publishService.publishAllFileGroups();
+		long scheduled = publishJobService.startAllFileGroupsJob();
 
-		assertEquals(3L, scheduled, "publishAllFileGroups should schedule three groups");
-		// progress store should reflect scheduled and total count immediately
-		assertEquals(3L, progressStore.getScheduled());
-		assertEquals(3L, progressStore.getTotal());
+		assertEquals(3L, scheduled, "startAllFileGroupsJob should schedule three groups");
+		// the job should reflect the scheduled and total count immediately
+		var progress = publishJobService.getLatestProgress();
+		assertEquals(3L, progress.getScheduled());
+		assertEquals(3L, progress.getTotalGroups());
 
-		// Wait for async processing to mark them started/completed
+		// Wait for the publish workers to claim and complete the groups
 		Instant deadline = Instant.now()
-								  .plus(Duration.ofSeconds(5));
+								  .plus(Duration.ofSeconds(10));
 		while (Instant.now()
 					  .isBefore(deadline)) {
-			if (progressStore.getCompleted() >= 3L && progressStore.getStarted() >= 3L) {
+			progress = publishJobService.getLatestProgress();
+			if (progress.getStatus() == PublishJobStatusEnum.COMPLETED) {
 				break;
 			}
 			Thread.sleep(100);
 		}
 
-		assertEquals(3L, progressStore.getStarted(), "All groups should have been started");
-		assertEquals(3L, progressStore.getCompleted(), "All groups should have completed");
+		assertEquals(PublishJobStatusEnum.COMPLETED, progress.getStatus(), "The job should have completed");
+		assertEquals(3L, progress.getStarted(), "All groups should have been started");
+		assertEquals(3L, progress.getCompleted(), "All groups should have completed");
 
 		// Ensure per-group statuses are set to COMPLETED
-		assertTrue(progressStore.getPerGroupStatus()
-								.values()
-								.stream()
-								.allMatch(s -> s == PublishProgressStatusEnum.COMPLETED));
+		assertTrue(progress.getPerGroupStatus()
+						   .values()
+						   .stream()
+						   .allMatch(s -> s == PublishProgressStatusEnum.COMPLETED));
 	}
 }
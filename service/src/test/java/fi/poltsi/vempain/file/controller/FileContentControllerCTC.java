@@ -0,0 +1,164 @@
+package fi.poltsi.vempain.file.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static fi.poltsi.vempain.file.tools.FileTool.statFile;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Controller Test Class (CTC) for {@link FileContentController}.
+ *
+ * <p>Tests the REST endpoint declared in {@code FileContentAPI}:
+ * <ul>
+ *   <li>GET /files/{id}/content – whole content, byte ranges and conditional requests</li>
+ *   <li>GET /files/{id}/preview – cached image previews</li>
+ * </ul>
+ *
+ * <p>The original root directory is {@code /tmp} in test properties, the content file is written under it.
+ */
+class FileContentControllerCTC extends AbstractControllerCTC {
+
+	private static final long   FILE_ID   = 9101L;
+	private static final long   IMAGE_ID  = 9102L;
+	private static final String DIRECTORY = "vempain-content-ctc";
+	private static final String CONTENT   = "0123456789abcdefghij";
+	private static final String SHA256    = "a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0a0";
+
+	private Path contentFile;
+
+	@BeforeEach
+	void seedContent() throws Exception {
+		var directory = Files.createDirectories(Path.of("/tmp", DIRECTORY));
+		contentFile = Files.writeString(directory.resolve("content.bin"), CONTENT);
+		var fileStat = statFile(contentFile.toFile());
+
+		seedFileRow(FILE_ID, "DATA", "application/octet-stream", "content.bin", "/" + DIRECTORY);
+		jdbcTemplate.update("INSERT INTO data_files (id, data_structure) VALUES (?, 'CSV')", FILE_ID);
+		jdbcTemplate.update("UPDATE files SET filesize = ?, file_mtime = ?, file_key = ? WHERE id = ?", fileStat.size(), fileStat.mtime(),
+							fileStat.fileKey(), FILE_ID);
+	}
+
+	@AfterEach
+	void cleanup() throws Exception {
+		deleteFileRow(FILE_ID);
+		deleteFileRow(IMAGE_ID);
+		Files.deleteIfExists(contentFile);
+		Files.deleteIfExists(Path.of("/tmp", DIRECTORY, "image.png"));
+	}
+
+	@Test
+	void getFileContent_returnsWholeContentWithValidators() throws Exception {
+		doGet("/files/" + FILE_ID + "/content")
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"" + SHA256 + "\""))
+				.andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+				.andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+				.andExpect(content().string(CONTENT));
+	}
+
+	@Test
+	void getFileContent_returns206_forSingleRange() throws Exception {
+		mockMvc.perform(get("/files/" + FILE_ID + "/content").with(user("ctc-user").roles("USER"))
+															 .header(HttpHeaders.RANGE, "bytes=10-14"))
+			   .andExpect(status().isPartialContent())
+			   .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-14/20"))
+			   .andExpect(content().string("abcde"));
+	}
+
+	@Test
+	void getFileContent_returns206_forMultipleRanges() throws Exception {
+		mockMvc.perform(get("/files/" + FILE_ID + "/content").with(user("ctc-user").roles("USER"))
+															 .header(HttpHeaders.RANGE, "bytes=0-1,18-19"))
+			   .andExpect(status().isPartialContent())
+			   .andExpect(header().string(HttpHeaders.CONTENT_TYPE, startsWith("multipart/byteranges")));
+	}
+
+	@Test
+	void getFileContent_returns416_forUnsatisfiableRange() throws Exception {
+		mockMvc.perform(get("/files/" + FILE_ID + "/content").with(user("ctc-user").roles("USER"))
+															 .header(HttpHeaders.RANGE, "bytes=100-200"))
+			   .andExpect(status().isRequestedRangeNotSatisfiable());
+	}
+
+	@Test
+	void getFileContent_returnsWholeContent_whenIfRangeDoesNotMatch() throws Exception {
+		mockMvc.perform(get("/files/" + FILE_ID + "/content").with(user("ctc-user").roles("USER"))
+															 .header(HttpHeaders.RANGE, "bytes=10-14")
+															 .header(HttpHeaders.IF_RANGE, "\"some-older-content\""))
+			   .andExpect(status().isOk())
+			   .andExpect(content().string(CONTENT));
+	}
+
+	@Test
+	void getFileContent_returns206_whenIfRangeMatches() throws Exception {
+		mockMvc.perform(get("/files/" + FILE_ID + "/content").with(user("ctc-user").roles("USER"))
+															 .header(HttpHeaders.RANGE, "bytes=0-3")
+															 .header(HttpHeaders.IF_RANGE, "\"" + SHA256 + "\""))
+			   .andExpect(status().isPartialContent())
+			   .andExpect(content().string("0123"));
+	}
+
+	@Test
+	void getFileContent_returns304_whenETagMatches() throws Exception {
+		mockMvc.perform(get("/files/" + FILE_ID + "/content").with(user("ctc-user").roles("USER"))
+															 .header(HttpHeaders.IF_NONE_MATCH, "\"" + SHA256 + "\""))
+			   .andExpect(status().isNotModified());
+	}
+
+	@Test
+	void getFileContent_omitsETag_whenFileChangedAfterScan() throws Exception {
+		jdbcTemplate.update("UPDATE files SET file_mtime = file_mtime - 1000 WHERE id = ?", FILE_ID);
+
+		doGet("/files/" + FILE_ID + "/content")
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist(HttpHeaders.ETAG))
+				.andExpect(content().string(CONTENT));
+	}
+
+	@Test
+	void getFilePreview_returnsCachedPreviewAndRevalidates() throws Exception {
+		var image = Path.of("/tmp", DIRECTORY, "image.png");
+		ImageIO.write(new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB), "png", image.toFile());
+		seedFileRow(IMAGE_ID, "IMAGE", "image/png", "image.png", "/" + DIRECTORY);
+		jdbcTemplate.update("INSERT INTO image_files (id, width, height, color_depth, dpi) VALUES (?, 800, 600, 24, 72)", IMAGE_ID);
+
+		var eTag = doGet("/files/" + IMAGE_ID + "/preview?size=160")
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.IMAGE_JPEG))
+				.andExpect(header().exists(HttpHeaders.ETAG))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, startsWith("max-age=")))
+				.andReturn()
+				.getResponse()
+				.getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(get("/files/" + IMAGE_ID + "/preview?size=160").with(user("ctc-user").roles("USER"))
+																	   .header(HttpHeaders.IF_NONE_MATCH, eTag))
+			   .andExpect(status().isNotModified());
+	}
+
+	@Test
+	void getFilePreview_returns400_forUnsupportedSize() throws Exception {
+		doGet("/files/" + FILE_ID + "/preview?size=123")
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void getFilePreview_returns415_forNonImage() throws Exception {
+		doGet("/files/" + FILE_ID + "/preview?size=320")
+				.andExpect(status().isUnsupportedMediaType());
+	}
+}
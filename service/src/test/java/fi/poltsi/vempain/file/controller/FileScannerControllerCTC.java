@@ -15,6 +15,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * <p>Tests the REST endpoint declared in {@code FileScannerAPI}:
  * <ul>
  *   <li>POST /api/scan-files – scan a directory for new files</li>
+ *   <li>POST /api/scan-files/jobs – queue a background scan job</li>
+ *   <li>GET  /api/scan-files/jobs/{jobId} – scan job progress</li>
+ *   <li>GET  /api/scan-files/jobs/{jobId}/events – scan job progress events</li>
  * </ul>
  *
  * <p>The scan root is configured as {@code /tmp} in test properties.
@@ -61,5 +64,34 @@ class FileScannerControllerCTC extends AbstractControllerCTC {
 		doPost("/scan-files", "{\"original_directory\":\"no-leading-slash\"}")
 				.andExpect(status().isBadRequest());
 	}
-}
 
+	// -----------------------------------------------------------------------
+	// Scan jobs
+	// -----------------------------------------------------------------------
+
+	@Test
+	void startScanJob_returns202_withJobId() throws Exception {
+		doPost("/scan-files/jobs", "{\"original_directory\":\"%s\"}".formatted(TEST_SCAN_DIR))
+				.andExpect(status().isAccepted())
+				.andExpect(jsonPath("$.id").exists())
+				.andExpect(jsonPath("$.original_directory").value(TEST_SCAN_DIR));
+	}
+
+	@Test
+	void startScanJob_returns400_whenBothDirectoriesAreNull() throws Exception {
+		doPost("/scan-files/jobs", "{}")
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void getScanJob_returns404_whenJobDoesNotExist() throws Exception {
+		doGet("/scan-files/jobs/999999")
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void streamScanJob_returns404_whenJobDoesNotExist() throws Exception {
+		doGet("/scan-files/jobs/999999/events")
+				.andExpect(status().isNotFound());
+	}
+}
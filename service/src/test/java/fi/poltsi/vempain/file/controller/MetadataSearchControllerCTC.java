@@ -0,0 +1,43 @@
+package fi.poltsi.vempain.file.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Controller Test Class (CTC) for {@link MetadataSearchController}.
+ *
+ * <p>Tests the REST endpoint declared in {@code MetadataSearchAPI}:
+ * <ul>
+ *   <li>POST /api/files/metadata/search – files matching all metadata filters</li>
+ * </ul>
+ */
+class MetadataSearchControllerCTC extends AbstractControllerCTC {
+
+	@Test
+	void search_returns200_withValidFilter() throws Exception {
+		doPost("/files/metadata/search", """
+				{
+				  "filters": [{"group": "IFD0", "key": "Model", "value": "X-T4"}],
+				  "page": 0,
+				  "size": 20
+				}
+				""")
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.content").isArray())
+				.andExpect(jsonPath("$.total_elements").exists());
+	}
+
+	@Test
+	void search_returns400_whenFiltersAreEmpty() throws Exception {
+		doPost("/files/metadata/search", "{\"filters\": [], \"page\": 0, \"size\": 20}")
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void search_returns400_whenFilterKeyIsBlank() throws Exception {
+		doPost("/files/metadata/search", "{\"filters\": [{\"group\": \"IFD0\", \"key\": \"\", \"value\": \"X-T4\"}], \"page\": 0, \"size\": 20}")
+				.andExpect(status().isBadRequest());
+	}
+}
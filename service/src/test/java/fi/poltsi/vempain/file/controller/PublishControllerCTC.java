@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -16,16 +17,19 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  *   <li>POST /api/publish/file-group      – publish a single file group</li>
  *   <li>GET  /api/publish/all-file-groups – publish all file groups</li>
  *   <li>GET  /api/publish/progress        – get publish progress</li>
+ *   <li>GET  /api/publish/progress/events – stream publish progress events</li>
+ *   <li>GET  /api/publish/jobs/{id}       – get the progress of a publish job</li>
+ *   <li>POST /api/publish/jobs/{id}/resume – resume a failed publish job</li>
  * </ul>
  *
- * <p>Publish operations are asynchronous; only HTTP response codes and
- * response body shape are verified here, not async completion.
+ * <p>Publish operations run as persisted jobs; only HTTP response codes and
+ * response body shape are verified here, not job completion.
  */
 class PublishControllerCTC extends AbstractControllerCTC {
 
 	@BeforeEach
 	void cleanFileGroups() {
-		jdbcTemplate.execute("TRUNCATE TABLE file_group RESTART IDENTITY CASCADE");
+		jdbcTemplate.execute("TRUNCATE TABLE file_group, publish_jobs RESTART IDENTITY CASCADE");
 	}
 
 	// -----------------------------------------------------------------------
@@ -78,6 +82,16 @@ class PublishControllerCTC extends AbstractControllerCTC {
 				.andExpect(jsonPath("$.file_groups_count", greaterThanOrEqualTo(2)));
 	}
 
+	@Test
+	void publishAllFileGroups_returns409_whenAlreadyRunning() throws Exception {
+		jdbcTemplate.update(
+				"INSERT INTO publish_jobs (status, all_groups, force_publish, total_groups, created, updated) VALUES (?, ?, false, ?, NOW(), NOW())",
+				"RUNNING", true, 1);
+
+		doGet("/publish/all-file-groups")
+				.andExpect(status().isConflict());
+	}
+
 	// -----------------------------------------------------------------------
 	// GET /api/publish/progress
 	// -----------------------------------------------------------------------
@@ -92,5 +106,43 @@ class PublishControllerCTC extends AbstractControllerCTC {
 				.andExpect(jsonPath("$.completed").exists())
 				.andExpect(jsonPath("$.failed").exists());
 	}
-}
 
+	@Test
+	void streamPublishProgress_startsEventStream() throws Exception {
+		doGet("/publish/progress/events")
+				.andExpect(request().asyncStarted());
+	}
+
+	// -----------------------------------------------------------------------
+	// GET /api/publish/jobs/{jobId}
+	// -----------------------------------------------------------------------
+
+	@Test
+	void getPublishJob_returns404_whenJobDoesNotExist() throws Exception {
+		doGet("/publish/jobs/99999")
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void getPublishJob_returns200_withJobStatus() throws Exception {
+		jdbcTemplate.update(
+				"INSERT INTO publish_jobs (status, all_groups, force_publish, total_groups, created, updated) VALUES (?, ?, false, ?, NOW(), NOW())",
+				"COMPLETED", false, 0);
+		Long jobId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM publish_jobs", Long.class);
+
+		doGet("/publish/jobs/" + jobId)
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.job_id").value(jobId))
+				.andExpect(jsonPath("$.status").value("COMPLETED"));
+	}
+
+	// -----------------------------------------------------------------------
+	// POST /api/publish/jobs/{jobId}/resume
+	// -----------------------------------------------------------------------
+
+	@Test
+	void resumePublishJob_returns404_whenJobDoesNotExist() throws Exception {
+		doPost("/publish/jobs/99999/resume", "")
+				.andExpect(status().isNotFound());
+	}
+}
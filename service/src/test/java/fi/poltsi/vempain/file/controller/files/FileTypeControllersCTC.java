@@ -1,5 +1,6 @@
 package fi.poltsi.vempain.file.controller.files;
 
+import com.jayway.jsonpath.JsonPath;
 import fi.poltsi.vempain.file.controller.AbstractControllerCTC;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
@@ -13,20 +14,24 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 /**
  * Controller Test Class (CTC) covering all 13 typed-file controllers.
  *
- * <p>Each file type exposes three endpoints via its API interface:
+ * <p>Each file type exposes four endpoints via its API interface:
  * <ul>
  *   <li>POST /api/files/{type}/paged  – paged list</li>
+ *   <li>POST /api/files/{type}/cursor – cursor paged list</li>
  *   <li>GET  /api/files/{type}/{id}   – single record</li>
  *   <li>DELETE /api/files/{type}/{id} – remove</li>
  * </ul>
  *
  * <p>All tests are parameterized via {@link #fileTypeArgs()} so that every
- * type is exercised with the same four test scenarios:
+ * type is exercised with the same test scenarios:
  * <ol>
  *   <li>findAll returns 200 with valid page structure</li>
  *   <li>findById returns 404 for a missing id</li>
  *   <li>findById returns 200 for a seeded record</li>
  *   <li>delete returns 200 for a seeded record</li>
+ *   <li>delete returns 404 for a missing id</li>
+ *   <li>findAllByCursor continues from the cursor of the previous page</li>
+ *   <li>findAll lists the tags but not the raw metadata, which findById returns</li>
  * </ol>
  *
  * <p>Test records are seeded with id=9001 and cleaned up after each test.
@@ -198,5 +203,72 @@ class FileTypeControllersCTC extends AbstractControllerCTC {
 		doDelete("/files/" + urlSegment + "/99999")
 				.andExpect(status().isNotFound());
 	}
-}
 
+	// -----------------------------------------------------------------------
+	// Test 6: findAllByCursor continues from the cursor of the previous page
+	// -----------------------------------------------------------------------
+
+	@ParameterizedTest(name = "[{index}] findAllByCursor({0})")
+	@MethodSource("fileTypeArgs")
+	void findAllByCursor_continuesFromCursor(
+			String urlSegment, String fileType, String mimeType,
+			String filename, String filePath, String typeInsertSql) throws Exception {
+
+		seedFileRow(9001L, fileType, mimeType, filename, filePath);
+		jdbcTemplate.update(typeInsertSql);
+		seedFileRow(9002L, fileType, mimeType, filename, filePath);
+		jdbcTemplate.update(typeInsertSql.replace("9001", "9002"));
+
+		try {
+			// The seeded records have the highest ids, so they come first in descending order
+			var firstPage = doPost("/files/" + urlSegment + "/cursor", "{\"size\":1,\"sort_by\":\"id\",\"direction\":\"DESC\",\"include_total\":true}")
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.content[0].id").value(9002))
+					.andExpect(jsonPath("$.has_next").value(true))
+					.andExpect(jsonPath("$.total_elements").isNumber())
+					.andReturn()
+					.getResponse()
+					.getContentAsString();
+			String cursor = JsonPath.read(firstPage, "$.next_cursor");
+
+			doPost("/files/" + urlSegment + "/cursor", "{\"size\":1,\"cursor\":\"" + cursor + "\"}")
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.content[0].id").value(9001))
+					.andExpect(jsonPath("$.total_elements").doesNotExist());
+		} finally {
+			deleteFileRow(9001L);
+			deleteFileRow(9002L);
+		}
+	}
+
+	// -----------------------------------------------------------------------
+	// Test 7: findAll lists the tags but not the raw metadata
+	// -----------------------------------------------------------------------
+
+	@ParameterizedTest(name = "[{index}] findAll_listColumns({0})")
+	@MethodSource("fileTypeArgs")
+	void findAll_listsTagsWithoutRawMetadata(
+			String urlSegment, String fileType, String mimeType,
+			String filename, String filePath, String typeInsertSql) throws Exception {
+
+		seedFileRow(9001L, fileType, mimeType, filename, filePath);
+		jdbcTemplate.update(typeInsertSql);
+		var tagId = jdbcTemplate.queryForObject("INSERT INTO tags (tag_name) VALUES ('ctc-list-tag') RETURNING id", Long.class);
+		jdbcTemplate.update("INSERT INTO file_tags (file_id, tag_id) VALUES (9001, ?)", tagId);
+
+		try {
+			doPost("/files/" + urlSegment + "/paged", "{\"page\":0,\"size\":10,\"search\":\"" + filename + "\"}")
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.content[0].id").value(9001))
+					.andExpect(jsonPath("$.content[0].tags[0]").value("ctc-list-tag"))
+					.andExpect(jsonPath("$.content[0].metadata_raw").doesNotExist());
+
+			doGet("/files/" + urlSegment + "/9001")
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.metadata_raw").value("{}"));
+		} finally {
+			deleteFileRow(9001L);
+			jdbcTemplate.update("DELETE FROM tags WHERE id = ?", tagId);
+		}
+	}
+}
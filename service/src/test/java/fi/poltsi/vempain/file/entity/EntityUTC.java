@@ -389,6 +389,17 @@ class EntityUTC {
             mf.transferTo(dst.toFile());
             assertThat(Files.readString(dst)).isEqualTo("file transfer");
         }
+
+        @Test
+        void content_isUsedInsteadOfFile(@TempDir Path tempDir) throws IOException {
+            var file = tempDir.resolve("not-read.jpg");
+            var mf = VempainMultipartFile.builder().path(file).contentType("image/jpeg").content("in memory".getBytes()).build();
+            assertThat(mf.getSize()).isEqualTo(9L);
+            assertThat(mf.getName()).isEqualTo("not-read.jpg");
+            try (var is = mf.getInputStream()) {
+                assertThat(is.readAllBytes()).isEqualTo("in memory".getBytes());
+            }
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -418,6 +429,23 @@ class EntityUTC {
             assertThat(sha1).isNotEqualTo(sha2);
         }
 
+        @Test
+        void computeSha256_knownValue(@TempDir Path tempDir) throws IOException {
+            var file = tempDir.resolve("known.txt");
+            Files.writeString(file, "hello world");
+            assertThat(FileTool.computeSha256(file.toFile())).isEqualTo("b94d27b9934d3e08a52e52d7da7dabfac484efe37a5380ee9088f7ace2efcde9");
+        }
+
+        @Test
+        void computeSha256_fileLargerThanBuffer_matchesFullDigest(@TempDir Path tempDir) throws Exception {
+            var file  = tempDir.resolve("large.bin");
+            var bytes = new byte[3 * 1024 * 1024 + 17];
+            new java.util.Random(42).nextBytes(bytes);
+            Files.write(file, bytes);
+            var expected = org.apache.commons.codec.digest.DigestUtils.sha256Hex(bytes);
+            assertThat(FileTool.computeSha256(file.toFile())).isEqualTo(expected);
+        }
+
         @Test
         void computeSha256_nonExistentFile_returnsNull() {
             var file = new java.io.File("/non/existent/file.txt");
@@ -0,0 +1,251 @@
+package fi.poltsi.vempain.file.feign;
+
+import feign.FeignException;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.RetryableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests (UTC) for {@link VempainAdminResilience}.
+ */
+class VempainAdminResilienceUTC {
+
+    private SimpleMeterRegistry    meterRegistry;
+    private VempainAdminResilience resilience;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        resilience = new VempainAdminResilience(meterRegistry);
+        ReflectionTestUtils.setField(resilience, "maxAttempts", 3);
+        ReflectionTestUtils.setField(resilience, "initialBackoffMillis", 1L);
+        ReflectionTestUtils.setField(resilience, "maxBackoffMillis", 5L);
+        ReflectionTestUtils.setField(resilience, "failureThreshold", 3);
+        ReflectionTestUtils.setField(resilience, "openSeconds", 30L);
+        ReflectionTestUtils.setField(resilience, "maxConcurrentUploads", 2);
+        resilience.init();
+    }
+
+    private FeignException fakeFeignException(int status) {
+        return FeignException.errorStatus("test",
+                feign.Response.builder()
+                              .status(status)
+                              .reason("error")
+                              .request(Request.create(Request.HttpMethod.POST, "http://test", Map.of(), null, new RequestTemplate()))
+                              .headers(Map.of())
+                              .build());
+    }
+
+    private RetryableException fakeRetryableException(Exception cause) {
+        return new RetryableException(-1, cause.getMessage(), Request.HttpMethod.POST, cause, null,
+                Request.create(Request.HttpMethod.POST, "http://test", Map.of(), null, new RequestTemplate()));
+    }
+
+    @Test
+    void call_retriesServerErrorUntilSuccess() {
+        var calls = new AtomicInteger();
+
+        var result = resilience.call("test", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw fakeFeignException(503);
+            }
+
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(calls).hasValue(3);
+        assertThat(meterRegistry.counter("vempain.admin.retries", "operation", "test").count()).isEqualTo(2.0);
+        assertThat(meterRegistry.counter("vempain.admin.calls", "operation", "test", "outcome", "success").count()).isEqualTo(1.0);
+        assertThat(resilience.isAvailable()).isTrue();
+    }
+
+    @Test
+    void call_doesNotRetryClientError() {
+        var calls = new AtomicInteger();
+
+        assertThrows(FeignException.class, () -> resilience.call("test", () -> {
+            calls.incrementAndGet();
+            throw fakeFeignException(400);
+        }));
+
+        assertThat(calls).hasValue(1);
+        assertThat(meterRegistry.counter("vempain.admin.calls", "operation", "test", "outcome", "client_error").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void call_givesUpAfterMaxAttempts() {
+        ReflectionTestUtils.setField(resilience, "failureThreshold", 10);
+        var calls = new AtomicInteger();
+
+        assertThrows(FeignException.class, () -> resilience.call("test", () -> {
+            calls.incrementAndGet();
+            throw fakeFeignException(500);
+        }));
+
+        assertThat(calls).hasValue(3);
+        assertThat(resilience.isAvailable()).isTrue();
+    }
+
+    @Test
+    void call_opensCircuitAndRejectsWithoutCalling() {
+        assertThrows(FeignException.class, () -> resilience.call("test", () -> {
+            throw fakeFeignException(502);
+        }));
+        assertThat(resilience.isAvailable()).isFalse();
+
+        var calls = new AtomicInteger();
+        var exception = assertThrows(ResponseStatusException.class, () -> resilience.call("test", calls::incrementAndGet));
+
+        assertThat(exception.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(calls).hasValue(0);
+        assertThat(meterRegistry.get("vempain.admin.circuit.state").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void call_probeClosesCircuitAfterOpenPeriod() {
+        ReflectionTestUtils.setField(resilience, "openSeconds", 0L);
+        assertThrows(FeignException.class, () -> resilience.call("test", () -> {
+            throw fakeFeignException(504);
+        }));
+
+        assertThat(resilience.isAvailable()).isTrue();
+        assertThat(resilience.call("test", () -> "back")).isEqualTo("back");
+        assertThat(meterRegistry.get("vempain.admin.circuit.state").gauge().value()).isEqualTo(0.0);
+    }
+
+    @Test
+    void upload_limitsConcurrentUploads() throws Exception {
+        var running    = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var started    = new CountDownLatch(6);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 6; i++) {
+                executor.submit(() -> resilience.upload("ingest", () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    sleep();
+                    running.decrementAndGet();
+                    started.countDown();
+                    return null;
+                }));
+            }
+
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+        assertThat(meterRegistry.get("vempain.admin.uploads.available").gauge().value()).isEqualTo(2.0);
+    }
+
+    @Test
+    void call_retriesReadTimeout() {
+        var calls = new AtomicInteger();
+
+        var result = resilience.call("test", () -> {
+            if (calls.incrementAndGet() < 2) {
+                throw fakeRetryableException(new SocketTimeoutException("Read timed out"));
+            }
+
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void upload_isNotRepeatedAfterReadTimeout() {
+        var calls = new AtomicInteger();
+
+        assertThrows(RetryableException.class, () -> resilience.upload("ingest", () -> {
+            calls.incrementAndGet();
+            throw fakeRetryableException(new SocketTimeoutException("Read timed out"));
+        }));
+
+        assertThat(calls).hasValue(1);
+        assertThat(meterRegistry.counter("vempain.admin.calls", "operation", "ingest", "outcome", "failure").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("vempain.admin.uploads.available").gauge().value()).isEqualTo(2.0);
+    }
+
+    @Test
+    void upload_isNotRepeatedAfterServerError() {
+        var calls = new AtomicInteger();
+
+        assertThrows(FeignException.class, () -> resilience.upload("ingest", () -> {
+            calls.incrementAndGet();
+            throw fakeFeignException(500);
+        }));
+
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void upload_retriesWhenRequestCannotHaveBeenProcessed() {
+        var calls = new AtomicInteger();
+
+        var result = resilience.upload("ingest", () -> {
+            var call = calls.incrementAndGet();
+
+            if (call == 1) {
+                throw fakeRetryableException(new ConnectException("Connection refused"));
+            }
+
+            if (call == 2) {
+                throw fakeFeignException(503);
+            }
+
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void create_isNotRepeatedAfterReadTimeout() {
+        var calls = new AtomicInteger();
+
+        assertThrows(RetryableException.class, () -> resilience.create("test", () -> {
+            calls.incrementAndGet();
+            throw fakeRetryableException(new SocketTimeoutException("Read timed out"));
+        }));
+
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void backoff_growsWithinBounds() {
+        ReflectionTestUtils.setField(resilience, "initialBackoffMillis", 100L);
+        ReflectionTestUtils.setField(resilience, "maxBackoffMillis", 1000L);
+
+        assertThat(resilience.backoff(1).toMillis()).isBetween(50L, 100L);
+        assertThat(resilience.backoff(3).toMillis()).isBetween(200L, 400L);
+        assertThat(resilience.backoff(10).toMillis()).isBetween(500L, 1000L);
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
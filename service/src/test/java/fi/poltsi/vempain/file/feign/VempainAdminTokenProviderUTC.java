@@ -13,9 +13,20 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -33,6 +44,18 @@ class VempainAdminTokenProviderUTC {
     void injectFields() {
         ReflectionTestUtils.setField(tokenProvider, "adminUsername", "test-user");
         ReflectionTestUtils.setField(tokenProvider, "adminUserPassword", "test-pass");
+        ReflectionTestUtils.setField(tokenProvider, "defaultLifetimeSeconds", 3600L);
+        ReflectionTestUtils.setField(tokenProvider, "refreshBeforeExpirySeconds", 300L);
+        ReflectionTestUtils.setField(tokenProvider, "expiryMarginSeconds", 30L);
+        ReflectionTestUtils.setField(tokenProvider, "loginRetryDelaySeconds", 5L);
+    }
+
+    private static String jwtExpiringAt(Instant expires) {
+        var encoder = Base64.getUrlEncoder()
+                            .withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+               + encoder.encodeToString(("{\"sub\":\"test-user\",\"exp\":" + expires.getEpochSecond() + "}").getBytes(StandardCharsets.UTF_8))
+               + ".signature";
     }
 
     @Nested
@@ -104,14 +127,109 @@ class VempainAdminTokenProviderUTC {
 
         @Test
         void getToken_whenTokenExpired_callsLoginAgain() {
-            var loginResponse = LoginResponse.builder().token("new-token").build();
-            when(vempainAdminLoginClient.authenticateUser(any())).thenReturn(ResponseEntity.ok(loginResponse));
+            // Within the expiry margin, so the token counts as expired at once
+            var expiringToken = jwtExpiringAt(Instant.now().plusSeconds(10));
+            when(vempainAdminLoginClient.authenticateUser(any())).thenReturn(ResponseEntity.ok(LoginResponse.builder().token(expiringToken).build()))
+                                                                 .thenReturn(ResponseEntity.ok(LoginResponse.builder().token("new-token").build()));
             tokenProvider.getToken();
-            ReflectionTestUtils.setField(tokenProvider, "jwtTokenRegistrationTimeExpires",
-                                         java.time.Instant.now().minusSeconds(10));
             var token = tokenProvider.getToken();
             assertThat(token).isEqualTo("new-token");
             verify(vempainAdminLoginClient, times(2)).authenticateUser(any());
         }
+
+        @Test
+        void getToken_whenAboutToExpire_returnsTokenAndRenewsInBackground() {
+            var expiringToken = jwtExpiringAt(Instant.now().plusSeconds(120));
+            when(vempainAdminLoginClient.authenticateUser(any())).thenReturn(ResponseEntity.ok(LoginResponse.builder().token(expiringToken).build()))
+                                                                 .thenReturn(ResponseEntity.ok(LoginResponse.builder().token("renewed-token").build()));
+            tokenProvider.getToken();
+
+            assertThat(tokenProvider.getToken()).isEqualTo(expiringToken);
+            verify(vempainAdminLoginClient, timeout(5_000).times(2)).authenticateUser(any());
+            await(() -> "renewed-token".equals(tokenProvider.getToken()));
+        }
+
+        @Test
+        void getToken_concurrentCallersShareOneLogin() throws Exception {
+            var loginStarted = new CountDownLatch(1);
+            var releaseLogin = new CountDownLatch(1);
+            when(vempainAdminLoginClient.authenticateUser(any())).thenAnswer(invocation -> {
+                loginStarted.countDown();
+                releaseLogin.await(5, TimeUnit.SECONDS);
+                return ResponseEntity.ok(LoginResponse.builder().token("shared-token").build());
+            });
+
+            try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                var futures = new ArrayList<Future<String>>();
+
+                for (int i = 0; i < 10; i++) {
+                    futures.add(executor.submit(tokenProvider::getToken));
+                }
+
+                assertThat(loginStarted.await(5, TimeUnit.SECONDS)).isTrue();
+                // Let the other callers reach the login in progress
+                Thread.sleep(100);
+                releaseLogin.countDown();
+
+                for (var future : futures) {
+                    assertThat(future.get(5, TimeUnit.SECONDS)).isEqualTo("shared-token");
+                }
+            }
+
+            verify(vempainAdminLoginClient, times(1)).authenticateUser(any());
+        }
+
+        @Test
+        void getToken_afterFailedLogin_failsWithoutLoggingInAgain() {
+            when(vempainAdminLoginClient.authenticateUser(any())).thenThrow(new RuntimeException("connection refused"));
+            assertThrows(VempainAuthenticationException.class, () -> tokenProvider.getToken());
+            assertThrows(VempainAuthenticationException.class, () -> tokenProvider.getToken());
+            verify(vempainAdminLoginClient, times(1)).authenticateUser(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("tokenRejected()")
+    class TokenRejectedTests {
+
+        @Test
+        void tokenRejected_discardsTokenUsedByTheRequest() {
+            when(vempainAdminLoginClient.authenticateUser(any())).thenReturn(ResponseEntity.ok(LoginResponse.builder().token("old-token").build()))
+                                                                 .thenReturn(ResponseEntity.ok(LoginResponse.builder().token("new-token").build()));
+            tokenProvider.getToken();
+
+            tokenProvider.tokenRejected(Instant.now().plusSeconds(1));
+
+            assertThat(tokenProvider.getToken()).isEqualTo("new-token");
+            verify(vempainAdminLoginClient, times(2)).authenticateUser(any());
+        }
+
+        @Test
+        void tokenRejected_keepsTokenObtainedAfterTheRequest() {
+            var requestStarted = Instant.now().minusSeconds(1);
+            when(vempainAdminLoginClient.authenticateUser(any())).thenReturn(ResponseEntity.ok(LoginResponse.builder().token("new-token").build()));
+            tokenProvider.getToken();
+
+            tokenProvider.tokenRejected(requestStarted);
+
+            assertThat(tokenProvider.getToken()).isEqualTo("new-token");
+            verify(vempainAdminLoginClient, times(1)).authenticateUser(any());
+        }
+    }
+
+    @Test
+    void readExpiry_readsExpClaim() {
+        var expires = Instant.ofEpochSecond(2_000_000_000L);
+        assertThat(VempainAdminTokenProvider.readExpiry(jwtExpiringAt(expires))).isEqualTo(expires);
+        assertThat(VempainAdminTokenProvider.readExpiry("not-a-jwt")).isNull();
+    }
+
+    private static void await(BooleanSupplier condition) {
+        var deadline = Instant.now().plusSeconds(5);
+
+        while (!condition.getAsBoolean()) {
+            assertThat(Instant.now()).isBefore(deadline);
+            Thread.onSpinWait();
+        }
     }
 }
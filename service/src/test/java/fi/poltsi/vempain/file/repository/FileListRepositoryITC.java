@@ -0,0 +1,322 @@
+package fi.poltsi.vempain.file.repository;
+
+import fi.poltsi.vempain.file.api.FileTypeEnum;
+import fi.poltsi.vempain.file.entity.ArchiveFileEntity;
+import fi.poltsi.vempain.file.entity.AudioFileEntity;
+import fi.poltsi.vempain.file.entity.BinaryFileEntity;
+import fi.poltsi.vempain.file.entity.DataFileEntity;
+import fi.poltsi.vempain.file.entity.DocumentFileEntity;
+import fi.poltsi.vempain.file.entity.ExecutableFileEntity;
+import fi.poltsi.vempain.file.entity.FileEntity;
+import fi.poltsi.vempain.file.entity.FontFileEntity;
+import fi.poltsi.vempain.file.entity.IconFileEntity;
+import fi.poltsi.vempain.file.entity.ImageFileEntity;
+import fi.poltsi.vempain.file.entity.InteractiveFileEntity;
+import fi.poltsi.vempain.file.entity.MusicFileEntity;
+import fi.poltsi.vempain.file.entity.ThumbFileEntity;
+import fi.poltsi.vempain.file.entity.VectorFileEntity;
+import fi.poltsi.vempain.file.entity.VideoFileEntity;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests (ITC) for {@link FileListRepository}. Every file type is listed to check that its own columns are read.
+ */
+@SpringBootTest(properties = {
+		"vempain.app.frontend-url=http://localhost:3000",
+		"vempain.original-root-directory=/tmp",
+		"vempain.export-root-directory=/tmp"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional
+class FileListRepositoryITC {
+
+	private static final long ACL_ID_BASE = 9_100_000L;
+
+	@Autowired
+	private EntityManager      entityManager;
+	@Autowired
+	private FileListRepository fileListRepository;
+
+	private long aclCounter = 0L;
+
+	@Test
+	void findList_readsArchiveColumns() {
+		var archive = new ArchiveFileEntity();
+		archive.setCompressionMethod("zip");
+		archive.setUncompressedSize(4096L);
+		archive.setContentCount(7);
+		archive.setIsEncrypted(Boolean.TRUE);
+		persist(archive, FileTypeEnum.ARCHIVE);
+
+		var listed = listed(ArchiveFileEntity.class, archive);
+
+		assertThat(listed.getFilename()).isEqualTo("archive.bin");
+		assertThat(listed.getCompressionMethod()).isEqualTo("zip");
+		assertThat(listed.getUncompressedSize()).isEqualTo(4096L);
+		assertThat(listed.getContentCount()).isEqualTo(7);
+		assertThat(listed.getIsEncrypted()).isTrue();
+		assertThat(listed.getMetadataRaw()).isNull();
+	}
+
+	@Test
+	void findList_readsAudioColumns() {
+		var audio = new AudioFileEntity();
+		audio.setDuration(Duration.ofSeconds(215));
+		audio.setBitRate(320);
+		audio.setSampleRate(44100);
+		audio.setCodec("mp3");
+		audio.setChannels(2);
+		persist(audio, FileTypeEnum.AUDIO);
+
+		var listed = listed(AudioFileEntity.class, audio);
+
+		assertThat(listed.getDuration()).isEqualTo(Duration.ofSeconds(215));
+		assertThat(listed.getBitRate()).isEqualTo(320);
+		assertThat(listed.getSampleRate()).isEqualTo(44100);
+		assertThat(listed.getCodec()).isEqualTo("mp3");
+		assertThat(listed.getChannels()).isEqualTo(2);
+	}
+
+	@Test
+	void findList_readsBinaryColumns() {
+		var binary = new BinaryFileEntity();
+		binary.setSoftwareName("editor");
+		binary.setSoftwareMajorVersion(3);
+		persist(binary, FileTypeEnum.BINARY);
+
+		var listed = listed(BinaryFileEntity.class, binary);
+
+		assertThat(listed.getSoftwareName()).isEqualTo("editor");
+		assertThat(listed.getSoftwareMajorVersion()).isEqualTo(3);
+	}
+
+	@Test
+	void findList_readsDataColumns() {
+		var data = new DataFileEntity();
+		data.setDataStructure("CSV");
+		persist(data, FileTypeEnum.DATA);
+
+		assertThat(listed(DataFileEntity.class, data).getDataStructure()).isEqualTo("CSV");
+	}
+
+	@Test
+	void findList_readsDocumentColumns() {
+		var document = new DocumentFileEntity();
+		document.setPageCount(12);
+		document.setFormat("PDF");
+		persist(document, FileTypeEnum.DOCUMENT);
+
+		var listed = listed(DocumentFileEntity.class, document);
+
+		assertThat(listed.getPageCount()).isEqualTo(12);
+		assertThat(listed.getFormat()).isEqualTo("PDF");
+	}
+
+	@Test
+	void findList_readsExecutableColumnsAndOperatingSystems() {
+		var executable = new ExecutableFileEntity();
+		executable.setScript(true);
+		executable.setOperatingSystems(Set.of("LINUX", "MACOS"));
+		persist(executable, FileTypeEnum.EXECUTABLE);
+		var withoutOs = new ExecutableFileEntity();
+		persist(withoutOs, FileTypeEnum.EXECUTABLE);
+
+		var listed = listed(ExecutableFileEntity.class, executable);
+
+		assertThat(listed.isScript()).isTrue();
+		assertThat(listed.getOperatingSystems()).containsExactlyInAnyOrder("LINUX", "MACOS");
+		assertThat(listed(ExecutableFileEntity.class, withoutOs).getOperatingSystems()).isEmpty();
+	}
+
+	@Test
+	void findList_readsFontColumns() {
+		var font = new FontFileEntity();
+		font.setFontFamily("Serif");
+		font.setWeight("bold");
+		font.setStyle("italic");
+		persist(font, FileTypeEnum.FONT);
+
+		var listed = listed(FontFileEntity.class, font);
+
+		assertThat(listed.getFontFamily()).isEqualTo("Serif");
+		assertThat(listed.getWeight()).isEqualTo("bold");
+		assertThat(listed.getStyle()).isEqualTo("italic");
+	}
+
+	@Test
+	void findList_readsIconColumns() {
+		var icon = new IconFileEntity();
+		icon.setWidth(32);
+		icon.setHeight(16);
+		icon.setIsScalable(Boolean.TRUE);
+		persist(icon, FileTypeEnum.ICON);
+
+		var listed = listed(IconFileEntity.class, icon);
+
+		assertThat(listed.getWidth()).isEqualTo(32);
+		assertThat(listed.getHeight()).isEqualTo(16);
+		assertThat(listed.getIsScalable()).isTrue();
+	}
+
+	@Test
+	void findList_readsImageColumns() {
+		var image = new ImageFileEntity();
+		image.setWidth(1920);
+		image.setHeight(1080);
+		image.setColorDepth(24);
+		image.setDpi(300);
+		image.setGroupLabel("holiday");
+		persist(image, FileTypeEnum.IMAGE);
+
+		var listed = listed(ImageFileEntity.class, image);
+
+		assertThat(listed.getWidth()).isEqualTo(1920);
+		assertThat(listed.getHeight()).isEqualTo(1080);
+		assertThat(listed.getColorDepth()).isEqualTo(24);
+		assertThat(listed.getDpi()).isEqualTo(300);
+		assertThat(listed.getGroupLabel()).isEqualTo("holiday");
+	}
+
+	@Test
+	void findList_readsInteractiveColumns() {
+		var interactive = new InteractiveFileEntity();
+		interactive.setTechnology("Flash");
+		persist(interactive, FileTypeEnum.INTERACTIVE);
+
+		assertThat(listed(InteractiveFileEntity.class, interactive).getTechnology()).isEqualTo("Flash");
+	}
+
+	@Test
+	void findList_readsMusicColumnsAndItsOwnDescription() {
+		var music = new MusicFileEntity();
+		music.setDuration(Duration.ofSeconds(180));
+		music.setBitRate(256);
+		music.setSampleRate(48000);
+		music.setCodec("flac");
+		music.setChannels(2);
+		music.setArtist("Artist");
+		music.setAlbumArtist("Album artist");
+		music.setAlbum("Album");
+		music.setYear(1999);
+		music.setTrackName("Track");
+		music.setTrackNumber(3);
+		music.setTrackTotal(10);
+		music.setGenre("Jazz");
+		music.setDescription("Liner notes");
+		persist(music, FileTypeEnum.MUSIC);
+
+		var listed = listed(MusicFileEntity.class, music);
+
+		assertThat(listed.getDuration()).isEqualTo(Duration.ofSeconds(180));
+		assertThat(listed.getCodec()).isEqualTo("flac");
+		assertThat(listed.getArtist()).isEqualTo("Artist");
+		assertThat(listed.getAlbumArtist()).isEqualTo("Album artist");
+		assertThat(listed.getAlbum()).isEqualTo("Album");
+		assertThat(listed.getYear()).isEqualTo(1999);
+		assertThat(listed.getTrackName()).isEqualTo("Track");
+		assertThat(listed.getTrackNumber()).isEqualTo(3);
+		assertThat(listed.getTrackTotal()).isEqualTo(10);
+		assertThat(listed.getGenre()).isEqualTo("Jazz");
+		assertThat(listed.getDescription()).isEqualTo("Liner notes");
+	}
+
+	@Test
+	void findList_readsThumbColumnsAndTargetFile() {
+		var image = new ImageFileEntity();
+		image.setWidth(640);
+		image.setHeight(480);
+		persist(image, FileTypeEnum.IMAGE);
+		var thumb = new ThumbFileEntity();
+		thumb.setTargetFile(image);
+		thumb.setRelationType("thumbnail");
+		persist(thumb, FileTypeEnum.THUMB);
+
+		var listed = listed(ThumbFileEntity.class, thumb);
+
+		assertThat(listed.getRelationType()).isEqualTo("thumbnail");
+		assertThat(listed.getTargetFile()).isInstanceOf(ImageFileEntity.class);
+		assertThat(listed.getTargetFile()
+						 .getId()).isEqualTo(image.getId());
+		assertThat(((ImageFileEntity) listed.getTargetFile()).getWidth()).isEqualTo(640);
+		assertThat(entityManager.contains(listed.getTargetFile())).isFalse();
+	}
+
+	@Test
+	void findList_readsVectorColumns() {
+		var vector = new VectorFileEntity();
+		vector.setWidth(100);
+		vector.setHeight(50);
+		vector.setLayersCount(4);
+		persist(vector, FileTypeEnum.VECTOR);
+
+		var listed = listed(VectorFileEntity.class, vector);
+
+		assertThat(listed.getWidth()).isEqualTo(100);
+		assertThat(listed.getHeight()).isEqualTo(50);
+		assertThat(listed.getLayersCount()).isEqualTo(4);
+	}
+
+	@Test
+	void findList_readsVideoColumns() {
+		var video = new VideoFileEntity();
+		video.setWidth(3840);
+		video.setHeight(2160);
+		video.setFrameRate(29.97);
+		video.setDuration(Duration.ofSeconds(95));
+		video.setCodec("h265");
+		persist(video, FileTypeEnum.VIDEO);
+
+		var listed = listed(VideoFileEntity.class, video);
+
+		assertThat(listed.getWidth()).isEqualTo(3840);
+		assertThat(listed.getHeight()).isEqualTo(2160);
+		assertThat(listed.getFrameRate()).isEqualTo(29.97);
+		assertThat(listed.getDuration()).isEqualTo(Duration.ofSeconds(95));
+		assertThat(listed.getCodec()).isEqualTo("h265");
+	}
+
+	/**
+	 * Persist the file with the columns all the types require and clear the persistence context, so that the file is read back
+	 * from the database.
+	 */
+	private void persist(FileEntity file, FileTypeEnum fileType) {
+		var name = fileType.name()
+						   .toLowerCase();
+		aclCounter++;
+		file.setAclId(ACL_ID_BASE + aclCounter);
+		file.setCreated(Instant.now());
+		file.setCreator(1L);
+		file.setExternalFileId(fileType + "-list-test-" + aclCounter);
+		file.setFilePath("/list-test");
+		file.setFileType(fileType);
+		file.setFilename(name + ".bin");
+		file.setFilesize(1024L);
+		file.setMetadataRaw("{}");
+		file.setMimetype("application/octet-stream");
+		file.setSha256sum("a".repeat(64));
+		entityManager.persist(file);
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	private <T extends FileEntity> T listed(Class<T> type, FileEntity file) {
+		Specification<T> byId  = (root, query, cb) -> cb.equal(root.get("id"), file.getId());
+		var              files = fileListRepository.findList(type, byId, Sort.by("id"), 0L, 10);
+
+		assertThat(files).hasSize(1);
+		return files.getFirst();
+	}
+}
@@ -0,0 +1,141 @@
+package fi.poltsi.vempain.file.repository;
+
+import fi.poltsi.vempain.file.entity.ImageFileEntity;
+import fi.poltsi.vempain.file.service.files.FileSearchHelper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests (ITC) for the trigram indexes of the free text searches. The plans are those of the queries the searches
+ * generate.
+ *
+ * <p>The test tables are nearly empty, so a sequential scan would always win. The sequential scans are disabled for the test
+ * transaction to see whether the planner is able to use the indexes for the search predicates at all.</p>
+ */
+@SpringBootTest(properties = {
+		"vempain.app.frontend-url=http://localhost:3000",
+		"vempain.original-root-directory=/tmp",
+		"vempain.export-root-directory=/tmp",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=fi.poltsi.vempain.file.repository.SearchIndexITC$RecordingStatementInspector"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional
+class SearchIndexITC {
+
+	@Autowired
+	private JdbcTemplate       jdbcTemplate;
+	@Autowired
+	private EntityManager      entityManager;
+	@Autowired
+	private FileListRepository fileListRepository;
+
+	@BeforeEach
+	void disableSequentialScans() {
+		jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+		RecordingStatementInspector.STATEMENTS.clear();
+	}
+
+	@Test
+	void fileSearch_usesTrigramIndexes() {
+		var plan = explainFileSearch("sunset", false);
+
+		assertThat(plan).contains("idx_files_filename_trgm", "idx_files_file_path_trgm", "idx_files_description_trgm", "idx_files_mimetype_trgm");
+	}
+
+	@Test
+	void caseSensitiveFileSearch_usesTrigramIndexes() {
+		var plan = explainFileSearch("Sunset", true);
+
+		assertThat(plan).contains("idx_files_filename_trgm", "idx_files_file_path_trgm", "idx_files_description_trgm", "idx_files_mimetype_trgm");
+	}
+
+	@Test
+	void fileGroupSearch_usesTrigramIndexes() {
+		var plan = explainFileGroupSearch("sunset", false);
+
+		assertThat(plan).contains("idx_file_group_path_trgm", "idx_file_group_group_name_trgm", "idx_file_group_description_trgm",
+								  "idx_files_filename_trgm", "idx_files_file_path_trgm", "idx_files_description_trgm");
+	}
+
+	@Test
+	void caseSensitiveFileGroupSearch_usesTrigramIndexes() {
+		var plan = explainFileGroupSearch("Sunset beach", true);
+
+		assertThat(plan).contains("idx_file_group_path_trgm", "idx_files_filename_trgm");
+	}
+
+	/**
+	 * Run the search of the file lists and explain the statement Hibernate generated for it. The statement is explained as a
+	 * generic plan, i.e. without the values of its parameters.
+	 */
+	private String explainFileSearch(String search, boolean caseSensitive) {
+		fileListRepository.findList(ImageFileEntity.class, FileSearchHelper.buildSpecification(search, caseSensitive), Sort.by("filename"), 0L, 20);
+
+		var statement = RecordingStatementInspector.STATEMENTS.stream()
+															  .filter(sql -> sql.contains(" like "))
+															  .findFirst()
+															  .orElseThrow();
+		var numbered  = new StringBuilder();
+		var parameter = 0;
+
+		for (var c : statement.toCharArray()) {
+			if (c == '?') {
+				numbered.append('$')
+						.append(++parameter);
+			} else {
+				numbered.append(c);
+			}
+		}
+
+		return String.join("\n", jdbcTemplate.queryForList("EXPLAIN (GENERIC_PLAN) " + numbered, String.class));
+	}
+
+	private String explainFileGroupSearch(String search, boolean caseSensitive) {
+		var tokens = FileGroupRepositoryImpl.tokenize(search);
+		var query  = entityManager.createNativeQuery("EXPLAIN " + FileGroupRepositoryImpl.buildSelectSql(tokens, caseSensitive, PageRequest.of(0, 20)),
+													 String.class);
+		FileGroupRepositoryImpl.bindParameters(query, tokens, caseSensitive);
+		query.setParameter("offset", 0);
+		query.setParameter("limit", 20);
+
+		@SuppressWarnings("unchecked")
+		List<String> lines = query.getResultList();
+		var plan = String.join("\n", lines);
+
+		var countQuery = entityManager.createNativeQuery("EXPLAIN " + FileGroupRepositoryImpl.buildCountSql(tokens, caseSensitive), String.class);
+		FileGroupRepositoryImpl.bindParameters(countQuery, tokens, caseSensitive);
+
+		@SuppressWarnings("unchecked")
+		List<String> countLines = countQuery.getResultList();
+		// Both the page and its count are served from the indexes
+		assertThat(String.join("\n", countLines)).contains("idx_file_group_path_trgm", "idx_files_filename_trgm");
+		return plan;
+	}
+
+	/**
+	 * Records the SQL statements Hibernate sends, so that the statements of the criteria queries can be explained.
+	 */
+	public static class RecordingStatementInspector implements StatementInspector {
+		static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+		@Override
+		public String inspect(String sql) {
+			STATEMENTS.add(sql);
+			return sql;
+		}
+	}
+}
@@ -9,16 +9,22 @@ import fi.poltsi.vempain.file.api.PathCompletionEnum;
 import fi.poltsi.vempain.file.api.request.PathCompletionRequest;
 import fi.poltsi.vempain.file.api.request.ScanRequest;
 import fi.poltsi.vempain.file.entity.ExportFileEntity;
+import fi.poltsi.vempain.file.entity.FileGroupEntity;
+import fi.poltsi.vempain.file.entity.ImageFileEntity;
 import fi.poltsi.vempain.file.entity.TagEntity;
 import fi.poltsi.vempain.file.feign.VempainAdminFileClient;
 import fi.poltsi.vempain.file.feign.VempainAdminFileIngestClient;
+import fi.poltsi.vempain.file.feign.VempainAdminResilience;
 import fi.poltsi.vempain.file.repository.ExportFileRepository;
 import fi.poltsi.vempain.file.repository.FileGroupRepository;
 import fi.poltsi.vempain.file.repository.FileTagRepository;
 import fi.poltsi.vempain.file.repository.GpsLocationRepository;
 import fi.poltsi.vempain.file.repository.MetadataRepository;
 import fi.poltsi.vempain.file.repository.TagRepository;
+import fi.poltsi.vempain.file.repository.files.FileManifestRow;
 import fi.poltsi.vempain.file.repository.files.FileRepository;
+import fi.poltsi.vempain.file.tools.FileTool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -37,6 +43,9 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -63,9 +72,9 @@ class AllCoreServicesUTC {
 	@Mock
 	private fi.poltsi.vempain.file.feign.VempainAdminTokenProvider tokenProvider;
 	@Mock
-	private fi.poltsi.vempain.file.tools.ImageTool                 imageTool;
+	private fi.poltsi.vempain.file.tools.SiteImageCache            siteImageCache;
 	@Mock
-	private org.springframework.context.ApplicationContext         applicationContext;
+	private PublishJobService                                      publishJobService;
 	@Mock
 	private fi.poltsi.vempain.file.repository.FileTagRepository    fileTagRepo;
 	@Mock
@@ -85,6 +94,8 @@ class AllCoreServicesUTC {
 	@Mock
 	private GpsLocationRepository                                  gpsLocationRepository;
 	@Mock
+	private fi.poltsi.vempain.file.tools.ExifToolPool              exifToolPool;
+	@Mock
 	private VempainAdminFileIngestClient                           ingestClient;
 	@Mock
 	private VempainAdminFileClient                                 fileClient;
@@ -109,7 +120,7 @@ class AllCoreServicesUTC {
 
 	@Test
 	void derivativeLookupServiceUTC_usesDatabaseMatch() {
-		var service = new DerivativeLookupService(exportFileRepository, fileRepository);
+		var service = new DerivativeLookupService(exportFileRepository, fileRepository, exifToolPool);
 		ReflectionTestUtils.setField(service, "exportDirectory", "/tmp/export");
 		var mockFileEntity = org.mockito.Mockito.mock(fi.poltsi.vempain.file.entity.FileEntity.class);
 		when(mockFileEntity.getFilePath()).thenReturn("/path");
@@ -136,7 +147,7 @@ class AllCoreServicesUTC {
 
 	@Test
 	void fileScannerServiceUTC_returnsResponse() {
-		var service = new FileScannerService(directoryProcessorService);
+		var service = new FileScannerService(directoryProcessorService, new ScanConcurrencyLimits());
 		ReflectionTestUtils.setField(service, "originalRootDirectory", "/tmp");
 		ReflectionTestUtils.setField(service, "exportRootDirectory", "/tmp");
 
@@ -146,20 +157,33 @@ class AllCoreServicesUTC {
 	}
 
 	@Test
-	void publishProgressStoreUTC_tracksCounters() {
-		var store = new PublishProgressStore();
-		store.init(2);
-		store.markScheduled(1L);
-		store.markStarted(1L);
-		store.markCompleted(1L);
-		store.markFailed(2L);
-
-		assertThat(store.getTotal()).isEqualTo(2);
-		assertThat(store.getScheduled()).isEqualTo(1);
-		assertThat(store.getStarted()).isEqualTo(1);
-		assertThat(store.getCompleted()).isEqualTo(1);
-		assertThat(store.getFailed()).isEqualTo(1);
-		assertThat(store.getPerGroupStatus()).hasSize(2);
+	@SuppressWarnings("unchecked")
+	void fileScannerServiceUTC_parallelScanAggregatesAllLeafDirectories() throws IOException {
+		var root = Files.createTempDirectory("parallel-original");
+		for (var name : List.of("a", "b", "c")) {
+			Files.createDirectories(root.resolve(name));
+		}
+
+		var limits = new ScanConcurrencyLimits();
+		ReflectionTestUtils.setField(limits, "enabled", true);
+		limits.init();
+
+		when(directoryProcessorService.processOriginalDirectory(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+			Path leafDir = invocation.getArgument(0);
+			((java.util.ArrayList<String>) invocation.getArgument(3)).add(leafDir.getFileName()
+																				 .toString());
+			return List.of(2L, 1L);
+		});
+
+		var service = new FileScannerService(directoryProcessorService, limits);
+		ReflectionTestUtils.setField(service, "originalRootDirectory", root.toString());
+
+		var response = service.scanOriginalDirectory("/");
+
+		assertThat(response.getScannedFilesCount()).isEqualTo(6L);
+		assertThat(response.getNewFilesCount()).isEqualTo(3L);
+		assertThat(response.getFailedFiles()).containsExactlyInAnyOrder("a", "b", "c");
+		assertThat(response.isSuccess()).isFalse();
 	}
 
 	@Test
@@ -187,14 +211,18 @@ class AllCoreServicesUTC {
 	@Test
 	void publishServiceUTC_countFilesInGroup() {
 		var service = new PublishService(fileGroupRepository, exportFileRepository, metadataRepository, vempainAdminService,
-		                                 tagService, locationService, tokenProvider, imageTool, applicationContext, new PublishProgressStore());
+		                                 tagService, locationService, tokenProvider, siteImageCache, publishJobService, exifToolPool, null);
 		when(fileGroupRepository.countById(10L)).thenReturn(7L);
 		assertThat(service.countFilesInGroup(10L)).isEqualTo(7L);
 	}
 
 	@Test
 	void vempainAdminServiceUTC_throwsOnNon2xx() {
-		var service = new VempainAdminService(ingestClient, fileClient, objectMapper);
+		var vempainAdminResilience = new VempainAdminResilience(new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(vempainAdminResilience, "maxAttempts", 1);
+		ReflectionTestUtils.setField(vempainAdminResilience, "failureThreshold", 5);
+		vempainAdminResilience.init();
+		var service = new VempainAdminService(ingestClient, fileClient, objectMapper, vempainAdminResilience);
 		var request = FileIngestRequest.builder()
 		                               .fileName("a.jpg")
 		                               .mimeType("image/jpeg")
@@ -216,13 +244,78 @@ class AllCoreServicesUTC {
 
 	@Test
 	void directoryProcessorServiceUTC_emptyDirectoryReturnsZeroCounts() throws IOException {
-		var service = new DirectoryProcessorService(fgRepo, fileRepo, tagRepo, metaRepo, fileTagRepo, expRepo, aclService, exportedFilesService, gpsLocationRepository);
+		var service = new DirectoryProcessorService(fgRepo, fileRepo, tagRepo, metaRepo, fileTagRepo, expRepo, aclService, exportedFilesService, gpsLocationRepository,
+		                                            new ScanConcurrencyLimits(), exifToolPool);
 		var dir     = Files.createTempDirectory("empty-original");
 		ReflectionTestUtils.setField(service, "originalRootDirectory", dir.getParent()
 		                                                                  .toString());
-		var result = service.processOriginalDirectory(dir, new StringBuilder(), new java.util.ArrayList<>(), new java.util.ArrayList<>());
+		var result = service.processOriginalDirectory(dir, service.prepareOriginalDirectory(dir), new StringBuilder(), new java.util.ArrayList<>(),
+		                                             new java.util.ArrayList<>());
 		assertThat(result.getFirst()).isEqualTo(0L);
 		assertThat(result.get(1)).isEqualTo(0L);
 	}
-}
 
+	@Test
+	void directoryProcessorServiceUTC_skipsFilesMatchingManifest() throws IOException {
+		var service = new DirectoryProcessorService(fgRepo, fileRepo, tagRepo, metaRepo, fileTagRepo, expRepo, aclService, exportedFilesService, gpsLocationRepository,
+		                                            new ScanConcurrencyLimits(), exifToolPool);
+		var dir     = Files.createTempDirectory("manifest-original");
+		var file    = Files.writeString(dir.resolve("unchanged.jpg"), "unchanged content");
+		var stat    = FileTool.statFile(file.toFile());
+		ReflectionTestUtils.setField(service, "originalRootDirectory", dir.getParent()
+		                                                                  .toString());
+		ReflectionTestUtils.setField(service, "manifestEnabled", true);
+		when(fgRepo.findByPathAndGroupName(any(), any())).thenReturn(Optional.of(FileGroupEntity.builder()
+		                                                                                        .build()));
+		when(fileRepo.findManifestByFilePath(any())).thenReturn(List.of(new FileManifestRow("unchanged.jpg", "0".repeat(64), stat.size(), stat.mtime(),
+		                                                                                     stat.fileKey())));
+
+		var result = service.processOriginalDirectory(dir, service.prepareOriginalDirectory(dir), new StringBuilder(), new java.util.ArrayList<>(),
+		                                             new java.util.ArrayList<>());
+
+		assertThat(result.getFirst()).isEqualTo(1L);
+		assertThat(result.get(1)).isEqualTo(0L);
+		// The file was neither hashed against the database row nor re-ingested
+		verify(fileRepo, never()).findByFilePathAndFilename(any(), any());
+	}
+
+	@Test
+	void directoryProcessorServiceUTC_refreshSkipsFileChangedAfterStat() throws IOException {
+		var service = new DirectoryProcessorService(fgRepo, fileRepo, tagRepo, metaRepo, fileTagRepo, expRepo, aclService, exportedFilesService, gpsLocationRepository,
+		                                            new ScanConcurrencyLimits(), exifToolPool);
+		var file    = Files.writeString(Files.createTempDirectory("refresh-original")
+		                                     .resolve("changed.jpg"), "before");
+		var stat    = FileTool.statFile(file.toFile());
+		Files.writeString(file, "after the checksum was computed");
+
+		var refreshed = service.refreshExistingOriginalFile(new ImageFileEntity(), file.toFile(), "0".repeat(64), stat);
+
+		assertThat(refreshed).isFalse();
+		verify(exifToolPool, never()).extractMetadataJson(any());
+	}
+
+	@Test
+	void directoryProcessorServiceUTC_saveTagsLinksAllTagsWithOneInsert() {
+		var service    = new DirectoryProcessorService(fgRepo, fileRepo, tagRepo, metaRepo, fileTagRepo, expRepo, aclService, exportedFilesService, gpsLocationRepository,
+		                                               new ScanConcurrencyLimits(), exifToolPool);
+		var fileEntity = new ImageFileEntity();
+		fileEntity.setId(7L);
+		var existingTag = TagEntity.builder()
+		                           .id(1L)
+		                           .tagName("known")
+		                           .build();
+		var jsonObject = new org.json.JSONObject("{\"XMP\":{\"Subject\":[\"known\",\"new\"]}}");
+
+		when(tagRepo.findByTagNameIn(any())).thenReturn(List.of(existingTag));
+		when(tagRepo.save(any())).thenAnswer(invocation -> {
+			TagEntity tag = invocation.getArgument(0);
+			tag.setId(2L);
+			return tag;
+		});
+
+		service.saveTags(jsonObject, fileEntity);
+
+		verify(tagRepo, times(1)).save(any());
+		verify(fileTagRepo).insertFileTags(7L, List.of(1L, 2L));
+	}
+}
@@ -7,8 +7,10 @@ import fi.poltsi.vempain.file.entity.GpsLocationEntity;
 import fi.poltsi.vempain.file.entity.ImageFileEntity;
 import fi.poltsi.vempain.file.entity.MusicFileEntity;
 import fi.poltsi.vempain.file.feign.VempainAdminDataClient;
+import fi.poltsi.vempain.file.feign.VempainAdminResilience;
 import fi.poltsi.vempain.file.repository.files.ImageFileRepository;
 import fi.poltsi.vempain.file.service.files.MusicFileService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,6 +18,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
@@ -45,7 +48,12 @@ class DataServiceUTC {
 
 	@BeforeEach
 	void setUp() {
-		dataService = new DataService(musicFileService, imageFileRepository, vempainAdminDataClient);
+		var vempainAdminResilience = new VempainAdminResilience(new SimpleMeterRegistry());
+		// A single attempt, so that the failures of the tests are not retried
+		ReflectionTestUtils.setField(vempainAdminResilience, "maxAttempts", 1);
+		ReflectionTestUtils.setField(vempainAdminResilience, "failureThreshold", 5);
+		vempainAdminResilience.init();
+		dataService = new DataService(musicFileService, imageFileRepository, vempainAdminDataClient, vempainAdminResilience);
 	}
 
 	// -----------------------------------------------------------------------
@@ -4,6 +4,7 @@ import fi.poltsi.vempain.file.entity.ExportFileEntity;
 import fi.poltsi.vempain.file.entity.FileEntity;
 import fi.poltsi.vempain.file.repository.ExportFileRepository;
 import fi.poltsi.vempain.file.repository.files.FileRepository;
+import fi.poltsi.vempain.file.tools.ExifToolPool;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -33,6 +34,8 @@ class DerivativeLookupServiceUTC {
     private ExportFileRepository exportFileRepository;
     @Mock
     private FileRepository fileRepository;
+    @Mock
+    private ExifToolPool exifToolPool;
 
     @InjectMocks
     private DerivativeLookupService derivativeLookupService;
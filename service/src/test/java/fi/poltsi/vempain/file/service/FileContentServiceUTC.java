@@ -2,6 +2,7 @@ package fi.poltsi.vempain.file.service;
 
 import fi.poltsi.vempain.file.entity.FileEntity;
 import fi.poltsi.vempain.file.repository.files.FileRepository;
+import fi.poltsi.vempain.file.tools.PreviewImageCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -12,6 +13,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
 
+import static fi.poltsi.vempain.file.tools.FileTool.computeSha256;
+import static fi.poltsi.vempain.file.tools.FileTool.statFile;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
@@ -19,7 +22,8 @@ import static org.mockito.Mockito.when;
 
 class FileContentServiceUTC {
 
-	private final FileRepository     fileRepository = mock(FileRepository.class);
+	private final FileRepository     fileRepository    = mock(FileRepository.class);
+	private final PreviewImageCache  previewImageCache = mock(PreviewImageCache.class);
 	private       FileContentService fileContentService;
 
 	@TempDir
@@ -27,8 +31,9 @@ class FileContentServiceUTC {
 
 	@BeforeEach
 	void setUp() {
-		fileContentService = new FileContentService(fileRepository);
+		fileContentService = new FileContentService(fileRepository, previewImageCache);
 		ReflectionTestUtils.setField(fileContentService, "originalRootDirectory", tempDir.toString());
+		ReflectionTestUtils.setField(fileContentService, "previewSizes", new int[]{160, 320});
 	}
 
 	@Test
@@ -52,6 +57,50 @@ class FileContentServiceUTC {
 		assertThat(result.size()).isEqualTo(11L);
 	}
 
+	@Test
+	void resolveOriginalFile_returnsChecksumOnlyWhileFileIsUnchanged() throws Exception {
+		var target   = Files.writeString(tempDir.resolve("photo.jpg"), "image bytes");
+		var fileStat = statFile(target.toFile());
+
+		var entity = mock(FileEntity.class);
+		when(entity.getFilePath()).thenReturn("/");
+		when(entity.getFilename()).thenReturn("photo.jpg");
+		when(entity.getSha256sum()).thenReturn("abc123");
+		when(entity.getFilesize()).thenReturn(fileStat.size());
+		when(entity.getFileMtime()).thenReturn(fileStat.mtime());
+		when(entity.getFileKey()).thenReturn(fileStat.fileKey());
+		when(fileRepository.findById(4L)).thenReturn(Optional.of(entity));
+
+		var result = fileContentService.resolveOriginalFile(4L);
+
+		assertThat(result.sha256sum()).isEqualTo("abc123");
+		assertThat(result.lastModified()
+		                 .toEpochMilli()).isEqualTo(fileStat.mtime());
+
+		when(entity.getFileMtime()).thenReturn(fileStat.mtime() - 1000);
+
+		assertThat(fileContentService.resolveOriginalFile(4L)
+		                             .sha256sum()).isNull();
+	}
+
+	@Test
+	void resolveOriginalFile_returnsNoChecksumForReplacedFileWithSameSizeAndMtime() throws Exception {
+		var target   = Files.writeString(tempDir.resolve("photo.jpg"), "image bytes");
+		var fileStat = statFile(target.toFile());
+
+		var entity = mock(FileEntity.class);
+		when(entity.getFilePath()).thenReturn("/");
+		when(entity.getFilename()).thenReturn("photo.jpg");
+		when(entity.getFilesize()).thenReturn(fileStat.size());
+		when(entity.getFileMtime()).thenReturn(fileStat.mtime());
+		// Recorded from the file the copy replaced
+		when(entity.getFileKey()).thenReturn("(dev=1,ino=1)");
+		when(fileRepository.findById(4L)).thenReturn(Optional.of(entity));
+
+		assertThat(fileContentService.resolveOriginalFile(4L)
+		                             .sha256sum()).isNull();
+	}
+
 	@Test
 	void resolveOriginalFile_missingEntity_throwsNotFound() {
 		when(fileRepository.findById(2L)).thenReturn(Optional.empty());
@@ -72,5 +121,46 @@ class FileContentServiceUTC {
 		assertThat(ex.getStatusCode()
 		             .value()).isEqualTo(400);
 	}
-}
 
+	@Test
+	void resolvePreview_keysPreviewOnCurrentContent() throws Exception {
+		var target = Files.writeString(tempDir.resolve("photo.jpg"), "image bytes");
+
+		var entity = mock(FileEntity.class);
+		when(entity.getFilePath()).thenReturn("/");
+		when(entity.getFilename()).thenReturn("photo.jpg");
+		when(entity.getMimetype()).thenReturn("image/jpeg");
+		when(fileRepository.findById(5L)).thenReturn(Optional.of(entity));
+		when(previewImageCache.getMimeType()).thenReturn("image/jpeg");
+
+		var result = fileContentService.resolvePreview(5L, 320);
+
+		// Not scanned with the current content, so the checksum is computed from the file
+		assertThat(result.sha256sum()).isEqualTo(computeSha256(target.toFile()));
+		assertThat(result.sourcePath()).isEqualTo(target);
+		assertThat(result.size()).isEqualTo(320);
+		assertThat(result.mimetype()).isEqualTo("image/jpeg");
+	}
+
+	@Test
+	void resolvePreview_unsupportedSize_throwsBadRequest() {
+		var ex = assertThrows(ResponseStatusException.class, () -> fileContentService.resolvePreview(5L, 500));
+		assertThat(ex.getStatusCode()
+		             .value()).isEqualTo(400);
+	}
+
+	@Test
+	void resolvePreview_notAnImage_throwsUnsupportedMediaType() throws Exception {
+		Files.writeString(tempDir.resolve("notes.txt"), "text");
+
+		var entity = mock(FileEntity.class);
+		when(entity.getFilePath()).thenReturn("/");
+		when(entity.getFilename()).thenReturn("notes.txt");
+		when(entity.getMimetype()).thenReturn("text/plain");
+		when(fileRepository.findById(6L)).thenReturn(Optional.of(entity));
+
+		var ex = assertThrows(ResponseStatusException.class, () -> fileContentService.resolvePreview(6L, 160));
+		assertThat(ex.getStatusCode()
+		             .value()).isEqualTo(415);
+	}
+}
@@ -0,0 +1,140 @@
+package fi.poltsi.vempain.file.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests (UTC) for {@link ProgressEventService}.
+ */
+class ProgressEventServiceUTC {
+
+	private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+
+	private ProgressEventService progressEventService;
+
+	@BeforeEach
+	void setup() {
+		progressEventService = new ProgressEventService() {
+			@Override
+			SseEmitter createEmitter() {
+				var emitter = new RecordingEmitter();
+				emitters.add(emitter);
+				return emitter;
+			}
+		};
+		ReflectionTestUtils.setField(progressEventService, "sendIntervalMillis", 500L);
+		ReflectionTestUtils.setField(progressEventService, "heartbeatSeconds", 15L);
+		ReflectionTestUtils.setField(progressEventService, "timeoutMinutes", 1L);
+	}
+
+	@AfterEach
+	void tearDown() {
+		progressEventService.shutdown();
+	}
+
+	@Test
+	void emit_withoutSubscribersDoesNotReadData() {
+		var reads = new AtomicInteger();
+
+		progressEventService.emit("publish", "job", "job:1", reads::incrementAndGet);
+
+		assertThat(progressEventService.hasSubscribers("publish")).isFalse();
+		assertThat(reads).hasValue(0);
+	}
+
+	@Test
+	void subscribe_sendsInitialEventsFirst() throws InterruptedException {
+		progressEventService.subscribe("publish", List.of(new ProgressEventService.ProgressEvent("job", "job:1", () -> "initial")));
+		progressEventService.emit("publish", "group", "group:1", () -> "group");
+
+		var emitter = emitters.getFirst();
+		awaitSent(emitter, 2);
+
+		assertThat(emitter.sent).containsExactly("initial", "group");
+	}
+
+	@Test
+	void emit_coalescesEventsWithTheSameKey() throws InterruptedException {
+		progressEventService.subscribe("publish", List.of(new ProgressEventService.ProgressEvent("job", "initial", () -> "initial")));
+		var emitter = emitters.getFirst();
+		awaitSent(emitter, 1);
+
+		// Emitted while the sender waits for the send interval to pass
+		for (int i = 1; i <= 10; i++) {
+			var value = "job-" + i;
+			progressEventService.emit("publish", "job", "job:1", () -> value);
+		}
+
+		progressEventService.emit("publish", "group", "group:1", () -> "group");
+		awaitSent(emitter, 3);
+
+		assertThat(emitter.sent).containsExactly("initial", "job-10", "group");
+	}
+
+	@Test
+	void emit_readsDataOncePerEvent() throws InterruptedException {
+		var reads = new AtomicInteger();
+		progressEventService.subscribe("scan-job:1", List.of());
+		progressEventService.subscribe("scan-job:1", List.of());
+
+		progressEventService.emit("scan-job:1", "job", "job", reads::incrementAndGet);
+
+		awaitSent(emitters.get(0), 1);
+		awaitSent(emitters.get(1), 1);
+		assertThat(reads).hasValue(1);
+		assertThat(emitters.get(0).sent).containsExactly(1);
+		assertThat(emitters.get(1).sent).containsExactly(1);
+	}
+
+	@Test
+	void emit_onlyReachesSubscribersOfTheTopic() throws InterruptedException {
+		progressEventService.subscribe("scan-job:1", List.of());
+		progressEventService.subscribe("scan-job:2", List.of());
+
+		progressEventService.emit("scan-job:2", "job", "job", () -> "second");
+
+		awaitSent(emitters.get(1), 1);
+		assertThat(emitters.get(0).sent).isEmpty();
+		assertThat(emitters.get(1).sent).containsExactly("second");
+	}
+
+	private static void awaitSent(RecordingEmitter emitter, int count) throws InterruptedException {
+		var deadline = Instant.now()
+							  .plus(Duration.ofSeconds(5));
+
+		while (emitter.sent.size() < count && Instant.now()
+														 .isBefore(deadline)) {
+			Thread.sleep(20);
+		}
+
+		assertThat(emitter.sent).hasSizeGreaterThanOrEqualTo(count);
+	}
+
+	/**
+	 * Records the data of the events instead of writing them to a response.
+	 */
+	private static class RecordingEmitter extends SseEmitter {
+		private final List<Object> sent = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void send(SseEventBuilder builder) {
+			for (var dataWithMediaType : builder.build()) {
+				if (MediaType.APPLICATION_JSON.equals(dataWithMediaType.getMediaType())) {
+					sent.add(dataWithMediaType.getData());
+				}
+			}
+		}
+	}
+}
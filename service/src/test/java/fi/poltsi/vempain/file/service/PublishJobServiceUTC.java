@@ -0,0 +1,189 @@
+package fi.poltsi.vempain.file.service;
+
+import fi.poltsi.vempain.file.api.PublishJobStatusEnum;
+import fi.poltsi.vempain.file.api.PublishProgressStatusEnum;
+import fi.poltsi.vempain.file.api.request.PublishFileGroupRequest;
+import fi.poltsi.vempain.file.entity.PublishJobEntity;
+import fi.poltsi.vempain.file.entity.PublishJobGroupEntity;
+import fi.poltsi.vempain.file.repository.PublishJobFileRepository;
+import fi.poltsi.vempain.file.repository.PublishJobGroupRepository;
+import fi.poltsi.vempain.file.repository.PublishJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests (UTC) for {@link PublishJobService}.
+ */
+@ExtendWith(MockitoExtension.class)
+class PublishJobServiceUTC {
+
+	@Mock
+	private PublishJobRepository      publishJobRepository;
+	@Mock
+	private PublishJobGroupRepository publishJobGroupRepository;
+	@Mock
+	private PublishJobFileRepository  publishJobFileRepository;
+	@Mock
+	private ProgressEventService      progressEventService;
+
+	@InjectMocks
+	private PublishJobService publishJobService;
+
+	private PublishJobEntity      job;
+	private PublishJobGroupEntity group;
+
+	@BeforeEach
+	void setup() {
+		ReflectionTestUtils.setField(publishJobService, "instanceId", "instance-1");
+		ReflectionTestUtils.setField(publishJobService, "maxAttempts", 3);
+		ReflectionTestUtils.setField(publishJobService, "retryDelaySeconds", 60L);
+
+		job = PublishJobEntity.builder()
+							  .id(1L)
+							  .status(PublishJobStatusEnum.RUNNING)
+							  .totalGroups(1)
+							  .build();
+		group = PublishJobGroupEntity.builder()
+									 .id(100L)
+									 .publishJobId(1L)
+									 .fileGroupId(10L)
+									 .status(PublishProgressStatusEnum.STARTED)
+									 .attempts(1)
+									 .claimedBy("instance-1")
+									 .claimedAt(Instant.now())
+									 .build();
+		// Not used by the instance id tests
+		lenient().when(publishJobRepository.findByIdForUpdate(1L))
+				 .thenReturn(Optional.of(job));
+		lenient().when(publishJobGroupRepository.findById(100L))
+				 .thenReturn(Optional.of(group));
+	}
+
+	@Test
+	void completeGroup_lastGroupCompletesJob() {
+		when(publishJobGroupRepository.countByPublishJobIdAndStatusIn(eq(1L), any())).thenReturn(0L);
+
+		publishJobService.completeGroup(claimedGroup(), 0, null);
+
+		assertThat(group.getStatus()).isEqualTo(PublishProgressStatusEnum.COMPLETED);
+		assertThat(job.getCompletedGroups()).isEqualTo(1L);
+		assertThat(job.getStatus()).isEqualTo(PublishJobStatusEnum.COMPLETED);
+		assertThat(job.getFinished()).isNotNull();
+		verify(progressEventService).emit(eq("publish"), eq("group"), eq("group:100"), any());
+		verify(progressEventService).emit(eq("publish"), eq("job"), eq("job:1"), any());
+	}
+
+	@Test
+	void completeGroup_addsFileCountersOfGroupToJob() {
+		job.setFilesPublished(5L);
+		group.setFilesPublished(3L);
+		group.setFilesSkipped(2L);
+		when(publishJobGroupRepository.countByPublishJobIdAndStatusIn(eq(1L), any())).thenReturn(1L);
+
+		publishJobService.completeGroup(claimedGroup(), 0, null);
+
+		assertThat(job.getFilesPublished()).isEqualTo(8L);
+		assertThat(job.getFilesSkipped()).isEqualTo(2L);
+		assertThat(group.getFilesPublished()).isZero();
+		assertThat(group.getFilesSkipped()).isZero();
+		assertThat(job.getStatus()).isEqualTo(PublishJobStatusEnum.RUNNING);
+	}
+
+	@Test
+	void completeGroup_failedFilesAreRetriedLater() {
+		group.setFilesPublished(3L);
+
+		publishJobService.completeGroup(claimedGroup(), 2, null);
+
+		assertThat(group.getStatus()).isEqualTo(PublishProgressStatusEnum.SCHEDULED);
+		assertThat(group.getClaimedBy()).isNull();
+		assertThat(group.getAvailableAt()).isAfter(Instant.now());
+		assertThat(group.getLastError()).isEqualTo("2 files failed to publish");
+		assertThat(job.getStatus()).isEqualTo(PublishJobStatusEnum.RUNNING);
+		// Counted on the group until it finishes
+		assertThat(group.getFilesPublished()).isEqualTo(3L);
+		assertThat(job.getFilesPublished()).isZero();
+		verify(publishJobRepository, never()).save(job);
+	}
+
+	@Test
+	void completeGroup_lastAttemptFailsGroupAndJob() {
+		group.setAttempts(3);
+		when(publishJobGroupRepository.countByPublishJobIdAndStatusIn(eq(1L), any())).thenReturn(0L);
+
+		publishJobService.completeGroup(claimedGroup(), 0, "Admin is down");
+
+		assertThat(group.getStatus()).isEqualTo(PublishProgressStatusEnum.FAILED);
+		assertThat(group.getLastError()).isEqualTo("Admin is down");
+		assertThat(job.getFailedGroups()).isEqualTo(1L);
+		assertThat(job.getStatus()).isEqualTo(PublishJobStatusEnum.FAILED);
+	}
+
+	@Test
+	void completeGroup_leavesGroupClaimedByAnotherInstance() {
+		group.setClaimedBy("instance-2");
+
+		publishJobService.completeGroup(claimedGroup(), 0, null);
+
+		assertThat(group.getStatus()).isEqualTo(PublishProgressStatusEnum.STARTED);
+		verify(publishJobGroupRepository, never()).save(group);
+	}
+
+	@Test
+	void resolveInstanceId_keepsGeneratedIdOverRestarts(@TempDir Path tempDir) {
+		var idFile = tempDir.resolve("vempain")
+							.resolve("publish-instance-id");
+
+		var generated = PublishJobService.resolveInstanceId("", idFile);
+		var restarted = PublishJobService.resolveInstanceId(null, idFile);
+
+		assertThat(generated).isNotBlank();
+		assertThat(restarted).isEqualTo(generated);
+		assertThat(idFile).hasContent(generated);
+	}
+
+	@Test
+	void resolveInstanceId_prefersConfiguredId(@TempDir Path tempDir) {
+		var idFile = tempDir.resolve("publish-instance-id");
+
+		assertThat(PublishJobService.resolveInstanceId("node-a", idFile)).isEqualTo("node-a");
+		assertThat(idFile).doesNotExist();
+	}
+
+	@Test
+	void resolveInstanceId_failsWhenIdCanNotBeKept(@TempDir Path tempDir) throws IOException {
+		// A file where the directory of the id file should be
+		var blocker = Files.createFile(tempDir.resolve("blocker"));
+
+		assertThrows(IllegalStateException.class, () -> PublishJobService.resolveInstanceId(" ", blocker.resolve("publish-instance-id")));
+	}
+
+	private PublishJobService.ClaimedGroup claimedGroup() {
+		var request = PublishFileGroupRequest.builder()
+											 .fileGroupId(10L)
+											 .build();
+		return new PublishJobService.ClaimedGroup(1L, 100L, 1, null, request, Set.of());
+	}
+}
@@ -1,38 +1,54 @@
 package fi.poltsi.vempain.file.service;
 
+import fi.poltsi.vempain.admin.api.request.file.FileIngestRequest;
+import fi.poltsi.vempain.admin.api.response.file.FileIngestResponse;
 import fi.poltsi.vempain.file.api.FileTypeEnum;
+import fi.poltsi.vempain.file.api.request.PublishFileGroupRequest;
 import fi.poltsi.vempain.file.entity.DocumentFileEntity;
 import fi.poltsi.vempain.file.entity.ExportFileEntity;
 import fi.poltsi.vempain.file.entity.FileEntity;
+import fi.poltsi.vempain.file.entity.FileGroupEntity;
 import fi.poltsi.vempain.file.feign.VempainAdminTokenProvider;
 import fi.poltsi.vempain.file.repository.ExportFileRepository;
 import fi.poltsi.vempain.file.repository.FileGroupRepository;
 import fi.poltsi.vempain.file.repository.MetadataRepository;
-import fi.poltsi.vempain.file.tools.ImageTool;
+import fi.poltsi.vempain.file.tools.ExifToolPool;
+import fi.poltsi.vempain.file.tools.FileTool;
+import fi.poltsi.vempain.file.tools.SiteImageCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.context.ApplicationContext;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -56,11 +72,13 @@ class PublishServiceUTC {
     @Mock
     private VempainAdminTokenProvider vempainAdminTokenProvider;
     @Mock
-    private ImageTool imageTool;
+    private SiteImageCache siteImageCache;
     @Mock
-    private ApplicationContext applicationContext;
+    private PublishJobService publishJobService;
     @Mock
-    private PublishProgressStore progressStore;
+    private ExifToolPool exifToolPool;
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private PublishService publishService;
@@ -73,6 +91,7 @@ class PublishServiceUTC {
         ReflectionTestUtils.setField(publishService, "exportRootDirectory", tempDir.toString());
         ReflectionTestUtils.setField(publishService, "exportFileType", "jpeg");
         ReflectionTestUtils.setField(publishService, "siteImageSize", 1200);
+        publishService.init();
     }
 
     // ------------------------------------------------------------------
@@ -143,7 +162,7 @@ class PublishServiceUTC {
             when(mockFileEntity.getGpsLocation()).thenReturn(null);
             when(metadataRepository.findByFile(mockFileEntity)).thenReturn(List.of());
             when(tagService.getTagRequestsByFileId(42L)).thenReturn(List.of());
-            when(vempainAdminService.uploadAsSiteFile(any(), any())).thenReturn(null);
+            when(vempainAdminService.uploadAsSiteFile(any(), any(), any())).thenReturn(null);
 
             var result = publishService.republishSiteFile(mockFileEntity);
             // For BINARY type, should attempt to upload and succeed
@@ -191,7 +210,7 @@ class PublishServiceUTC {
             when(mockDocEntity.getPageCount()).thenReturn(5);
             when(metadataRepository.findByFile(mockDocEntity)).thenReturn(List.of());
             when(tagService.getTagRequestsByFileId(55L)).thenReturn(List.of());
-            when(vempainAdminService.uploadAsSiteFile(any(), any())).thenReturn(null);
+            when(vempainAdminService.uploadAsSiteFile(any(), any(), any())).thenReturn(null);
 
             var result = publishService.republishSiteFile(mockDocEntity);
             assertTrue(result);
@@ -216,4 +235,229 @@ class PublishServiceUTC {
             0x3F, 0x00, (byte)0xFB, (byte)0xD2, (byte)0xFF, (byte)0xD9
         };
     }
+
+    // ------------------------------------------------------------------
+    // publishFileGroup
+    // ------------------------------------------------------------------
+    @Nested
+    @DisplayName("publishFileGroup")
+    class PublishFileGroup {
+
+        @Test
+        void newGallery_firstUploadCreatesGalleryUsedByTheRest(@TempDir Path exportDir) throws Exception {
+            ReflectionTestUtils.setField(publishService, "exportRootDirectory", exportDir.toString());
+            ReflectionTestUtils.setField(publishService, "fileParallelism", 2);
+            Files.createDirectories(exportDir.resolve("sub"));
+
+            var files = new ArrayList<FileEntity>();
+
+            for (long id = 1L; id <= 3L; id++) {
+                var filename = "file" + id + ".bin";
+                Files.write(exportDir.resolve("sub")
+                                     .resolve(filename), getMinimalJpegBytes());
+                when(exportFileRepository.findByFileId(id)).thenReturn(Optional.of(ExportFileEntity.builder()
+                                                                                                   .id(id)
+                                                                                                   .filePath("/sub")
+                                                                                                   .filename(filename)
+                                                                                                   .build()));
+                var fileEntity = mock(FileEntity.class);
+                when(fileEntity.getId()).thenReturn(id);
+                when(fileEntity.getFileType()).thenReturn(FileTypeEnum.BINARY);
+                when(fileEntity.getFilePath()).thenReturn("/sub");
+                when(fileEntity.getFilename()).thenReturn(filename);
+                when(metadataRepository.findByFile(fileEntity)).thenReturn(List.of());
+                when(tagService.getTagRequestsByFileId(id)).thenReturn(List.of());
+                files.add(fileEntity);
+            }
+
+            var fileGroup = FileGroupEntity.builder()
+                                           .id(10L)
+                                           .path("/sub")
+                                           .groupName("Group")
+                                           .description("Group")
+                                           .files(files)
+                                           .build();
+            when(fileGroupRepository.findById(10L)).thenReturn(Optional.of(fileGroup));
+
+            var fileIngestResponse = mock(FileIngestResponse.class);
+            when(fileIngestResponse.getGalleryId()).thenReturn(77L);
+            var galleryIds = new CopyOnWriteArrayList<Long>();
+            when(vempainAdminService.uploadAsSiteFile(any(), any(), any())).thenAnswer(invocation -> {
+                galleryIds.add(invocation.getArgument(2, FileIngestRequest.class)
+                                         .getGalleryId());
+                return fileIngestResponse;
+            });
+
+            var failedFiles = publishService.publishFileGroup(claimedGroup(Set.of(), null));
+
+            // Only the first upload goes without a gallery, the rest are published to the gallery it created
+            assertThat(failedFiles).isZero();
+            assertThat(galleryIds).hasSize(3);
+            assertThat(galleryIds.getFirst()).isNull();
+            assertThat(galleryIds.subList(1, 3)).containsOnly(77L);
+            assertThat(fileGroup.getGalleryId()).isEqualTo(77L);
+            verify(fileGroupRepository).save(fileGroup);
+            verify(publishJobService, times(3)).recordFileResult(any(), anyLong(), eq(false), eq(77L), isNull());
+        }
+
+        @Test
+        void unchangedFile_isSkippedOnRepublish(@TempDir Path exportDir) throws Exception {
+            ReflectionTestUtils.setField(publishService, "exportRootDirectory", exportDir.toString());
+            ReflectionTestUtils.setField(publishService, "skipUnchanged", true);
+            Files.createDirectories(exportDir.resolve("sub"));
+            Files.write(exportDir.resolve("sub")
+                                 .resolve("file.bin"), getMinimalJpegBytes());
+
+            var exportEntity = ExportFileEntity.builder()
+                                               .id(5L)
+                                               .filePath("/sub")
+                                               .filename("file.bin")
+                                               .build();
+            when(exportFileRepository.findByFileId(1L)).thenReturn(Optional.of(exportEntity));
+            var fileEntity = mock(FileEntity.class);
+            when(fileEntity.getId()).thenReturn(1L);
+            when(fileEntity.getFileType()).thenReturn(FileTypeEnum.BINARY);
+            when(fileEntity.getFilePath()).thenReturn("/sub");
+            when(fileEntity.getFilename()).thenReturn("file.bin");
+            when(metadataRepository.findByFile(fileEntity)).thenReturn(List.of());
+            when(tagService.getTagRequestsByFileId(1L)).thenReturn(List.of());
+
+            var fileGroup = FileGroupEntity.builder()
+                                           .id(10L)
+                                           .path("/sub")
+                                           .groupName("Group")
+                                           .description("Group")
+                                           .files(new ArrayList<>(List.of(fileEntity)))
+                                           .galleryId(77L)
+                                           .build();
+            when(fileGroupRepository.findById(10L)).thenReturn(Optional.of(fileGroup));
+            var fileIngestResponse = mock(FileIngestResponse.class);
+            when(fileIngestResponse.getGalleryId()).thenReturn(77L);
+            when(vempainAdminService.uploadAsSiteFile(any(), any(), any())).thenReturn(fileIngestResponse);
+            publishService.publishFileGroup(claimedGroup(Set.of(), null));
+
+            var shaCaptor  = ArgumentCaptor.forClass(String.class);
+            var hashCaptor = ArgumentCaptor.forClass(String.class);
+            verify(exportFileRepository).updatePublishState(eq(5L), shaCaptor.capture(), hashCaptor.capture(), eq(77L), any());
+            exportEntity.setPublishedSha256sum(shaCaptor.getValue());
+            exportEntity.setPublishedMetadataHash(hashCaptor.getValue());
+            exportEntity.setPublishedGalleryId(77L);
+
+            publishService.publishFileGroup(claimedGroup(Set.of(), null));
+
+            verify(vempainAdminService, times(1)).uploadAsSiteFile(any(), any(), any());
+            verify(publishJobService).recordFileResult(any(), eq(1L), eq(true), eq(77L), isNull());
+        }
+
+        @Test
+        void recordedSha_isUsedUntilExportFileChanges(@TempDir Path exportDir) throws Exception {
+            ReflectionTestUtils.setField(publishService, "exportRootDirectory", exportDir.toString());
+            Files.createDirectories(exportDir.resolve("sub"));
+            var exportPath = Files.write(exportDir.resolve("sub")
+                                                  .resolve("file.bin"), getMinimalJpegBytes());
+            var fileStat   = FileTool.statFile(exportPath.toFile());
+
+            var exportEntity = ExportFileEntity.builder()
+                                               .id(5L)
+                                               .filePath("/sub")
+                                               .filename("file.bin")
+                                               .sha256sum("recorded")
+                                               .filesize(fileStat.size())
+                                               .fileMtime(fileStat.mtime())
+                                               .fileKey(fileStat.fileKey())
+                                               .build();
+            when(exportFileRepository.findByFileId(1L)).thenReturn(Optional.of(exportEntity));
+            var fileEntity = mock(FileEntity.class);
+            when(fileEntity.getId()).thenReturn(1L);
+            when(fileEntity.getFileType()).thenReturn(FileTypeEnum.BINARY);
+            when(fileEntity.getFilePath()).thenReturn("/sub");
+            when(fileEntity.getFilename()).thenReturn("file.bin");
+            when(metadataRepository.findByFile(fileEntity)).thenReturn(List.of());
+            when(tagService.getTagRequestsByFileId(1L)).thenReturn(List.of());
+
+            var fileGroup = FileGroupEntity.builder()
+                                           .id(10L)
+                                           .path("/sub")
+                                           .groupName("Group")
+                                           .files(new ArrayList<>(List.of(fileEntity)))
+                                           .galleryId(77L)
+                                           .build();
+            when(fileGroupRepository.findById(10L)).thenReturn(Optional.of(fileGroup));
+            var fileIngestResponse = mock(FileIngestResponse.class);
+            when(fileIngestResponse.getGalleryId()).thenReturn(77L);
+            var requestCaptor = ArgumentCaptor.forClass(FileIngestRequest.class);
+            when(vempainAdminService.uploadAsSiteFile(any(), any(), requestCaptor.capture())).thenReturn(fileIngestResponse);
+
+            publishService.publishFileGroup(claimedGroup(Set.of(), null));
+
+            // The file still has the recorded stat, it is not hashed again
+            assertThat(requestCaptor.getValue()
+                                    .getSha256sum()).isEqualTo("recorded");
+            verify(exportFileRepository, never()).updateContentState(anyLong(), any(), anyLong(), any(), any());
+
+            Files.setLastModifiedTime(exportPath, FileTime.fromMillis(fileStat.mtime() - 60_000L));
+            publishService.publishFileGroup(claimedGroup(Set.of(), null));
+
+            var sha256sum = FileTool.computeSha256(exportPath.toFile());
+            assertThat(requestCaptor.getValue()
+                                    .getSha256sum()).isEqualTo(sha256sum);
+            verify(exportFileRepository).updateContentState(eq(5L), eq(sha256sum), eq(fileStat.size()), eq(fileStat.mtime() - 60_000L), any());
+        }
+
+        @Test
+        void resumedGroup_skipsCompletedFilesAndKeepsGallery(@TempDir Path exportDir) throws Exception {
+            ReflectionTestUtils.setField(publishService, "exportRootDirectory", exportDir.toString());
+            Files.createDirectories(exportDir.resolve("sub"));
+            Files.write(exportDir.resolve("sub")
+                                 .resolve("file2.bin"), getMinimalJpegBytes());
+
+            var completedFile = mock(FileEntity.class);
+            when(completedFile.getId()).thenReturn(1L);
+            when(exportFileRepository.findByFileId(2L)).thenReturn(Optional.of(ExportFileEntity.builder()
+                                                                                               .id(2L)
+                                                                                               .filePath("/sub")
+                                                                                               .filename("file2.bin")
+                                                                                               .build()));
+            var pendingFile = mock(FileEntity.class);
+            when(pendingFile.getId()).thenReturn(2L);
+            when(pendingFile.getFileType()).thenReturn(FileTypeEnum.BINARY);
+            when(pendingFile.getFilePath()).thenReturn("/sub");
+            when(pendingFile.getFilename()).thenReturn("file2.bin");
+            when(metadataRepository.findByFile(pendingFile)).thenReturn(List.of());
+            when(tagService.getTagRequestsByFileId(2L)).thenReturn(List.of());
+
+            var fileGroup = FileGroupEntity.builder()
+                                           .id(10L)
+                                           .path("/sub")
+                                           .groupName("Group")
+                                           .files(new ArrayList<>(List.of(completedFile, pendingFile)))
+                                           .build();
+            when(fileGroupRepository.findById(10L)).thenReturn(Optional.of(fileGroup));
+            var fileIngestResponse = mock(FileIngestResponse.class);
+            when(fileIngestResponse.getGalleryId()).thenReturn(77L);
+            var requestCaptor = ArgumentCaptor.forClass(FileIngestRequest.class);
+            when(vempainAdminService.uploadAsSiteFile(any(), any(), requestCaptor.capture())).thenReturn(fileIngestResponse);
+
+            // The first file was published to gallery 77 before the group was interrupted
+            publishService.publishFileGroup(claimedGroup(Set.of(1L), 77L));
+
+            verify(vempainAdminService, times(1)).uploadAsSiteFile(any(), any(), any());
+            assertThat(requestCaptor.getValue()
+                                    .getGalleryId()).isEqualTo(77L);
+            assertThat(requestCaptor.getValue()
+                                    .getSortOrder()).isEqualTo(1L);
+            assertThat(requestCaptor.getValue()
+                                    .getGalleryName()).isEqualTo("Group");
+            assertThat(fileGroup.getGalleryId()).isEqualTo(77L);
+        }
+
+        private PublishJobService.ClaimedGroup claimedGroup(Set<Long> completedFileIds, Long galleryId) {
+            var request = PublishFileGroupRequest.builder()
+                                                 .fileGroupId(10L)
+                                                 .galleryName("Group")
+                                                 .galleryDescription("Group")
+                                                 .build();
+            return new PublishJobService.ClaimedGroup(1L, 100L, 1, galleryId, request, completedFileIds);
+        }
+    }
 }
@@ -0,0 +1,176 @@
+package fi.poltsi.vempain.file.service;
+
+import fi.poltsi.vempain.file.api.ScanJobStatusEnum;
+import fi.poltsi.vempain.file.entity.ScanJobDirectoryEntity;
+import fi.poltsi.vempain.file.entity.ScanJobEntity;
+import fi.poltsi.vempain.file.repository.ScanJobDirectoryRepository;
+import fi.poltsi.vempain.file.repository.ScanJobFileRepository;
+import fi.poltsi.vempain.file.repository.ScanJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests (UTC) for {@link ScanJobService}.
+ */
+@ExtendWith(MockitoExtension.class)
+class ScanJobServiceUTC {
+
+	@Mock
+	private ScanJobRepository          scanJobRepository;
+	@Mock
+	private ScanJobDirectoryRepository scanJobDirectoryRepository;
+	@Mock
+	private ScanJobFileRepository      scanJobFileRepository;
+	@Mock
+	private FileScannerService         fileScannerService;
+	@Mock
+	private ProgressEventService       progressEventService;
+
+	@TempDir
+	Path tempDir;
+
+	private ScanJobEntity                job;
+	private Path                         firstDirectory;
+	private Path                         secondDirectory;
+	private List<ScanJobDirectoryEntity> directories;
+
+	@BeforeEach
+	void setup() throws IOException {
+		firstDirectory  = Files.createDirectories(tempDir.resolve("first"));
+		secondDirectory = Files.createDirectories(tempDir.resolve("second"));
+		Files.writeString(firstDirectory.resolve("a.jpg"), "a");
+		Files.writeString(secondDirectory.resolve("b.jpg"), "b");
+
+		job = ScanJobEntity.builder()
+						   .id(1L)
+						   .status(ScanJobStatusEnum.QUEUED)
+						   .originalDirectory("/")
+						   .build();
+		directories = new ArrayList<>();
+
+		when(scanJobRepository.findById(1L)).thenReturn(Optional.of(job));
+		when(fileScannerService.findOriginalLeafDirectories(eq("/"), any())).thenReturn(List.of(firstDirectory, secondDirectory));
+		when(scanJobDirectoryRepository.saveAll(any())).thenAnswer(invocation -> {
+			List<ScanJobDirectoryEntity> saved = invocation.getArgument(0);
+			directories.addAll(saved);
+			return saved;
+		});
+	}
+
+	@Test
+	void runJob_completesWhenAllDirectoriesSucceed() throws Exception {
+		when(fileScannerService.processOriginalLeafDirectory(any(), any(), any(), any())).thenReturn(List.of(1L, 1L));
+
+		scanJobService(false, 4).runJob(1L);
+
+		assertThat(job.getStatus()).isEqualTo(ScanJobStatusEnum.COMPLETED);
+		assertThat(directories).extracting(ScanJobDirectoryEntity::getStatus)
+							   .containsOnly(ScanJobStatusEnum.COMPLETED);
+		verify(scanJobRepository, times(2)).addDirectoryResult(1L, 1L, 1L, 0L);
+	}
+
+	@Test
+	void runJob_updatesRunningJobInPlace() throws Exception {
+		when(fileScannerService.processOriginalLeafDirectory(any(), any(), any(), any())).thenReturn(List.of(1L, 1L));
+
+		scanJobService(false, 4).runJob(1L);
+
+		// Only the finished job is saved as a whole, a cancel requested while it ran is not overwritten
+		verify(scanJobRepository).markStarted(eq(1L), eq(ScanJobStatusEnum.RUNNING), any());
+		verify(scanJobRepository).setTotals(1L, 2L, 2L);
+		verify(scanJobRepository, times(1)).save(job);
+	}
+
+	@Test
+	void runJob_failsWhenDirectoryFails() throws Exception {
+		when(fileScannerService.processOriginalLeafDirectory(eq(firstDirectory), any(), any(), any())).thenThrow(new IOException("Disk gone"));
+		when(fileScannerService.processOriginalLeafDirectory(eq(secondDirectory), any(), any(), any())).thenReturn(List.of(1L, 1L));
+
+		scanJobService(false, 4).runJob(1L);
+
+		assertThat(job.getStatus()).isEqualTo(ScanJobStatusEnum.FAILED);
+		assertThat(job.getErrorMessage()).contains("/first", "Disk gone");
+		assertThat(directories).extracting(ScanJobDirectoryEntity::getStatus)
+							   .containsExactly(ScanJobStatusEnum.FAILED, ScanJobStatusEnum.COMPLETED);
+	}
+
+	@Test
+	void runJob_doesNotStartDirectoriesAfterCancel() throws Exception {
+		when(scanJobRepository.isCancelRequested(1L)).thenReturn(false, true);
+		when(fileScannerService.processOriginalLeafDirectory(eq(firstDirectory), any(), any(), any())).thenReturn(List.of(1L, 1L));
+
+		scanJobService(false, 4).runJob(1L);
+
+		assertThat(job.getStatus()).isEqualTo(ScanJobStatusEnum.CANCELLED);
+		assertThat(directories).extracting(ScanJobDirectoryEntity::getStatus)
+							   .containsExactly(ScanJobStatusEnum.COMPLETED, ScanJobStatusEnum.CANCELLED);
+		verify(fileScannerService, never()).processOriginalLeafDirectory(eq(secondDirectory), any(), any(), any());
+	}
+
+	@Test
+	void runJob_parallelMarksDirectoryRunningOnlyWithPermit() throws Exception {
+		var otherStatuses = Collections.synchronizedList(new ArrayList<ScanJobStatusEnum>());
+
+		when(fileScannerService.processOriginalLeafDirectory(any(), any(), any(), any())).thenAnswer(invocation -> {
+			Path leafDir = invocation.getArgument(0);
+			var  other   = leafDir.equals(firstDirectory) ? directories.get(1) : directories.getFirst();
+			// With one directory permit the other directory is still waiting for its turn
+			otherStatuses.add(other.getStatus());
+			return List.of(1L, 1L);
+		});
+
+		scanJobService(true, 1).runJob(1L);
+
+		assertThat(job.getStatus()).isEqualTo(ScanJobStatusEnum.COMPLETED);
+		assertThat(otherStatuses).hasSize(2)
+								 .contains(ScanJobStatusEnum.QUEUED)
+								 .doesNotContain(ScanJobStatusEnum.RUNNING);
+		assertThat(directories).extracting(ScanJobDirectoryEntity::getStatus)
+							   .containsOnly(ScanJobStatusEnum.COMPLETED);
+	}
+
+	@Test
+	void runJob_parallelFailsWhenDirectoryFails() throws Exception {
+		when(fileScannerService.processOriginalLeafDirectory(eq(firstDirectory), any(), any(), any())).thenReturn(List.of(1L, 1L));
+		when(fileScannerService.processOriginalLeafDirectory(eq(secondDirectory), any(), any(), any())).thenThrow(new IOException("Disk gone"));
+
+		scanJobService(true, 2).runJob(1L);
+
+		assertThat(job.getStatus()).isEqualTo(ScanJobStatusEnum.FAILED);
+		assertThat(directories).extracting(ScanJobDirectoryEntity::getStatus)
+							   .containsExactly(ScanJobStatusEnum.COMPLETED, ScanJobStatusEnum.FAILED);
+	}
+
+	private ScanJobService scanJobService(boolean parallel, int directoryPermits) {
+		var limits = new ScanConcurrencyLimits();
+		ReflectionTestUtils.setField(limits, "enabled", parallel);
+		ReflectionTestUtils.setField(limits, "directoryPermits", directoryPermits);
+		limits.init();
+
+		var service = new ScanJobService(scanJobRepository, scanJobDirectoryRepository, scanJobFileRepository, fileScannerService, limits,
+										 progressEventService);
+		ReflectionTestUtils.setField(service, "originalRootDirectory", tempDir.toString());
+		return service;
+	}
+}
@@ -6,7 +6,9 @@ import fi.poltsi.vempain.file.api.FileTypeEnum;
 import fi.poltsi.vempain.file.entity.ImageFileEntity;
 import fi.poltsi.vempain.file.repository.ExportFileRepository;
 import fi.poltsi.vempain.file.repository.SchedulerCheckpointRepository;
+import fi.poltsi.vempain.file.repository.files.FileRefreshRow;
 import fi.poltsi.vempain.file.repository.files.FileRepository;
+import fi.poltsi.vempain.file.tools.ExifToolPool;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -15,14 +17,21 @@ import org.springframework.data.domain.Sort;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
 import static fi.poltsi.vempain.file.tools.FileTool.computeSha256;
+import static fi.poltsi.vempain.file.tools.FileTool.statFile;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -41,6 +50,8 @@ class UpdatedFileRefreshSchedulerServiceUTC {
 	private PublishService                publishService;
 	@Mock
 	private VempainAdminService           vempainAdminService;
+	@Mock
+	private ExifToolPool                  exifToolPool;
 
 	@Test
 	void runRefresh_updatesChangedFile_andRepublishesSiteFileWhenKnownPublished() throws Exception {
@@ -56,10 +67,11 @@ class UpdatedFileRefreshSchedulerServiceUTC {
 		fileEntity.setSha256sum("old-sha");
 		fileEntity.setSiteFilePublished(true);
 
-		when(fileRepository.findAll()).thenReturn(List.of(fileEntity));
+		when(fileRepository.findRefreshRowsAfterId(eq(0L), any())).thenReturn(List.of(toRefreshRow(fileEntity)));
 		when(fileRepository.findById(1L)).thenReturn(Optional.of(fileEntity));
 		when(schedulerCheckpointRepository.findById("updated_file_refresh")).thenReturn(Optional.empty());
-		when(directoryProcessorService.refreshExistingOriginalFile(eq(fileEntity), eq(filePath.toFile()))).thenReturn(true);
+		when(directoryProcessorService.refreshExistingOriginalFile(eq(fileEntity), eq(filePath.toFile()), eq(computeSha256(filePath.toFile())),
+		                                                           eq(statFile(filePath.toFile())))).thenReturn(true);
 		when(exportFileRepository.findByFileId(1L)).thenReturn(Optional.empty());
 
 		var service = new UpdatedFileRefreshSchedulerService(fileRepository,
@@ -67,14 +79,16 @@ class UpdatedFileRefreshSchedulerServiceUTC {
 		                                                     schedulerCheckpointRepository,
 		                                                     directoryProcessorService,
 		                                                     publishService,
-		                                                     vempainAdminService);
+		                                                     vempainAdminService,
+		                                                     exifToolPool);
 		ReflectionTestUtils.setField(service, "originalRootDirectory", root.toString());
 		ReflectionTestUtils.setField(service, "exportRootDirectory", root.toString());
 		ReflectionTestUtils.setField(service, "exportFileType", "jpeg");
 
 		service.runRefresh();
 
-		verify(directoryProcessorService).refreshExistingOriginalFile(eq(fileEntity), eq(filePath.toFile()));
+		verify(directoryProcessorService).refreshExistingOriginalFile(eq(fileEntity), eq(filePath.toFile()), eq(computeSha256(filePath.toFile())),
+		                                                              eq(statFile(filePath.toFile())));
 		verify(publishService).republishSiteFile(fileEntity);
 		verify(schedulerCheckpointRepository).save(any());
 	}
@@ -106,7 +120,7 @@ class UpdatedFileRefreshSchedulerServiceUTC {
 		pagedResponse.setFirst(true);
 		pagedResponse.setLast(true);
 
-		when(fileRepository.findAll()).thenReturn(List.of(fileEntity));
+		when(fileRepository.findRefreshRowsAfterId(eq(0L), any())).thenReturn(List.of(toRefreshRow(fileEntity)));
 		when(schedulerCheckpointRepository.findById("updated_file_refresh")).thenReturn(Optional.of(fi.poltsi.vempain.file.entity.SchedulerCheckpointEntity.builder()
 		                                                                                                                                                   .taskName("updated_file_refresh")
 		                                                                                                                                                   .lastChecked(Instant.EPOCH)
@@ -119,16 +133,150 @@ class UpdatedFileRefreshSchedulerServiceUTC {
 		                                                     schedulerCheckpointRepository,
 		                                                     directoryProcessorService,
 		                                                     publishService,
-		                                                     vempainAdminService);
+		                                                     vempainAdminService,
+		                                                     exifToolPool);
 		ReflectionTestUtils.setField(service, "originalRootDirectory", root.toString());
 		ReflectionTestUtils.setField(service, "exportRootDirectory", root.toString());
 		ReflectionTestUtils.setField(service, "exportFileType", "jpeg");
 
 		service.runRefresh();
 
-		verify(fileRepository).save(fileEntity);
-		verify(directoryProcessorService, never()).refreshExistingOriginalFile(any(), any());
+		verify(fileRepository).updateSiteFilePublished(2L, true);
+		verify(fileRepository, never()).findById(anyLong());
+		verify(directoryProcessorService, never()).refreshExistingOriginalFile(any(), any(), any(), any());
 		verify(publishService, never()).republishSiteFile(any());
 	}
-}
 
+	@Test
+	void runRefresh_resolvesUnknownSitePublicationsFromOneCatalogSnapshot() throws Exception {
+		var root      = Files.createTempDirectory("refresh-root-catalog");
+		var published = unchangedFile(root, 10L, "published.jpg");
+		var missing   = unchangedFile(root, 11L, "missing.jpg");
+
+		when(fileRepository.findRefreshRowsAfterId(eq(0L), any())).thenReturn(List.of(toRefreshRow(published), toRefreshRow(missing)));
+		when(schedulerCheckpointRepository.findById("updated_file_refresh")).thenReturn(Optional.empty());
+		// Same file name in another directory on the first page, the published file on the second
+		when(vempainAdminService.getPageableSiteFiles(eq(FileTypeEnum.IMAGE), eq(0), eq(1), eq("id"), eq(Sort.Direction.ASC), isNull(), isNull()))
+				.thenReturn(sitePage(siteFile("/other", "missing.jpg"), false));
+		when(vempainAdminService.getPageableSiteFiles(eq(FileTypeEnum.IMAGE), eq(1), eq(1), eq("id"), eq(Sort.Direction.ASC), isNull(), isNull()))
+				.thenReturn(sitePage(siteFile("", "published.jpg"), true));
+
+		var service = catalogService(root);
+
+		service.runRefresh();
+
+		verify(fileRepository).updateSiteFilePublished(10L, true);
+		verify(fileRepository).updateSiteFilePublished(11L, false);
+		verify(vempainAdminService, times(2)).getPageableSiteFiles(any(), anyInt(), anyInt(), any(), any(), any(), any());
+	}
+
+	@Test
+	void runRefresh_leavesSitePublicationUnknownWhenCatalogCannotBeLoaded() throws Exception {
+		var root   = Files.createTempDirectory("refresh-root-catalog-down");
+		var first  = unchangedFile(root, 12L, "first.jpg");
+		var second = unchangedFile(root, 13L, "second.jpg");
+
+		when(fileRepository.findRefreshRowsAfterId(eq(0L), any())).thenReturn(List.of(toRefreshRow(first), toRefreshRow(second)));
+		when(schedulerCheckpointRepository.findById("updated_file_refresh")).thenReturn(Optional.empty());
+		when(vempainAdminService.getPageableSiteFiles(any(), anyInt(), anyInt(), any(), any(), any(), any())).thenReturn(null);
+
+		var service = catalogService(root);
+
+		service.runRefresh();
+
+		verify(fileRepository, never()).updateSiteFilePublished(anyLong(), anyBoolean());
+		verify(vempainAdminService, times(1)).getPageableSiteFiles(any(), anyInt(), anyInt(), any(), any(), any(), any());
+		verify(schedulerCheckpointRepository).save(any());
+	}
+
+	@Test
+	void refreshChangedPaths_refreshesOnlyKnownChangedOriginalFile() throws Exception {
+		var root      = Files.createTempDirectory("refresh-root-watch");
+		var changed   = Files.writeString(root.resolve("changed.jpg"), "edited-content");
+		var unscanned = Files.writeString(root.resolve("unscanned.jpg"), "new-file");
+
+		var fileEntity = new ImageFileEntity();
+		fileEntity.setId(3L);
+		fileEntity.setFilePath("/");
+		fileEntity.setFilename("changed.jpg");
+		fileEntity.setFileType(FileTypeEnum.IMAGE);
+		fileEntity.setSha256sum("old-sha");
+		fileEntity.setSiteFilePublished(false);
+
+		when(fileRepository.findRefreshRowByFilePathAndFilename("/", "changed.jpg")).thenReturn(Optional.of(toRefreshRow(fileEntity)));
+		when(fileRepository.findRefreshRowByFilePathAndFilename("/", "unscanned.jpg")).thenReturn(Optional.empty());
+		when(fileRepository.findById(3L)).thenReturn(Optional.of(fileEntity));
+		when(directoryProcessorService.refreshExistingOriginalFile(eq(fileEntity), eq(changed.toFile()), eq(computeSha256(changed.toFile())),
+		                                                           eq(statFile(changed.toFile())))).thenReturn(true);
+		when(exportFileRepository.findByFileId(3L)).thenReturn(Optional.empty());
+
+		var service = new UpdatedFileRefreshSchedulerService(fileRepository,
+		                                                     exportFileRepository,
+		                                                     schedulerCheckpointRepository,
+		                                                     directoryProcessorService,
+		                                                     publishService,
+		                                                     vempainAdminService,
+		                                                     exifToolPool);
+		ReflectionTestUtils.setField(service, "originalRootDirectory", root.toString());
+		ReflectionTestUtils.setField(service, "exportRootDirectory", root.resolve("export")
+		                                                                 .toString());
+
+		service.refreshChangedPaths(List.of(changed, unscanned), List.of());
+
+		verify(directoryProcessorService).refreshExistingOriginalFile(eq(fileEntity), eq(changed.toFile()), eq(computeSha256(changed.toFile())),
+		                                                              eq(statFile(changed.toFile())));
+		verify(publishService, never()).republishSiteFile(any());
+		verify(schedulerCheckpointRepository, never()).save(any());
+	}
+
+	private UpdatedFileRefreshSchedulerService catalogService(Path root) {
+		var service = new UpdatedFileRefreshSchedulerService(fileRepository,
+		                                                     exportFileRepository,
+		                                                     schedulerCheckpointRepository,
+		                                                     directoryProcessorService,
+		                                                     publishService,
+		                                                     vempainAdminService,
+		                                                     exifToolPool);
+		ReflectionTestUtils.setField(service, "originalRootDirectory", root.toString());
+		ReflectionTestUtils.setField(service, "exportRootDirectory", root.toString());
+		ReflectionTestUtils.setField(service, "exportFileType", "jpeg");
+		ReflectionTestUtils.setField(service, "siteCatalogEnabled", true);
+		ReflectionTestUtils.setField(service, "siteCatalogPageSize", 1);
+		return service;
+	}
+
+	private static ImageFileEntity unchangedFile(Path root, long id, String filename) throws Exception {
+		var filePath = Files.writeString(root.resolve(filename), filename);
+
+		var fileEntity = new ImageFileEntity();
+		fileEntity.setId(id);
+		fileEntity.setFilePath("/");
+		fileEntity.setFilename(filename);
+		fileEntity.setFileType(FileTypeEnum.IMAGE);
+		fileEntity.setSha256sum(computeSha256(filePath.toFile()));
+		fileEntity.setSiteFilePublished(null);
+		return fileEntity;
+	}
+
+	private static SiteFileResponse siteFile(String filePath, String fileName) {
+		return SiteFileResponse.builder()
+		                       .fileName(fileName)
+		                       .filePath(filePath)
+		                       .build();
+	}
+
+	private static PagedResponse<SiteFileResponse> sitePage(SiteFileResponse siteFile, boolean last) {
+		var pagedResponse = new PagedResponse<SiteFileResponse>();
+		pagedResponse.setContent(List.of(siteFile));
+		pagedResponse.setSize(1);
+		pagedResponse.setTotalElements(2);
+		pagedResponse.setTotalPages(2);
+		pagedResponse.setLast(last);
+		return pagedResponse;
+	}
+
+	private static FileRefreshRow toRefreshRow(ImageFileEntity fileEntity) {
+		return new FileRefreshRow(fileEntity.getId(), fileEntity.getFilePath(), fileEntity.getFilename(), fileEntity.getFileType(), fileEntity.getSha256sum(),
+		                          fileEntity.getFilesize(), fileEntity.getFileMtime(), fileEntity.getFileKey(), fileEntity.getSiteFilePublished());
+	}
+}
@@ -0,0 +1,138 @@
+package fi.poltsi.vempain.file.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Unit tests (UTC) for {@link UpdatedFileWatcher}. The debounce is driven by a fake clock, the watch service itself is not started.
+ */
+@ExtendWith(MockitoExtension.class)
+class UpdatedFileWatcherUTC {
+
+	private static final long DEBOUNCE_MILLIS = 2000L;
+
+	@Mock
+	private UpdatedFileRefreshSchedulerService updatedFileRefreshSchedulerService;
+
+	@TempDir
+	Path tempDir;
+
+	private final AtomicLong now = new AtomicLong(1_000_000L);
+
+	private UpdatedFileWatcher watcher;
+	private Path               originalFile;
+	private Path               exportFile;
+
+	@BeforeEach
+	void setup() {
+		var originalRoot = tempDir.resolve("original");
+		var exportRoot   = tempDir.resolve("export");
+		originalFile = originalRoot.resolve("2024/image.jpg");
+		exportFile   = exportRoot.resolve("2024/image.jpeg");
+
+		watcher = new UpdatedFileWatcher(updatedFileRefreshSchedulerService);
+		ReflectionTestUtils.setField(watcher, "debounceMillis", DEBOUNCE_MILLIS);
+		ReflectionTestUtils.setField(watcher, "originalRootDirectory", originalRoot.toString());
+		ReflectionTestUtils.setField(watcher, "exportRootDirectory", exportRoot.toString());
+		ReflectionTestUtils.setField(watcher, "nanoClock", (LongSupplier) now::get);
+	}
+
+	@Test
+	void flushQuietPaths_waitsUntilPathHasBeenQuietForDebounce() {
+		watcher.recordChange(originalFile);
+
+		advance(DEBOUNCE_MILLIS - 1);
+		watcher.flushQuietPaths();
+		verifyNoInteractions(updatedFileRefreshSchedulerService);
+
+		advance(1);
+		watcher.flushQuietPaths();
+		verify(updatedFileRefreshSchedulerService).refreshChangedPaths(List.of(originalFile), List.of());
+	}
+
+	@Test
+	void flushQuietPaths_coalescesRepeatedEventsOfSameFile() {
+		watcher.recordChange(originalFile);
+		advance(DEBOUNCE_MILLIS / 2);
+		watcher.recordChange(originalFile);
+		advance(DEBOUNCE_MILLIS / 2);
+		watcher.recordChange(originalFile);
+
+		// Quiet since the first event, but not since the latest one
+		advance(DEBOUNCE_MILLIS / 2);
+		watcher.flushQuietPaths();
+		verifyNoInteractions(updatedFileRefreshSchedulerService);
+
+		advance(DEBOUNCE_MILLIS / 2);
+		watcher.flushQuietPaths();
+		watcher.flushQuietPaths();
+		verify(updatedFileRefreshSchedulerService, times(1)).refreshChangedPaths(List.of(originalFile), List.of());
+	}
+
+	@Test
+	void flushQuietPaths_splitsExportAndOriginalPaths() {
+		watcher.recordChange(originalFile);
+		watcher.recordChange(exportFile);
+
+		advance(DEBOUNCE_MILLIS);
+		watcher.flushQuietPaths();
+
+		verify(updatedFileRefreshSchedulerService).refreshChangedPaths(List.of(originalFile), List.of(exportFile));
+	}
+
+	@Test
+	void flushQuietPaths_keepsPathWhoseEventArrivesDuringFlush() {
+		// A new event of the path arrives between reading the pending entry and removing it
+		var pendingPaths = new ConcurrentHashMap<Path, Long>() {
+			@Override
+			public boolean remove(Object key, Object value) {
+				put((Path) key, now.get());
+				return super.remove(key, value);
+			}
+		};
+		ReflectionTestUtils.setField(watcher, "pendingPaths", pendingPaths);
+		watcher.recordChange(originalFile);
+
+		advance(DEBOUNCE_MILLIS);
+		watcher.flushQuietPaths();
+
+		verifyNoInteractions(updatedFileRefreshSchedulerService);
+		assertThat(pendingPaths).containsEntry(originalFile, now.get());
+	}
+
+	@Test
+	void flushQuietPaths_refreshesPathAgainAfterLaterEvent() {
+		watcher.recordChange(originalFile);
+		advance(DEBOUNCE_MILLIS);
+		watcher.flushQuietPaths();
+
+		watcher.recordChange(originalFile);
+		advance(DEBOUNCE_MILLIS);
+		watcher.flushQuietPaths();
+
+		verify(updatedFileRefreshSchedulerService, times(2)).refreshChangedPaths(List.of(originalFile), List.of());
+		assertThat((Map<?, ?>) ReflectionTestUtils.getField(watcher, "pendingPaths")).isEmpty();
+	}
+
+	private void advance(long millis) {
+		now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+	}
+}
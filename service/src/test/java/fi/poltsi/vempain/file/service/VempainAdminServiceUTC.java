@@ -11,6 +11,9 @@ import fi.poltsi.vempain.auth.exception.VempainAuthenticationException;
 import fi.poltsi.vempain.file.api.FileTypeEnum;
 import fi.poltsi.vempain.file.feign.VempainAdminFileClient;
 import fi.poltsi.vempain.file.feign.VempainAdminFileIngestClient;
+import fi.poltsi.vempain.file.feign.VempainAdminResilience;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -18,9 +21,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 import tools.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
@@ -49,10 +54,20 @@ class VempainAdminServiceUTC {
     private VempainAdminFileClient vempainAdminFileClient;
     @Mock
     private ObjectMapper objectMapper;
+    @Spy
+    private VempainAdminResilience vempainAdminResilience = new VempainAdminResilience(new SimpleMeterRegistry());
 
     @InjectMocks
     private VempainAdminService vempainAdminService;
 
+    @BeforeEach
+    void setup() {
+        // A single attempt, so that the failures of the tests are not retried
+        ReflectionTestUtils.setField(vempainAdminResilience, "maxAttempts", 1);
+        ReflectionTestUtils.setField(vempainAdminResilience, "failureThreshold", 5);
+        vempainAdminResilience.init();
+    }
+
     private FeignException fakeFeignException(int status) {
         return FeignException.errorStatus("test",
                 feign.Response.builder()
@@ -2,8 +2,13 @@ package fi.poltsi.vempain.file.service.files;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class FileSearchHelperUTC {
 
@@ -49,5 +54,33 @@ class FileSearchHelperUTC {
 		assertThat(FileSearchHelper.buildSort("unknown", null)
 		                           .toString()).contains("filename: ASC");
 	}
-}
 
+	@Test
+	void cursor_roundTripsSortKeyAndId() {
+		var filenameCursor = new FileSearchHelper.FileCursor(FileSearchHelper.KeysetKey.FILENAME, Sort.Direction.ASC, cast("img\n0042.jpg"), 42L);
+		var createdCursor  = new FileSearchHelper.FileCursor(FileSearchHelper.KeysetKey.CREATED, Sort.Direction.DESC,
+															 cast(Instant.parse("2025-06-01T10:15:30.123456Z")), 7L);
+
+		assertThat(FileSearchHelper.decodeCursor(FileSearchHelper.encodeCursor(filenameCursor))).isEqualTo(filenameCursor);
+		assertThat(FileSearchHelper.decodeCursor(FileSearchHelper.encodeCursor(createdCursor))).isEqualTo(createdCursor);
+	}
+
+	@Test
+	void decodeCursor_rejectsInvalidCursor() {
+		assertThatThrownBy(() -> FileSearchHelper.decodeCursor("not a cursor"))
+				.isInstanceOf(ResponseStatusException.class)
+				.satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+	}
+
+	@Test
+	void keysetKey_rejectsNullableSortFields() {
+		assertThatThrownBy(() -> FileSearchHelper.KeysetKey.of("description"))
+				.isInstanceOf(ResponseStatusException.class)
+				.satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Comparable<Object> cast(Comparable<?> value) {
+		return (Comparable<Object>) value;
+	}
+}
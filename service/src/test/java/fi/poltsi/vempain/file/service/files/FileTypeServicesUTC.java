@@ -2,6 +2,7 @@ package fi.poltsi.vempain.file.service.files;
 
 import fi.poltsi.vempain.auth.api.request.PagedRequest;
 import fi.poltsi.vempain.file.repository.DocumentFileRepository;
+import fi.poltsi.vempain.file.repository.FileListRepository;
 import fi.poltsi.vempain.file.repository.files.ArchiveFileRepository;
 import fi.poltsi.vempain.file.repository.files.AudioFileRepository;
 import fi.poltsi.vempain.file.repository.files.BinaryFileRepository;
@@ -61,6 +62,8 @@ class FileTypeServicesUTC {
 	private VectorFileRepository      vectorFileRepository;
 	@Mock
 	private VideoFileRepository       videoFileRepository;
+	@Mock
+	private FileListRepository        fileListRepository;
 
 	@Test
 	void findById_returnsNull_whenMissing_forAllFileTypeServices() {
@@ -78,19 +81,19 @@ class FileTypeServicesUTC {
 		when(vectorFileRepository.findById(1L)).thenReturn(Optional.empty());
 		when(videoFileRepository.findById(1L)).thenReturn(Optional.empty());
 
-		assertThat(new ArchiveFileService(archiveFileRepository).findById(1L)).isNull();
-		assertThat(new AudioFileService(audioFileRepository).findById(1L)).isNull();
-		assertThat(new BinaryFileService(binaryFileRepository).findById(1L)).isNull();
-		assertThat(new DataFileService(dataFileRepository).findById(1L)).isNull();
-		assertThat(new DocumentFileService(documentFileRepository).findById(1L)).isNull();
-		assertThat(new ExecutableFileService(executableFileRepository).findById(1L)).isNull();
-		assertThat(new FontFileService(fontFileRepository).findById(1L)).isNull();
-		assertThat(new IconFileService(iconFileRepository).findById(1L)).isNull();
-		assertThat(new ImageFileService(imageFileRepository).findById(1L)).isNull();
-		assertThat(new InteractiveFileService(interactiveFileRepository).findById(1L)).isNull();
-		assertThat(new ThumbFileService(thumbFileRepository).findById(1L)).isNull();
-		assertThat(new VectorFileService(vectorFileRepository).findById(1L)).isNull();
-		assertThat(new VideoFileService(videoFileRepository).findById(1L)).isNull();
+		assertThat(new ArchiveFileService(archiveFileRepository, fileListRepository).findById(1L)).isNull();
+		assertThat(new AudioFileService(audioFileRepository, fileListRepository).findById(1L)).isNull();
+		assertThat(new BinaryFileService(binaryFileRepository, fileListRepository).findById(1L)).isNull();
+		assertThat(new DataFileService(dataFileRepository, fileListRepository).findById(1L)).isNull();
+		assertThat(new DocumentFileService(documentFileRepository, fileListRepository).findById(1L)).isNull();
+		assertThat(new ExecutableFileService(executableFileRepository, fileListRepository).findById(1L)).isNull();
+		assertThat(new FontFileService(fontFileRepository, fileListRepository).findById(1L)).isNull();
+		assertThat(new IconFileService(iconFileRepository, fileListRepository).findById(1L)).isNull();
+		assertThat(new ImageFileService(imageFileRepository, fileListRepository).findById(1L)).isNull();
+		assertThat(new InteractiveFileService(interactiveFileRepository, fileListRepository).findById(1L)).isNull();
+		assertThat(new ThumbFileService(thumbFileRepository, fileListRepository).findById(1L)).isNull();
+		assertThat(new VectorFileService(vectorFileRepository, fileListRepository).findById(1L)).isNull();
+		assertThat(new VideoFileService(videoFileRepository, fileListRepository).findById(1L)).isNull();
 	}
 
 	@Test
@@ -102,46 +105,22 @@ class FileTypeServicesUTC {
 		pagedRequest.setSearch("file");
 
 		Page<?> emptyPage = Page.empty();
-		doReturn(emptyPage).when(archiveFileRepository)
-		                   .findAll(any(Specification.class), any(org.springframework.data.domain.Pageable.class));
-		doReturn(emptyPage).when(audioFileRepository)
-		                   .findAll(any(Specification.class), any(org.springframework.data.domain.Pageable.class));
-		doReturn(emptyPage).when(binaryFileRepository)
-		                   .findAll(any(Specification.class), any(org.springframework.data.domain.Pageable.class));
-		doReturn(emptyPage).when(dataFileRepository)
-		                   .findAll(any(Specification.class), any(org.springframework.data.domain.Pageable.class));
-		doReturn(emptyPage).when(documentFileRepository)
-		                   .findAll(any(Specification.class), any(org.springframework.data.domain.Pageable.class));
-		doReturn(emptyPage).when(executableFileRepository)
-		                   .findAll(any(Specification.class), any(org.springframework.data.domain.Pageable.class));
-		doReturn(emptyPage).when(fontFileRepository)
-		                   .findAll(any(Specification.class), any(org.springframework.data.domain.Pageable.class));
-		doReturn(emptyPage).when(iconFileRepository)
-		                   .findAll(any(Specification.class), any(org.springframework.data.domain.Pageable.class));
-		doReturn(emptyPage).when(imageFileRepository)
-		                   .findAll(any(Specification.class), any(org.springframework.data.domain.Pageable.class));
-		doReturn(emptyPage).when(interactiveFileRepository)
-		                   .findAll(any(Specification.class), any(org.springframework.data.domain.Pageable.class));
-		doReturn(emptyPage).when(thumbFileRepository)
-		                   .findAll(any(Specification.class), any(org.springframework.data.domain.Pageable.class));
-		doReturn(emptyPage).when(vectorFileRepository)
-		                   .findAll(any(Specification.class), any(org.springframework.data.domain.Pageable.class));
-		doReturn(emptyPage).when(videoFileRepository)
-		                   .findAll(any(Specification.class), any(org.springframework.data.domain.Pageable.class));
+		doReturn(emptyPage).when(fileListRepository)
+		                   .findPage(any(), any(Specification.class), any(org.springframework.data.domain.Pageable.class));
 
-		assertThat(new ArchiveFileService(archiveFileRepository).findAll(pagedRequest)).isNotNull();
-		assertThat(new AudioFileService(audioFileRepository).findAll(pagedRequest)).isNotNull();
-		assertThat(new BinaryFileService(binaryFileRepository).findAll(pagedRequest)).isNotNull();
-		assertThat(new DataFileService(dataFileRepository).findAll(pagedRequest)).isNotNull();
-		assertThat(new DocumentFileService(documentFileRepository).findAll(pagedRequest)).isNotNull();
-		assertThat(new ExecutableFileService(executableFileRepository).findAll(pagedRequest)).isNotNull();
-		assertThat(new FontFileService(fontFileRepository).findAll(pagedRequest)).isNotNull();
-		assertThat(new IconFileService(iconFileRepository).findAll(pagedRequest)).isNotNull();
-		assertThat(new ImageFileService(imageFileRepository).findAll(pagedRequest)).isNotNull();
-		assertThat(new InteractiveFileService(interactiveFileRepository).findAll(pagedRequest)).isNotNull();
-		assertThat(new ThumbFileService(thumbFileRepository).findAll(pagedRequest)).isNotNull();
-		assertThat(new VectorFileService(vectorFileRepository).findAll(pagedRequest)).isNotNull();
-		assertThat(new VideoFileService(videoFileRepository).findAll(pagedRequest)).isNotNull();
+		assertThat(new ArchiveFileService(archiveFileRepository, fileListRepository).findAll(pagedRequest)).isNotNull();
+		assertThat(new AudioFileService(audioFileRepository, fileListRepository).findAll(pagedRequest)).isNotNull();
+		assertThat(new BinaryFileService(binaryFileRepository, fileListRepository).findAll(pagedRequest)).isNotNull();
+		assertThat(new DataFileService(dataFileRepository, fileListRepository).findAll(pagedRequest)).isNotNull();
+		assertThat(new DocumentFileService(documentFileRepository, fileListRepository).findAll(pagedRequest)).isNotNull();
+		assertThat(new ExecutableFileService(executableFileRepository, fileListRepository).findAll(pagedRequest)).isNotNull();
+		assertThat(new FontFileService(fontFileRepository, fileListRepository).findAll(pagedRequest)).isNotNull();
+		assertThat(new IconFileService(iconFileRepository, fileListRepository).findAll(pagedRequest)).isNotNull();
+		assertThat(new ImageFileService(imageFileRepository, fileListRepository).findAll(pagedRequest)).isNotNull();
+		assertThat(new InteractiveFileService(interactiveFileRepository, fileListRepository).findAll(pagedRequest)).isNotNull();
+		assertThat(new ThumbFileService(thumbFileRepository, fileListRepository).findAll(pagedRequest)).isNotNull();
+		assertThat(new VectorFileService(vectorFileRepository, fileListRepository).findAll(pagedRequest)).isNotNull();
+		assertThat(new VideoFileService(videoFileRepository, fileListRepository).findAll(pagedRequest)).isNotNull();
 	}
 
 	@Test
@@ -188,36 +167,36 @@ class FileTypeServicesUTC {
 		when(vectorFileRepository.findById(2L)).thenReturn(Optional.of(vector));
 		when(videoFileRepository.findById(2L)).thenReturn(Optional.of(video));
 
-		assertThat(new ArchiveFileService(archiveFileRepository).findById(2L)).isNotNull();
-		assertThat(new AudioFileService(audioFileRepository).findById(2L)).isNotNull();
-		assertThat(new BinaryFileService(binaryFileRepository).findById(2L)).isNotNull();
-		assertThat(new DataFileService(dataFileRepository).findById(2L)).isNotNull();
-		assertThat(new DocumentFileService(documentFileRepository).findById(2L)).isNotNull();
-		assertThat(new ExecutableFileService(executableFileRepository).findById(2L)).isNotNull();
-		assertThat(new FontFileService(fontFileRepository).findById(2L)).isNotNull();
-		assertThat(new IconFileService(iconFileRepository).findById(2L)).isNotNull();
-		assertThat(new ImageFileService(imageFileRepository).findById(2L)).isNotNull();
-		assertThat(new InteractiveFileService(interactiveFileRepository).findById(2L)).isNotNull();
-		assertThat(new ThumbFileService(thumbFileRepository).findById(2L)).isNotNull();
-		assertThat(new VectorFileService(vectorFileRepository).findById(2L)).isNotNull();
-		assertThat(new VideoFileService(videoFileRepository).findById(2L)).isNotNull();
+		assertThat(new ArchiveFileService(archiveFileRepository, fileListRepository).findById(2L)).isNotNull();
+		assertThat(new AudioFileService(audioFileRepository, fileListRepository).findById(2L)).isNotNull();
+		assertThat(new BinaryFileService(binaryFileRepository, fileListRepository).findById(2L)).isNotNull();
+		assertThat(new DataFileService(dataFileRepository, fileListRepository).findById(2L)).isNotNull();
+		assertThat(new DocumentFileService(documentFileRepository, fileListRepository).findById(2L)).isNotNull();
+		assertThat(new ExecutableFileService(executableFileRepository, fileListRepository).findById(2L)).isNotNull();
+		assertThat(new FontFileService(fontFileRepository, fileListRepository).findById(2L)).isNotNull();
+		assertThat(new IconFileService(iconFileRepository, fileListRepository).findById(2L)).isNotNull();
+		assertThat(new ImageFileService(imageFileRepository, fileListRepository).findById(2L)).isNotNull();
+		assertThat(new InteractiveFileService(interactiveFileRepository, fileListRepository).findById(2L)).isNotNull();
+		assertThat(new ThumbFileService(thumbFileRepository, fileListRepository).findById(2L)).isNotNull();
+		assertThat(new VectorFileService(vectorFileRepository, fileListRepository).findById(2L)).isNotNull();
+		assertThat(new VideoFileService(videoFileRepository, fileListRepository).findById(2L)).isNotNull();
 	}
 
 	@Test
 	void delete_returnsExpectedStatus_forAllFileTypeServices() {
-		var archiveService     = new ArchiveFileService(archiveFileRepository);
-		var audioService       = new AudioFileService(audioFileRepository);
-		var binaryService      = new BinaryFileService(binaryFileRepository);
-		var dataService        = new DataFileService(dataFileRepository);
-		var documentService    = new DocumentFileService(documentFileRepository);
-		var executableService  = new ExecutableFileService(executableFileRepository);
-		var fontService        = new FontFileService(fontFileRepository);
-		var iconService        = new IconFileService(iconFileRepository);
-		var imageService       = new ImageFileService(imageFileRepository);
-		var interactiveService = new InteractiveFileService(interactiveFileRepository);
-		var thumbService       = new ThumbFileService(thumbFileRepository);
-		var vectorService      = new VectorFileService(vectorFileRepository);
-		var videoService       = new VideoFileService(videoFileRepository);
+		var archiveService     = new ArchiveFileService(archiveFileRepository, fileListRepository);
+		var audioService       = new AudioFileService(audioFileRepository, fileListRepository);
+		var binaryService      = new BinaryFileService(binaryFileRepository, fileListRepository);
+		var dataService        = new DataFileService(dataFileRepository, fileListRepository);
+		var documentService    = new DocumentFileService(documentFileRepository, fileListRepository);
+		var executableService  = new ExecutableFileService(executableFileRepository, fileListRepository);
+		var fontService        = new FontFileService(fontFileRepository, fileListRepository);
+		var iconService        = new IconFileService(iconFileRepository, fileListRepository);
+		var imageService       = new ImageFileService(imageFileRepository, fileListRepository);
+		var interactiveService = new InteractiveFileService(interactiveFileRepository, fileListRepository);
+		var thumbService       = new ThumbFileService(thumbFileRepository, fileListRepository);
+		var vectorService      = new VectorFileService(vectorFileRepository, fileListRepository);
+		var videoService       = new VideoFileService(videoFileRepository, fileListRepository);
 
 		when(archiveFileRepository.existsById(1L)).thenReturn(true);
 		when(audioFileRepository.existsById(1L)).thenReturn(true);
@@ -0,0 +1,123 @@
+package fi.poltsi.vempain.file.tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests (UTC) for {@link DiskLruCache}.
+ */
+class DiskLruCacheUTC {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void put_evictsLeastRecentlyUsedEntries() throws IOException {
+		var cache  = new DiskLruCache("test", 20L);
+		var first  = file("first", 10);
+		var second = file("second", 10);
+		var third  = file("third", 10);
+
+		cache.load("first", List.of(first));
+		cache.load("second", List.of(second));
+		cache.acquire("first")
+			 .close();
+		cache.load("third", List.of(third));
+
+		assertThat(first).exists();
+		assertThat(second).doesNotExist();
+		assertThat(third).exists();
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.totalBytes()).isEqualTo(20L);
+	}
+
+	@Test
+	void put_deletesAllFilesOfEvictedEntry() throws IOException {
+		var cache   = new DiskLruCache("test", 10L);
+		var image   = file("image", 5);
+		var sidecar = file("sidecar", 5);
+
+		cache.load("image", List.of(image, sidecar));
+		cache.load("other", List.of(file("other", 10)));
+
+		assertThat(image).doesNotExist();
+		assertThat(sidecar).doesNotExist();
+	}
+
+	@Test
+	void pinnedEntry_isEvictedOnlyOnceReleased() throws IOException {
+		var cache = new DiskLruCache("test", 10L);
+		var first = file("first", 10);
+		cache.load("first", List.of(first));
+
+		try (var lease = cache.acquire("first")) {
+			cache.load("second", List.of(file("second", 10)));
+
+			assertThat(lease.files()).containsExactly(first);
+			assertThat(first).exists();
+			assertThat(cache.totalBytes()).isEqualTo(20L);
+		}
+
+		assertThat(first).doesNotExist();
+		assertThat(cache.acquire("first")).isNull();
+		assertThat(cache.totalBytes()).isEqualTo(10L);
+	}
+
+	@Test
+	void discard_deletesFilesOnceLastLeaseIsClosed() throws IOException {
+		var cache = new DiskLruCache("test", 100L);
+		var entry = file("entry", 10);
+		cache.load("entry", List.of(entry));
+
+		var reader = cache.acquire("entry");
+		cache.acquire("entry")
+			 .discard();
+
+		assertThat(entry).exists();
+		assertThat(cache.acquire("entry")).isNull();
+
+		reader.close();
+
+		assertThat(entry).doesNotExist();
+		assertThat(cache.totalBytes()).isZero();
+	}
+
+	@Test
+	void discard_keepsFilesTakenOverByNewEntry() throws IOException {
+		var cache = new DiskLruCache("test", 100L);
+		var entry = file("entry", 10);
+		cache.load("entry", List.of(entry));
+
+		var reader = cache.acquire("entry");
+		cache.acquire("entry")
+			 .discard();
+		// Written again at the same path while the broken entry was still in use
+		cache.load("entry", List.of(entry));
+		reader.close();
+
+		assertThat(entry).exists();
+		assertThat(cache.acquire("entry")).isNotNull();
+	}
+
+	@Test
+	void acquire_dropsEntryWhoseFileIsMissing() throws IOException {
+		var cache = new DiskLruCache("test", 100L);
+		var entry = file("entry", 10);
+		cache.load("entry", List.of(entry));
+		Files.delete(entry);
+
+		assertThat(cache.acquire("entry")).isNull();
+		assertThat(cache.size()).isZero();
+	}
+
+	private Path file(String name, int bytes) throws IOException {
+		return Files.write(tempDir.resolve(name), new byte[bytes]);
+	}
+}
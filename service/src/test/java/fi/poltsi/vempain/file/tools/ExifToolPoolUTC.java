@@ -0,0 +1,154 @@
+package fi.poltsi.vempain.file.tools;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests (UTC) for {@link ExifToolPool}. The workers run a shell script which speaks the {@code -stay_open} protocol of exiftool:
+ * it echoes the plain arguments of a request, its process id and the exit status, and fails, hangs or dies on request.
+ */
+@DisabledOnOs(OS.WINDOWS)
+class ExifToolPoolUTC {
+
+	private static final String FAKE_EXIFTOOL = """
+			#!/bin/sh
+			status=0
+			while IFS= read -r line; do
+			  case "$line" in
+			    -execute*)
+			      echo "pid $$"
+			      echo "{status$status}"
+			      echo "{ready${line#-execute}}"
+			      status=0
+			      ;;
+			    False) exit 0 ;;
+			    fail) status=1 ;;
+			    hang) sleep 5 ;;
+			    die) exit 1 ;;
+			    -*|{*) ;;
+			    *) echo "arg $line" ;;
+			  esac
+			done
+			""";
+
+	@TempDir
+	Path tempDir;
+
+	private ExifToolPool exifToolPool;
+
+	@BeforeEach
+	void setup() throws IOException {
+		var script = tempDir.resolve("fake-exiftool.sh");
+		Files.writeString(script, FAKE_EXIFTOOL);
+		assertThat(script.toFile()
+						 .setExecutable(true)).isTrue();
+
+		exifToolPool = new ExifToolPool();
+		ReflectionTestUtils.setField(exifToolPool, "poolSize", 1);
+		ReflectionTestUtils.setField(exifToolPool, "requestTimeoutSeconds", 1L);
+		ReflectionTestUtils.setField(exifToolPool, "command", List.of(script.toString()));
+		exifToolPool.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		exifToolPool.shutdown();
+	}
+
+	@Test
+	void execute_returnsOutputOfEachRequestWithoutStatusAndReadyMarker() throws IOException {
+		var first  = exifToolPool.execute(List.of("-j", "first.jpg"));
+		var second = exifToolPool.execute(List.of("second.jpg", "third.jpg"));
+
+		assertThat(first.output()).startsWith("arg first.jpg\npid ")
+								  .doesNotContain("{status", "{ready");
+		assertThat(first.failed()).isFalse();
+		assertThat(second.output()).startsWith("arg second.jpg\narg third.jpg\npid ")
+								   .doesNotContain("{status", "{ready");
+		// Both requests were answered by the same long-lived process
+		assertThat(pid(second)).isEqualTo(pid(first));
+	}
+
+	@Test
+	void execute_reportsNonZeroStatusAsFailure() throws IOException {
+		var failed = exifToolPool.execute(List.of("fail", "image.jpg"));
+		var next   = exifToolPool.execute(List.of("image.jpg"));
+
+		assertThat(failed.failed()).isTrue();
+		assertThat(failed.output()).contains("arg image.jpg");
+		assertThat(next.failed()).isFalse();
+	}
+
+	@Test
+	void execute_restartsWorkerAfterTimeout() throws IOException {
+		var before = exifToolPool.execute(List.of("image.jpg"));
+
+		var exception = assertThrows(IOException.class, () -> exifToolPool.execute(List.of("hang")));
+		var after     = exifToolPool.execute(List.of("image.jpg"));
+
+		assertThat(exception).hasMessageContaining("timed out");
+		assertThat(after.output()).startsWith("arg image.jpg\n");
+		assertThat(pid(after)).isNotEqualTo(pid(before));
+	}
+
+	@Test
+	void execute_answersEveryRequestOfRestartedWorkerAfterTimeout() throws IOException {
+		assertThrows(IOException.class, () -> exifToolPool.execute(List.of("hang")));
+
+		// The reader of the timed out request may not take the answers of the restarted process
+		for (var i = 0; i < 5; i++) {
+			var result = exifToolPool.execute(List.of("image" + i + ".jpg"));
+
+			assertThat(result.failed()).isFalse();
+			assertThat(result.output()).startsWith("arg image" + i + ".jpg\npid ");
+		}
+	}
+
+	@Test
+	void execute_restartsWorkerThatDied() throws IOException {
+		var before = exifToolPool.execute(List.of("image.jpg"));
+
+		assertThrows(IOException.class, () -> exifToolPool.execute(List.of("die")));
+		var after = exifToolPool.execute(List.of("image.jpg"));
+
+		assertThat(after.failed()).isFalse();
+		assertThat(pid(after)).isNotEqualTo(pid(before));
+	}
+
+	@Test
+	void execute_rejectsArgumentWithLineBreak() throws IOException {
+		assertThrows(IOException.class, () -> exifToolPool.execute(List.of("-TagsFromFile", "evil\n-all=")));
+
+		// The partly written request was discarded together with the worker
+		var next = exifToolPool.execute(List.of("image.jpg"));
+		assertThat(next.output()).startsWith("arg image.jpg\npid ");
+	}
+
+	@Test
+	void execute_failsAfterShutdown() {
+		exifToolPool.shutdown();
+
+		assertThrows(IOException.class, () -> exifToolPool.execute(List.of("image.jpg")));
+	}
+
+	private static String pid(MetadataTool.ExifToolResult result) {
+		return result.output()
+					 .lines()
+					 .filter(line -> line.startsWith("pid "))
+					 .findFirst()
+					 .orElseThrow();
+	}
+}
@@ -0,0 +1,90 @@
+package fi.poltsi.vempain.file.tools;
+
+import net.coobird.thumbnailator.Thumbnails;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of the site image resize: the full decode through Thumbnailator against the subsampled decode of
+ * {@link ImageTool}. The metadata copy with exiftool is the same for both and left out. Run with {@code ./gradlew :service:jmh},
+ * add {@code -PjmhArgs="ImageToolBenchmark -prof gc"} to also see the allocation per resize.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ImageToolBenchmark {
+
+	// 45 MP and 24 MP sources
+	@Param({"8256x5504", "6000x4000"})
+	public String sourceSize;
+
+	@Param({"1400"})
+	public int siteImageSize;
+
+	private Path      workDirectory;
+	private Path      source;
+	private Path      destination;
+	private ImageTool imageTool;
+	private int       targetWidth;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		var size = sourceSize.split("x");
+		targetWidth   = siteImageSize * Integer.parseInt(size[0]) / Integer.parseInt(size[1]);
+		workDirectory = Files.createTempDirectory("image-tool-benchmark");
+		source        = workDirectory.resolve("source.jpg");
+		destination   = workDirectory.resolve("resized.jpeg");
+		ImageToolUTC.writeTestImage(source, Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+
+		imageTool = new ImageTool(null);
+		ReflectionTestUtils.setField(imageTool, "subsampledResize", true);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		try (var paths = Files.walk(workDirectory)) {
+			for (var path : paths.sorted(Comparator.reverseOrder())
+								 .toList()) {
+				Files.deleteIfExists(path);
+			}
+		}
+	}
+
+	@Benchmark
+	public Path fullDecode() throws IOException {
+		Thumbnails.of(source.toFile())
+				  .size(targetWidth, siteImageSize)
+				  .outputFormat("jpeg")
+				  .outputQuality(0.7f)
+				  .allowOverwrite(true)
+				  .useExifOrientation(true)
+				  .toFile(destination.toFile());
+		return destination;
+	}
+
+	@Benchmark
+	public Object subsampledDecode() throws IOException {
+		return imageTool.subsampledResize(source, destination, siteImageSize, 0.7f, "jpeg");
+	}
+}
@@ -0,0 +1,94 @@
+package fi.poltsi.vempain.file.tools;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests (UTC) for {@link ImageTool}.
+ */
+class ImageToolUTC {
+
+	@TempDir
+	Path tempDir;
+
+	private ImageTool imageTool;
+	private Path      source;
+
+	@BeforeEach
+	void setup() throws IOException {
+		imageTool = new ImageTool(null);
+		ReflectionTestUtils.setField(imageTool, "subsampledResize", true);
+		source = tempDir.resolve("source.jpg");
+		writeTestImage(source, 3000, 2000);
+	}
+
+	@Test
+	void subsampledResize_scalesSmallerSideToTarget() throws IOException {
+		var destination = tempDir.resolve("resized.jpeg");
+
+		var subsampled = imageTool.subsampledResize(source, destination, 400, 0.7f, "jpeg");
+
+		assertThat(subsampled.sourceDimensions()).isEqualTo(new Dimension(3000, 2000));
+		assertThat(subsampled.resizedDimensions()).isEqualTo(new Dimension(600, 400));
+		var written = ImageIO.read(destination.toFile());
+		assertThat(written.getWidth()).isEqualTo(600);
+		assertThat(written.getHeight()).isEqualTo(400);
+	}
+
+	@Test
+	void subsampledResize_returnsOnlySourceDimensionsWhenSourceIsNotMuchLarger() throws IOException {
+		var destination = tempDir.resolve("resized.jpeg");
+
+		var subsampled = imageTool.subsampledResize(source, destination, 1500, 0.7f, "jpeg");
+
+		assertThat(subsampled.sourceDimensions()).isEqualTo(new Dimension(3000, 2000));
+		assertThat(subsampled.resizedDimensions()).isNull();
+	}
+
+	@Test
+	void renderPreview_fallsBackToRegularResizeWhenSubsamplingDoesNotPay() {
+		var destination = tempDir.resolve("preview.jpeg");
+
+		var dimensions = imageTool.renderPreview(source, destination, 1500, 0.7f);
+
+		assertThat(dimensions).isEqualTo(new Dimension(2250, 1500));
+		assertThat(destination).exists();
+	}
+
+	@Test
+	void subsampledResize_reusesWriterForNextImage() throws IOException {
+		imageTool.subsampledResize(source, tempDir.resolve("first.jpeg"), 400, 0.7f, "jpeg");
+		var subsampled = imageTool.subsampledResize(source, tempDir.resolve("second.jpeg"), 300, 0.7f, "jpeg");
+
+		assertThat(subsampled.resizedDimensions()).isEqualTo(new Dimension(450, 300));
+		assertThat(ImageIO.read(tempDir.resolve("second.jpeg")
+									   .toFile())
+						  .getHeight()).isEqualTo(300);
+	}
+
+	@Test
+	void mimeTypeOf_returnsMimetypeOfImageWriter() {
+		assertThat(ImageTool.mimeTypeOf("jpeg")).isEqualTo("image/jpeg");
+		assertThat(ImageTool.mimeTypeOf("PNG")).isEqualTo("image/png");
+		assertThat(ImageTool.mimeTypeOf("no-such-format")).isNull();
+	}
+
+	static void writeTestImage(Path path, int width, int height) throws IOException {
+		var image    = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		var graphics = image.createGraphics();
+		graphics.setPaint(new GradientPaint(0, 0, Color.BLUE, width, height, Color.ORANGE));
+		graphics.fillRect(0, 0, width, height);
+		graphics.dispose();
+		ImageIO.write(image, "jpeg", path.toFile());
+	}
+}
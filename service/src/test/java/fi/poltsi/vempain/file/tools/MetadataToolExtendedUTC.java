@@ -673,4 +673,59 @@ class MetadataToolExtendedUTC {
             assertNull(MetadataTool.metadataToJsonObject("[]"));
         }
     }
+
+    // ------------------------------------------------------------------
+    // buildMetadataDocument / collectStandardMetadataFromDocument
+    // ------------------------------------------------------------------
+    @Nested
+    @DisplayName("metadataDocument")
+    class MetadataDocument {
+
+        @Test
+        void buildMetadataDocument_groupsValuesAsStrings() {
+            var json = new JSONObject();
+            json.put("SourceFile", "/tmp/photo.jpg");
+            var ifd0 = new JSONObject();
+            ifd0.put("Model", "X-T4");
+            ifd0.put("XResolution", 72);
+            json.put("IFD0", ifd0);
+
+            var document = new JSONObject(MetadataTool.buildMetadataDocument(json));
+            assertThat(document.has("SourceFile")).isFalse();
+            assertThat(document.getJSONObject("IFD0").getString("Model")).isEqualTo("X-T4");
+            assertThat(document.getJSONObject("IFD0").getString("XResolution")).isEqualTo("72");
+        }
+
+        @Test
+        void collectStandardMetadataFromDocument_matchesRowBasedOutput() {
+            var mockFile = Mockito.mock(FileEntity.class);
+            var ifd0 = new JSONObject();
+            ifd0.put("Artist", "John Smith");
+            ifd0.put("Make", "Canon");
+            var json = new JSONObject();
+            json.put("IFD0", ifd0);
+            var me1 = MetadataEntity.builder()
+                                    .metadataGroup("IFD0")
+                                    .metadataKey("Artist")
+                                    .metadataValue("John Smith")
+                                    .build();
+            var me2 = MetadataEntity.builder()
+                                    .metadataGroup("IFD0")
+                                    .metadataKey("Make")
+                                    .metadataValue("Canon")
+                                    .build();
+
+            var fromDocument = MetadataTool.collectStandardMetadataFromDocument(MetadataTool.buildMetadataDocument(json), mockFile);
+            assertThat(fromDocument).contains("John Smith");
+            assertThat(fromDocument).contains("Canon");
+            assertThat(fromDocument).isEqualTo(MetadataTool.collectStandardMetadataAsJson(List.of(me1, me2), mockFile));
+        }
+
+        @Test
+        void collectStandardMetadataFromDocument_nullDocument_returnsJsonArray() {
+            var result = MetadataTool.collectStandardMetadataFromDocument(null, null);
+            assertNotNull(result);
+            assertThat(result).startsWith("[");
+        }
+    }
 }
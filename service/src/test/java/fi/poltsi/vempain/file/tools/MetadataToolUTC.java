@@ -749,4 +749,78 @@ class MetadataToolUTC {
 		assertEquals(17, MetadataTool.extractMusicTrackNumber(root));
 		assertEquals(24, MetadataTool.extractMusicTrackTotal(root));
 	}
+
+	@DisplayName("Video and audio fields are read from the grouped metadata JSON without running exiftool again")
+	@org.junit.jupiter.api.Test
+	void extractVideoAndAudioFields_groupedJson() {
+		var quickTime = new JSONObject()
+				.put("Duration", "0:01:05")
+				.put("ImageWidth", 1280)
+				.put("ImageHeight", 720);
+		var track1 = new JSONObject()
+				.put("VideoFrameRate", 29.97)
+				.put("ImageWidth", 1920)
+				.put("ImageHeight", 1080);
+		var track2 = new JSONObject()
+				.put("AudioSampleRate", 48000)
+				.put("AudioChannels", 2);
+		var composite = new JSONObject()
+				.put("ImageSize", "1920x1080")
+				.put("AvgBitrate", "10.2 Mbps");
+		var root = new JSONObject()
+				.put("QuickTime", quickTime)
+				.put("Track1", track1)
+				.put("Track2", track2)
+				.put("Composite", composite);
+
+		var resolution = MetadataTool.extractXYResolution(root);
+		assertEquals(1920, resolution.width);
+		assertEquals(1080, resolution.height);
+		assertEquals(29.97, MetadataTool.extractFrameRate(root), DELTA);
+		assertEquals(65.0, MetadataTool.extractAudioVideoDuration(root)
+											 .toMillis() / 1000.0, DELTA);
+		assertEquals(48000, MetadataTool.extractAudioSampleRate(root));
+		assertEquals(2, MetadataTool.extractAudioChannels(root));
+		assertEquals(10200, MetadataTool.extractAudioBitRate(root, 0L));
+		assertEquals("", MetadataTool.extractVideoCodec(root));
+	}
+
+	@DisplayName("Missing numeric tags default to zero instead of failing")
+	@org.junit.jupiter.api.Test
+	void extractNumericFields_missingTags() {
+		var root = new JSONObject().put("File", new JSONObject().put("FileType", "ZIP"));
+
+		assertEquals(0, MetadataTool.extractArchiveContentCount(root));
+		assertEquals(0L, MetadataTool.extractArchiveUncompressedSize(root));
+		assertFalse(MetadataTool.extractArchiveIsEncrypted(root));
+		assertEquals("ZIP", MetadataTool.extractDocumentFormat(root));
+		assertEquals(0, MetadataTool.extractDocumentPageCount(root));
+	}
+
+	@DisplayName("A tag found in several groups is read from the group that comes first in the search order")
+	@org.junit.jupiter.api.Test
+	void extractFieldsFoundInSeveralGroups_usesGroupOrder() {
+		var root = new JSONObject()
+				.put("Track1", new JSONObject().put("Duration", "0:00:10"))
+				.put("XMP-xmpDM", new JSONObject().put("SampleRate", 22050)
+												  .put("FileType", "XMP"))
+				.put("QuickTime", new JSONObject().put("Duration", "0:01:05"))
+				.put("RIFF", new JSONObject().put("SampleRate", 48000))
+				.put("File", new JSONObject().put("FileType", "MOV"));
+
+		assertEquals(65.0, MetadataTool.extractAudioVideoDuration(root)
+											 .toMillis() / 1000.0, DELTA);
+		assertEquals(48000, MetadataTool.extractAudioSampleRate(root));
+		assertEquals("MOV", MetadataTool.extractDocumentFormat(root));
+	}
+
+	@DisplayName("Groups outside of the search order are searched alphabetically")
+	@org.junit.jupiter.api.Test
+	void extractFieldFromUnlistedGroups_usesAlphabeticalOrder() {
+		var root = new JSONObject()
+				.put("XMP-xmpDM", new JSONObject().put("AudioChannels", 6))
+				.put("APE", new JSONObject().put("AudioChannels", 2));
+
+		assertEquals(2, MetadataTool.extractAudioChannels(root));
+	}
 }
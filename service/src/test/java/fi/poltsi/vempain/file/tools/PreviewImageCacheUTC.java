@@ -0,0 +1,176 @@
+package fi.poltsi.vempain.file.tools;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests (UTC) for {@link PreviewImageCache}.
+ */
+@ExtendWith(MockitoExtension.class)
+class PreviewImageCacheUTC {
+
+	@Mock
+	private ImageTool imageTool;
+
+	@TempDir
+	Path tempDir;
+
+	private PreviewImageCache previewImageCache;
+	private Path              cacheDir;
+	private Path              source;
+
+	@BeforeEach
+	void setup() throws IOException {
+		cacheDir = tempDir.resolve("previews");
+		source   = tempDir.resolve("source.jpg");
+		Files.write(source, new byte[]{1, 2, 3});
+
+		previewImageCache = newCache(100L);
+	}
+
+	@Test
+	void getPreview_rendersOncePerContentAndSize() throws IOException {
+		renderWrites(new byte[]{4, 5, 6});
+
+		assertThat(read(previewImageCache.getPreview(source, "abc", 320))).containsExactly(4, 5, 6);
+		assertThat(read(previewImageCache.getPreview(source, "abc", 320))).containsExactly(4, 5, 6);
+		assertThat(read(previewImageCache.getPreview(source, "abc", 640))).containsExactly(4, 5, 6);
+
+		assertThat(cacheDir.resolve("abc-320.jpg")).exists();
+		assertThat(cacheDir.resolve("abc-640.jpg")).exists();
+		verify(imageTool, times(1)).renderPreview(eq(source), any(), eq(320), anyFloat());
+		verify(imageTool, times(1)).renderPreview(eq(source), any(), eq(640), anyFloat());
+	}
+
+	@Test
+	void getPreview_coalescesConcurrentRequests() throws Exception {
+		var renderStarted = new CountDownLatch(1);
+		var releaseRender = new CountDownLatch(1);
+		when(imageTool.renderPreview(any(), any(), anyInt(), anyFloat())).thenAnswer(invocation -> {
+			renderStarted.countDown();
+			releaseRender.await(5, TimeUnit.SECONDS);
+			Files.write(invocation.getArgument(1, Path.class), new byte[]{7, 8});
+			return new Dimension(320, 240);
+		});
+
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			var results = new ArrayList<Future<byte[]>>();
+
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(() -> read(previewImageCache.getPreview(source, "abc", 320))));
+			}
+
+			assertThat(renderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+			// Lets the other requests find the render in progress
+			Thread.sleep(100);
+			releaseRender.countDown();
+
+			for (var result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS)).containsExactly(7, 8);
+			}
+		}
+
+		verify(imageTool, times(1)).renderPreview(any(), any(), anyInt(), anyFloat());
+	}
+
+	@Test
+	void getPreview_evictsLeastRecentlyUsedPreviews() throws IOException {
+		previewImageCache = newCache(1L);
+		// Each preview is over half of the limit, so only the latest one fits
+		renderWrites(new byte[600 * 1024]);
+
+		read(previewImageCache.getPreview(source, "first", 320));
+		read(previewImageCache.getPreview(source, "second", 320));
+
+		assertThat(cacheDir.resolve("first-320.jpg")).doesNotExist();
+		assertThat(cacheDir.resolve("second-320.jpg")).exists();
+	}
+
+	@Test
+	void getPreview_keepsPreviewBeingServedUntilItIsClosed() throws IOException {
+		previewImageCache = newCache(1L);
+		renderWrites(new byte[600 * 1024]);
+
+		var first = previewImageCache.getPreview(source, "first", 320);
+		read(previewImageCache.getPreview(source, "second", 320));
+
+		// The first preview is still being written to the response
+		assertThat(cacheDir.resolve("first-320.jpg")).exists();
+		assertThat(read(first)).hasSize(600 * 1024);
+		assertThat(cacheDir.resolve("first-320.jpg")).doesNotExist();
+	}
+
+	@Test
+	void init_keepsPreviewsOfEarlierRuns() throws IOException {
+		renderWrites(new byte[]{4, 5, 6});
+		read(previewImageCache.getPreview(source, "abc", 320));
+		Files.writeString(cacheDir.resolve("tmp-interrupted.jpg"), "partial");
+
+		var restarted = newCache(100L);
+
+		assertThat(read(restarted.getPreview(source, "abc", 320))).containsExactly(4, 5, 6);
+		assertThat(cacheDir.resolve("tmp-interrupted.jpg")).doesNotExist();
+		verify(imageTool, times(1)).renderPreview(any(), any(), anyInt(), anyFloat());
+	}
+
+	@Test
+	void init_rendersEveryRequestWhenCacheDirectoryIsUnusable() throws IOException {
+		// A directory can not be created under a regular file
+		cacheDir = source.resolve("previews");
+		previewImageCache = newCache(100L);
+		renderWrites(new byte[]{4, 5, 6});
+
+		assertThat(read(previewImageCache.getPreview(source, "abc", 320))).containsExactly(4, 5, 6);
+		assertThat(read(previewImageCache.getPreview(source, "abc", 320))).containsExactly(4, 5, 6);
+
+		verify(imageTool, times(2)).renderPreview(any(), any(), anyInt(), anyFloat());
+	}
+
+	private PreviewImageCache newCache(long maxSizeMb) {
+		var cache = new PreviewImageCache(imageTool);
+		ReflectionTestUtils.setField(cache, "cacheDirectory", cacheDir.toString());
+		ReflectionTestUtils.setField(cache, "maxSizeMb", maxSizeMb);
+		ReflectionTestUtils.setField(cache, "quality", 0.8f);
+		ReflectionTestUtils.setField(cache, "maxConcurrentRenders", 2);
+		cache.init();
+		return cache;
+	}
+
+	private static byte[] read(PreviewImageCache.Preview preview) throws IOException {
+		try (preview) {
+			return preview.content()
+						  .readAllBytes();
+		}
+	}
+
+	private void renderWrites(byte[] content) {
+		when(imageTool.renderPreview(any(), any(), anyInt(), anyFloat())).thenAnswer(invocation -> {
+			Files.write(invocation.getArgument(1, Path.class), content);
+			return new Dimension(320, 240);
+		});
+	}
+}
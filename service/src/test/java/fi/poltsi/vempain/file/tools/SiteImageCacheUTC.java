@@ -0,0 +1,139 @@
+package fi.poltsi.vempain.file.tools;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests (UTC) for {@link SiteImageCache}.
+ */
+@ExtendWith(MockitoExtension.class)
+class SiteImageCacheUTC {
+
+	@Mock
+	private ImageTool    imageTool;
+	@Mock
+	private ExifToolPool exifToolPool;
+
+	@TempDir
+	Path tempDir;
+
+	private SiteImageCache siteImageCache;
+	private Path           cacheDir;
+	private Path           source;
+
+	@BeforeEach
+	void setup() throws IOException {
+		cacheDir = tempDir.resolve("cache");
+		source   = tempDir.resolve("source.jpg");
+		Files.write(source, new byte[]{1, 2, 3});
+
+		siteImageCache = new SiteImageCache(imageTool, exifToolPool);
+		ReflectionTestUtils.setField(siteImageCache, "enabled", true);
+		ReflectionTestUtils.setField(siteImageCache, "cacheDirectory", cacheDir.toString());
+		ReflectionTestUtils.setField(siteImageCache, "maxSizeMb", 100L);
+		siteImageCache.init();
+
+		when(imageTool.resizeImage(any(), any(), anyInt(), anyFloat(), any())).thenAnswer(invocation -> {
+			Files.write(invocation.getArgument(1, Path.class), new byte[]{4, 5, 6});
+			return new Dimension(10, 20);
+		});
+	}
+
+	@Test
+	void resize_reusesCachedImageForSameInput() throws IOException {
+		var first  = siteImageCache.resize(source, "abc", 1200, 0.7f, "jpeg", "{}");
+		var second = siteImageCache.resize(source, "abc", 1200, 0.7f, "jpeg", "{}");
+
+		assertThat(first.temporary()).isFalse();
+		assertThat(second.path()).isEqualTo(first.path());
+		assertThat(second.dimensions()).isEqualTo(new Dimension(10, 20));
+		assertThat(second.sha256sum()).isEqualTo(first.sha256sum());
+		verify(imageTool, times(1)).resizeImage(any(), any(), anyInt(), anyFloat(), any());
+	}
+
+	@Test
+	void resize_newImageCarriesItsContent() throws IOException {
+		var created = siteImageCache.resize(source, "abc", 1200, 0.7f, "jpeg", "{}");
+		var cached  = siteImageCache.resize(source, "abc", 1200, 0.7f, "jpeg", "{}");
+
+		assertThat(created.content()).containsExactly(4, 5, 6);
+		assertThat(created.mimeType()).isEqualTo("image/jpeg");
+		assertThat(created.sha256sum()).isEqualTo(DigestUtils.sha256Hex(new byte[]{4, 5, 6}));
+		assertThat(cached.content()).isNull();
+		assertThat(cached.mimeType()).isEqualTo("image/jpeg");
+	}
+
+	@Test
+	void resize_changedMetadataIsANewEntry() throws IOException {
+		var first  = siteImageCache.resize(source, "abc", 1200, 0.7f, "jpeg", "{}");
+		var second = siteImageCache.resize(source, "abc", 1200, 0.7f, "jpeg", "{\"a\":1}");
+
+		assertThat(second.path()).isNotEqualTo(first.path());
+		verify(imageTool, times(2)).resizeImage(any(), any(), anyInt(), anyFloat(), any());
+	}
+
+	@Test
+	void resize_evictsLeastRecentlyUsedWhenOverLimit() throws IOException {
+		ReflectionTestUtils.setField(siteImageCache, "maxSizeMb", 0L);
+		siteImageCache.init();
+
+		var first = siteImageCache.resize(source, "abc", 1200, 0.7f, "jpeg", "{}");
+		first.close();
+		var second = siteImageCache.resize(source, "def", 1200, 0.7f, "jpeg", "{}");
+
+		assertThat(first.path()).doesNotExist();
+		assertThat(second.path()).exists();
+	}
+
+	@Test
+	void resize_keepsImageInUseUntilItIsClosed() throws IOException {
+		ReflectionTestUtils.setField(siteImageCache, "maxSizeMb", 0L);
+		siteImageCache.init();
+
+		var first  = siteImageCache.resize(source, "abc", 1200, 0.7f, "jpeg", "{}");
+		var second = siteImageCache.resize(source, "def", 1200, 0.7f, "jpeg", "{}");
+
+		// The first image is still being uploaded
+		assertThat(first.path()).exists();
+		assertThat(second.path()).exists();
+
+		first.close();
+
+		assertThat(first.path()).doesNotExist();
+		assertThat(second.path()).exists();
+	}
+
+	@Test
+	void init_reloadsEntriesWrittenBefore() throws IOException {
+		var first = siteImageCache.resize(source, "abc", 1200, 0.7f, "jpeg", "{}");
+
+		var reloaded = new SiteImageCache(imageTool, exifToolPool);
+		ReflectionTestUtils.setField(reloaded, "enabled", true);
+		ReflectionTestUtils.setField(reloaded, "cacheDirectory", cacheDir.toString());
+		ReflectionTestUtils.setField(reloaded, "maxSizeMb", 100L);
+		reloaded.init();
+
+		assertThat(reloaded.resize(source, "abc", 1200, 0.7f, "jpeg", "{}")
+						   .path()).isEqualTo(first.path());
+		verify(imageTool, times(1)).resizeImage(any(), any(), anyInt(), anyFloat(), any());
+	}
+}